@@ -0,0 +1,49 @@
+package com.production.game2048.benchmark;
+
+import java.util.Random;
+
+/**
+ * Deterministic boards shared by the benchmarks, so every run measures the same positions.
+ */
+public final class BenchmarkBoards {
+
+	private BenchmarkBoards() {
+	}
+
+	/**
+	 * A board as it looks in the middle of a game: about 40% empty cells and tiles from 2 up to 1024,
+	 * with plenty of equal neighbours, so moves in every direction slide and merge.
+	 */
+	public static int[][] midGame(int size, long seed) {
+		Random random = new Random(seed);
+		int[][] board = new int[size][size];
+		for (int[] row : board) {
+			for (int c = 0; c < size; c++) {
+				row[c] = random.nextInt(10) < 4 ? 0 : 2 << random.nextInt(Math.min(10, size + 2));
+			}
+		}
+		return board;
+	}
+
+	/**
+	 * A full board where no two neighbours are equal, i.e. a lost game. No move changes it.
+	 */
+	public static int[][] locked(int size) {
+		int[][] board = new int[size][size];
+		for (int r = 0; r < size; r++) {
+			for (int c = 0; c < size; c++) {
+				board[r][c] = (r + c) % 2 == 0 ? 2 : 4;
+			}
+		}
+		return board;
+	}
+
+	/**
+	 * Copies every row of the source board into the target board, which must have the same size.
+	 */
+	public static void copy(int[][] source, int[][] target) {
+		for (int r = 0; r < source.length; r++) {
+			System.arraycopy(source[r], 0, target[r], 0, source[r].length);
+		}
+	}
+}
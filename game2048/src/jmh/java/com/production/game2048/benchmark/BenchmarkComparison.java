@@ -0,0 +1,140 @@
+package com.production.game2048.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files written with {@code -rf csv}, typically src/jmh/baseline.csv and
+ * target/jmh-result.csv, and exits with status 1 if any benchmark regressed by more than the
+ * threshold.
+ *
+ * The primary score of every benchmark is compared (higher is better for throughput, lower for
+ * every other mode), as is the normalised allocation rate, gc.alloc.rate.norm, when both runs
+ * used the gc profiler. Benchmarks that appear in only one file are listed but never fail.
+ *
+ * Usage: BenchmarkComparison baseline.csv current.csv [threshold percent, default 10]
+ */
+public final class BenchmarkComparison {
+
+	private static final String ALLOCATION_METRIC = ":gc.alloc.rate.norm";
+	// Allocation changes below this many bytes per operation are measurement noise.
+	private static final double ALLOCATION_SLACK = 16;
+
+	private BenchmarkComparison() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: BenchmarkComparison <baseline.csv> <current.csv> [threshold %]");
+			System.exit(2);
+		}
+		Map<String, Result> baseline = read(args[0]);
+		Map<String, Result> current = read(args[1]);
+		double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+
+		int regressions = 0;
+		for (Map.Entry<String, Result> entry : current.entrySet()) {
+			Result now = entry.getValue();
+			Result before = baseline.get(entry.getKey());
+			if (before == null) {
+				System.out.printf(Locale.ROOT, "%-90s %14s %14.3f %-8s  new%n", entry.getKey(), "-", now.score, now.unit);
+				continue;
+			}
+			double change = before.score == 0 ? 0 : (now.score - before.score) / before.score * 100;
+			boolean allocation = entry.getKey().contains(ALLOCATION_METRIC);
+			boolean higherIsBetter = !allocation && "thrpt".equals(now.mode);
+			double worse = higherIsBetter ? -change : change;
+			boolean regressed = worse > threshold
+					&& (!allocation || now.score - before.score > ALLOCATION_SLACK);
+			if (regressed) {
+				regressions++;
+			}
+			System.out.printf(Locale.ROOT, "%-90s %14.3f %14.3f %-8s %+7.1f%%%s%n", entry.getKey(), before.score,
+					now.score, now.unit, change, regressed ? "  REGRESSION" : "");
+		}
+		for (String key : baseline.keySet()) {
+			if (!current.containsKey(key)) {
+				System.out.printf(Locale.ROOT, "%-90s  missing from the current run%n", key);
+			}
+		}
+
+		System.out.printf(Locale.ROOT, "%d regression(s) beyond %.1f%%.%n", regressions, threshold);
+		System.exit(regressions == 0 ? 0 : 1);
+	}
+
+	/**
+	 * Reads the primary and allocation results of a CSV file, keyed by benchmark name and parameters.
+	 */
+	private static Map<String, Result> read(String file) throws IOException {
+		List<String> lines = Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8);
+		Map<String, Result> results = new LinkedHashMap<>();
+		if (lines.isEmpty()) {
+			return results;
+		}
+		List<String> header = split(lines.get(0));
+		for (String line : lines.subList(1, lines.size())) {
+			List<String> cells = split(line);
+			String name = cells.get(0);
+			if (name.indexOf(':') >= 0 && !name.endsWith(ALLOCATION_METRIC)) {
+				continue; // Other profiler output is too noisy to compare.
+			}
+			// Drop the package, keeping Class.method and the metric suffix, if any.
+			int metric = name.indexOf(':') < 0 ? name.length() : name.indexOf(':');
+			int method = name.lastIndexOf('.', metric);
+			StringBuilder key = new StringBuilder(name.substring(name.lastIndexOf('.', method - 1) + 1));
+			for (int i = 7; i < header.size() && i < cells.size(); i++) {
+				if (!cells.get(i).isEmpty()) {
+					key.append(key.indexOf("{") < 0 ? " {" : ", ")
+							.append(header.get(i).replace("Param: ", "")).append('=').append(cells.get(i));
+				}
+			}
+			if (key.indexOf("{") >= 0) {
+				key.append('}');
+			}
+			results.put(key.toString(), new Result(cells.get(1), Double.parseDouble(cells.get(4)), cells.get(6)));
+		}
+		return results;
+	}
+
+	/**
+	 * Splits one CSV line, removing the quotes around quoted cells.
+	 */
+	private static List<String> split(String line) {
+		List<String> cells = new ArrayList<>();
+		StringBuilder cell = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '"') {
+				quoted = !quoted;
+			} else if (c == ',' && !quoted) {
+				cells.add(cell.toString());
+				cell.setLength(0);
+			} else {
+				cell.append(c);
+			}
+		}
+		cells.add(cell.toString());
+		return cells;
+	}
+
+	private static final class Result {
+
+		final String mode;
+		final double score;
+		final String unit;
+
+		Result(String mode, double score, String unit) {
+			this.mode = mode;
+			this.score = score;
+			this.unit = unit;
+		}
+	}
+}
@@ -0,0 +1,441 @@
+package com.production.game2048.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.production.game2048.Game2048Application;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load test with simulated players, reporting throughput, latency percentiles and error rates
+ * per endpoint.
+ *
+ * Unless {@code url} points at a running server, the application is started on a random port
+ * with an in-memory H2 database. Each player then starts a game through {@code POST /api/games}
+ * and plays it through {@code POST /api/games/{id}/move} until it is over or the player gives up,
+ * then starts the next one. Between moves a player thinks for a log-normally distributed time
+ * with the given median, three times as long before a new game; the directions favour the
+ * bottom-left corner like a human strategy would. Players are started evenly over the warm-up,
+ * and only requests made after it are measured.
+ *
+ * The report is printed and written to {@code out}.csv and {@code out}.json. With
+ * {@code baseline} set to the CSV of an earlier run, the change in throughput and p99 per
+ * endpoint is printed as well.
+ *
+ * Usage: LoadTest [players=100] [duration=60] [warmup=10] [think=500] [thinkSigma=0.6]
+ *                 [abandon=0.005] [durability=SYNC] [seed=1] [url=http://host:port]
+ *                 [out=target/load-test] [baseline=previous.csv]
+ */
+public final class LoadTest {
+
+	private static final String CREATE = "POST /api/games";
+	private static final String MOVE = "POST /api/games/{id}/move";
+	private static final String[] ENDPOINTS = {CREATE, MOVE};
+	private static final String[] DIRECTIONS = {"LEFT", "DOWN", "RIGHT", "UP"};
+	/** Cumulative weights of {@link #DIRECTIONS}. */
+	private static final double[] DIRECTION_WEIGHTS = {0.35, 0.70, 0.90, 1.0};
+	private static final Pattern GAME_ID = Pattern.compile("\"id\":(\\d+)");
+
+	private LoadTest() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new HashMap<>();
+		for (String arg : args) {
+			int split = arg.indexOf('=');
+			if (split < 0) {
+				System.err.println("Arguments are key=value pairs, got " + arg);
+				System.exit(2);
+			}
+			options.put(arg.substring(0, split), arg.substring(split + 1));
+		}
+		Settings settings = new Settings(options);
+		String out = options.getOrDefault("out", "target/load-test");
+
+		ConfigurableApplicationContext context = null;
+		String baseUrl = options.get("url");
+		if (baseUrl == null) {
+			context = start(settings);
+			baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+		}
+		Map<String, Stats> stats = new LinkedHashMap<>();
+		for (String endpoint : ENDPOINTS) {
+			stats.put(endpoint, new Stats(endpoint, settings.duration));
+		}
+		try {
+			System.out.printf(Locale.ROOT, "%d players against %s: %ds warm-up, %ds measured, think time median %d ms%n",
+					settings.players, baseUrl, settings.warmup, settings.duration, settings.thinkMillis);
+			run(baseUrl + "/api/games", settings, stats);
+		} finally {
+			if (context != null) {
+				context.close();
+			}
+		}
+
+		System.out.printf(Locale.ROOT, "%n%-27s %9s %7s %8s %9s %9s %9s %9s %9s%n",
+				"endpoint", "requests", "errors", "error %", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+		for (Stats endpoint : stats.values()) {
+			System.out.printf(Locale.ROOT, "%-27s %9d %7d %8.2f %9.1f %9.2f %9.2f %9.2f %9.2f%n", endpoint.endpoint,
+					endpoint.requests(), endpoint.errors, endpoint.errorRate() * 100, endpoint.throughput(),
+					endpoint.percentile(50), endpoint.percentile(95), endpoint.percentile(99), endpoint.percentile(100));
+		}
+		writeCsv(Paths.get(out + ".csv"), stats);
+		writeJson(Paths.get(out + ".json"), settings, stats);
+		System.out.println("\nWritten to " + out + ".csv and " + out + ".json");
+		if (options.containsKey("baseline")) {
+			compare(Paths.get(options.get("baseline")), stats);
+		}
+	}
+
+	private static ConfigurableApplicationContext start(Settings settings) {
+		System.setProperty("spring.devtools.restart.enabled", "false");
+		String run = Long.toString(System.nanoTime());
+		return new SpringApplicationBuilder(Game2048Application.class)
+				// Passed as command line arguments, which override application.properties.
+				.run(
+						"--server.port=0",
+						"--spring.datasource.url=jdbc:h2:mem:loadtest" + run + ";DB_CLOSE_DELAY=-1",
+						"--spring.jpa.show-sql=false",
+						"--logging.level.root=WARN",
+						"--game.session.durability=" + settings.durability,
+						"--game.journal.directory=target/load-test/journal-" + run,
+						"--game.archive.enabled=false",
+						"--game.archive.directory=target/load-test/archive-" + run,
+						"--game.rate-limit.enabled=false");
+	}
+
+	private static void run(String gamesUrl, Settings settings, Map<String, Stats> stats) throws InterruptedException {
+		long begin = System.nanoTime();
+		long measureFrom = begin + TimeUnit.SECONDS.toNanos(settings.warmup);
+		long measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(settings.duration);
+		CountDownLatch done = new CountDownLatch(settings.players);
+		for (int i = 0; i < settings.players; i++) {
+			Player player = new Player(gamesUrl, settings, new Random(settings.seed * 31 + i), measureFrom, measureUntil);
+			long startAt = begin + TimeUnit.SECONDS.toNanos(settings.warmup) * i / settings.players;
+			Thread thread = new Thread(() -> {
+				try {
+					player.play(startAt);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					player.report(stats);
+					done.countDown();
+				}
+			}, "player-" + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+		if (!done.await(settings.warmup + settings.duration + 60, TimeUnit.SECONDS)) {
+			System.out.println("Some players did not finish in time; their requests are not counted.");
+		}
+	}
+
+	private static void writeCsv(Path file, Map<String, Stats> stats) throws IOException {
+		createParent(file);
+		try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+			writer.println("endpoint,requests,errors,error_rate,throughput,p50_ms,p95_ms,p99_ms,max_ms");
+			for (Stats endpoint : stats.values()) {
+				writer.printf(Locale.ROOT, "%s,%d,%d,%.5f,%.1f,%.3f,%.3f,%.3f,%.3f%n", endpoint.endpoint,
+						endpoint.requests(), endpoint.errors, endpoint.errorRate(), endpoint.throughput(),
+						endpoint.percentile(50), endpoint.percentile(95), endpoint.percentile(99),
+						endpoint.percentile(100));
+			}
+		}
+	}
+
+	private static void writeJson(Path file, Settings settings, Map<String, Stats> stats) throws IOException {
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("java", System.getProperty("java.version"));
+		report.put("processors", Runtime.getRuntime().availableProcessors());
+		report.put("players", settings.players);
+		report.put("warmupSeconds", settings.warmup);
+		report.put("durationSeconds", settings.duration);
+		report.put("thinkMedianMs", settings.thinkMillis);
+		report.put("thinkSigma", settings.thinkSigma);
+		report.put("abandonRate", settings.abandon);
+		report.put("durability", settings.durability);
+		List<Map<String, Object>> endpoints = new ArrayList<>();
+		for (Stats endpoint : stats.values()) {
+			Map<String, Object> entry = new LinkedHashMap<>();
+			entry.put("endpoint", endpoint.endpoint);
+			entry.put("requests", endpoint.requests());
+			entry.put("errors", endpoint.errors);
+			entry.put("errorRate", endpoint.errorRate());
+			entry.put("throughput", endpoint.throughput());
+			entry.put("p50Ms", endpoint.percentile(50));
+			entry.put("p95Ms", endpoint.percentile(95));
+			entry.put("p99Ms", endpoint.percentile(99));
+			entry.put("maxMs", endpoint.percentile(100));
+			endpoints.add(entry);
+		}
+		report.put("endpoints", endpoints);
+		createParent(file);
+		new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+	}
+
+	/**
+	 * Prints how throughput and p99 changed against the CSV of an earlier run.
+	 */
+	private static void compare(Path baseline, Map<String, Stats> stats) throws IOException {
+		System.out.printf(Locale.ROOT, "%nCompared with %s:%n%-27s %12s %12s%n", baseline, "endpoint", "req/s", "p99");
+		List<String> lines = Files.readAllLines(baseline, StandardCharsets.UTF_8);
+		for (String line : lines.subList(1, lines.size())) {
+			String[] columns = line.split(",");
+			Stats now = stats.get(columns[0]);
+			if (now == null) {
+				continue;
+			}
+			System.out.printf(Locale.ROOT, "%-27s %+11.1f%% %+11.1f%%%n", columns[0],
+					change(Double.parseDouble(columns[4]), now.throughput()),
+					change(Double.parseDouble(columns[7]), now.percentile(99)));
+		}
+	}
+
+	private static double change(double before, double now) {
+		return before == 0 ? 0 : (now - before) / before * 100;
+	}
+
+	private static void createParent(Path file) throws IOException {
+		if (file.getParent() != null) {
+			Files.createDirectories(file.getParent());
+		}
+	}
+
+	private static final class Settings {
+
+		private final int players;
+		private final int duration;
+		private final int warmup;
+		private final long thinkMillis;
+		private final double thinkSigma;
+		private final double abandon;
+		private final String durability;
+		private final long seed;
+
+		Settings(Map<String, String> options) {
+			players = Integer.parseInt(options.getOrDefault("players", "100"));
+			duration = Integer.parseInt(options.getOrDefault("duration", "60"));
+			warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+			thinkMillis = Long.parseLong(options.getOrDefault("think", "500"));
+			thinkSigma = Double.parseDouble(options.getOrDefault("thinkSigma", "0.6"));
+			abandon = Double.parseDouble(options.getOrDefault("abandon", "0.005"));
+			durability = options.getOrDefault("durability", "SYNC");
+			seed = Long.parseLong(options.getOrDefault("seed", "1"));
+		}
+	}
+
+	/**
+	 * One simulated player, recording the latencies of its own requests.
+	 */
+	private static final class Player {
+
+		private final String gamesUrl;
+		private final Settings settings;
+		private final Random random;
+		private final long measureFrom;
+		private final long measureUntil;
+		private final Map<String, long[]> latencies = new HashMap<>();
+		private final Map<String, Integer> counts = new HashMap<>();
+		private final Map<String, Integer> errors = new HashMap<>();
+
+		Player(String gamesUrl, Settings settings, Random random, long measureFrom, long measureUntil) {
+			this.gamesUrl = gamesUrl;
+			this.settings = settings;
+			this.random = random;
+			this.measureFrom = measureFrom;
+			this.measureUntil = measureUntil;
+			for (String endpoint : ENDPOINTS) {
+				latencies.put(endpoint, new long[256]);
+				counts.put(endpoint, 0);
+				errors.put(endpoint, 0);
+			}
+		}
+
+		void play(long startAt) throws InterruptedException {
+			sleepUntil(startAt);
+			String gameId = null;
+			while (System.nanoTime() < measureUntil) {
+				if (gameId == null) {
+					String body = request(CREATE, gamesUrl);
+					Matcher matcher = body == null ? null : GAME_ID.matcher(body);
+					gameId = matcher != null && matcher.find() ? matcher.group(1) : null;
+					think(1);
+					continue;
+				}
+				String body = request(MOVE, gamesUrl + "/" + gameId + "/move?direction=" + direction());
+				if ((body != null && body.contains("\"gameOver\":true")) || random.nextDouble() < settings.abandon) {
+					gameId = null;
+					think(3);
+				} else {
+					think(1);
+				}
+			}
+		}
+
+		/**
+		 * @return The response body, or null if the request failed.
+		 */
+		private String request(String endpoint, String url) {
+			long start = System.nanoTime();
+			String body;
+			try {
+				body = post(url);
+			} catch (IOException e) {
+				body = null;
+			}
+			long end = System.nanoTime();
+			if (start >= measureFrom && end <= measureUntil) {
+				if (body == null) {
+					errors.merge(endpoint, 1, Integer::sum);
+				} else {
+					int count = counts.get(endpoint);
+					long[] samples = latencies.get(endpoint);
+					if (count == samples.length) {
+						samples = Arrays.copyOf(samples, count * 2);
+						latencies.put(endpoint, samples);
+					}
+					samples[count] = end - start;
+					counts.put(endpoint, count + 1);
+				}
+			}
+			return body;
+		}
+
+		private String direction() {
+			double draw = random.nextDouble();
+			int i = 0;
+			while (draw > DIRECTION_WEIGHTS[i]) {
+				i++;
+			}
+			return DIRECTIONS[i];
+		}
+
+		/**
+		 * Sleeps for a log-normally distributed time with the configured median times the factor.
+		 */
+		private void think(int factor) throws InterruptedException {
+			if (settings.thinkMillis <= 0) {
+				return;
+			}
+			double millis = factor * settings.thinkMillis * Math.exp(settings.thinkSigma * random.nextGaussian());
+			sleepUntil(Math.min(System.nanoTime() + (long) (millis * 1_000_000), measureUntil));
+		}
+
+		private static void sleepUntil(long deadline) throws InterruptedException {
+			long remaining = deadline - System.nanoTime();
+			if (remaining > 0) {
+				TimeUnit.NANOSECONDS.sleep(remaining);
+			}
+		}
+
+		void report(Map<String, Stats> stats) {
+			for (String endpoint : ENDPOINTS) {
+				stats.get(endpoint).add(latencies.get(endpoint), counts.get(endpoint), errors.get(endpoint));
+			}
+		}
+	}
+
+	private static String post(String url) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+		connection.setRequestMethod("POST");
+		connection.setConnectTimeout(10_000);
+		connection.setReadTimeout(30_000);
+		int status = connection.getResponseCode();
+		InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		if (in != null) {
+			// Reading the whole body lets the connection be reused for the next request.
+			try (InputStream stream = in) {
+				byte[] buffer = new byte[4096];
+				for (int n; (n = stream.read(buffer)) > 0; ) {
+					body.write(buffer, 0, n);
+				}
+			}
+		}
+		if (status != 200) {
+			throw new IOException("HTTP " + status);
+		}
+		return new String(body.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * The measured requests of one endpoint, across all players.
+	 */
+	private static final class Stats {
+
+		private final String endpoint;
+		private final int seconds;
+		private long[] latencies = new long[0];
+		private long errors;
+		private boolean sorted = true;
+
+		Stats(String endpoint, int seconds) {
+			this.endpoint = endpoint;
+			this.seconds = seconds;
+		}
+
+		synchronized void add(long[] more, int count, int moreErrors) {
+			int offset = latencies.length;
+			latencies = Arrays.copyOf(latencies, offset + count);
+			System.arraycopy(more, 0, latencies, offset, count);
+			errors += moreErrors;
+			sorted = false;
+		}
+
+		/**
+		 * @return The number of measured requests, failed ones included.
+		 */
+		synchronized long requests() {
+			return latencies.length + errors;
+		}
+
+		synchronized double errorRate() {
+			return requests() == 0 ? 0 : errors / (double) requests();
+		}
+
+		/**
+		 * @return Successful requests per second.
+		 */
+		synchronized double throughput() {
+			return latencies.length / (double) seconds;
+		}
+
+		/**
+		 * @return The given percentile of the successful requests' latencies, in milliseconds.
+		 */
+		synchronized double percentile(double percentile) {
+			if (latencies.length == 0) {
+				return 0;
+			}
+			if (!sorted) {
+				Arrays.sort(latencies);
+				sorted = true;
+			}
+			int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+			return latencies[Math.max(0, index)] / 1_000_000.0;
+		}
+	}
+}
@@ -0,0 +1,247 @@
+package com.production.game2048.benchmark;
+
+import com.production.game2048.Game2048Application;
+import com.production.game2048.config.ExecutionMode;
+import com.production.game2048.config.VirtualThreads;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares request throughput and latency of the PLATFORM and VIRTUAL values of
+ * {@code game.threads.mode} under many concurrent clients.
+ *
+ * For each mode the application is started on a random port with a file-based H2 database and
+ * SYNC durability, so every move blocks on a database write. Each client then plays its own game
+ * through {@code POST /api/games/{id}/move} as fast as it can, starting a new game when one ends.
+ * Latencies recorded after the warm-up are reported per mode as throughput, p50, p99 and max,
+ * printed and written as CSV. VIRTUAL is skipped, with a note, on JVMs older than Java 21.
+ *
+ * Usage: ThreadModeComparison [clients=400] [duration=30] [warmup=10] [modes=PLATFORM,VIRTUAL]
+ *                             [out=target/thread-modes.csv]
+ */
+public final class ThreadModeComparison {
+
+	private static final String[] DIRECTIONS = {"UP", "DOWN", "LEFT", "RIGHT"};
+	private static final Pattern GAME_ID = Pattern.compile("\"id\":(\\d+)");
+
+	private ThreadModeComparison() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new HashMap<>();
+		for (String arg : args) {
+			int split = arg.indexOf('=');
+			if (split < 0) {
+				System.err.println("Arguments are key=value pairs, got " + arg);
+				System.exit(2);
+			}
+			options.put(arg.substring(0, split), arg.substring(split + 1));
+		}
+		int clients = Integer.parseInt(options.getOrDefault("clients", "400"));
+		int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+		int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+		Path out = Paths.get(options.getOrDefault("out", "target/thread-modes.csv"));
+
+		List<Result> results = new ArrayList<>();
+		for (String name : options.getOrDefault("modes", "PLATFORM,VIRTUAL").split(",")) {
+			ExecutionMode mode = ExecutionMode.valueOf(name.trim().toUpperCase(Locale.ROOT));
+			if (mode == ExecutionMode.VIRTUAL && !VirtualThreads.isSupported()) {
+				System.out.println("Skipping VIRTUAL: Java " + System.getProperty("java.version")
+						+ " has no virtual threads. Run with a Java 21+ JVM (-Dbenchmark.java=...).");
+				continue;
+			}
+			System.out.printf(Locale.ROOT, "%s: %d clients, %ds warm-up, %ds measured%n", mode, clients, warmup, duration);
+			results.add(run(mode, clients, warmup, duration));
+		}
+
+		System.out.printf(Locale.ROOT, "%n%-9s %8s %10s %8s %12s %9s %9s %9s%n",
+				"mode", "clients", "requests", "errors", "req/s", "p50 ms", "p99 ms", "max ms");
+		for (Result result : results) {
+			System.out.printf(Locale.ROOT, "%-9s %8d %10d %8d %12.1f %9.2f %9.2f %9.2f%n", result.mode, clients,
+					result.requests(), result.errors.get(), result.throughput(), result.percentile(50),
+					result.percentile(99), result.percentile(100));
+		}
+		if (out.getParent() != null) {
+			Files.createDirectories(out.getParent());
+		}
+		try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(out, StandardCharsets.UTF_8))) {
+			writer.println("mode,java,clients,seconds,requests,errors,throughput,p50_ms,p99_ms,max_ms");
+			for (Result result : results) {
+				writer.printf(Locale.ROOT, "%s,%s,%d,%d,%d,%d,%.1f,%.3f,%.3f,%.3f%n", result.mode,
+						System.getProperty("java.version"), clients, duration, result.requests(), result.errors.get(),
+						result.throughput(), result.percentile(50), result.percentile(99), result.percentile(100));
+			}
+		}
+		System.out.println("\nWritten to " + out);
+	}
+
+	private static Result run(ExecutionMode mode, int clients, int warmup, int duration) throws Exception {
+		System.setProperty("spring.devtools.restart.enabled", "false");
+		Path database = Paths.get("target", "thread-modes", mode.name().toLowerCase(Locale.ROOT)).toAbsolutePath();
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(Game2048Application.class)
+				// Passed as command line arguments, which override application.properties.
+				.run(
+						"--server.port=0",
+						"--spring.datasource.url=jdbc:h2:file:" + database + "/" + System.nanoTime() + ";DB_CLOSE_DELAY=-1",
+						"--spring.jpa.show-sql=false",
+						"--logging.level.root=WARN",
+						"--game.session.durability=SYNC",
+						"--game.threads.mode=" + mode,
+						"--game.archive.enabled=false",
+						"--game.archive.directory=" + database.resolve("archive"),
+						"--game.rate-limit.enabled=false");
+		try {
+			String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/games";
+			long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmup);
+			long measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(duration);
+			Result result = new Result(mode, duration);
+			CountDownLatch done = new CountDownLatch(clients);
+			for (int i = 0; i < clients; i++) {
+				Thread client = new Thread(() -> {
+					try {
+						play(baseUrl, measureFrom, measureUntil, result);
+					} finally {
+						done.countDown();
+					}
+				}, "client-" + i);
+				client.setDaemon(true);
+				client.start();
+			}
+			if (!done.await(warmup + duration + 60, TimeUnit.SECONDS)) {
+				System.out.println("Some clients did not finish in time; their last requests are not counted.");
+			}
+			return result;
+		} finally {
+			context.close();
+		}
+	}
+
+	/**
+	 * One client: plays random moves until the measurement window is over.
+	 */
+	private static void play(String baseUrl, long measureFrom, long measureUntil, Result result) {
+		long[] latencies = new long[1024];
+		int count = 0;
+		String gameId = null;
+		while (System.nanoTime() < measureUntil) {
+			long start = System.nanoTime();
+			String body;
+			try {
+				if (gameId == null) {
+					body = post(baseUrl);
+					Matcher matcher = GAME_ID.matcher(body);
+					gameId = matcher.find() ? matcher.group(1) : null;
+					continue; // Only moves are measured.
+				}
+				String direction = DIRECTIONS[ThreadLocalRandom.current().nextInt(DIRECTIONS.length)];
+				body = post(baseUrl + "/" + gameId + "/move?direction=" + direction);
+			} catch (IOException e) {
+				if (start >= measureFrom) {
+					result.errors.incrementAndGet();
+				}
+				continue;
+			}
+			long end = System.nanoTime();
+			if (start >= measureFrom && end <= measureUntil) {
+				if (count == latencies.length) {
+					latencies = Arrays.copyOf(latencies, count * 2);
+				}
+				latencies[count++] = end - start;
+			}
+			if (body.contains("\"gameOver\":true")) {
+				gameId = null;
+			}
+		}
+		result.add(latencies, count);
+	}
+
+	private static String post(String url) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+		connection.setRequestMethod("POST");
+		connection.setConnectTimeout(10_000);
+		connection.setReadTimeout(30_000);
+		int status = connection.getResponseCode();
+		InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		if (in != null) {
+			// Reading the whole body lets the connection be reused for the next request.
+			try (InputStream stream = in) {
+				byte[] buffer = new byte[4096];
+				for (int n; (n = stream.read(buffer)) > 0; ) {
+					body.write(buffer, 0, n);
+				}
+			}
+		}
+		if (status != 200) {
+			throw new IOException("HTTP " + status);
+		}
+		return new String(body.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static final class Result {
+
+		private final ExecutionMode mode;
+		private final int seconds;
+		private final AtomicLong errors = new AtomicLong();
+		private long[] latencies = new long[0];
+		private boolean sorted = true;
+
+		Result(ExecutionMode mode, int seconds) {
+			this.mode = mode;
+			this.seconds = seconds;
+		}
+
+		synchronized void add(long[] more, int count) {
+			int offset = latencies.length;
+			latencies = Arrays.copyOf(latencies, offset + count);
+			System.arraycopy(more, 0, latencies, offset, count);
+			sorted = false;
+		}
+
+		synchronized long requests() {
+			return latencies.length;
+		}
+
+		synchronized double throughput() {
+			return latencies.length / (double) seconds;
+		}
+
+		/**
+		 * @return The given percentile of the recorded latencies, in milliseconds.
+		 */
+		synchronized double percentile(double percentile) {
+			if (latencies.length == 0) {
+				return 0;
+			}
+			if (!sorted) {
+				Arrays.sort(latencies);
+				sorted = true;
+			}
+			int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+			return latencies[Math.max(0, index)] / 1_000_000.0;
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package com.production.game2048.engine;
+
+import com.production.game2048.benchmark.BenchmarkBoards;
+import com.production.game2048.model.MoveDirection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the whole-board operations that do not depend on a direction: restoring a board
+ * (the fixed cost included in {@link MoveEngineBenchmark}), spawning a tile, and detecting a lost
+ * game, which takes a no-op slide in all four directions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardScanBenchmark {
+
+	private static final MoveDirection[] DIRECTIONS = MoveDirection.values();
+
+	@Param({"4", "5", "8", "16"})
+	int boardSize;
+
+	private MoveEngine engine;
+	private int[][] start;
+	private int[][] board;
+	private int[][] locked;
+	private GameRandom random;
+	private MoveResult result;
+
+	@Setup
+	public void setUp() {
+		start = BenchmarkBoards.midGame(boardSize, 42);
+		board = new int[boardSize][boardSize];
+		locked = BenchmarkBoards.locked(boardSize);
+		engine = new MoveEngineSelector(Arrays.asList(new BitBoardMoveEngine(), new GenericMoveEngine()))
+				.engineFor(start);
+		random = new GameRandom(42);
+		result = new MoveResult();
+	}
+
+	@Benchmark
+	public int[][] copyBoard() {
+		BenchmarkBoards.copy(start, board);
+		return board;
+	}
+
+	@Benchmark
+	public boolean spawnTile() {
+		BenchmarkBoards.copy(start, board);
+		return engine.spawnTile(board, random);
+	}
+
+	@Benchmark
+	public boolean detectGameOver() {
+		for (MoveDirection direction : DIRECTIONS) {
+			engine.slide(locked, direction, result);
+			if (result.isChanged()) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,124 @@
+package com.production.game2048.engine;
+
+import com.production.game2048.benchmark.BenchmarkBoards;
+import com.production.game2048.model.MoveDirection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of a single move on large boards, for the generic engine ({@code threads=0}) and the
+ * parallel engine with 1 to 8 worker threads, to show how the parallel engine scales with cores.
+ *
+ * Unlike {@link MoveEngineBenchmark}, the board is restored outside the measured time, since at
+ * these sizes the restore would cost about as much as the move. {@code gameOverScan} moves a
+ * board with a single empty cell, which the spawn fills, so every call also searches the whole
+ * board for a possible merge and finds none.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LargeBoardBenchmark {
+
+	@Param({"64", "128", "256", "512"})
+	int boardSize;
+
+	@Param({"0", "1", "2", "4", "8"})
+	int threads;
+
+	// The empty cell of gameOverScan only slides for these two.
+	@Param({"LEFT", "UP"})
+	MoveDirection direction;
+
+	private MoveEngine engine;
+	private ParallelMoveEngine parallel;
+	private int[][] start;
+	private int[][] locked;
+	private int[][] board;
+	private GameRandom random;
+	private MoveResult result;
+
+	@Setup
+	public void setUp() {
+		start = BenchmarkBoards.midGame(boardSize, 42);
+		locked = lastEmptyCell(boardSize, direction);
+		board = new int[boardSize][boardSize];
+		if (threads == 0) {
+			engine = new GenericMoveEngine();
+		} else {
+			BoardProperties properties = new BoardProperties();
+			properties.setParallelThreshold(1);
+			properties.setParallelism(threads);
+			parallel = new ParallelMoveEngine(properties);
+			engine = parallel;
+		}
+		random = new GameRandom(42);
+		result = new MoveResult();
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (parallel != null) {
+			parallel.shutdown();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class MidGame {
+		@Setup(Level.Invocation)
+		public void restore(LargeBoardBenchmark benchmark) {
+			BenchmarkBoards.copy(benchmark.start, benchmark.board);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Locked {
+		@Setup(Level.Invocation)
+		public void restore(LargeBoardBenchmark benchmark) {
+			BenchmarkBoards.copy(benchmark.locked, benchmark.board);
+		}
+	}
+
+	@Benchmark
+	public MoveResult move(MidGame restored) {
+		engine.move(board, direction, random, result);
+		return result;
+	}
+
+	@Benchmark
+	public MoveResult gameOverScan(Locked restored) {
+		engine.move(board, direction, random, result);
+		return result;
+	}
+
+	/**
+	 * A full board but for its top-left corner, with tiles of 8, 16 and 32 arranged so that no two
+	 * neighbours are equal before or after the move, nor next to a spawned 2 or 4.
+	 */
+	private static int[][] lastEmptyCell(int size, MoveDirection direction) {
+		boolean horizontal = direction == MoveDirection.LEFT || direction == MoveDirection.RIGHT;
+		int[][] board = new int[size][size];
+		for (int r = 0; r < size; r++) {
+			for (int c = 0; c < size; c++) {
+				board[r][c] = 8 << ((horizontal ? r + 2 * c : 2 * r + c) % 3);
+			}
+		}
+		board[0][0] = 0;
+		return board;
+	}
+}
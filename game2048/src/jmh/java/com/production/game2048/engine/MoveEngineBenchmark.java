@@ -0,0 +1,70 @@
+package com.production.game2048.engine;
+
+import com.production.game2048.benchmark.BenchmarkBoards;
+import com.production.game2048.model.MoveDirection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a single move, per direction and board size, with the engine the service picks
+ * for that size: the bitboard engine for 4x4 and the generic engine otherwise.
+ *
+ * Every invocation restores the same mid-game board first; {@link BoardScanBenchmark#copyBoard()}
+ * measures that restore on its own, so it can be subtracted from these results.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveEngineBenchmark {
+
+	@Param({"4", "5", "8", "16"})
+	int boardSize;
+
+	@Param({"LEFT", "RIGHT", "UP", "DOWN"})
+	MoveDirection direction;
+
+	private MoveEngine engine;
+	private int[][] start;
+	private int[][] board;
+	private GameRandom random;
+	private MoveResult result;
+
+	@Setup
+	public void setUp() {
+		start = BenchmarkBoards.midGame(boardSize, 42);
+		board = new int[boardSize][boardSize];
+		engine = new MoveEngineSelector(Arrays.asList(new BitBoardMoveEngine(), new GenericMoveEngine()))
+				.engineFor(start);
+		random = new GameRandom(42);
+		result = new MoveResult();
+	}
+
+	@Benchmark
+	public MoveResult slide() {
+		BenchmarkBoards.copy(start, board);
+		engine.slide(board, direction, result);
+		return result;
+	}
+
+	@Benchmark
+	public MoveResult move() {
+		BenchmarkBoards.copy(start, board);
+		engine.move(board, direction, random, result);
+		return result;
+	}
+}
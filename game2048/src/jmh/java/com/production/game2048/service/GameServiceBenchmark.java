@@ -0,0 +1,86 @@
+package com.production.game2048.service;
+
+import com.production.game2048.Game2048Application;
+import com.production.game2048.engine.GameRandom;
+import com.production.game2048.model.GameState;
+import com.production.game2048.model.MoveDirection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link GameService#move(Long, MoveDirection)} through the whole application
+ * context: session store, locks, move engine and, depending on the durability mode, the
+ * in-memory H2 database or the move journal. No web server is started.
+ *
+ * Moves are drawn at random from a fixed seed; when the game ends a new one is started.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameServiceBenchmark {
+
+	private static final MoveDirection[] DIRECTIONS = MoveDirection.values();
+
+	@Param({"4", "8"})
+	int boardSize;
+
+	@Param({"SYNC", "WRITE_BEHIND", "JOURNAL"})
+	String durability;
+
+	private ConfigurableApplicationContext context;
+	private GameService gameService;
+	private GameRandom random;
+	private long gameId;
+
+	@Setup(Level.Trial)
+	public void startApplication() {
+		System.setProperty("spring.devtools.restart.enabled", "false");
+		context = new SpringApplicationBuilder(Game2048Application.class)
+				.web(WebApplicationType.NONE)
+				// Passed as command line arguments, which override application.properties.
+				.run(
+						"--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+						"--spring.jpa.show-sql=false",
+						"--logging.level.root=WARN",
+						"--game.session.durability=" + durability,
+						"--game.journal.directory=target/jmh-journal/" + System.nanoTime(),
+						"--game.archive.enabled=false",
+						"--game.archive.directory=target/jmh-archive/" + System.nanoTime());
+		gameService = context.getBean(GameService.class);
+		random = new GameRandom(42);
+		gameId = gameService.startNewGame(boardSize, 42L).getId();
+	}
+
+	@TearDown(Level.Trial)
+	public void stopApplication() {
+		context.close();
+	}
+
+	@Benchmark
+	public GameState move() {
+		GameState game = gameService.move(gameId, DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+		if (game.isGameOver()) {
+			gameId = gameService.startNewGame(boardSize, random.nextLong()).getId();
+		}
+		return game;
+	}
+}
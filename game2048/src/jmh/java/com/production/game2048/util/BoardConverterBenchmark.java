@@ -0,0 +1,66 @@
+package com.production.game2048.util;
+
+import com.production.game2048.benchmark.BenchmarkBoards;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of encoding and decoding a board with the binary converter used for the board_data
+ * column, and with the legacy string converter still used to read rows saved before it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardConverterBenchmark {
+
+	@Param({"4", "8", "16", "64"})
+	int boardSize;
+
+	private final BinaryBoardConverter binaryConverter = new BinaryBoardConverter();
+	private final IntArrayConverter legacyConverter = new IntArrayConverter();
+
+	private int[][] board;
+	private byte[] binary;
+	private String legacy;
+
+	@Setup
+	public void setUp() {
+		board = BenchmarkBoards.midGame(boardSize, 42);
+		binary = binaryConverter.convertToDatabaseColumn(board);
+		legacy = legacyConverter.convertToDatabaseColumn(board);
+	}
+
+	@Benchmark
+	public byte[] binaryEncode() {
+		return binaryConverter.convertToDatabaseColumn(board);
+	}
+
+	@Benchmark
+	public int[][] binaryDecode() {
+		return binaryConverter.convertToEntityAttribute(binary);
+	}
+
+	@Benchmark
+	public String legacyEncode() {
+		return legacyConverter.convertToDatabaseColumn(board);
+	}
+
+	@Benchmark
+	public int[][] legacyDecode() {
+		return legacyConverter.convertToEntityAttribute(legacy);
+	}
+}
@@ -0,0 +1,90 @@
+package com.production.game2048.ai;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration for the hint and autoplay search, bound from {@code game.ai.*}.
+ */
+@ConfigurationProperties(prefix = "game.ai")
+public class AiProperties {
+
+    /**
+     * Search depth used when a request does not ask for one, in moves looked ahead.
+     */
+    private int defaultDepth = 3;
+
+    /**
+     * Deepest search a request may ask for.
+     */
+    private int maxDepth = 6;
+
+    /**
+     * Wall-clock budget of one search. When it runs out, the deepest fully searched depth is used.
+     */
+    private Duration timeBudget = Duration.ofMillis(200);
+
+    /**
+     * Number of entries in the transposition table shared by all searches. Rounded up to a power of two.
+     */
+    private int transpositionTableSize = 1 << 20;
+
+    /**
+     * Number of worker threads searching in parallel. Zero means one per available processor.
+     */
+    private int parallelism = 0;
+
+    /**
+     * Most moves a single autoplay request may make.
+     */
+    private int maxAutoplayMoves = 500;
+
+    public int getDefaultDepth() {
+        return defaultDepth;
+    }
+
+    public void setDefaultDepth(int defaultDepth) {
+        this.defaultDepth = defaultDepth;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    public Duration getTimeBudget() {
+        return timeBudget;
+    }
+
+    public void setTimeBudget(Duration timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
+    public int getTranspositionTableSize() {
+        return transpositionTableSize;
+    }
+
+    public void setTranspositionTableSize(int transpositionTableSize) {
+        this.transpositionTableSize = transpositionTableSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getMaxAutoplayMoves() {
+        return maxAutoplayMoves;
+    }
+
+    public void setMaxAutoplayMoves(int maxAutoplayMoves) {
+        this.maxAutoplayMoves = maxAutoplayMoves;
+    }
+}
@@ -0,0 +1,228 @@
+package com.production.game2048.ai;
+
+import com.production.game2048.engine.BitBoard;
+import com.production.game2048.model.MoveDirection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Expectimax search over packed 4x4 boards.
+ *
+ * Max nodes try the four directions; chance nodes average over every empty cell receiving a 2
+ * (90%) or a 4 (10%), the same odds the move engines spawn with. Leaves are scored by
+ * {@link Heuristic}, and branches whose probability drops below {@value #PROBABILITY_THRESHOLD}
+ * are cut off early. Evaluated chance nodes go into a {@link TranspositionTable} shared by all
+ * searches, since positions recur both within a search and between the moves of a game.
+ *
+ * The directions at the root, and the spawns right below them, are forked onto a dedicated
+ * {@link ForkJoinPool}; deeper levels run sequentially within their task. Depth is deepened one
+ * move at a time until the requested depth or the time budget is reached, and the deepest fully
+ * searched depth wins, so the latency of a search is bounded however busy the pool is.
+ */
+@Component
+@EnableConfigurationProperties(AiProperties.class)
+public class ExpectimaxSearch {
+
+    private static final float PROBABILITY_THRESHOLD = 0.0001f;
+    private static final float TWO_PROBABILITY = 0.9f;
+    private static final float FOUR_PROBABILITY = 0.1f;
+    private static final MoveDirection[] DIRECTIONS = MoveDirection.values();
+
+    private final ForkJoinPool pool;
+    private final TranspositionTable table;
+
+    @Autowired
+    public ExpectimaxSearch(AiProperties properties) {
+        int parallelism = properties.getParallelism() > 0
+                ? properties.getParallelism() : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(parallelism);
+        this.table = new TranspositionTable(properties.getTranspositionTableSize());
+    }
+
+    /**
+     * Searches for the best move on a packed board.
+     *
+     * @param board The packed board, as produced by {@link BitBoard#encode(int[][])}.
+     * @param depth The number of moves to look ahead, at least 1.
+     * @param budget The time after which deeper searches are abandoned. Depth 1 is always completed.
+     */
+    public SearchResult search(long board, int depth, Duration budget) {
+        long start = System.nanoTime();
+        long deadline = start + budget.toNanos();
+        float[] best = null;
+        int completedDepth = 0;
+        boolean timedOut = false;
+        for (int d = 1; d <= depth; d++) {
+            Context context = new Context(d == 1 ? Long.MAX_VALUE : deadline);
+            float[] values = pool.invoke(new RootTask(board, d, context));
+            if (context.aborted) {
+                timedOut = true;
+                break;
+            }
+            best = values;
+            completedDepth = d;
+            if (bestDirection(values) == null) {
+                break; // No legal move; looking deeper changes nothing.
+            }
+        }
+        return new SearchResult(bestDirection(best), best, completedDepth, timedOut,
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private static MoveDirection bestDirection(float[] values) {
+        MoveDirection best = null;
+        float bestValue = Float.NEGATIVE_INFINITY;
+        for (MoveDirection direction : DIRECTIONS) {
+            float value = values[direction.ordinal()];
+            if (!Float.isNaN(value) && value > bestValue) {
+                best = direction;
+                bestValue = value;
+            }
+        }
+        return best;
+    }
+
+    private float maxNode(long board, int depth, float probability, Context context) {
+        float best = 0;
+        for (MoveDirection direction : DIRECTIONS) {
+            long moved = BitBoard.move(board, direction);
+            if (moved != board) {
+                best = Math.max(best, chanceNode(moved, depth, probability, context));
+            }
+        }
+        return best;
+    }
+
+    private float chanceNode(long board, int depth, float probability, Context context) {
+        if (depth == 0 || probability < PROBABILITY_THRESHOLD) {
+            return Heuristic.evaluate(board);
+        }
+        float cached = table.get(board, depth);
+        if (!Float.isNaN(cached)) {
+            return cached;
+        }
+        if (context.expired()) {
+            return 0;
+        }
+        int empty = BitBoard.emptyCount(board);
+        float cellProbability = probability / empty;
+        float sum = 0;
+        for (int cell = 0; cell < BitBoard.SIZE * BitBoard.SIZE; cell++) {
+            if (BitBoard.exponentAt(board, cell) != 0) {
+                continue;
+            }
+            long two = 1L << (4 * cell);
+            sum += TWO_PROBABILITY * maxNode(board | two, depth - 1, cellProbability * TWO_PROBABILITY, context);
+            sum += FOUR_PROBABILITY * maxNode(board | two << 1, depth - 1, cellProbability * FOUR_PROBABILITY, context);
+        }
+        float value = sum / empty;
+        if (!context.aborted) {
+            table.put(board, depth, value);
+        }
+        return value;
+    }
+
+    /**
+     * Deadline and abort flag of one iteration. Once aborted, nodes return at once and
+     * nothing more is cached, and the iteration's result is discarded.
+     */
+    private static final class Context {
+        private final long deadline;
+        private volatile boolean aborted;
+
+        Context(long deadline) {
+            this.deadline = deadline;
+        }
+
+        boolean expired() {
+            if (!aborted && deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0) {
+                aborted = true;
+            }
+            return aborted;
+        }
+    }
+
+    /**
+     * Evaluates each direction in parallel. NaN marks a direction that does not change the board.
+     */
+    private final class RootTask extends RecursiveTask<float[]> {
+        private final long board;
+        private final int depth;
+        private final Context context;
+
+        RootTask(long board, int depth, Context context) {
+            this.board = board;
+            this.depth = depth;
+            this.context = context;
+        }
+
+        @Override
+        protected float[] compute() {
+            float[] values = new float[DIRECTIONS.length];
+            List<SpawnTask> tasks = new ArrayList<>();
+            List<Integer> owners = new ArrayList<>();
+            for (MoveDirection direction : DIRECTIONS) {
+                values[direction.ordinal()] = Float.NaN;
+                long moved = BitBoard.move(board, direction);
+                if (moved == board) {
+                    continue;
+                }
+                values[direction.ordinal()] = 0;
+                int empty = BitBoard.emptyCount(moved);
+                for (int cell = 0; cell < BitBoard.SIZE * BitBoard.SIZE; cell++) {
+                    if (BitBoard.exponentAt(moved, cell) == 0) {
+                        tasks.add(new SpawnTask(moved, cell, empty, depth, context));
+                        owners.add(direction.ordinal());
+                    }
+                }
+            }
+            ForkJoinTask.invokeAll(tasks);
+            for (int i = 0; i < tasks.size(); i++) {
+                values[owners.get(i)] += tasks.get(i).join();
+            }
+            return values;
+        }
+    }
+
+    /**
+     * The contribution of one spawn cell to a root direction's chance node.
+     */
+    private final class SpawnTask extends RecursiveTask<Float> {
+        private final long board;
+        private final int cell;
+        private final int empty;
+        private final int depth;
+        private final Context context;
+
+        SpawnTask(long board, int cell, int empty, int depth, Context context) {
+            this.board = board;
+            this.cell = cell;
+            this.empty = empty;
+            this.depth = depth;
+            this.context = context;
+        }
+
+        @Override
+        protected Float compute() {
+            float cellProbability = 1f / empty;
+            long two = 1L << (4 * cell);
+            float value = TWO_PROBABILITY * maxNode(board | two, depth - 1, cellProbability * TWO_PROBABILITY, context)
+                    + FOUR_PROBABILITY * maxNode(board | two << 1, depth - 1, cellProbability * FOUR_PROBABILITY, context);
+            return value / empty;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.production.game2048.ai;
+
+import com.production.game2048.engine.BitBoard;
+
+/**
+ * Static evaluation of a packed 4x4 board, used at the leaves of the expectimax search.
+ *
+ * Every possible 16-bit row is scored once at class initialisation, rewarding empty cells,
+ * equal neighbours and monotonic rows and penalising large tiles, so a board is scored with
+ * eight table lookups: its four rows and the four rows of its transpose.
+ */
+final class Heuristic {
+
+    private static final float LOST_PENALTY = 200_000f;
+    private static final float MONOTONICITY_POWER = 4f;
+    private static final float MONOTONICITY_WEIGHT = 47f;
+    private static final float SUM_POWER = 3.5f;
+    private static final float SUM_WEIGHT = 11f;
+    private static final float MERGES_WEIGHT = 700f;
+    private static final float EMPTY_WEIGHT = 270f;
+
+    private static final float[] ROW_SCORE = new float[1 << 16];
+
+    static {
+        int[] line = new int[BitBoard.SIZE];
+        for (int row = 0; row < ROW_SCORE.length; row++) {
+            for (int i = 0; i < BitBoard.SIZE; i++) {
+                line[i] = (row >>> (4 * i)) & 0xF;
+            }
+            ROW_SCORE[row] = scoreLine(line);
+        }
+    }
+
+    private Heuristic() {
+    }
+
+    /**
+     * @return The estimated value of the packed board; higher is better.
+     */
+    static float evaluate(long board) {
+        long transposed = BitBoard.transpose(board);
+        return ROW_SCORE[(int) (board & 0xFFFF)]
+                + ROW_SCORE[(int) ((board >>> 16) & 0xFFFF)]
+                + ROW_SCORE[(int) ((board >>> 32) & 0xFFFF)]
+                + ROW_SCORE[(int) (board >>> 48)]
+                + ROW_SCORE[(int) (transposed & 0xFFFF)]
+                + ROW_SCORE[(int) ((transposed >>> 16) & 0xFFFF)]
+                + ROW_SCORE[(int) ((transposed >>> 32) & 0xFFFF)]
+                + ROW_SCORE[(int) (transposed >>> 48)];
+    }
+
+    private static float scoreLine(int[] line) {
+        float sum = 0;
+        int empty = 0;
+        int merges = 0;
+        int previous = 0;
+        int run = 0;
+        for (int exponent : line) {
+            sum += (float) Math.pow(exponent, SUM_POWER);
+            if (exponent == 0) {
+                empty++;
+                continue;
+            }
+            if (previous == exponent) {
+                run++;
+            } else if (run > 0) {
+                merges += 1 + run;
+                run = 0;
+            }
+            previous = exponent;
+        }
+        if (run > 0) {
+            merges += 1 + run;
+        }
+
+        float increasing = 0;
+        float decreasing = 0;
+        for (int i = 1; i < line.length; i++) {
+            float before = (float) Math.pow(line[i - 1], MONOTONICITY_POWER);
+            float after = (float) Math.pow(line[i], MONOTONICITY_POWER);
+            if (line[i - 1] > line[i]) {
+                decreasing += before - after;
+            } else {
+                increasing += after - before;
+            }
+        }
+
+        return LOST_PENALTY + EMPTY_WEIGHT * empty + MERGES_WEIGHT * merges
+                - MONOTONICITY_WEIGHT * Math.min(increasing, decreasing) - SUM_WEIGHT * sum;
+    }
+}
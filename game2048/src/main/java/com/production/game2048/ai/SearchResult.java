@@ -0,0 +1,57 @@
+package com.production.game2048.ai;
+
+import com.production.game2048.model.MoveDirection;
+
+import java.time.Duration;
+
+/**
+ * The outcome of one {@link ExpectimaxSearch}.
+ */
+public class SearchResult {
+
+    private final MoveDirection direction;
+    private final float[] values;
+    private final int depth;
+    private final boolean timedOut;
+    private final Duration elapsed;
+
+    SearchResult(MoveDirection direction, float[] values, int depth, boolean timedOut, Duration elapsed) {
+        this.direction = direction;
+        this.values = values;
+        this.depth = depth;
+        this.timedOut = timedOut;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * @return The best direction, or null if no direction changes the board.
+     */
+    public MoveDirection getDirection() {
+        return direction;
+    }
+
+    /**
+     * @return The expected heuristic value of a move, or NaN if the move does not change the board.
+     */
+    public float getValue(MoveDirection direction) {
+        return values[direction.ordinal()];
+    }
+
+    /**
+     * @return The deepest fully searched depth, which the result is based on.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return true if the time budget ran out before the requested depth was reached.
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+}
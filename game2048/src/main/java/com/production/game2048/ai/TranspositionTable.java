@@ -0,0 +1,50 @@
+package com.production.game2048.ai;
+
+/**
+ * A fixed-size cache of evaluated chance nodes, shared by all searches and all threads.
+ *
+ * Entries are indexed by a hash of the packed board and simply overwritten on collision.
+ * There are no locks: each entry is two longs, the board XOR-ed with the data and the data
+ * itself, so an entry torn by two concurrent writers (or by a non-atomic long write) fails the
+ * key check and reads as a miss instead of returning another board's value.
+ */
+final class TranspositionTable {
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+
+    TranspositionTable(int size) {
+        int capacity = Integer.highestOneBit(Math.max(1, size));
+        if (capacity < size) {
+            capacity <<= 1;
+        }
+        this.keys = new long[capacity];
+        this.data = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * @return The value stored for the board if it was searched at least {@code depth} deep, or NaN.
+     */
+    float get(long board, int depth) {
+        int index = index(board);
+        long entry = data[index];
+        if ((keys[index] ^ entry) != board || (int) (entry >>> 32) < depth) {
+            return Float.NaN;
+        }
+        return Float.intBitsToFloat((int) entry);
+    }
+
+    void put(long board, int depth, float value) {
+        int index = index(board);
+        long entry = (long) depth << 32 | (Float.floatToRawIntBits(value) & 0xFFFFFFFFL);
+        data[index] = entry;
+        keys[index] = board ^ entry;
+    }
+
+    private int index(long board) {
+        long h = board * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 29)) & mask;
+    }
+}
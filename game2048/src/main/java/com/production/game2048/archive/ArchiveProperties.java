@@ -0,0 +1,132 @@
+package com.production.game2048.archive;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Configuration for archiving old games, bound from {@code game.archive.*}.
+ */
+@ConfigurationProperties(prefix = "game.archive")
+public class ArchiveProperties {
+
+    /**
+     * Whether finished and idle games are moved out of the database. Archived games can still be
+     * read while this is off.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Directory holding the archive segment files.
+     */
+    private String directory = "./data/archive";
+
+    /**
+     * Time between two archival runs.
+     */
+    private Duration interval = Duration.ofMinutes(10);
+
+    /**
+     * How long a finished game stays in the database after its last move.
+     */
+    private Duration finishedRetention = Duration.ofHours(1);
+
+    /**
+     * How long an unfinished game stays in the database without being played.
+     */
+    private Duration idleRetention = Duration.ofDays(7);
+
+    /**
+     * Games read, archived and deleted per transaction.
+     */
+    private int batchSize = 500;
+
+    /**
+     * Upper bound on the batches of one run, so a large backlog is worked off over several runs.
+     */
+    private int maxBatchesPerRun = 100;
+
+    /**
+     * Size of one segment file. A new segment is started when the current one is full.
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    /**
+     * A full segment is rewritten once less than this fraction of its games is still archived,
+     * the rest having been restored or archived again since.
+     */
+    private double compactionThreshold = 0.5;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public void setInterval(Duration interval) {
+        this.interval = interval;
+    }
+
+    public Duration getFinishedRetention() {
+        return finishedRetention;
+    }
+
+    public void setFinishedRetention(Duration finishedRetention) {
+        this.finishedRetention = finishedRetention;
+    }
+
+    public Duration getIdleRetention() {
+        return idleRetention;
+    }
+
+    public void setIdleRetention(Duration idleRetention) {
+        this.idleRetention = idleRetention;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getMaxBatchesPerRun() {
+        return maxBatchesPerRun;
+    }
+
+    public void setMaxBatchesPerRun(int maxBatchesPerRun) {
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    public DataSize getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(DataSize segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public double getCompactionThreshold() {
+        return compactionThreshold;
+    }
+
+    public void setCompactionThreshold(double compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+}
@@ -0,0 +1,647 @@
+package com.production.game2048.archive;
+
+import com.production.game2048.metrics.GameMetrics;
+import com.production.game2048.model.GameState;
+import com.production.game2048.repository.GameScore;
+import com.production.game2048.util.BinaryBoardConverter;
+import com.production.game2048.util.UndoHistoryConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cold storage for games moved out of the database, in append-only, gzip-compressed segment files.
+ *
+ * Every {@link #append(List)} writes the batch as one gzip member to the current segment's data
+ * file, {@code archive-N.dat}, and one {@value #INDEX_RECORD_SIZE}-byte entry per game to its
+ * index file, {@code archive-N.idx}:
+ * <pre>
+ *  0  game id (long)      8  offset of the game's member in the data file (long, -1 = removed)
+ * 16  board size (int)   20  score (int)
+ * </pre>
+ * A member holds its format version as a negative int and the number of games in it, then per
+ * game its id, version, score, move count, seed, generator state, last update time, flags
+ * (1 = won, 2 = game over), its board in the format of {@link BinaryBoardConverter} and its undo
+ * history in the format of {@link UndoHistoryConverter}, each prefixed by its length. Members of
+ * the first format start with the number of games and have no undo history. The data is forced to disk before the index entries,
+ * so an entry never points at a member torn by a crash.
+ *
+ * The index files are read into memory at startup, later entries replacing earlier ones, so
+ * reading a game only decompresses its own batch. A game restored to the database gets a
+ * removal entry. Once few of a full segment's games are still archived there, {@link #compact()}
+ * copies them to the current segment and deletes its files.
+ */
+@Component
+@EnableConfigurationProperties(ArchiveProperties.class)
+public class GameArchive {
+
+    /**
+     * Size of one index entry in bytes.
+     */
+    public static final int INDEX_RECORD_SIZE = 24;
+
+    private static final Logger log = LoggerFactory.getLogger(GameArchive.class);
+
+    private static final long REMOVED = -1;
+    private static final int MEMBER_FORMAT = 2;
+    private static final int FLAG_WON = 1;
+    private static final int FLAG_GAME_OVER = 2;
+    private static final String SEGMENT_PREFIX = "archive-";
+    private static final String DATA_SUFFIX = ".dat";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private final ArchiveProperties properties;
+    private final Path directory;
+
+    // The fields below are guarded by this.
+    private final Map<Long, Entry> index = new HashMap<>();
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private Segment current;
+    private long maxId;
+
+    private final LongAdder archived = new LongAdder();
+    private final LongAdder removed = new LongAdder();
+
+    @Autowired
+    public GameArchive(ArchiveProperties properties, GameMetrics metrics) {
+        this.properties = properties;
+        this.directory = Paths.get(properties.getDirectory());
+        open();
+        metrics.gauge("game.archive.games", "Games held by the archive", this, GameArchive::size);
+        metrics.functionCounter("game.archive.archived", "Games written to the archive", archived, LongAdder::sum);
+        metrics.functionCounter("game.archive.removed", "Games taken back out of the archive", removed,
+                LongAdder::sum);
+    }
+
+    /**
+     * Writes a batch of games to the archive, replacing any earlier copies of them.
+     * Returns once the games are on disk.
+     */
+    public synchronized void append(List<GameState> games) {
+        if (games.isEmpty()) {
+            return;
+        }
+        byte[] member = encode(games);
+        ByteBuffer entries = ByteBuffer.allocate(games.size() * INDEX_RECORD_SIZE);
+        long offset;
+        try {
+            if (current.dataSize > 0 && current.dataSize + member.length > properties.getSegmentSize().toBytes()) {
+                roll();
+            }
+            offset = current.writeData(member);
+            for (GameState game : games) {
+                entries.putLong(game.getId()).putLong(offset).putInt(game.getBoardSize()).putInt(game.getScore());
+            }
+            entries.flip();
+            current.writeIndex(entries);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append " + games.size() + " games to the archive.", e);
+        }
+        for (GameState game : games) {
+            put(new Entry(game.getId(), current, offset, game.getBoardSize(), game.getScore()));
+        }
+        archived.add(games.size());
+    }
+
+    /**
+     * Reads an archived game.
+     *
+     * @return The game as it was archived, or empty if the archive does not hold it.
+     */
+    public synchronized Optional<GameState> read(long id) {
+        Entry entry = index.get(id);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        try {
+            for (GameState game : readMember(entry.segment, entry.offset)) {
+                if (game.getId() == id) {
+                    return Optional.of(game);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read game " + id + " from " + entry.segment.data, e);
+        }
+        throw new IllegalStateException("Archive segment " + entry.segment.data + " does not hold game " + id
+                + " at offset " + entry.offset + ".");
+    }
+
+    /**
+     * Forgets an archived game, once it is back in the database.
+     *
+     * @return false if the archive did not hold the game.
+     */
+    public synchronized boolean remove(long id) {
+        Entry entry = index.get(id);
+        if (entry == null) {
+            return false;
+        }
+        ByteBuffer tombstone = ByteBuffer.allocate(INDEX_RECORD_SIZE);
+        tombstone.putLong(id).putLong(REMOVED).putInt(entry.boardSize).putInt(entry.score).flip();
+        try {
+            current.writeIndex(tombstone);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to remove game " + id + " from the archive.", e);
+        }
+        index.remove(id);
+        entry.segment.live--;
+        removed.increment();
+        return true;
+    }
+
+    /**
+     * @return The board size and score of an archived game, without reading the game itself.
+     */
+    public synchronized Optional<GameScore> findScore(long id) {
+        return Optional.ofNullable(index.get(id));
+    }
+
+    /**
+     * Passes the board size and score of every archived game to the consumer, in no particular order.
+     */
+    public synchronized void forEach(Consumer<GameScore> consumer) {
+        index.values().forEach(consumer);
+    }
+
+    /**
+     * Passes every archived game to the consumer, a member at a time and in no particular order.
+     * The archive is only locked while a member is read, not while the consumer runs, so games
+     * archived, restored or compacted in the meantime may be missed.
+     */
+    public void forEachGame(Consumer<GameState> consumer) {
+        TreeMap<Long, TreeSet<Long>> members = new TreeMap<>();
+        synchronized (this) {
+            for (Entry entry : index.values()) {
+                members.computeIfAbsent(entry.segment.id, key -> new TreeSet<>()).add(entry.offset);
+            }
+        }
+        for (Map.Entry<Long, TreeSet<Long>> segmentMembers : members.entrySet()) {
+            for (long offset : segmentMembers.getValue()) {
+                List<GameState> live = new ArrayList<>();
+                synchronized (this) {
+                    Segment segment = segments.get(segmentMembers.getKey());
+                    if (segment == null) {
+                        break;
+                    }
+                    try {
+                        for (GameState game : readMember(segment, offset)) {
+                            Entry entry = index.get(game.getId());
+                            if (entry != null && entry.segment == segment && entry.offset == offset) {
+                                live.add(game);
+                            }
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to read archive segment " + segment.data, e);
+                    }
+                }
+                live.forEach(consumer);
+            }
+        }
+    }
+
+    /**
+     * Counts the archived games of one board size that rank above the given score and id, like
+     * the query of the same name on the database. Looks at every archived game.
+     */
+    public synchronized long countRankedAbove(int boardSize, int score, long id) {
+        long count = 0;
+        for (Entry entry : index.values()) {
+            if (entry.boardSize == boardSize && (entry.score > score || (entry.score == score && entry.id < id))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The highest id the archive has held since its oldest segment was written, or 0.
+     */
+    public synchronized long maxId() {
+        return maxId;
+    }
+
+    /**
+     * @return The number of archived games.
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Rewrites every full segment in which less than the compaction threshold of the games is
+     * still archived: the remaining games are copied to the current segment, removal entries
+     * that still hide a game in an older segment are carried over, and the files are deleted.
+     *
+     * @return The number of segments deleted.
+     */
+    public synchronized int compact() {
+        int compacted = 0;
+        for (Segment segment : new ArrayList<>(segments.headMap(current.id).values())) {
+            if (segment.records > 0 && segment.live >= properties.getCompactionThreshold() * segment.records) {
+                continue;
+            }
+            try {
+                compact(segment);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to compact archive segment " + segment.data, e);
+            }
+            compacted++;
+        }
+        return compacted;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        try {
+            current.close();
+        } catch (IOException e) {
+            log.warn("Failed to close archive segment {}.", current.data, e);
+        }
+    }
+
+    private void open() {
+        try {
+            Files.createDirectories(directory);
+            TreeSet<Long> ids = new TreeSet<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*")) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    int suffix = name.lastIndexOf('.');
+                    if (suffix > SEGMENT_PREFIX.length()) {
+                        ids.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), suffix)));
+                    }
+                }
+            }
+            for (long id : ids) {
+                Segment segment = new Segment(id);
+                segments.put(id, segment);
+                ByteBuffer entries = ByteBuffer.wrap(segment.readIndex());
+                while (entries.remaining() >= INDEX_RECORD_SIZE) {
+                    long gameId = entries.getLong();
+                    long offset = entries.getLong();
+                    int boardSize = entries.getInt();
+                    int score = entries.getInt();
+                    if (offset == REMOVED) {
+                        Entry previous = index.remove(gameId);
+                        if (previous != null) {
+                            previous.segment.live--;
+                        }
+                    } else {
+                        put(new Entry(gameId, segment, offset, boardSize, score));
+                    }
+                }
+            }
+            // Like the journal, start a fresh segment rather than appending after a possibly torn tail.
+            current = new Segment(ids.isEmpty() ? 1 : ids.last() + 1);
+            segments.put(current.id, current);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the archive in " + directory, e);
+        }
+        log.info("Opened the archive with {} games in {} segments.", index.size(), segments.size() - 1);
+    }
+
+    private void put(Entry entry) {
+        Entry previous = index.put(entry.id, entry);
+        if (previous != null) {
+            previous.segment.live--;
+        }
+        entry.segment.records++;
+        entry.segment.live++;
+        maxId = Math.max(maxId, entry.id);
+    }
+
+    private void roll() throws IOException {
+        current.close();
+        current = new Segment(current.id + 1);
+        segments.put(current.id, current);
+    }
+
+    private void compact(Segment segment) throws IOException {
+        // Copy the games still archived here, one member at a time.
+        TreeSet<Long> offsets = new TreeSet<>();
+        for (Entry entry : index.values()) {
+            if (entry.segment == segment) {
+                offsets.add(entry.offset);
+            }
+        }
+        int copied = 0;
+        for (long offset : offsets) {
+            List<GameState> live = new ArrayList<>();
+            for (GameState game : readMember(segment, offset)) {
+                Entry entry = index.get(game.getId());
+                if (entry != null && entry.segment == segment && entry.offset == offset) {
+                    live.add(game);
+                }
+            }
+            append(live);
+            copied += live.size();
+        }
+
+        // A removal entry is still needed if an older segment has a copy of the game it removes.
+        Set<Long> removedHere = new HashSet<>();
+        ByteBuffer entries = ByteBuffer.wrap(segment.readIndex());
+        while (entries.remaining() >= INDEX_RECORD_SIZE) {
+            long gameId = entries.getLong();
+            long offset = entries.getLong();
+            entries.position(entries.position() + 8);
+            if (offset == REMOVED && !index.containsKey(gameId)) {
+                removedHere.add(gameId);
+            }
+        }
+        ByteBuffer carried = ByteBuffer.allocate(0);
+        if (!removedHere.isEmpty()) {
+            List<Long> needed = new ArrayList<>();
+            for (Segment older : segments.headMap(segment.id).values()) {
+                ByteBuffer olderEntries = ByteBuffer.wrap(older.readIndex());
+                while (olderEntries.remaining() >= INDEX_RECORD_SIZE) {
+                    long gameId = olderEntries.getLong();
+                    long offset = olderEntries.getLong();
+                    olderEntries.position(olderEntries.position() + 8);
+                    if (offset != REMOVED && removedHere.remove(gameId)) {
+                        needed.add(gameId);
+                    }
+                }
+            }
+            carried = ByteBuffer.allocate(needed.size() * INDEX_RECORD_SIZE);
+            for (long gameId : needed) {
+                carried.putLong(gameId).putLong(REMOVED).putInt(0).putInt(0);
+            }
+            carried.flip();
+            if (carried.hasRemaining()) {
+                current.writeIndex(carried);
+            }
+        }
+
+        segment.close();
+        Files.deleteIfExists(segment.index);
+        Files.deleteIfExists(segment.data);
+        segments.remove(segment.id);
+        log.info("Compacted archive segment {}: {} games copied, {} removals kept.", segment.id, copied,
+                carried.limit() / INDEX_RECORD_SIZE);
+    }
+
+    private byte[] encode(List<GameState> games) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            writeMember(bytes, games);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private List<GameState> readMember(Segment segment, long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment.data, StandardOpenOption.READ)) {
+            channel.position(offset);
+            return readMember(new BufferedInputStream(Channels.newInputStream(channel)));
+        }
+    }
+
+    /**
+     * Writes games as one gzip member in the archive's format, which is also how games are
+     * moved between the nodes of a cluster.
+     */
+    public static void writeMember(OutputStream target, List<GameState> games) throws IOException {
+        BinaryBoardConverter boardConverter = new BinaryBoardConverter();
+        UndoHistoryConverter historyConverter = new UndoHistoryConverter();
+        GZIPOutputStream gzip = new GZIPOutputStream(target);
+        DataOutputStream out = new DataOutputStream(gzip);
+        out.writeInt(-MEMBER_FORMAT);
+        out.writeInt(games.size());
+        for (GameState game : games) {
+            out.writeLong(game.getId());
+            out.writeLong(game.getVersion());
+            out.writeInt(game.getScore());
+            out.writeLong(game.getMoveCount());
+            out.writeLong(game.getSeed());
+            out.writeLong(game.getRngState());
+            out.writeLong(game.getUpdatedAt());
+            out.writeByte((game.isWon() ? FLAG_WON : 0) | (game.isGameOver() ? FLAG_GAME_OVER : 0));
+            byte[] board = boardConverter.convertToDatabaseColumn(game.getBoard());
+            out.writeInt(board.length);
+            out.write(board);
+            byte[] history = historyConverter.convertToDatabaseColumn(game.getUndoHistory());
+            out.writeInt(history == null ? 0 : history.length);
+            if (history != null) {
+                out.write(history);
+            }
+        }
+        out.flush();
+        gzip.finish();
+    }
+
+    /**
+     * Reads the games of one gzip member written by {@link #writeMember(OutputStream, List)}.
+     */
+    public static List<GameState> readMember(InputStream source) throws IOException {
+        DataInputStream in = new DataInputStream(new GZIPInputStream(source));
+        return readGames(in, in.readInt());
+    }
+
+    /**
+     * Reads members written one after another by {@link #writeMember(OutputStream, List)} until
+     * the end of the stream, passing the games of each to the consumer.
+     *
+     * @return The number of games read.
+     */
+    public static long readMembers(InputStream source, Consumer<List<GameState>> consumer) throws IOException {
+        // A gzip stream reads on into the next member by itself; a stream per member would read ahead past its end.
+        DataInputStream in = new DataInputStream(new GZIPInputStream(source));
+        long total = 0;
+        while (true) {
+            int count;
+            try {
+                count = in.readInt();
+            } catch (EOFException e) {
+                return total;
+            }
+            List<GameState> games = readGames(in, count);
+            consumer.accept(games);
+            total += games.size();
+        }
+    }
+
+    /**
+     * @param header The member's first int: its format version negated, or the number of games in the first format.
+     * @throws IOException if the member is cut short or its lengths are out of range, as in a stream
+     *         sent by a client rather than written by the archive.
+     */
+    private static List<GameState> readGames(DataInputStream in, int header) throws IOException {
+        BinaryBoardConverter boardConverter = new BinaryBoardConverter();
+        UndoHistoryConverter historyConverter = new UndoHistoryConverter();
+        int format = 1;
+        int count = header;
+        if (header < 0) {
+            format = -header;
+            count = in.readInt();
+        }
+        if (count < 0) {
+            throw new IOException("A member cannot hold " + count + " games.");
+        }
+        List<GameState> games = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            GameState game = new GameState();
+            game.setId(in.readLong());
+            game.setVersion(in.readLong());
+            game.setScore(in.readInt());
+            game.setMoveCount(in.readLong());
+            long seed = in.readLong();
+            game.restoreRandom(seed, in.readLong());
+            game.setUpdatedAt(in.readLong());
+            int flags = in.readByte();
+            game.setWon((flags & FLAG_WON) != 0);
+            game.setGameOver((flags & FLAG_GAME_OVER) != 0);
+            game.setBoard(boardConverter.convertToEntityAttribute(readBytes(in, BinaryBoardConverter.MAX_LENGTH)));
+            if (format >= MEMBER_FORMAT) {
+                game.setUndoHistory(historyConverter.convertToEntityAttribute(
+                        readBytes(in, UndoHistoryConverter.MAX_LENGTH)));
+            }
+            games.add(game);
+        }
+        return games;
+    }
+
+    private static byte[] readBytes(DataInputStream in, int maxLength) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException("A field of " + length + " bytes is out of range.");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Where an archived game is, plus what the leaderboard needs to know about it.
+     */
+    private static final class Entry implements GameScore {
+        private final long id;
+        private final Segment segment;
+        private final long offset;
+        private final int boardSize;
+        private final int score;
+
+        Entry(long id, Segment segment, long offset, int boardSize, int score) {
+            this.id = id;
+            this.segment = segment;
+            this.offset = offset;
+            this.boardSize = boardSize;
+            this.score = score;
+        }
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public int getBoardSize() {
+            return boardSize;
+        }
+
+        @Override
+        public int getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * One pair of data and index files. Only the current segment keeps its files open.
+     */
+    private final class Segment {
+        private final long id;
+        private final Path data;
+        private final Path index;
+        private FileChannel dataChannel;
+        private FileChannel indexChannel;
+        private long dataSize;
+        /** Games written to this segment, and how many of them are still archived here. */
+        private long records;
+        private long live;
+
+        Segment(long id) {
+            this.id = id;
+            String name = SEGMENT_PREFIX + String.format("%06d", id);
+            this.data = directory.resolve(name + DATA_SUFFIX);
+            this.index = directory.resolve(name + INDEX_SUFFIX);
+        }
+
+        /**
+         * @return The offset the bytes were written at.
+         */
+        long writeData(byte[] bytes) throws IOException {
+            if (dataChannel == null) {
+                dataChannel = FileChannel.open(data, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                dataSize = dataChannel.size();
+            }
+            long offset = dataSize;
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                dataChannel.write(buffer, offset + buffer.position());
+            }
+            dataChannel.force(false);
+            dataSize += bytes.length;
+            return offset;
+        }
+
+        void writeIndex(ByteBuffer entries) throws IOException {
+            if (indexChannel == null) {
+                indexChannel = FileChannel.open(index, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+            while (entries.hasRemaining()) {
+                indexChannel.write(entries);
+            }
+            indexChannel.force(false);
+        }
+
+        byte[] readIndex() throws IOException {
+            return Files.exists(index) ? Files.readAllBytes(index) : new byte[0];
+        }
+
+        void close() throws IOException {
+            if (dataChannel != null) {
+                dataChannel.close();
+                dataChannel = null;
+            }
+            if (indexChannel != null) {
+                indexChannel.close();
+                indexChannel = null;
+            }
+        }
+    }
+}
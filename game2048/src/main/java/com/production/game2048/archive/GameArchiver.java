@@ -0,0 +1,161 @@
+package com.production.game2048.archive;
+
+import com.production.game2048.metrics.GameMetrics;
+import com.production.game2048.metrics.PersistenceOperation;
+import com.production.game2048.model.GameState;
+import com.production.game2048.repository.GameStateRepository;
+import com.production.game2048.session.GameLocks;
+import com.production.game2048.session.GameSessionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Moves finished and idle games out of the database into the {@link GameArchive}, so the
+ * game_state table only holds games that may still be played.
+ *
+ * Every {@code interval}, games past their retention are read in id order, {@code batchSize} at
+ * a time and at most {@code maxBatchesPerRun} batches per run. Each batch is appended to the
+ * archive without holding any game lock, then deleted with one JDBC batch under the games' locks,
+ * skipping games that are in the session store. A delete is checked against the version that was
+ * read, and a game that was loaded or whose row changed in the meantime is taken back out of the
+ * archive. Segments left mostly empty by
+ * restored games are compacted at the end of every run.
+ */
+@Component
+public class GameArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(GameArchiver.class);
+
+    private final GameStateRepository gameStateRepository;
+    private final GameArchive archive;
+    private final GameSessionStore sessionStore;
+    private final GameLocks locks;
+    private final ArchiveProperties properties;
+    private final GameMetrics metrics;
+    private final ScheduledExecutorService scheduler;
+
+    @Autowired
+    public GameArchiver(GameStateRepository gameStateRepository, GameArchive archive, GameSessionStore sessionStore,
+                        GameLocks locks, ArchiveProperties properties, GameMetrics metrics) {
+        this.gameStateRepository = gameStateRepository;
+        this.archive = archive;
+        this.sessionStore = sessionStore;
+        this.locks = locks;
+        this.properties = properties;
+        this.metrics = metrics;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (properties.isEnabled()) {
+            long intervalMillis = properties.getInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::archiveQuietly, intervalMillis, intervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Archives the games that are past their retention now, then compacts the archive.
+     * Runs on the caller's thread; concurrent runs are serialised.
+     *
+     * @return The number of games moved out of the database.
+     */
+    public synchronized int archive() {
+        long now = System.currentTimeMillis();
+        long finishedBefore = now - properties.getFinishedRetention().toMillis();
+        long idleBefore = now - properties.getIdleRetention().toMillis();
+        int batchSize = Math.max(1, properties.getBatchSize());
+        long afterId = 0;
+        int archived = 0;
+        for (int batch = 0; batch < properties.getMaxBatchesPerRun(); batch++) {
+            List<GameState> games = gameStateRepository.findArchivable(afterId, finishedBefore, idleBefore,
+                    PageRequest.of(0, batchSize));
+            if (games.isEmpty()) {
+                break;
+            }
+            afterId = games.get(games.size() - 1).getId();
+            archived += archiveBatch(games);
+            if (games.size() < batchSize) {
+                break;
+            }
+        }
+        int compacted = archive.compact();
+        if (archived > 0 || compacted > 0) {
+            log.info("Archived {} games; {} archive segments compacted.", archived, compacted);
+        }
+        return archived;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private int archiveBatch(List<GameState> games) {
+        List<GameState> idle = new ArrayList<>(games.size());
+        for (GameState game : games) {
+            // A cached game may be ahead of its row, and is being played anyway.
+            if (!sessionStore.findCached(game.getId()).isPresent()) {
+                idle.add(game);
+            }
+        }
+        if (idle.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        archive.append(idle);
+
+        List<Long> ids = new ArrayList<>(idle.size());
+        for (GameState game : idle) {
+            ids.add(game.getId());
+        }
+        Set<Long> deletedIds = new HashSet<>(ids.size() * 2);
+        List<Lock> held = locks.lockAll(ids);
+        try {
+            List<GameState> stillIdle = new ArrayList<>(idle.size());
+            for (GameState game : idle) {
+                if (!sessionStore.findCached(game.getId()).isPresent()) {
+                    stillIdle.add(game);
+                }
+            }
+            boolean[] deleted = gameStateRepository.deleteAll(stillIdle);
+            for (int i = 0; i < stillIdle.size(); i++) {
+                if (deleted[i]) {
+                    deletedIds.add(stillIdle.get(i).getId());
+                }
+            }
+        } finally {
+            GameLocks.unlockAll(held);
+            // Loaded or written since it was read; it stays in the database.
+            for (GameState game : idle) {
+                if (!deletedIds.contains(game.getId())) {
+                    archive.remove(game.getId());
+                }
+            }
+        }
+        metrics.recordPersistence(PersistenceOperation.ARCHIVE, start);
+        return deletedIds.size();
+    }
+
+    private void archiveQuietly() {
+        try {
+            archive();
+        } catch (RuntimeException e) {
+            log.error("Scheduled archival failed; it will be retried on the next run.", e);
+        }
+    }
+}
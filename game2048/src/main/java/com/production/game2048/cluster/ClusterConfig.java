@@ -0,0 +1,36 @@
+package com.production.game2048.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.production.game2048.metrics.GameMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Wires the {@link ClusterRouter} into id generation and, when {@code game.cluster.enabled}
+ * is set, into request handling.
+ */
+@Configuration
+public class ClusterConfig {
+
+    /**
+     * Hands the router to the {@link ShardedIdGenerator}, which Hibernate creates itself.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer shardedIdProperties(ClusterRouter router) {
+        return properties -> properties.put(ShardedIdGenerator.ROUTER_SETTING, router);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "game.cluster.enabled", havingValue = "true")
+    public FilterRegistrationBean<ShardRoutingFilter> shardRoutingFilter(ClusterRouter router, ShardRebalancer rebalancer,
+                                                                         PeerClient peers, GameMetrics metrics,
+                                                                         ObjectMapper objectMapper) {
+        FilterRegistrationBean<ShardRoutingFilter> registration = new FilterRegistrationBean<>(
+                new ShardRoutingFilter(router, rebalancer, peers, metrics, objectMapper));
+        registration.addUrlPatterns("/api/games/*", "/ws/games/*");
+        return registration;
+    }
+}
@@ -0,0 +1,122 @@
+package com.production.game2048.cluster;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuration for running several nodes that share the games by shard, bound from {@code game.cluster.*}.
+ */
+@ConfigurationProperties(prefix = "game.cluster")
+public class ClusterProperties {
+
+    /**
+     * Whether this node is part of a sharded cluster. When off, game ids are plain sequence
+     * numbers and every request is served locally.
+     */
+    private boolean enabled = false;
+
+    /**
+     * This node's id, between 0 and 63. Part of every game id the node creates, so it must never
+     * be given to a node with a different database.
+     */
+    private int nodeId = 0;
+
+    /**
+     * The base URL of every node by node id, this one included, e.g.
+     * {@code game.cluster.nodes.1=http://localhost:8081}.
+     */
+    private Map<Integer, String> nodes = new LinkedHashMap<>();
+
+    /**
+     * Number of shards, a power of two up to 4096. Encoded into every game id, so it cannot be
+     * changed once the cluster holds games.
+     */
+    private int shards = 256;
+
+    /**
+     * Points per node on the hash ring. More points spread the shards more evenly.
+     */
+    private int virtualNodes = 128;
+
+    /**
+     * What a node does with a request for a game another node owns.
+     */
+    private RoutingMode routing = RoutingMode.FORWARD;
+
+    /**
+     * Connect and read timeout of requests to other nodes.
+     */
+    private Duration forwardTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Games sent to their new owner per request while rebalancing.
+     */
+    private int transferBatchSize = 500;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(int nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public Map<Integer, String> getNodes() {
+        return nodes;
+    }
+
+    public void setNodes(Map<Integer, String> nodes) {
+        this.nodes = nodes;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    public void setVirtualNodes(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    public RoutingMode getRouting() {
+        return routing;
+    }
+
+    public void setRouting(RoutingMode routing) {
+        this.routing = routing;
+    }
+
+    public Duration getForwardTimeout() {
+        return forwardTimeout;
+    }
+
+    public void setForwardTimeout(Duration forwardTimeout) {
+        this.forwardTimeout = forwardTimeout;
+    }
+
+    public int getTransferBatchSize() {
+        return transferBatchSize;
+    }
+
+    public void setTransferBatchSize(int transferBatchSize) {
+        this.transferBatchSize = transferBatchSize;
+    }
+}
@@ -0,0 +1,276 @@
+package com.production.game2048.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Knows which node owns which game.
+ *
+ * In a cluster, a game id is laid out as {@code sequence | node | shard}, from the high bits
+ * down: the number the creating node's own id sequence handed out, the creating node's id
+ * ({@value #NODE_BITS} bits) and the game's shard. Ids from different nodes therefore never
+ * collide, however the games move between nodes later, and the shard is read from the id
+ * without a lookup. A node only creates games in shards it owns, taken in turn.
+ *
+ * The shards are assigned to nodes by a {@link HashRing}. When the membership changes, the
+ * previous ring is kept: a game that changed owner may not have been moved yet, so a new owner
+ * that does not have the game forwards the request to the previous one, and a previous owner
+ * still holding the game serves it itself. {@link ShardRebalancer} then moves the games. Each
+ * node that lost shards reports to every node once it has moved all of their games, and when all
+ * of them have, the previous ring is dropped, so owners stop looking for games they do not have.
+ *
+ * Outside a cluster, game ids are the plain sequence numbers and every game is local.
+ */
+@Component
+@EnableConfigurationProperties(ClusterProperties.class)
+public class ClusterRouter {
+
+    /**
+     * Bits of a game id holding the id of the node that created it.
+     */
+    public static final int NODE_BITS = 6;
+
+    /**
+     * The largest number of shards a cluster can have.
+     */
+    public static final int MAX_SHARDS = 4096;
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterRouter.class);
+
+    private final ClusterProperties properties;
+    private final int nodeId;
+    private final int shardBits;
+    private final AtomicInteger nextShard = new AtomicInteger();
+    private volatile Layout layout;
+
+    @Autowired
+    public ClusterRouter(ClusterProperties properties) {
+        this.properties = properties;
+        this.nodeId = properties.getNodeId();
+        int shards = properties.getShards();
+        if (shards < 1 || shards > MAX_SHARDS || Integer.bitCount(shards) != 1) {
+            throw new IllegalArgumentException("game.cluster.shards must be a power of two up to " + MAX_SHARDS + ".");
+        }
+        if (nodeId < 0 || nodeId >= 1 << NODE_BITS) {
+            throw new IllegalArgumentException("game.cluster.node-id must be between 0 and " + ((1 << NODE_BITS) - 1) + ".");
+        }
+        this.shardBits = Integer.numberOfTrailingZeros(shards);
+        this.layout = new Layout(ring(properties.getNodes()), null, Collections.emptySet());
+        if (properties.isEnabled()) {
+            log.info("Node {} of a cluster of {} nodes, owning {} of {} shards.", nodeId, properties.getNodes().size(),
+                    layout.owned.length, shards);
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Turns a number from the id sequence into a game id, in a shard this node owns.
+     *
+     * @throws IllegalStateException if this node is in a cluster but owns no shard.
+     */
+    public long idFor(long sequence) {
+        if (!isEnabled()) {
+            return sequence;
+        }
+        int[] owned = layout.owned;
+        if (owned.length == 0) {
+            throw new IllegalStateException("Node " + nodeId + " owns no shards, so it cannot start games.");
+        }
+        int shard = owned[Math.floorMod(nextShard.getAndIncrement(), owned.length)];
+        return (((sequence << NODE_BITS) | nodeId) << shardBits) | shard;
+    }
+
+    /**
+     * @return The number from the id sequence a game id was made from.
+     */
+    public long sequenceOf(long id) {
+        return isEnabled() ? id >>> (NODE_BITS + shardBits) : id;
+    }
+
+    public int shardOf(long id) {
+        return (int) (id & ((1 << shardBits) - 1));
+    }
+
+    /**
+     * @return The id of the node that owns the game, or -1 if no node does.
+     */
+    public int ownerOf(long id) {
+        return layout.ring.ownerOf(shardOf(id));
+    }
+
+    /**
+     * @return The id of the node that owned the game before the last membership change, or -1 if
+     *         it has not changed since startup.
+     */
+    public int previousOwnerOf(long id) {
+        HashRing previous = layout.previous;
+        return previous == null ? -1 : previous.ownerOf(shardOf(id));
+    }
+
+    /**
+     * @return true if this node serves the game, always the case outside a cluster.
+     */
+    public boolean isLocal(long id) {
+        return !isEnabled() || ownerOf(id) == nodeId;
+    }
+
+    /**
+     * @return The base URL of a node, from the current ring or else the previous one; null if unknown.
+     */
+    public String urlOf(int node) {
+        Layout current = layout;
+        String url = current.ring.urlOf(node);
+        if (url == null && current.previous != null) {
+            url = current.previous.urlOf(node);
+        }
+        return url;
+    }
+
+    /**
+     * Tells requests passed on by another node from those of clients, which must not be able to
+     * pose as a node. Node hosts are resolved on every call, so nodes may change address.
+     *
+     * @param address The IP address a request came from.
+     * @return true if it is the address of a node of the current or previous ring.
+     */
+    public boolean isPeer(String address) {
+        InetAddress remote;
+        try {
+            remote = InetAddress.getByName(address);
+        } catch (UnknownHostException e) {
+            return false;
+        }
+        Layout current = layout;
+        for (HashRing ring : Arrays.asList(current.ring, current.previous)) {
+            if (ring == null) {
+                continue;
+            }
+            for (String url : ring.getNodes().values()) {
+                try {
+                    String host = URI.create(url).getHost();
+                    if (host != null && Arrays.asList(InetAddress.getAllByName(host)).contains(remote)) {
+                        return true;
+                    }
+                } catch (IllegalArgumentException | UnknownHostException e) {
+                    log.debug("Cannot resolve node address {}: {}", url, e.getMessage());
+                }
+            }
+        }
+        return false;
+    }
+
+    public HashRing getRing() {
+        return layout.ring;
+    }
+
+    /**
+     * @return The ring before the last membership change, or null if it has not changed since startup.
+     */
+    public HashRing getPreviousRing() {
+        return layout.previous;
+    }
+
+    /**
+     * @return The nodes that lost shards in the last membership change and have not reported
+     *         yet that they moved all of their games.
+     */
+    public Set<Integer> getDrainingNodes() {
+        return layout.draining;
+    }
+
+    public ClusterProperties getProperties() {
+        return properties;
+    }
+
+    /**
+     * Changes the cluster's membership. The current ring becomes the previous one, unless no shard
+     * changed owner.
+     *
+     * @param nodes The base URL of every node by node id.
+     */
+    public synchronized void setNodes(Map<Integer, String> nodes) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("This node is not part of a cluster.");
+        }
+        for (int node : nodes.keySet()) {
+            if (node < 0 || node >= 1 << NODE_BITS) {
+                throw new IllegalArgumentException("Node ids must be between 0 and " + ((1 << NODE_BITS) - 1) + ".");
+            }
+        }
+        HashRing ring = ring(nodes);
+        HashRing previous = layout.ring;
+        Set<Integer> draining = new TreeSet<>();
+        for (int shard = 0; shard < properties.getShards(); shard++) {
+            int owner = previous.ownerOf(shard);
+            if (owner >= 0 && owner != ring.ownerOf(shard)) {
+                draining.add(owner);
+            }
+        }
+        layout = draining.isEmpty() ? new Layout(ring, null, draining)
+                : new Layout(ring, previous, Collections.unmodifiableSet(draining));
+        log.info("Cluster membership changed to nodes {}; node {} now owns {} of {} shards.", nodes.keySet(), nodeId,
+                layout.owned.length, properties.getShards());
+    }
+
+    /**
+     * Records that a node has moved every game it held in shards it lost in the last membership
+     * change, and drops the previous ring once no node has any left.
+     */
+    public synchronized void rebalanced(int node) {
+        Layout current = layout;
+        if (!current.draining.contains(node)) {
+            return;
+        }
+        Set<Integer> draining = new TreeSet<>(current.draining);
+        draining.remove(node);
+        if (draining.isEmpty()) {
+            layout = new Layout(current.ring, null, Collections.emptySet());
+            log.info("Node {} finished rebalancing, and so has every other node; the previous ring is dropped.", node);
+        } else {
+            layout = new Layout(current.ring, current.previous, Collections.unmodifiableSet(draining));
+            log.info("Node {} finished rebalancing; waiting for nodes {}.", node, draining);
+        }
+    }
+
+    private HashRing ring(Map<Integer, String> nodes) {
+        return new HashRing(nodes, properties.getShards(), Math.max(1, properties.getVirtualNodes()));
+    }
+
+    /**
+     * The current and previous ring, swapped together so a reader never sees one without the other,
+     * and the nodes still moving games out of the shards they lost.
+     */
+    private final class Layout {
+        private final HashRing ring;
+        private final HashRing previous;
+        private final Set<Integer> draining;
+        private final int[] owned;
+
+        Layout(HashRing ring, HashRing previous, Set<Integer> draining) {
+            this.ring = ring;
+            this.previous = previous;
+            this.draining = draining;
+            this.owned = ring.shardsOf(nodeId);
+        }
+    }
+}
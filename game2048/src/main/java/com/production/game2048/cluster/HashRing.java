@@ -0,0 +1,86 @@
+package com.production.game2048.cluster;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Assigns the shards to nodes by consistent hashing.
+ *
+ * Every node is placed on a ring of 64-bit hashes at {@code virtualNodes} points, and every shard
+ * belongs to the node of the first point at or after the shard's own hash. Adding a node thus
+ * only takes shards over from the others, about {@code 1 / nodes} of them, and removing one only
+ * hands its shards out; no shard moves between two nodes that stay. The hashes only depend on
+ * the node ids, so every node computes the same assignment. It is worked out once, into an array
+ * indexed by shard.
+ */
+public final class HashRing {
+
+    private final Map<Integer, String> nodes;
+    private final int[] owners;
+
+    /**
+     * @param nodes The base URL of every node by node id. May be empty, in which case no node owns anything.
+     */
+    public HashRing(Map<Integer, String> nodes, int shards, int virtualNodes) {
+        this.nodes = new TreeMap<>(nodes);
+        this.owners = new int[shards];
+        TreeMap<Long, Integer> points = new TreeMap<>();
+        for (int node : this.nodes.keySet()) {
+            for (int point = 0; point < virtualNodes; point++) {
+                points.put(mix(((long) node << 32) | point), node);
+            }
+        }
+        for (int shard = 0; shard < shards; shard++) {
+            Map.Entry<Long, Integer> owner = points.ceilingEntry(mix(~(long) shard));
+            if (owner == null) {
+                owner = points.firstEntry();
+            }
+            owners[shard] = owner == null ? -1 : owner.getValue();
+        }
+    }
+
+    /**
+     * @return The id of the node owning the shard, or -1 if the ring has no nodes.
+     */
+    public int ownerOf(int shard) {
+        return owners[shard];
+    }
+
+    /**
+     * @return The shards owned by the node, in ascending order.
+     */
+    public int[] shardsOf(int node) {
+        int[] shards = new int[owners.length];
+        int count = 0;
+        for (int shard = 0; shard < owners.length; shard++) {
+            if (owners[shard] == node) {
+                shards[count++] = shard;
+            }
+        }
+        return Arrays.copyOf(shards, count);
+    }
+
+    /**
+     * @return The base URL of the node, or null if it is not on the ring.
+     */
+    public String urlOf(int node) {
+        return nodes.get(node);
+    }
+
+    /**
+     * @return The base URL of every node on the ring by node id, in ascending id order.
+     */
+    public Map<Integer, String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * The finalizer of SplitMix64: spreads consecutive inputs over the whole ring.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,173 @@
+package com.production.game2048.cluster;
+
+import com.production.game2048.archive.GameArchive;
+import com.production.game2048.model.GameState;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Sends requests to the other nodes of the cluster over plain HTTP.
+ */
+@Component
+public class PeerClient {
+
+    /**
+     * The addresses a request came through, its original client first, for the owner's rate limits.
+     */
+    public static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+
+    /**
+     * Counts how often a request was passed on between nodes, so it cannot go round in circles.
+     * Ignored on requests that do not come from a node; see {@link ClusterRouter#isPeer}.
+     */
+    public static final String HOPS_HEADER = "X-Game-Hops";
+
+    /**
+     * Headers that only apply to one connection, plus those the connection sets itself.
+     */
+    private static final Set<String> SKIPPED_HEADERS = caseInsensitive(HttpHeaders.CONNECTION, "Keep-Alive",
+            HttpHeaders.TRANSFER_ENCODING, HttpHeaders.TE, HttpHeaders.UPGRADE, HttpHeaders.PROXY_AUTHORIZATION,
+            HttpHeaders.HOST, HttpHeaders.CONTENT_LENGTH, HOPS_HEADER, FORWARDED_FOR_HEADER);
+
+    private final int timeoutMillis;
+
+    @Autowired
+    public PeerClient(ClusterProperties properties) {
+        this.timeoutMillis = (int) Math.min(Integer.MAX_VALUE, properties.getForwardTimeout().toMillis());
+    }
+
+    /**
+     * Sends a request on to another node and copies its response back, status, headers and body.
+     *
+     * @param baseUrl The base URL of the node.
+     * @param hops The number of times the request was passed on before.
+     * @throws IOException if the node could not be reached; nothing has been written to the response then.
+     */
+    public void forward(HttpServletRequest request, HttpServletResponse response, String baseUrl, int hops)
+            throws IOException {
+        String query = request.getQueryString();
+        HttpURLConnection connection = open(baseUrl + request.getRequestURI() + (query != null ? "?" + query : ""));
+        connection.setRequestMethod(request.getMethod());
+        for (String name : Collections.list(request.getHeaderNames())) {
+            if (!SKIPPED_HEADERS.contains(name)) {
+                for (String value : Collections.list(request.getHeaders(name))) {
+                    connection.addRequestProperty(name, value);
+                }
+            }
+        }
+        connection.setRequestProperty(HOPS_HEADER, Integer.toString(hops + 1));
+        String forwardedFor = request.getHeader(FORWARDED_FOR_HEADER);
+        connection.setRequestProperty(FORWARDED_FOR_HEADER,
+                forwardedFor == null ? request.getRemoteAddr() : forwardedFor + ", " + request.getRemoteAddr());
+        long length = request.getContentLengthLong();
+        if (length > 0 || request.getHeader(HttpHeaders.TRANSFER_ENCODING) != null) {
+            connection.setDoOutput(true);
+            if (length > 0) {
+                connection.setFixedLengthStreamingMode(length);
+            } else {
+                connection.setChunkedStreamingMode(0);
+            }
+            try (OutputStream out = connection.getOutputStream()) {
+                StreamUtils.copy(request.getInputStream(), out);
+            }
+        }
+
+        int status = connection.getResponseCode();
+        response.setStatus(status);
+        for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+            // The status line comes back under a null name.
+            if (header.getKey() != null && !SKIPPED_HEADERS.contains(header.getKey())) {
+                for (String value : header.getValue()) {
+                    response.addHeader(header.getKey(), value);
+                }
+            }
+        }
+        try (InputStream body = status >= 400 ? connection.getErrorStream() : connection.getInputStream()) {
+            if (body != null) {
+                StreamUtils.copy(body, response.getOutputStream());
+            }
+        }
+    }
+
+    /**
+     * Hands games over to another node in the archive's format.
+     *
+     * @param url The node's import endpoint.
+     * @throws IOException if the node could not be reached or did not accept the games.
+     */
+    public void sendGames(String url, List<GameState> games) throws IOException {
+        HttpURLConnection connection = open(url);
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        connection.setRequestProperty(HOPS_HEADER, "1");
+        connection.setDoOutput(true);
+        connection.setChunkedStreamingMode(0);
+        try (OutputStream out = connection.getOutputStream()) {
+            GameArchive.writeMember(out, games);
+        }
+        int status = connection.getResponseCode();
+        if (status / 100 != 2) {
+            String message = "";
+            try (InputStream body = connection.getErrorStream()) {
+                if (body != null) {
+                    message = StreamUtils.copyToString(body, StandardCharsets.UTF_8);
+                }
+            }
+            throw new IOException(url + " refused " + games.size() + " games with " + status + ": " + message);
+        }
+        try (InputStream body = connection.getInputStream()) {
+            StreamUtils.drain(body);
+        }
+    }
+
+    /**
+     * Tells another node that this one has moved all the games it held in shards it lost.
+     *
+     * @param url The node's endpoint for it.
+     * @throws IOException if the node could not be reached or did not accept it.
+     */
+    public void sendRebalanced(String url) throws IOException {
+        HttpURLConnection connection = open(url);
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty(HOPS_HEADER, "1");
+        int status = connection.getResponseCode();
+        if (status / 100 != 2) {
+            throw new IOException(url + " answered " + status + ".");
+        }
+        try (InputStream body = connection.getInputStream()) {
+            StreamUtils.drain(body);
+        }
+    }
+
+    private HttpURLConnection open(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+        connection.setInstanceFollowRedirects(false);
+        connection.setUseCaches(false);
+        return connection;
+    }
+
+    private static Set<String> caseInsensitive(String... names) {
+        Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        Collections.addAll(set, names);
+        return set;
+    }
+}
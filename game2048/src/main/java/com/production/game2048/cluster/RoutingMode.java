@@ -0,0 +1,19 @@
+package com.production.game2048.cluster;
+
+/**
+ * How a node answers a request for a game owned by another node.
+ */
+public enum RoutingMode {
+
+    /**
+     * The request is sent on to the owner and its response passed back. Clients need not know
+     * the cluster's layout, at the cost of one extra hop.
+     */
+    FORWARD,
+
+    /**
+     * The client is sent to the owner with a 307 Temporary Redirect, which keeps the method and
+     * body. Clients that remember where a game lives skip the extra hop from then on.
+     */
+    REDIRECT
+}
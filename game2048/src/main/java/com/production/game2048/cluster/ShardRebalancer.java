@@ -0,0 +1,326 @@
+package com.production.game2048.cluster;
+
+import com.production.game2048.archive.GameArchive;
+import com.production.game2048.leaderboard.Leaderboard;
+import com.production.game2048.metrics.GameMetrics;
+import com.production.game2048.metrics.PersistenceOperation;
+import com.production.game2048.model.GameState;
+import com.production.game2048.repository.GameStateRepository;
+import com.production.game2048.session.GameLocks;
+import com.production.game2048.session.GameSessionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Moves games to the node that owns them after the cluster's membership changed.
+ *
+ * To add a node:
+ * <ol>
+ *   <li>Start it with {@code game.cluster.nodes} listing the current nodes only, so it owns no
+ *       shards yet, and keep it out of the load balancer.</li>
+ *   <li>{@code PUT /api/admin/cluster/nodes} the new node list to every node, the new one
+ *       included. From then on each node routes by the new ring, falling back to the previous
+ *       owner for games that have not moved yet; see {@link ClusterRouter}.</li>
+ *   <li>{@code POST /api/admin/cluster/rebalance} on every old node. Each sends the games it
+ *       holds but no longer owns, in the database and in the archive, to their new owner, and
+ *       once none is left tells every node, which drop the previous ring when all old nodes
+ *       have.</li>
+ *   <li>Add the new node to the load balancer, and its address to every node's configuration.</li>
+ * </ol>
+ * Removing a node works the same way, rebalancing the node that leaves before stopping it. Both
+ * admin requests need the admin token, since whoever changes the membership decides where games
+ * are sent, and which addresses are believed to be nodes.
+ *
+ * Games are sent {@code transferBatchSize} at a time. Their locks are held while copying them and
+ * again while deleting them here, but not while they are on the wire. A game played in between is
+ * not deleted but sent again as it is now, up to {@value #MAX_ATTEMPTS} times, and the receiving
+ * node keeps whichever copy has more moves. The receiving node skips games it already has, which
+ * makes a rebalance that failed halfway safe to run again.
+ */
+@Component
+public class ShardRebalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRebalancer.class);
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final ClusterRouter router;
+    private final GameStateRepository gameStateRepository;
+    private final GameSessionStore sessionStore;
+    private final GameLocks locks;
+    private final GameArchive archive;
+    private final Leaderboard leaderboard;
+    private final PeerClient peers;
+    private final GameMetrics metrics;
+    /** Games the current rebalance had to leave here. Guarded by this. */
+    private int unmoved;
+
+    @Autowired
+    public ShardRebalancer(ClusterRouter router, GameStateRepository gameStateRepository,
+                           GameSessionStore sessionStore, GameLocks locks, GameArchive archive,
+                           Leaderboard leaderboard, PeerClient peers, GameMetrics metrics) {
+        this.router = router;
+        this.gameStateRepository = gameStateRepository;
+        this.sessionStore = sessionStore;
+        this.locks = locks;
+        this.archive = archive;
+        this.leaderboard = leaderboard;
+        this.peers = peers;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return true if this node holds the game, in memory, in the database or in the archive.
+     */
+    public boolean hasLocally(long id) {
+        return sessionStore.findCached(id).isPresent() || gameStateRepository.existsById(id)
+                || archive.findScore(id).isPresent();
+    }
+
+    /**
+     * Sends every game this node holds but does not own to its owner, then, if every one of them
+     * could be moved, tells every node so. Runs on the caller's thread; concurrent runs are serialised.
+     *
+     * @return The number of games sent.
+     * @throws UncheckedIOException if a node could not be reached or refused the games. The games
+     *         sent so far have moved; running the rebalance again continues with the rest.
+     */
+    public synchronized int rebalance() {
+        if (!router.isEnabled()) {
+            throw new IllegalStateException("This node is not part of a cluster.");
+        }
+        // Write the cached games first, so the rows read below are mostly up to date.
+        sessionStore.flush();
+        int batchSize = Math.max(1, router.getProperties().getTransferBatchSize());
+        unmoved = 0;
+        int moved = 0;
+        long afterId = 0;
+        while (true) {
+            List<Long> ids = gameStateRepository.findIdsAfter(afterId, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            afterId = ids.get(ids.size() - 1);
+            moved += transferMisplaced(ids);
+        }
+
+        List<Long> archived = new ArrayList<>();
+        archive.forEach(game -> {
+            if (!router.isLocal(game.getId())) {
+                archived.add(game.getId());
+            }
+        });
+        for (int from = 0; from < archived.size(); from += batchSize) {
+            moved += transferMisplaced(archived.subList(from, Math.min(archived.size(), from + batchSize)));
+        }
+        log.info("Rebalance sent {} games to their owners.", moved);
+        if (unmoved == 0) {
+            announceRebalanced();
+        } else {
+            log.warn("{} games could not be moved; run the rebalance again to move them.", unmoved);
+        }
+        return moved;
+    }
+
+    /**
+     * Stores games sent by their previous owner.
+     *
+     * @return The number of games stored; games this node already has are skipped, unless the
+     *         copy sent has more moves, in which case it replaces the one here.
+     * @throws IllegalArgumentException if this node does not own one of the games, in which case none is stored.
+     */
+    public int receive(List<GameState> games) {
+        for (GameState game : games) {
+            if (!router.isLocal(game.getId())) {
+                throw new IllegalArgumentException("Node " + router.getNodeId() + " does not own game " + game.getId()
+                        + "; it belongs to node " + router.ownerOf(game.getId()) + ".");
+            }
+        }
+        int received = 0;
+        for (GameState game : games) {
+            Lock lock = locks.forGame(game.getId());
+            lock.lock();
+            try {
+                Optional<GameState> local = findLocally(game.getId());
+                if (local.isPresent() && local.get().getMoveCount() >= game.getMoveCount()) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                if (local.isPresent()) {
+                    // Played on at the previous owner while an older copy was on its way here.
+                    gameStateRepository.deleteAllByIdInBatch(Collections.singletonList(game.getId()));
+                    sessionStore.forget(game.getId());
+                    archive.remove(game.getId());
+                }
+                gameStateRepository.restore(game);
+                metrics.recordPersistence(PersistenceOperation.RESTORE, start);
+                leaderboard.update(game.getId(), game.getBoardSize(), game.getScore());
+                received++;
+            } finally {
+                lock.unlock();
+            }
+        }
+        return received;
+    }
+
+    private void announceRebalanced() {
+        router.rebalanced(router.getNodeId());
+        Set<Integer> nodes = new TreeSet<>(router.getRing().getNodes().keySet());
+        HashRing previous = router.getPreviousRing();
+        if (previous != null) {
+            nodes.addAll(previous.getNodes().keySet());
+        }
+        nodes.remove(router.getNodeId());
+        for (int node : nodes) {
+            String url = router.urlOf(node);
+            try {
+                peers.sendRebalanced(url + "/api/cluster/rebalanced?node=" + router.getNodeId());
+            } catch (IOException e) {
+                log.warn("Failed to tell node {} at {} that node {} finished rebalancing: {}", node, url,
+                        router.getNodeId(), e.getMessage());
+            }
+        }
+    }
+
+    private int transferMisplaced(List<Long> ids) {
+        Map<Integer, List<Long>> byOwner = new HashMap<>();
+        for (long id : ids) {
+            int owner = router.ownerOf(id);
+            if (owner >= 0 && owner != router.getNodeId()) {
+                byOwner.computeIfAbsent(owner, key -> new ArrayList<>()).add(id);
+            }
+        }
+        int moved = 0;
+        for (Map.Entry<Integer, List<Long>> entry : byOwner.entrySet()) {
+            moved += transfer(entry.getKey(), entry.getValue());
+        }
+        return moved;
+    }
+
+    private int transfer(int owner, List<Long> ids) {
+        String url = router.urlOf(owner);
+        if (url == null) {
+            log.warn("Node {} owns {} games here but has no address; they stay.", owner, ids.size());
+            unmoved += ids.size();
+            return 0;
+        }
+        List<GameState> games = copyGames(ids);
+        int moved = 0;
+        for (int attempt = 1; !games.isEmpty(); attempt++) {
+            long start = System.nanoTime();
+            try {
+                peers.sendGames(url + "/api/cluster/games", games);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to send " + games.size() + " games to node " + owner + ".", e);
+            }
+            List<GameState> changed = removeSent(games);
+            metrics.recordPersistence(PersistenceOperation.TRANSFER, start);
+            moved += games.size() - changed.size();
+            log.debug("Sent {} games to node {}; {} changed meanwhile.", games.size(), owner, changed.size());
+            if (!changed.isEmpty() && attempt == MAX_ATTEMPTS) {
+                log.warn("{} games kept changing while being sent to node {}; they stay until the next rebalance.",
+                        changed.size(), owner);
+                unmoved += changed.size();
+                break;
+            }
+            games = changed;
+        }
+        return moved;
+    }
+
+    /**
+     * @return Copies of the games as they are now, in memory, in the database or in the archive.
+     */
+    private List<GameState> copyGames(List<Long> ids) {
+        List<Lock> held = locks.lockAll(ids);
+        try {
+            List<GameState> games = new ArrayList<>(ids.size());
+            Set<Long> rows = new HashSet<>(ids.size() * 2);
+            for (GameState row : gameStateRepository.findAllById(ids)) {
+                rows.add(row.getId());
+                // A cached game may be ahead of its row.
+                Optional<GameState> cached = sessionStore.findCached(row.getId());
+                games.add(cached.isPresent() ? cached.get().copy() : row);
+            }
+            for (long id : ids) {
+                if (!rows.contains(id)) {
+                    archive.read(id).ifPresent(games::add);
+                }
+            }
+            return games;
+        } finally {
+            GameLocks.unlockAll(held);
+        }
+    }
+
+    /**
+     * Deletes the games that are still as they were sent.
+     *
+     * @return Copies of the games that were played on since, as they are now.
+     */
+    private List<GameState> removeSent(List<GameState> sent) {
+        List<Long> ids = new ArrayList<>(sent.size());
+        for (GameState game : sent) {
+            ids.add(game.getId());
+        }
+        List<Lock> held = locks.lockAll(ids);
+        try {
+            Map<Long, GameState> rows = new HashMap<>(ids.size() * 2);
+            for (GameState row : gameStateRepository.findAllById(ids)) {
+                rows.put(row.getId(), row);
+            }
+            List<GameState> changed = new ArrayList<>();
+            List<GameState> unchanged = new ArrayList<>(sent.size());
+            List<Long> deletedRows = new ArrayList<>(rows.size());
+            for (GameState game : sent) {
+                // Archived games only change by being put back into the database first.
+                Optional<GameState> cached = sessionStore.findCached(game.getId());
+                GameState current = cached.isPresent() ? cached.get() : rows.getOrDefault(game.getId(), game);
+                if (current.getMoveCount() != game.getMoveCount()) {
+                    changed.add(current.copy());
+                    continue;
+                }
+                unchanged.add(game);
+                if (rows.containsKey(game.getId())) {
+                    deletedRows.add(game.getId());
+                }
+            }
+            gameStateRepository.deleteAllByIdInBatch(deletedRows);
+            for (GameState game : unchanged) {
+                sessionStore.forget(game.getId());
+                archive.remove(game.getId());
+                leaderboard.remove(game.getId());
+            }
+            return changed;
+        } finally {
+            GameLocks.unlockAll(held);
+        }
+    }
+
+    /**
+     * @return The game as this node holds it, in memory, in the database or in the archive.
+     */
+    private Optional<GameState> findLocally(long id) {
+        Optional<GameState> cached = sessionStore.findCached(id);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        Optional<GameState> row = gameStateRepository.findById(id);
+        return row.isPresent() ? row : archive.read(id);
+    }
+}
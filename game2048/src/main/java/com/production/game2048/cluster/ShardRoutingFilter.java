@@ -0,0 +1,145 @@
+package com.production.game2048.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.production.game2048.exception.ApiErrorResponse;
+import com.production.game2048.metrics.GameMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Sends requests for a game to the node that owns it, reading the game id from the path of
+ * {@code /api/games/{id}/...} and {@code /ws/games/{id}}.
+ *
+ * A request for a game owned elsewhere is forwarded or redirected, as {@code game.cluster.routing}
+ * says. Event streams and WebSockets are always redirected, since they cannot be forwarded one
+ * response at a time. While games are being moved after a membership change, a node that still
+ * holds a game it no longer owns serves it itself, and an owner that does not have a game yet
+ * forwards the request to the previous owner. A request is passed on at most {@value #MAX_HOPS}
+ * times, so nodes that disagree about the membership cannot send it round in circles. The hop
+ * count is only believed from the other nodes, so clients cannot use it to skip routing.
+ */
+public class ShardRoutingFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRoutingFilter.class);
+    private static final int MAX_HOPS = 2;
+    private static final String[] GAME_PATHS = {"/api/games/", "/ws/games/"};
+
+    private final ClusterRouter router;
+    private final ShardRebalancer rebalancer;
+    private final PeerClient peers;
+    private final GameMetrics metrics;
+    private final ObjectMapper objectMapper;
+
+    public ShardRoutingFilter(ClusterRouter router, ShardRebalancer rebalancer, PeerClient peers,
+                              GameMetrics metrics, ObjectMapper objectMapper) {
+        this.router = router;
+        this.rebalancer = rebalancer;
+        this.peers = peers;
+        this.metrics = metrics;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        long id = gameIdOf(path);
+        int hops = hopsOf(request);
+        int target = id < 0 ? -1 : route(id, hops);
+        String url = target < 0 ? null : router.urlOf(target);
+        if (url == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        boolean stream = path.startsWith("/ws/") || path.endsWith("/events");
+        if (stream || (hops == 0 && target == router.ownerOf(id) && router.getProperties().getRouting() == RoutingMode.REDIRECT)) {
+            String query = request.getQueryString();
+            response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+            response.setHeader(HttpHeaders.LOCATION, url + request.getRequestURI() + (query != null ? "?" + query : ""));
+            metrics.requestRouted("redirected");
+            return;
+        }
+        try {
+            peers.forward(request, response, url, hops);
+            metrics.requestRouted("forwarded");
+        } catch (IOException e) {
+            metrics.requestRouted("failed");
+            log.warn("Failed to forward {} {} to node {} at {}: {}", request.getMethod(), path, target, url,
+                    e.getMessage());
+            if (!response.isCommitted()) {
+                response.reset();
+                response.setStatus(HttpStatus.BAD_GATEWAY.value());
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                objectMapper.writeValue(response.getOutputStream(), new ApiErrorResponse(HttpStatus.BAD_GATEWAY.value(),
+                        "Bad Gateway", "Node " + target + ", which holds game " + id + ", could not be reached."));
+            }
+        }
+    }
+
+    /**
+     * @return The node to pass the request on to, or -1 to serve it here.
+     */
+    private int route(long id, int hops) {
+        if (hops >= MAX_HOPS) {
+            return -1;
+        }
+        int self = router.getNodeId();
+        int owner = router.ownerOf(id);
+        int previous = router.previousOwnerOf(id);
+        if (owner == self) {
+            // A game that moved here may still be with its previous owner.
+            if (previous >= 0 && previous != self && !rebalancer.hasLocally(id)) {
+                return previous;
+            }
+            return -1;
+        }
+        // Not moved to its owner yet, or sent here by an owner that does not have it.
+        if ((previous == self || hops > 0) && rebalancer.hasLocally(id)) {
+            return -1;
+        }
+        return owner;
+    }
+
+    /**
+     * @return The game id in a game path, or -1 for any other path.
+     */
+    private static long gameIdOf(String path) {
+        for (String prefix : GAME_PATHS) {
+            if (path.startsWith(prefix)) {
+                int end = path.indexOf('/', prefix.length());
+                String id = path.substring(prefix.length(), end < 0 ? path.length() : end);
+                if (!id.isEmpty() && id.chars().allMatch(Character::isDigit)) {
+                    try {
+                        return Long.parseLong(id);
+                    } catch (NumberFormatException e) {
+                        return -1;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private int hopsOf(HttpServletRequest request) {
+        String hops = request.getHeader(PeerClient.HOPS_HEADER);
+        if (hops == null || !router.isPeer(request.getRemoteAddr())) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(hops));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.production.game2048.cluster;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Properties;
+
+/**
+ * The game id generator: numbers from the pooled id sequence, turned into game ids by the
+ * {@link ClusterRouter}. Hibernate creates the generator itself, so the router is handed over
+ * in the JPA properties under {@link #ROUTER_SETTING}; without it the sequence numbers are used as they are.
+ */
+public class ShardedIdGenerator extends SequenceStyleGenerator {
+
+    /**
+     * The JPA property holding the {@link ClusterRouter}.
+     */
+    public static final String ROUTER_SETTING = "game.cluster.router";
+
+    private ClusterRouter router;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        super.configure(type, params, serviceRegistry);
+        Object setting = serviceRegistry.getService(ConfigurationService.class).getSettings().get(ROUTER_SETTING);
+        if (setting instanceof ClusterRouter) {
+            router = (ClusterRouter) setting;
+        }
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        long sequence = ((Number) super.generate(session, object)).longValue();
+        return router == null ? sequence : router.idFor(sequence);
+    }
+}
@@ -0,0 +1,45 @@
+package com.production.game2048.config;
+
+import com.production.game2048.exception.UnauthorizedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Lets a request through to the admin API, or to the bulk export and import of games, only if it
+ * carries the configured admin token. Those endpoints can pick and read seeds, export and import
+ * every game and change the cluster's membership, so they are closed entirely while no token is
+ * configured.
+ */
+public class AdminAuthInterceptor implements HandlerInterceptor {
+
+    private static final String BEARER = "Bearer ";
+
+    private final byte[] token;
+
+    public AdminAuthInterceptor(AdminProperties properties) {
+        String configured = properties.getToken();
+        this.token = configured == null || configured.isEmpty() ? null : configured.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (token == null) {
+            throw new UnauthorizedException("The admin API is disabled: no game.admin.token is configured.");
+        }
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            throw new UnauthorizedException("The admin API requires an admin token.");
+        }
+        byte[] sent = authorization.substring(BEARER.length()).trim().getBytes(StandardCharsets.UTF_8);
+        // Compared in constant time, so the response time does not reveal how much of it matched.
+        if (!MessageDigest.isEqual(token, sent)) {
+            throw new UnauthorizedException("The admin token is not valid.");
+        }
+        return true;
+    }
+}
@@ -0,0 +1,25 @@
+package com.production.game2048.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the operational API under {@code /api/admin} and the bulk export and import of
+ * games, bound from {@code game.admin.*}.
+ */
+@ConfigurationProperties(prefix = "game.admin")
+public class AdminProperties {
+
+    /**
+     * The token admin requests must send as {@code Authorization: Bearer <token>}. While it is
+     * not set, every admin request is refused.
+     */
+    private String token;
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+}
@@ -0,0 +1,19 @@
+package com.production.game2048.config;
+
+/**
+ * How the embedded Tomcat runs requests, set with {@code game.threads.mode}.
+ */
+public enum ExecutionMode {
+
+    /**
+     * Tomcat's own bounded pool of platform threads ({@code server.tomcat.threads.max}).
+     * Every request holds one of them while it blocks on the database.
+     */
+    PLATFORM,
+
+    /**
+     * A new virtual thread per request, which releases its carrier thread while it blocks.
+     * Needs Java 21 or later; the application refuses to start on an older JVM.
+     */
+    VIRTUAL
+}
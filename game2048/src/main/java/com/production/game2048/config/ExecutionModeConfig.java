@@ -0,0 +1,37 @@
+package com.production.game2048.config;
+
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Switches request handling to virtual threads when {@code game.threads.mode=VIRTUAL}.
+ *
+ * Tomcat then hands every request, WebSocket frame included, to a new virtual thread instead of
+ * its pool, so the controller and the repository calls it makes block a virtual thread rather
+ * than a platform one. Requests still compete for the {@code spring.datasource.hikari.maximum-pool-size}
+ * database connections, which becomes the limit on concurrent moves. In the default PLATFORM
+ * mode nothing is changed.
+ */
+@Configuration
+@EnableConfigurationProperties(ThreadingProperties.class)
+public class ExecutionModeConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionModeConfig.class);
+
+    @Bean
+    @ConditionalOnProperty(name = "game.threads.mode", havingValue = "virtual")
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadRequestExecutor() {
+        // Created here rather than in the customizer, so an unsupported JVM fails the startup at once.
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("http-virtual-");
+        log.info("Running requests on virtual threads.");
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+}
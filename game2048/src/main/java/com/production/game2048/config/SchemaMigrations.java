@@ -0,0 +1,122 @@
+package com.production.game2048.config;
+
+import com.production.game2048.archive.GameArchive;
+import com.production.game2048.cluster.ClusterRouter;
+import com.production.game2048.model.GameState;
+import com.production.game2048.util.BinaryBoardConverter;
+import com.production.game2048.util.IntArrayConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Small, idempotent schema fixes that {@code spring.jpa.hibernate.ddl-auto=update} cannot make
+ * on databases created by older versions of the application.
+ *
+ * Depending on the EntityManagerFactory guarantees Hibernate has already updated the schema.
+ */
+@Component
+public class SchemaMigrations {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrations.class);
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    public SchemaMigrations(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+                            GameArchive archive, ClusterRouter router) {
+        allowNullLegacyBoard(jdbcTemplate);
+        backfillBoardSize(jdbcTemplate);
+        backfillUpdatedAt(jdbcTemplate);
+        advanceIdSequence(jdbcTemplate, archive, router);
+    }
+
+    /**
+     * The text column "board" used to be NOT NULL. Boards now live in "board_data", and the
+     * text is cleared once a legacy row is rewritten, so the old constraint must go.
+     */
+    private void allowNullLegacyBoard(JdbcTemplate jdbcTemplate) {
+        List<String> nullable = jdbcTemplate.queryForList(
+                "SELECT IS_NULLABLE FROM INFORMATION_SCHEMA.COLUMNS"
+                        + " WHERE TABLE_NAME = 'GAME_STATE' AND COLUMN_NAME = 'BOARD'", String.class);
+        if (!nullable.isEmpty() && "NO".equals(nullable.get(0))) {
+            log.info("Dropping NOT NULL from the legacy game_state.board column.");
+            jdbcTemplate.execute("ALTER TABLE GAME_STATE ALTER COLUMN BOARD SET NULL");
+        }
+    }
+
+    /**
+     * The "board_size" column was added for the leaderboard and defaults to 0 on older rows.
+     * Fills it in from the board itself: the binary header, or the legacy text.
+     */
+    private void backfillBoardSize(JdbcTemplate jdbcTemplate) {
+        List<Object[]> updates = new ArrayList<>();
+        int[] total = new int[1];
+        jdbcTemplate.query("SELECT ID, BOARD_DATA, BOARD FROM GAME_STATE WHERE BOARD_SIZE = 0", rs -> {
+            byte[] data = rs.getBytes(2);
+            String legacy = rs.getString(3);
+            int size;
+            if (data != null) {
+                size = new BinaryBoardConverter().convertToEntityAttribute(data).length;
+            } else if (legacy != null) {
+                size = new IntArrayConverter().convertToEntityAttribute(legacy).length;
+            } else {
+                return;
+            }
+            updates.add(new Object[]{size, rs.getLong(1)});
+            if (updates.size() == BATCH_SIZE) {
+                total[0] += updates.size();
+                jdbcTemplate.batchUpdate("UPDATE GAME_STATE SET BOARD_SIZE = ? WHERE ID = ?", updates);
+                updates.clear();
+            }
+        });
+        if (!updates.isEmpty()) {
+            total[0] += updates.size();
+            jdbcTemplate.batchUpdate("UPDATE GAME_STATE SET BOARD_SIZE = ? WHERE ID = ?", updates);
+        }
+        if (total[0] > 0) {
+            log.info("Filled in game_state.board_size for {} older rows.", total[0]);
+        }
+    }
+
+    /**
+     * The "updated_at" column was added for archival and defaults to 0 on older rows, which would
+     * make every one of them look idle for decades. Starts their retention period now instead.
+     */
+    private void backfillUpdatedAt(JdbcTemplate jdbcTemplate) {
+        int updated = jdbcTemplate.update("UPDATE GAME_STATE SET UPDATED_AT = ? WHERE UPDATED_AT = 0",
+                System.currentTimeMillis());
+        if (updated > 0) {
+            log.info("Filled in game_state.updated_at for {} older rows.", updated);
+        }
+    }
+
+    /**
+     * Ids used to come from an identity column; they now come from "game_state_seq", which
+     * Hibernate creates starting at 1. Moves the sequence past every id in use, in the table or
+     * in the archive, so no id is handed out twice. In a cluster the sequence only makes up the
+     * high bits of an id, see {@link ClusterRouter}, so it is compared with those.
+     */
+    private void advanceIdSequence(JdbcTemplate jdbcTemplate, GameArchive archive, ClusterRouter router) {
+        List<Long> next = jdbcTemplate.queryForList(
+                "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'GAME_STATE_SEQ'",
+                Long.class);
+        if (next.isEmpty()) {
+            return;
+        }
+        long maxId = Math.max(archive.maxId(),
+                jdbcTemplate.queryForObject("SELECT COALESCE(MAX(ID), 0) FROM GAME_STATE", Long.class));
+        // Hibernate's pooled optimizer treats a sequence value as the last id of a block, except the initial 1.
+        long firstId = next.get(0) == 1 ? 1 : next.get(0) - GameState.ID_ALLOCATION_SIZE + 1;
+        long maxSequence = router.sequenceOf(maxId);
+        if (firstId <= maxSequence) {
+            log.info("Moving game_state_seq past the highest game id in use, {}.", maxId);
+            jdbcTemplate.execute("ALTER SEQUENCE GAME_STATE_SEQ RESTART WITH " + (maxSequence + GameState.ID_ALLOCATION_SIZE));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.production.game2048.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the request threads, bound from {@code game.threads.*}.
+ */
+@ConfigurationProperties(prefix = "game.threads")
+public class ThreadingProperties {
+
+    /**
+     * Whether requests run on Tomcat's thread pool or on virtual threads.
+     */
+    private ExecutionMode mode = ExecutionMode.PLATFORM;
+
+    public ExecutionMode getMode() {
+        return mode;
+    }
+
+    public void setMode(ExecutionMode mode) {
+        this.mode = mode;
+    }
+}
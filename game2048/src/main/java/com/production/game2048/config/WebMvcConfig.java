@@ -0,0 +1,47 @@
+package com.production.game2048.config;
+
+import com.production.game2048.ratelimit.RateLimitInterceptor;
+import com.production.game2048.ratelimit.RateLimiter;
+import com.production.game2048.util.BinaryGameMessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Adds the compact {@code application/x-2048} representation of games. It is registered after
+ * the default converters, so a client that accepts anything still gets JSON.
+ * Also puts the endpoints marked {@code @RateLimited} under the {@link RateLimiter}, unless
+ * {@code game.rate-limit.enabled} is off, and the admin API and the bulk export and import of
+ * games under the {@link AdminAuthInterceptor}.
+ */
+@Configuration
+@EnableConfigurationProperties(AdminProperties.class)
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final RateLimiter rateLimiter;
+    private final AdminProperties adminProperties;
+
+    @Autowired
+    public WebMvcConfig(RateLimiter rateLimiter, AdminProperties adminProperties) {
+        this.rateLimiter = rateLimiter;
+        this.adminProperties = adminProperties;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new BinaryGameMessageConverter());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AdminAuthInterceptor(adminProperties)).addPathPatterns("/api/admin/**", "/api/games/export", "/api/games/import");
+        if (rateLimiter.isEnabled()) {
+            registry.addInterceptor(new RateLimitInterceptor(rateLimiter));
+        }
+    }
+}
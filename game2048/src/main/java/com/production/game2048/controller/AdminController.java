@@ -0,0 +1,148 @@
+package com.production.game2048.controller;
+
+import com.production.game2048.archive.GameArchive;
+import com.production.game2048.archive.GameArchiver;
+import com.production.game2048.cluster.ClusterRouter;
+import com.production.game2048.cluster.ShardRebalancer;
+import com.production.game2048.model.GameState;
+import com.production.game2048.service.GameService;
+import com.production.game2048.session.GameSessionStore;
+import com.production.game2048.session.SessionStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * REST Controller for operational endpoints.
+ * Exposes runtime statistics and maintenance actions that are not part of the game API.
+ * Every endpoint requires the admin token, see {@link com.production.game2048.config.AdminAuthInterceptor}.
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private final GameSessionStore sessionStore;
+    private final GameService gameService;
+    private final GameArchiver archiver;
+    private final GameArchive archive;
+    private final ClusterRouter router;
+    private final ShardRebalancer rebalancer;
+
+    @Autowired
+    public AdminController(GameSessionStore sessionStore, GameService gameService, GameArchiver archiver,
+                           GameArchive archive, ClusterRouter router, ShardRebalancer rebalancer) {
+        this.sessionStore = sessionStore;
+        this.gameService = gameService;
+        this.archiver = archiver;
+        this.archive = archive;
+        this.router = router;
+        this.rebalancer = rebalancer;
+    }
+
+    /**
+     * Retrieves the hit, miss, eviction and flush counters of the in-memory session store.
+     *
+     * @return A ResponseEntity containing the current SessionStats.
+     */
+    @GetMapping("/sessions")
+    public ResponseEntity<SessionStats> getSessionStats() {
+        return ResponseEntity.ok(sessionStore.stats());
+    }
+
+    /**
+     * Writes all dirty games to the database immediately.
+     *
+     * @return A ResponseEntity containing the SessionStats after the flush.
+     */
+    @PostMapping("/sessions/flush")
+    public ResponseEntity<SessionStats> flushSessions() {
+        sessionStore.flush();
+        return ResponseEntity.ok(sessionStore.stats());
+    }
+
+    /**
+     * Moves the games that are past their retention to the archive immediately, instead of
+     * waiting for the next scheduled run.
+     *
+     * @return A ResponseEntity containing the number of games archived by this run and held by the archive.
+     */
+    @PostMapping("/archive")
+    public ResponseEntity<Map<String, Object>> archiveGames() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("archived", archiver.archive());
+        body.put("total", archive.size());
+        return ResponseEntity.ok(body);
+    }
+
+    /**
+     * Starts a new game with the given seed, to reproduce an earlier game from the seed and moves
+     * of {@link #getGameSeed}. Only for admins, since whoever picks the seed knows every future
+     * spawn.
+     *
+     * @param boardSize The size of the board. Defaults to 4.
+     * @param seed The seed for the game's tile spawns.
+     * @return A ResponseEntity containing the initial GameState.
+     */
+    @PostMapping("/games")
+    public ResponseEntity<GameState> startSeededGame(
+            @RequestParam(defaultValue = "4") int boardSize,
+            @RequestParam long seed) {
+        return ResponseEntity.ok(gameService.startNewGame(boardSize, seed));
+    }
+
+    /**
+     * Retrieves the seed of a game's tile spawns. Starting a new game with this seed and
+     * replaying the same moves reproduces the game exactly. Only for admins, since the seed
+     * reveals every future spawn. Replay it with {@link #startSeededGame}.
+     *
+     * @param id The unique ID of the game.
+     * @return A ResponseEntity containing the game's id, seed and move count.
+     */
+    @GetMapping("/games/{id}/seed")
+    public ResponseEntity<Map<String, Object>> getGameSeed(@PathVariable Long id) {
+        GameState game = gameService.getGameState(id);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("id", game.getId());
+        body.put("seed", game.getSeed());
+        body.put("moveCount", game.getMoveCount());
+        return ResponseEntity.ok(body);
+    }
+
+    /**
+     * Changes the cluster's membership on this node. Games are routed by the new membership
+     * from now on, falling back to their previous owner until they are moved by a rebalance.
+     *
+     * @param nodes The base URL of every node by node id.
+     * @return A ResponseEntity containing the number of shards this node owns now.
+     */
+    @PutMapping("/cluster/nodes")
+    public ResponseEntity<Map<String, Object>> setClusterNodes(@RequestBody Map<Integer, String> nodes) {
+        router.setNodes(nodes);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("nodes", router.getRing().getNodes());
+        body.put("ownedShards", router.getRing().shardsOf(router.getNodeId()).length);
+        return ResponseEntity.ok(body);
+    }
+
+    /**
+     * Sends every game this node holds but no longer owns to its owner.
+     *
+     * @return A ResponseEntity containing the number of games sent.
+     */
+    @PostMapping("/cluster/rebalance")
+    public ResponseEntity<Map<String, Object>> rebalanceCluster() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("moved", rebalancer.rebalance());
+        return ResponseEntity.ok(body);
+    }
+}
@@ -0,0 +1,131 @@
+package com.production.game2048.controller;
+
+import com.production.game2048.archive.GameArchive;
+import com.production.game2048.cluster.ClusterRouter;
+import com.production.game2048.cluster.HashRing;
+import com.production.game2048.cluster.ShardRebalancer;
+import com.production.game2048.exception.NotAPeerException;
+import com.production.game2048.model.GameState;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST Controller for the cluster: which node owns which games, and the endpoint the nodes
+ * use to hand games over to each other.
+ */
+@RestController
+@RequestMapping("/api/cluster")
+public class ClusterController {
+
+    private final ClusterRouter router;
+    private final ShardRebalancer rebalancer;
+
+    @Autowired
+    public ClusterController(ClusterRouter router, ShardRebalancer rebalancer) {
+        this.router = router;
+        this.rebalancer = rebalancer;
+    }
+
+    /**
+     * Describes this node and the cluster as it sees it.
+     *
+     * @return A ResponseEntity containing the node id, the nodes of the current and previous ring,
+     *         the nodes still moving games out, and the number of shards this node owns.
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getCluster() {
+        HashRing ring = router.getRing();
+        HashRing previous = router.getPreviousRing();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("enabled", router.isEnabled());
+        body.put("nodeId", router.getNodeId());
+        body.put("routing", router.getProperties().getRouting());
+        body.put("shards", router.getProperties().getShards());
+        body.put("ownedShards", ring.shardsOf(router.getNodeId()).length);
+        body.put("nodes", ring.getNodes());
+        body.put("previousNodes", previous == null ? null : previous.getNodes());
+        body.put("drainingNodes", router.getDrainingNodes());
+        return ResponseEntity.ok(body);
+    }
+
+    /**
+     * Tells which node owns a game, whether or not the game exists.
+     *
+     * @param id The unique ID of the game.
+     * @return A ResponseEntity containing the game's shard, its owner and the owner's address,
+     *         and whether this node holds the game.
+     */
+    @GetMapping("/games/{id}")
+    public ResponseEntity<Map<String, Object>> getGameOwner(@PathVariable Long id) {
+        int owner = router.ownerOf(id);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("id", id);
+        body.put("shard", router.shardOf(id));
+        body.put("owner", owner);
+        body.put("url", owner < 0 ? null : router.urlOf(owner));
+        body.put("local", rebalancer.hasLocally(id));
+        return ResponseEntity.ok(body);
+    }
+
+    /**
+     * Stores games handed over by their previous owner, sent in the archive's format.
+     * Games this node already has are skipped.
+     *
+     * @param body The games, as one archive member.
+     * @return A ResponseEntity containing the number of games stored and skipped.
+     * @throws IllegalArgumentException if the body is not an archive member, or holds a game this node does not own.
+     * @throws NotAPeerException if the request does not come from a node of the cluster.
+     */
+    @PostMapping(path = "/games", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Map<String, Object>> receiveGames(InputStream body, HttpServletRequest request) {
+        requirePeer(request);
+        List<GameState> games;
+        try {
+            games = GameArchive.readMember(body);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The games could not be read: " + e.getMessage(), e);
+        }
+        int received = rebalancer.receive(games);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("received", received);
+        response.put("skipped", games.size() - received);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Records that a node has moved every game it held in shards it lost in the last membership
+     * change. Once all such nodes have, this node stops falling back to the previous ring.
+     *
+     * @param node The id of the node that finished rebalancing.
+     * @return A ResponseEntity containing the nodes still moving games.
+     * @throws NotAPeerException if the request does not come from a node of the cluster.
+     */
+    @PostMapping("/rebalanced")
+    public ResponseEntity<Map<String, Object>> nodeRebalanced(@RequestParam int node, HttpServletRequest request) {
+        requirePeer(request);
+        router.rebalanced(node);
+        return ResponseEntity.ok(Collections.singletonMap("drainingNodes", router.getDrainingNodes()));
+    }
+
+    private void requirePeer(HttpServletRequest request) {
+        if (!router.isPeer(request.getRemoteAddr())) {
+            throw new NotAPeerException("Only the nodes of the cluster may do this, and "
+                    + request.getRemoteAddr() + " is not one of them.");
+        }
+    }
+}
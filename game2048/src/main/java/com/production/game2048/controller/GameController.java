@@ -1,30 +1,72 @@
 package com.production.game2048.controller;
 
+import com.production.game2048.model.ExportFormat;
+import com.production.game2048.model.GameDelta;
 import com.production.game2048.model.GameState;
+import com.production.game2048.model.GameStatus;
+import com.production.game2048.model.Hint;
+import com.production.game2048.model.MoveBatchResult;
 import com.production.game2048.model.MoveDirection;
+import com.production.game2048.ratelimit.RateLimited;
+import com.production.game2048.ratelimit.RateLimitedEndpoint;
+import com.production.game2048.realtime.EventStreamConnection;
+import com.production.game2048.realtime.GameUpdateHub;
+import com.production.game2048.service.GameExportService;
 import com.production.game2048.service.GameService;
+import com.production.game2048.service.HintService;
+import com.production.game2048.util.BinaryGameMessageConverter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 /**
  * REST Controller for the 2048 game API.
  * Exposes endpoints for managing and playing the game.
+ * Games and move batches are answered in JSON, or in the compact binary format of
+ * {@link BinaryGameMessageConverter} to clients that accept {@code application/x-2048}.
+ * Creating, moving, searching, reading and opening event streams are rate limited per endpoint group;
+ * see {@link RateLimited}.
+ * All games can be exported and imported in bulk as a stream by admins; see {@link GameExportService}.
  */
 @RestController
 @RequestMapping("/api/games")
 public class GameController {
 
     private final GameService gameService;
+    private final HintService hintService;
+    private final GameUpdateHub updateHub;
+    private final GameExportService exportService;
 
     @Autowired
-    public GameController(GameService gameService) {
+    public GameController(GameService gameService, HintService hintService, GameUpdateHub updateHub,
+                          GameExportService exportService) {
         this.gameService = gameService;
+        this.hintService = hintService;
+        this.updateHub = updateHub;
+        this.exportService = exportService;
     }
 
     /**
@@ -33,25 +75,123 @@ public class GameController {
      * @param boardSize The desired size of the board (e.g., 4 for a 4x4 board). Defaults to 4.
      * @return A ResponseEntity containing the initial GameState.
      */
+    @RateLimited(RateLimitedEndpoint.CREATE)
     @PostMapping
-    public ResponseEntity<GameState> startNewGame(
-            @RequestParam(defaultValue = "4") int boardSize) {
+    public ResponseEntity<GameState> startNewGame(@RequestParam(defaultValue = "4") int boardSize) {
         // Input validation is handled by the service layer, which will throw
         // an IllegalArgumentException for non-positive sizes.
-        GameState newGame = gameService.startNewGame(boardSize);
+        GameState newGame = gameService.startNewGame(boardSize, null);
         return ResponseEntity.ok(newGame);
     }
 
+    /**
+     * Starts many games at once, e.g. to set up a tournament or a load test.
+     * The ids are streamed as plain text, one line per run of consecutive ids: either a single
+     * id or the first and last id of the run joined by a dash, such as {@code 101-150}.
+     *
+     * @param count The number of games to start, at most 10000.
+     * @param boardSize The size of every board. Defaults to 4.
+     * @return A ResponseEntity streaming the ids of the new games in ascending order.
+     */
+    @RateLimited(RateLimitedEndpoint.CREATE)
+    @PostMapping(value = "/batch", produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<StreamingResponseBody> startNewGames(
+            @RequestParam int count,
+            @RequestParam(defaultValue = "4") int boardSize) {
+        long[] ids = gameService.startNewGames(count, boardSize);
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII));
+            for (int i = 0; i < ids.length; ) {
+                int last = i;
+                while (last + 1 < ids.length && ids[last + 1] == ids[last] + 1) {
+                    last++;
+                }
+                writer.write(Long.toString(ids[i]));
+                if (last > i) {
+                    writer.write('-');
+                    writer.write(Long.toString(ids[last]));
+                }
+                writer.write('\n');
+                i = last + 1;
+            }
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.TEXT_PLAIN).body(body);
+    }
+
+    /**
+     * Streams every game, e.g. for analytics or to move games to another environment. Requires the
+     * admin token, since the games' seeds and generator states reveal their spawns.
+     * Clients that accept {@code application/octet-stream} get the games in the archive's binary
+     * format; all others get one JSON record per line. Only the games on this node are exported.
+     *
+     * @param status Optional status (PLAYING, WON or OVER) of the games to export.
+     * @param boardSize Optional board size of the games to export.
+     * @param format Optional format, overriding the one chosen from the Accept header.
+     * @return A ResponseEntity streaming the games.
+     */
+    @GetMapping(value = "/export", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<StreamingResponseBody> exportGames(
+            @RequestParam(required = false) GameStatus status,
+            @RequestParam(required = false) Integer boardSize,
+            @RequestParam(required = false) ExportFormat format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        ExportFormat chosen = format != null ? format : exportFormat(accept);
+        StreamingResponseBody body = out -> exportService.exportGames(status, boardSize, chosen, out);
+        return ResponseEntity.ok().contentType(mediaType(chosen)).body(body);
+    }
+
+    /**
+     * Stores games streamed by {@link #exportGames} as new games, in batches, scores on the
+     * leaderboard included, so it requires the admin token. If a game is invalid the request
+     * fails with 400, and the games before it stay imported.
+     *
+     * @param contentType {@code application/x-ndjson} or {@code application/octet-stream}.
+     * @param in The stream of games.
+     * @return A ResponseEntity containing the number of games imported.
+     */
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<Map<String, Long>> importGames(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream in) throws IOException {
+        ExportFormat format = MediaType.APPLICATION_OCTET_STREAM.isCompatibleWith(contentType)
+                ? ExportFormat.BINARY : ExportFormat.NDJSON;
+        return ResponseEntity.ok(Collections.singletonMap("imported", exportService.importGames(format, in)));
+    }
+
     /**
      * Retrieves the state of an existing game.
+     * The response carries the game's move count as its ETag. A request whose If-None-Match
+     * still names the current move count is answered with 304 Not Modified, without the board
+     * being loaded.
      *
      * @param id The unique ID of the game.
-     * @return A ResponseEntity containing the current GameState.
+     * @return A ResponseEntity containing the current GameState, or null once a 304 was prepared.
      */
+    @RateLimited(RateLimitedEndpoint.READ)
     @GetMapping("/{id}")
-    public ResponseEntity<GameState> getGameState(@PathVariable Long id) {
+    public ResponseEntity<GameState> getGameState(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(eTag(gameService.getSequence(id)))) {
+            return null;
+        }
+        GameState gameState = gameService.getGameState(id);
+        return ResponseEntity.ok().eTag(eTag(gameState.getMoveCount())).body(gameState);
+    }
+
+    /**
+     * Streams the state of a game as server-sent events: the current state first, then every
+     * change made by any client. For clients that cannot use the WebSocket at /ws/games/{id}.
+     *
+     * @param id The unique ID of the game.
+     * @return An event stream of "game" events, each carrying a JSON state message.
+     */
+    @RateLimited(value = RateLimitedEndpoint.SUBSCRIBE, concurrent = false)
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamGameEvents(@PathVariable Long id) {
         GameState gameState = gameService.getGameState(id);
-        return ResponseEntity.ok(gameState);
+        EventStreamConnection connection = new EventStreamConnection();
+        connection.bind(updateHub.subscribe(gameState, connection));
+        return connection.getEmitter();
     }
 
     /**
@@ -59,15 +199,151 @@ public class GameController {
      *
      * @param id The unique ID of the game.
      * @param direction The direction to move the tiles (UP, DOWN, LEFT, RIGHT).
-     * @return A ResponseEntity containing the updated GameState after the move.
+     * @param delta If true, answer with the tiles the move changed instead of the whole board.
+     * @return A ResponseEntity containing the updated GameState after the move, or its GameDelta.
      */
+    @RateLimited(RateLimitedEndpoint.MOVE)
     @PostMapping("/{id}/move")
-    public ResponseEntity<GameState> move(
+    public ResponseEntity<?> move(
             @PathVariable Long id,
-            @RequestParam MoveDirection direction) {
+            @RequestParam MoveDirection direction,
+            @RequestParam(defaultValue = "false") boolean delta) {
         // Spring Boot automatically converts the request parameter string (e.g., "UP")
         // to the MoveDirection enum, throwing an error for invalid values.
+        if (delta) {
+            return ResponseEntity.ok(gameService.moveWithDeltas(id, Collections.singletonList(direction)));
+        }
         GameState updatedGame = gameService.move(id, direction);
         return ResponseEntity.ok(updatedGame);
     }
+
+    /**
+     * Submits a sequence of moves for a specific game in a single request.
+     * The moves are sent as a compact string of direction codes, e.g. "ULLDR".
+     *
+     * @param id The unique ID of the game.
+     * @param moves The direction codes (U, D, L, R) to apply, in order.
+     * @param delta If true, answer with the tiles each move changed instead of the whole board.
+     * @return A ResponseEntity containing the final GameState and the score of each applied move, or a GameDelta.
+     */
+    @RateLimited(RateLimitedEndpoint.MOVE)
+    @PostMapping(value = "/{id}/moves", consumes = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<?> moves(
+            @PathVariable Long id,
+            @RequestBody String moves,
+            @RequestParam(defaultValue = "false") boolean delta) {
+        // parseSequence throws an IllegalArgumentException for unknown codes, answered with a 400.
+        return moves(id, MoveDirection.parseSequence(moves), delta);
+    }
+
+    /**
+     * Submits a sequence of moves for a specific game in a single request.
+     * The moves are sent as a JSON array of directions, e.g. ["UP", "LEFT"].
+     *
+     * @param id The unique ID of the game.
+     * @param moves The directions to apply, in order.
+     * @param delta If true, answer with the tiles each move changed instead of the whole board.
+     * @return A ResponseEntity containing the final GameState and the score of each applied move, or a GameDelta.
+     */
+    @RateLimited(RateLimitedEndpoint.MOVE)
+    @PostMapping(value = "/{id}/moves", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> moves(
+            @PathVariable Long id,
+            @RequestBody List<MoveDirection> moves,
+            @RequestParam(defaultValue = "false") boolean delta) {
+        if (delta) {
+            GameDelta gameDelta = gameService.moveWithDeltas(id, moves);
+            return ResponseEntity.ok(gameDelta);
+        }
+        MoveBatchResult result = gameService.move(id, moves);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Submits a sequence of moves for a specific game in a single request.
+     * The moves are sent in the binary format of {@link BinaryGameMessageConverter}, two bits per move.
+     *
+     * @param id The unique ID of the game.
+     * @param moves The directions to apply, in order.
+     * @param delta If true, answer with the tiles each move changed instead of the whole board.
+     * @return A ResponseEntity containing the final GameState and the score of each applied move, or a GameDelta.
+     */
+    @RateLimited(RateLimitedEndpoint.MOVE)
+    @PostMapping(value = "/{id}/moves", consumes = BinaryGameMessageConverter.MEDIA_TYPE_VALUE)
+    public ResponseEntity<?> moves(
+            @PathVariable Long id,
+            @RequestBody MoveDirection[] moves,
+            @RequestParam(defaultValue = "false") boolean delta) {
+        return moves(id, Arrays.asList(moves), delta);
+    }
+
+    /**
+     * Takes back the last move of a game. Answered with 409 Conflict once there is none left.
+     *
+     * @param id The unique ID of the game.
+     * @return A ResponseEntity containing the GameState as it was before the move.
+     */
+    @RateLimited(RateLimitedEndpoint.MOVE)
+    @PostMapping("/{id}/undo")
+    public ResponseEntity<GameState> undo(@PathVariable Long id) {
+        return ResponseEntity.ok(gameService.undo(id));
+    }
+
+    /**
+     * Suggests the next move for a 4x4 game.
+     *
+     * @param id The unique ID of the game.
+     * @param depth Optional number of moves to look ahead. The search may stop earlier if its time budget runs out.
+     * @return A ResponseEntity containing the suggested move and the expected value of each legal move.
+     */
+    @RateLimited(RateLimitedEndpoint.SEARCH)
+    @GetMapping("/{id}/hint")
+    public ResponseEntity<Hint> getHint(
+            @PathVariable Long id,
+            @RequestParam(required = false) Integer depth) {
+        return ResponseEntity.ok(hintService.hint(id, depth));
+    }
+
+    /**
+     * Lets the computer play a number of moves of a 4x4 game.
+     *
+     * @param id The unique ID of the game.
+     * @param moves The number of moves to play. Defaults to 1.
+     * @return A ResponseEntity containing the final GameState and the score of each move played.
+     */
+    @RateLimited(RateLimitedEndpoint.SEARCH)
+    @PostMapping("/{id}/autoplay")
+    public ResponseEntity<MoveBatchResult> autoplay(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "1") int moves) {
+        return ResponseEntity.ok(hintService.autoplay(id, moves));
+    }
+
+    /**
+     * The binary format only for clients that name it; a missing Accept header or a wildcard means NDJSON.
+     */
+    private static ExportFormat exportFormat(String accept) {
+        if (accept != null) {
+            for (MediaType type : MediaType.parseMediaTypes(accept)) {
+                if (type.equalsTypeAndSubtype(MediaType.APPLICATION_OCTET_STREAM)) {
+                    return ExportFormat.BINARY;
+                }
+                if (type.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON)) {
+                    return ExportFormat.NDJSON;
+                }
+            }
+        }
+        return ExportFormat.NDJSON;
+    }
+
+    private static MediaType mediaType(ExportFormat format) {
+        return format == ExportFormat.BINARY ? MediaType.APPLICATION_OCTET_STREAM : MediaType.APPLICATION_NDJSON;
+    }
+
+    /**
+     * The entity tag of a game's state. The move count changes with every move, so it tells two states apart.
+     */
+    private static String eTag(long sequence) {
+        return "\"" + sequence + "\"";
+    }
 }
\ No newline at end of file
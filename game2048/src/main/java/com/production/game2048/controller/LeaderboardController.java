@@ -0,0 +1,54 @@
+package com.production.game2048.controller;
+
+import com.production.game2048.model.RankedGame;
+import com.production.game2048.service.LeaderboardService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * REST Controller for the leaderboard.
+ * Games are ranked by score against other games of the same board size.
+ */
+@RestController
+@RequestMapping("/api")
+public class LeaderboardController {
+
+    private final LeaderboardService leaderboardService;
+
+    @Autowired
+    public LeaderboardController(LeaderboardService leaderboardService) {
+        this.leaderboardService = leaderboardService;
+    }
+
+    /**
+     * Lists the highest scoring games of one board size.
+     *
+     * @param boardSize The board size to rank. Defaults to 4.
+     * @param limit The number of games to return. Defaults to 10.
+     * @return A ResponseEntity containing the ranked games, best first.
+     */
+    @GetMapping("/leaderboard")
+    public ResponseEntity<List<RankedGame>> getLeaderboard(
+            @RequestParam(defaultValue = "4") int boardSize,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(leaderboardService.top(boardSize, limit));
+    }
+
+    /**
+     * Retrieves a game's rank among the games of its board size.
+     *
+     * @param id The unique ID of the game.
+     * @return A ResponseEntity containing the game's rank and score.
+     */
+    @GetMapping("/games/{id}/rank")
+    public ResponseEntity<RankedGame> getRank(@PathVariable Long id) {
+        return ResponseEntity.ok(leaderboardService.rank(id));
+    }
+}
@@ -0,0 +1,67 @@
+package com.production.game2048.controller;
+
+import com.production.game2048.simulation.SimulationProperties;
+import com.production.game2048.simulation.SimulationReport;
+import com.production.game2048.simulation.SimulationRequest;
+import com.production.game2048.simulation.SimulationRunner;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * REST Controller for headless self-play simulations.
+ * Simulations never touch stored games; they only report aggregate statistics.
+ */
+@RestController
+@RequestMapping("/api/simulations")
+public class SimulationController {
+
+    private final SimulationRunner simulationRunner;
+    private final SimulationProperties properties;
+
+    @Autowired
+    public SimulationController(SimulationRunner simulationRunner, SimulationProperties properties) {
+        this.simulationRunner = simulationRunner;
+        this.properties = properties;
+    }
+
+    /**
+     * Runs a simulation and streams its progress as newline-delimited JSON: one SimulationReport
+     * per report interval, and a final one with {@code finished} set. Closing the connection
+     * cancels the run.
+     *
+     * @param request The number of games, board size, policy, seed and workers. Optional.
+     * @return A ResponseEntity streaming SimulationReports.
+     */
+    @PostMapping
+    public ResponseEntity<ResponseBodyEmitter> simulate(@RequestBody(required = false) SimulationRequest request) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(properties.getTimeout().toMillis());
+        simulationRunner.submit(request != null ? request : new SimulationRequest(), report -> send(emitter, report))
+                .whenComplete((report, error) -> {
+                    if (error == null) {
+                        emitter.complete();
+                    } else {
+                        emitter.completeWithError(error);
+                    }
+                });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(emitter);
+    }
+
+    private static void send(ResponseBodyEmitter emitter, SimulationReport report) {
+        try {
+            emitter.send(report, MediaType.APPLICATION_JSON);
+            emitter.send("\n", MediaType.TEXT_PLAIN);
+        } catch (IOException e) {
+            // The client went away; failing here cancels the run.
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.production.game2048.engine;
+
+import com.production.game2048.model.MoveDirection;
+
+/**
+ * Static helpers for a 4x4 board packed into a single long.
+ *
+ * Each cell holds the log2 exponent of its tile in 4 bits (0 for an empty cell), cell (r, c)
+ * lives at bit offset 16 * r + 4 * c. Every possible 16-bit row is slid and merged once at
+ * class initialisation, so a move is just eight table lookups and XORs.
+ *
+ * The tables store the XOR delta between a line and its result, which doubles as the
+ * "changed" flag: a delta of zero means the line did not move.
+ */
+public final class BitBoard {
+
+    /**
+     * The board dimension supported by this representation.
+     */
+    public static final int SIZE = 4;
+
+    /**
+     * The highest exponent (16384) a board may contain to be encoded. Two such tiles merge into
+     * a 32768 (exponent 15), which is still representable but can no longer be merged safely.
+     */
+    public static final int MAX_EXPONENT = 14;
+
+    private static final int ROWS = 1 << 16;
+    private static final long ROW_MASK = 0xFFFFL;
+    private static final long NIBBLE_LOW_BITS = 0x1111111111111111L;
+
+    private static final char[] ROW_LEFT = new char[ROWS];
+    private static final char[] ROW_RIGHT = new char[ROWS];
+    private static final long[] COL_UP = new long[ROWS];
+    private static final long[] COL_DOWN = new long[ROWS];
+    private static final int[] SCORE = new int[ROWS];
+
+    static {
+        int[] leftResult = new int[ROWS];
+        int[] line = new int[SIZE];
+        for (int row = 0; row < ROWS; row++) {
+            for (int i = 0; i < SIZE; i++) {
+                line[i] = (row >>> (4 * i)) & 0xF;
+            }
+            SCORE[row] = slideLeft(line);
+            int result = 0;
+            for (int i = 0; i < SIZE; i++) {
+                result |= line[i] << (4 * i);
+            }
+            leftResult[row] = result;
+        }
+        for (int row = 0; row < ROWS; row++) {
+            int left = leftResult[row];
+            int right = reverse(leftResult[reverse(row)]);
+            ROW_LEFT[row] = (char) (row ^ left);
+            ROW_RIGHT[row] = (char) (row ^ right);
+            COL_UP[row] = spreadColumn(row ^ left);
+            COL_DOWN[row] = spreadColumn(row ^ right);
+        }
+    }
+
+    private BitBoard() {
+    }
+
+    /**
+     * Checks whether a board can be packed: it must be 4x4 and every tile must be zero or a
+     * power of two no greater than 2^{@value #MAX_EXPONENT}.
+     */
+    public static boolean canEncode(int[][] board) {
+        if (board.length != SIZE) {
+            return false;
+        }
+        for (int[] row : board) {
+            if (row.length != SIZE) {
+                return false;
+            }
+            for (int tile : row) {
+                if (tile != 0 && ((tile & (tile - 1)) != 0 || tile < 0
+                        || Integer.numberOfTrailingZeros(tile) > MAX_EXPONENT)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Packs a board. The caller must have checked it with {@link #canEncode(int[][])}.
+     */
+    public static long encode(int[][] board) {
+        long packed = 0;
+        for (int r = 0; r < SIZE; r++) {
+            int[] row = board[r];
+            for (int c = 0; c < SIZE; c++) {
+                int tile = row[c];
+                if (tile != 0) {
+                    packed |= (long) Integer.numberOfTrailingZeros(tile) << (16 * r + 4 * c);
+                }
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Unpacks a board into an existing 4x4 array, overwriting every cell.
+     */
+    public static void decode(long packed, int[][] board) {
+        for (int r = 0; r < SIZE; r++) {
+            int[] row = board[r];
+            for (int c = 0; c < SIZE; c++) {
+                int exponent = exponentAt(packed, r * SIZE + c);
+                row[c] = exponent == 0 ? 0 : 1 << exponent;
+            }
+        }
+    }
+
+    /**
+     * @return The exponent stored in the cell with the given row-major index (0..15).
+     */
+    public static int exponentAt(long packed, int cell) {
+        return (int) (packed >>> (4 * cell)) & 0xF;
+    }
+
+    /**
+     * Slides and merges the packed board. Returns the board unchanged if nothing can move.
+     */
+    public static long move(long board, MoveDirection direction) {
+        switch (direction) {
+            case LEFT:
+                return board
+                        ^ (long) ROW_LEFT[row(board, 0)]
+                        ^ (long) ROW_LEFT[row(board, 1)] << 16
+                        ^ (long) ROW_LEFT[row(board, 2)] << 32
+                        ^ (long) ROW_LEFT[row(board, 3)] << 48;
+            case RIGHT:
+                return board
+                        ^ (long) ROW_RIGHT[row(board, 0)]
+                        ^ (long) ROW_RIGHT[row(board, 1)] << 16
+                        ^ (long) ROW_RIGHT[row(board, 2)] << 32
+                        ^ (long) ROW_RIGHT[row(board, 3)] << 48;
+            case UP:
+                return board
+                        ^ COL_UP[column(board, 0)]
+                        ^ COL_UP[column(board, 1)] << 4
+                        ^ COL_UP[column(board, 2)] << 8
+                        ^ COL_UP[column(board, 3)] << 12;
+            case DOWN:
+                return board
+                        ^ COL_DOWN[column(board, 0)]
+                        ^ COL_DOWN[column(board, 1)] << 4
+                        ^ COL_DOWN[column(board, 2)] << 8
+                        ^ COL_DOWN[column(board, 3)] << 12;
+            default:
+                throw new IllegalArgumentException("Unknown direction: " + direction);
+        }
+    }
+
+    /**
+     * @return The score a move in the given direction would earn on the packed board.
+     */
+    public static int score(long board, MoveDirection direction) {
+        // A run of equal tiles merges the same number of pairs whichever way it slides,
+        // so one table serves both directions along an axis.
+        if (direction == MoveDirection.LEFT || direction == MoveDirection.RIGHT) {
+            return SCORE[row(board, 0)] + SCORE[row(board, 1)] + SCORE[row(board, 2)] + SCORE[row(board, 3)];
+        }
+        return SCORE[column(board, 0)] + SCORE[column(board, 1)] + SCORE[column(board, 2)] + SCORE[column(board, 3)];
+    }
+
+    /**
+     * @return The number of empty cells on the packed board.
+     */
+    public static int emptyCount(long board) {
+        long occupied = board | (board >>> 1);
+        occupied |= occupied >>> 2;
+        return SIZE * SIZE - Long.bitCount(occupied & NIBBLE_LOW_BITS);
+    }
+
+    /**
+     * Places a tile with the given exponent on the n-th empty cell, counting in row-major order.
+     */
+    public static long spawn(long board, int emptyIndex, int exponent) {
+        return board | (long) exponent << (4 * emptyCell(board, emptyIndex));
+    }
+
+    /**
+     * @return The row-major index of the n-th empty cell on the packed board.
+     */
+    public static int emptyCell(long board, int emptyIndex) {
+        int remaining = emptyIndex;
+        for (int cell = 0; cell < SIZE * SIZE; cell++) {
+            if (exponentAt(board, cell) == 0) {
+                if (remaining == 0) {
+                    return cell;
+                }
+                remaining--;
+            }
+        }
+        throw new IllegalArgumentException("Board has no empty cell with index " + emptyIndex);
+    }
+
+    /**
+     * @return The highest exponent present on the packed board.
+     */
+    public static int maxExponent(long board) {
+        int max = 0;
+        for (long rest = board; rest != 0; rest >>>= 4) {
+            max = Math.max(max, (int) (rest & 0xF));
+        }
+        return max;
+    }
+
+    /**
+     * @return true if the packed board has an empty cell or two equal neighbours.
+     */
+    public static boolean isMovePossible(long board) {
+        if (emptyCount(board) > 0) {
+            return true;
+        }
+        // On a full line, the left delta is non-zero exactly when two neighbours can merge.
+        for (int i = 0; i < SIZE; i++) {
+            if (ROW_LEFT[row(board, i)] != 0 || ROW_LEFT[column(board, i)] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mirrors the packed board along its main diagonal, turning columns into rows.
+     */
+    public static long transpose(long board) {
+        long a1 = board & 0xF0F00F0FF0F00F0FL;
+        long a2 = board & 0x0000F0F00000F0F0L;
+        long a3 = board & 0x0F0F00000F0F0000L;
+        long a = a1 | (a2 << 12) | (a3 >>> 12);
+        long b1 = a & 0xFF00FF0000FF00FFL;
+        long b2 = a & 0x00FF00FF00000000L;
+        long b3 = a & 0x00000000FF00FF00L;
+        return b1 | (b2 >>> 24) | (b3 << 24);
+    }
+
+    private static int row(long board, int r) {
+        return (int) ((board >>> (16 * r)) & ROW_MASK);
+    }
+
+    private static int column(long board, int c) {
+        long shifted = board >>> (4 * c);
+        return (int) ((shifted & 0xFL)
+                | ((shifted >>> 12) & 0xF0L)
+                | ((shifted >>> 24) & 0xF00L)
+                | ((shifted >>> 36) & 0xF000L));
+    }
+
+    private static long spreadColumn(int line) {
+        return (line & 0xFL)
+                | ((line & 0xF0L) << 12)
+                | ((line & 0xF00L) << 24)
+                | ((line & 0xF000L) << 36);
+    }
+
+    private static int reverse(int line) {
+        return ((line & 0xF) << 12) | ((line & 0xF0) << 4) | ((line >>> 4) & 0xF0) | ((line >>> 12) & 0xF);
+    }
+
+    /**
+     * Slides and merges a line of exponents towards index 0.
+     *
+     * @return The score earned by the merges.
+     */
+    private static int slideLeft(int[] line) {
+        int score = 0;
+        int target = 0;
+        int pending = 0;
+        for (int i = 0; i < SIZE; i++) {
+            int exponent = line[i];
+            if (exponent == 0) {
+                continue;
+            }
+            if (pending == exponent && exponent < 0xF) {
+                line[target++] = exponent + 1;
+                score += 1 << (exponent + 1);
+                pending = 0;
+            } else {
+                if (pending != 0) {
+                    line[target++] = pending;
+                }
+                pending = exponent;
+            }
+        }
+        if (pending != 0) {
+            line[target++] = pending;
+        }
+        while (target < SIZE) {
+            line[target++] = 0;
+        }
+        return score;
+    }
+}
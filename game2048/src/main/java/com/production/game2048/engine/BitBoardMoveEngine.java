@@ -0,0 +1,72 @@
+package com.production.game2048.engine;
+
+import com.production.game2048.model.MoveDirection;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Random;
+
+/**
+ * Move engine for standard 4x4 games, backed by the precomputed tables in {@link BitBoard}.
+ * The board is packed into a long once per move, so the move itself allocates nothing and
+ * needs no transposes or deep copies.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class BitBoardMoveEngine implements MoveEngine {
+
+    @Override
+    public boolean supports(int[][] board) {
+        return BitBoard.canEncode(board);
+    }
+
+    @Override
+    public void move(int[][] board, MoveDirection direction, Random random, MoveResult result) {
+        apply(board, direction, random, result);
+    }
+
+    @Override
+    public void slide(int[][] board, MoveDirection direction, MoveResult result) {
+        apply(board, direction, null, result);
+    }
+
+    @Override
+    public boolean spawnTile(int[][] board, Random random) {
+        long packed = BitBoard.encode(board);
+        int empty = BitBoard.emptyCount(packed);
+        if (empty == 0) {
+            return false;
+        }
+        int cell = BitBoard.emptyCell(packed, random.nextInt(empty));
+        BitBoard.decode(packed | (long) spawnExponent(random) << (4 * cell), board);
+        return true;
+    }
+
+    private static void apply(int[][] board, MoveDirection direction, Random random, MoveResult result) {
+        result.reset();
+        long before = BitBoard.encode(board);
+        long after = BitBoard.move(before, direction);
+        if (after == before) {
+            return;
+        }
+        if (random != null) {
+            int empty = BitBoard.emptyCount(after);
+            if (empty > 0) {
+                int cell = BitBoard.emptyCell(after, random.nextInt(empty));
+                int exponent = spawnExponent(random);
+                after |= (long) exponent << (4 * cell);
+                result.spawned(cell, 1 << exponent);
+            }
+        }
+        BitBoard.decode(after, board);
+
+        int maxExponent = BitBoard.maxExponent(after);
+        result.set(true, BitBoard.score(before, direction), 1 << maxExponent, BitBoard.isMovePossible(after));
+    }
+
+    private static int spawnExponent(Random random) {
+        // 90% chance of 2, 10% chance of 4
+        return random.nextInt(10) == 0 ? 2 : 1;
+    }
+}
@@ -0,0 +1,78 @@
+package com.production.game2048.engine;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration for board sizes and the large-board engine, bound from {@code game.board.*}.
+ */
+@ConfigurationProperties(prefix = "game.board")
+public class BoardProperties {
+
+    /**
+     * Largest board dimension a game may be started with, at most 1024.
+     */
+    private int maxSize = 512;
+
+    /**
+     * Boards of at least this dimension are moved by the {@link ParallelMoveEngine}, which slides
+     * their lines on a fork/join pool. Smaller boards are faster on the calling thread alone.
+     */
+    private int parallelThreshold = 128;
+
+    /**
+     * Number of worker threads moving large boards. Zero means one per available processor.
+     */
+    private int parallelism = 0;
+
+    /**
+     * Fewest rows or columns one task of the large-board engine slides.
+     */
+    private int linesPerTask = 16;
+
+    /**
+     * Most board cells a single request may create with {@code POST /api/games/batch}, or slide
+     * through in a batch of moves: games or moves times the board's cells. Keeps the limits of
+     * those requests proportional to the board size.
+     */
+    private int maxBatchCells = 16 * 1024 * 1024;
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getLinesPerTask() {
+        return linesPerTask;
+    }
+
+    public void setLinesPerTask(int linesPerTask) {
+        this.linesPerTask = linesPerTask;
+    }
+
+    public int getMaxBatchCells() {
+        return maxBatchCells;
+    }
+
+    public void setMaxBatchCells(int maxBatchCells) {
+        this.maxBatchCells = maxBatchCells;
+    }
+}
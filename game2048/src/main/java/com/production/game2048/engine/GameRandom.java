@@ -0,0 +1,55 @@
+package com.production.game2048.engine;
+
+import java.util.Random;
+
+/**
+ * A per-game random number generator whose whole state is a single long, so it can be stored
+ * with the game and a game's tile spawns can be reproduced from its seed.
+ *
+ * It implements the SplitMix64 generator on top of {@link Random#next(int)}, so it can be passed
+ * wherever a {@link Random} is expected. Unlike {@link Random} it is not thread-safe: it updates
+ * a plain field rather than an atomic seed, and must only be used under the owning game's lock.
+ */
+public class GameRandom extends Random {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+
+    /**
+     * Creates a generator positioned at the given state. A new game starts with its seed as the state.
+     */
+    public GameRandom(long state) {
+        super(0L);
+        this.state = state;
+    }
+
+    /**
+     * @return The current state, from which {@link #GameRandom(long)} continues the same sequence.
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Moves the generator to the given state, as if it had been created with it.
+     */
+    @Override
+    public void setSeed(long seed) {
+        // Also called by the Random constructor, before the state is set by ours.
+        this.state = seed;
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public long nextLong() {
+        long z = (state += GOLDEN_GAMMA);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
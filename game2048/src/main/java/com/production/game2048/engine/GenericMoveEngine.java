@@ -0,0 +1,210 @@
+package com.production.game2048.engine;
+
+import com.production.game2048.model.MoveDirection;
+import com.production.game2048.util.ScratchPool;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Random;
+
+/**
+ * Move engine for boards of any size.
+ * Used as the fallback whenever no specialised engine supports the board.
+ *
+ * Each line is read in the direction of the move into a scratch buffer, slid and merged
+ * there, and written straight back to the board. While writing back, the engine collects
+ * the empty cells, the highest tile and whether any two neighbours are still equal, so
+ * the spawn is a single random pick and the game-over check needs no second pass.
+ * Scratch buffers are reused from a pool rather than kept per thread, since a request may run
+ * on a virtual thread of its own, so a move allocates nothing either way.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class GenericMoveEngine implements MoveEngine {
+
+    private final ScratchPool<Scratch> scratch = ScratchPool.perProcessor(Scratch::new);
+
+    @Override
+    public boolean supports(int[][] board) {
+        return true;
+    }
+
+    @Override
+    public void move(int[][] board, MoveDirection direction, Random random, MoveResult result) {
+        apply(board, direction, random, result);
+    }
+
+    @Override
+    public void slide(int[][] board, MoveDirection direction, MoveResult result) {
+        apply(board, direction, null, result);
+    }
+
+    /**
+     * Slides the board and, unless random is null, spawns a tile on one of the emptied cells.
+     */
+    private void apply(int[][] board, MoveDirection direction, Random random, MoveResult result) {
+        Scratch buffers = scratch.take();
+        try {
+            apply(board, direction, random, result, buffers);
+        } finally {
+            scratch.give(buffers);
+        }
+    }
+
+    private void apply(int[][] board, MoveDirection direction, Random random, MoveResult result, Scratch buffers) {
+        result.reset();
+        int size = board.length;
+        buffers.ensureCapacity(size);
+
+        boolean horizontal = direction == MoveDirection.LEFT || direction == MoveDirection.RIGHT;
+        boolean reversed = direction == MoveDirection.RIGHT || direction == MoveDirection.DOWN;
+        int[] empties = buffers.empties;
+        int[] current = buffers.current;
+        int[] previous = buffers.previous;
+
+        boolean changed = false;
+        boolean mergeable = false;
+        int score = 0;
+        int maxTile = 0;
+        int emptyCount = 0;
+
+        for (int line = 0; line < size; line++) {
+            for (int i = 0; i < size; i++) {
+                int along = reversed ? size - 1 - i : i;
+                current[i] = horizontal ? board[line][along] : board[along][line];
+            }
+            score += slide(current, size);
+
+            for (int i = 0; i < size; i++) {
+                int along = reversed ? size - 1 - i : i;
+                int r = horizontal ? line : along;
+                int c = horizontal ? along : line;
+                int tile = current[i];
+                if (board[r][c] != tile) {
+                    board[r][c] = tile;
+                    changed = true;
+                }
+                if (tile == 0) {
+                    empties[emptyCount++] = r * size + c;
+                    continue;
+                }
+                if (tile > maxTile) {
+                    maxTile = tile;
+                }
+                // Neighbours along the line, and in the same position on the previous line.
+                if ((i > 0 && current[i - 1] == tile) || (line > 0 && previous[i] == tile)) {
+                    mergeable = true;
+                }
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        if (!changed) {
+            return;
+        }
+
+        if (random != null && emptyCount > 0) {
+            int pick = random.nextInt(emptyCount);
+            int cell = empties[pick];
+            empties[pick] = empties[--emptyCount];
+            // 90% chance of 2, 10% chance of 4
+            int tile = random.nextInt(10) == 0 ? 4 : 2;
+            int r = cell / size;
+            int c = cell % size;
+            board[r][c] = tile;
+            result.spawned(cell, tile);
+            maxTile = Math.max(maxTile, tile);
+            if (!mergeable) {
+                mergeable = (r > 0 && board[r - 1][c] == tile)
+                        || (r < size - 1 && board[r + 1][c] == tile)
+                        || (c > 0 && board[r][c - 1] == tile)
+                        || (c < size - 1 && board[r][c + 1] == tile);
+            }
+        }
+
+        result.set(true, score, maxTile, emptyCount > 0 || mergeable);
+    }
+
+    @Override
+    public boolean spawnTile(int[][] board, Random random) {
+        int emptyCount = 0;
+        for (int[] row : board) {
+            for (int tile : row) {
+                if (tile == 0) {
+                    emptyCount++;
+                }
+            }
+        }
+        if (emptyCount == 0) {
+            return false;
+        }
+
+        int remaining = random.nextInt(emptyCount);
+        // 90% chance of 2, 10% chance of 4
+        int tile = random.nextInt(10) == 0 ? 4 : 2;
+        for (int[] row : board) {
+            for (int c = 0; c < row.length; c++) {
+                if (row[c] == 0 && remaining-- == 0) {
+                    row[c] = tile;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Slides and merges a line of tiles towards index 0, in place.
+     *
+     * @return The score earned by the merges.
+     */
+    static int slide(int[] line, int length) {
+        int score = 0;
+        int target = 0;
+        int pending = 0;
+        for (int i = 0; i < length; i++) {
+            int tile = line[i];
+            if (tile == 0) {
+                continue;
+            }
+            if (pending == tile) {
+                line[target++] = tile * 2;
+                score += tile * 2;
+                pending = 0;
+            } else {
+                if (pending != 0) {
+                    line[target++] = pending;
+                }
+                pending = tile;
+            }
+        }
+        if (pending != 0) {
+            line[target++] = pending;
+        }
+        while (target < length) {
+            line[target++] = 0;
+        }
+        return score;
+    }
+
+    /**
+     * Working buffers of one move, grown on demand to the largest board seen.
+     */
+    private static final class Scratch {
+        private int[] current = new int[0];
+        private int[] previous = new int[0];
+        private int[] empties = new int[0];
+
+        void ensureCapacity(int size) {
+            if (current.length < size) {
+                current = new int[size];
+                previous = new int[size];
+                empties = new int[size * size];
+            }
+        }
+    }
+}
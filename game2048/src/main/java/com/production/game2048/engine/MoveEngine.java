@@ -0,0 +1,50 @@
+package com.production.game2048.engine;
+
+import com.production.game2048.model.MoveDirection;
+
+import java.util.Random;
+
+/**
+ * Strategy interface for the tile sliding and merging rules of 2048.
+ * Implementations work directly on the board held by a GameState and are
+ * selected per move by the service, so specialised engines (e.g. a bitboard
+ * for 4x4 games) can be plugged in next to the generic one.
+ */
+public interface MoveEngine {
+
+    /**
+     * Tells whether this engine can process the given board.
+     *
+     * @param board The current game board.
+     * @return true if {@link #move} and {@link #spawnTile} may be called with this board.
+     */
+    boolean supports(int[][] board);
+
+    /**
+     * Applies a full turn to the board in place: slides and merges the tiles in the given
+     * direction and, if anything moved, spawns a new tile (2 at 90%, 4 at 10%).
+     *
+     * @param board The board to update. Must be supported by this engine.
+     * @param direction The direction of the move.
+     * @param random The random source used for the tile spawn.
+     * @param result Receives the outcome of the move. It is reset by this call.
+     */
+    void move(int[][] board, MoveDirection direction, Random random, MoveResult result);
+
+    /**
+     * Slides and merges the tiles in place without spawning a new tile.
+     * Used to replay recorded moves, where the spawned tile is known and placed by the caller.
+     *
+     * @param board The board to update. Must be supported by this engine.
+     * @param direction The direction of the move.
+     * @param result Receives the outcome of the move. It is reset by this call.
+     */
+    void slide(int[][] board, MoveDirection direction, MoveResult result);
+
+    /**
+     * Adds a new tile (either 2 or 4) to a random empty cell on the board.
+     *
+     * @return true if a tile was placed, false if the board was full.
+     */
+    boolean spawnTile(int[][] board, Random random);
+}
@@ -0,0 +1,32 @@
+package com.production.game2048.engine;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Picks the move engine for a board from all registered {@link MoveEngine} beans.
+ */
+@Component
+public class MoveEngineSelector {
+
+    private final List<MoveEngine> moveEngines;
+
+    @Autowired
+    public MoveEngineSelector(List<MoveEngine> moveEngines) {
+        this.moveEngines = moveEngines;
+    }
+
+    /**
+     * Picks the first engine, in order of precedence, that can handle the board.
+     */
+    public MoveEngine engineFor(int[][] board) {
+        for (MoveEngine engine : moveEngines) {
+            if (engine.supports(board)) {
+                return engine;
+            }
+        }
+        throw new IllegalStateException("No move engine supports a board of size " + board.length);
+    }
+}
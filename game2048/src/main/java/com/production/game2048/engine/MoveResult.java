@@ -0,0 +1,78 @@
+package com.production.game2048.engine;
+
+/**
+ * The outcome of a single move, filled in by a {@link MoveEngine}.
+ * Instances are mutable so that callers applying many moves in a row can reuse one.
+ */
+public final class MoveResult {
+
+    private boolean changed;
+    private int score;
+    private int maxTile;
+    private boolean movePossible;
+    private int spawnCell;
+    private int spawnTile;
+
+    /**
+     * @return true if at least one tile moved or merged (and therefore a tile was spawned).
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    /**
+     * @return The sum of all merged tile values produced by the move.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return The highest tile value on the board after the move, or 0 if the move changed nothing.
+     */
+    public int getMaxTile() {
+        return maxTile;
+    }
+
+    /**
+     * @return false if the board after the move (and spawn) has no empty cell and no mergeable neighbours.
+     */
+    public boolean isMovePossible() {
+        return movePossible;
+    }
+
+    /**
+     * @return The row-major index (row * size + column) of the spawned tile, or -1 if no tile was spawned.
+     */
+    public int getSpawnCell() {
+        return spawnCell;
+    }
+
+    /**
+     * @return The value of the spawned tile (2 or 4), or 0 if no tile was spawned.
+     */
+    public int getSpawnTile() {
+        return spawnTile;
+    }
+
+    void reset() {
+        changed = false;
+        score = 0;
+        maxTile = 0;
+        movePossible = true;
+        spawnCell = -1;
+        spawnTile = 0;
+    }
+
+    void spawned(int cell, int tile) {
+        this.spawnCell = cell;
+        this.spawnTile = tile;
+    }
+
+    void set(boolean changed, int score, int maxTile, boolean movePossible) {
+        this.changed = changed;
+        this.score = score;
+        this.maxTile = maxTile;
+        this.movePossible = movePossible;
+    }
+}
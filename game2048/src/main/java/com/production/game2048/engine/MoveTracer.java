@@ -0,0 +1,73 @@
+package com.production.game2048.engine;
+
+import com.production.game2048.model.MoveDelta;
+import com.production.game2048.model.MoveDirection;
+
+/**
+ * Works out which tiles a move slides and merges, for clients that animate the board instead
+ * of redrawing it. The engines only produce the resulting board, so the tracer follows the
+ * same rules as {@link GenericMoveEngine#slide(int[], int)} on the board before the move:
+ * each line is walked from the edge the tiles move towards, and a tile merges with the
+ * pending one before it at most once.
+ */
+public final class MoveTracer {
+
+    private MoveTracer() {
+    }
+
+    /**
+     * Adds the slides and merges of a move to a delta. Does not change the board.
+     *
+     * @param board The board before the move.
+     * @param direction The direction of the move.
+     * @param delta Receives the slides and merges.
+     */
+    public static void trace(int[][] board, MoveDirection direction, MoveDelta delta) {
+        int size = board.length;
+        boolean horizontal = direction == MoveDirection.LEFT || direction == MoveDirection.RIGHT;
+        boolean reversed = direction == MoveDirection.RIGHT || direction == MoveDirection.DOWN;
+
+        for (int line = 0; line < size; line++) {
+            int target = 0;
+            int pending = 0;
+            int pendingCell = -1;
+            for (int i = 0; i < size; i++) {
+                int cell = cell(line, i, size, horizontal, reversed);
+                int tile = board[cell / size][cell % size];
+                if (tile == 0) {
+                    continue;
+                }
+                if (pending == tile) {
+                    int to = cell(line, target++, size, horizontal, reversed);
+                    slide(delta, pendingCell, to, pending);
+                    slide(delta, cell, to, tile);
+                    delta.addMerge(to, tile * 2);
+                    pending = 0;
+                } else {
+                    if (pending != 0) {
+                        slide(delta, pendingCell, cell(line, target++, size, horizontal, reversed), pending);
+                    }
+                    pending = tile;
+                    pendingCell = cell;
+                }
+            }
+            if (pending != 0) {
+                slide(delta, pendingCell, cell(line, target, size, horizontal, reversed), pending);
+            }
+        }
+    }
+
+    private static void slide(MoveDelta delta, int from, int to, int value) {
+        if (from != to) {
+            delta.addSlide(from, to, value);
+        }
+    }
+
+    /**
+     * @return The row-major index of the i-th cell of a line, counted in the direction of the move.
+     */
+    private static int cell(int line, int i, int size, boolean horizontal, boolean reversed) {
+        int along = reversed ? size - 1 - i : i;
+        return horizontal ? line * size + along : along * size + line;
+    }
+}
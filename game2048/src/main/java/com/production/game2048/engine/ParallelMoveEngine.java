@@ -0,0 +1,347 @@
+package com.production.game2048.engine;
+
+import com.production.game2048.model.MoveDirection;
+import com.production.game2048.util.ScratchPool;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Move engine for large boards, from {@code game.board.parallel-threshold} up, which slides
+ * independent rows or columns in parallel.
+ *
+ * The lines are split into ranges of at least {@code linesPerTask} and forked onto a dedicated
+ * {@link ForkJoinPool}. Every line is slid in place in a single pass, since a tile is only ever
+ * written at or behind the cell being read. A horizontal task slides whole rows. A vertical task
+ * walks its block of columns row by row, keeping the write position and pending tile of each
+ * column, so it reads the board in memory order instead of striding down every column.
+ *
+ * Each line's score, highest tile and number of empty cells are recorded in per-line arrays.
+ * The spawn uses them to pick the same empty cell the {@link GenericMoveEngine} would, so a game
+ * gets the same tiles whichever engine moves it, and its journal replays on either. The board is
+ * only searched for equal neighbours when the spawn took its last empty cell, again in parallel.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+@EnableConfigurationProperties(BoardProperties.class)
+public class ParallelMoveEngine implements MoveEngine {
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+    private final int linesPerTask;
+    private final GenericMoveEngine sequential = new GenericMoveEngine();
+    private final ScratchPool<Lines> scratch = ScratchPool.perProcessor(Lines::new);
+
+    @Autowired
+    public ParallelMoveEngine(BoardProperties properties) {
+        int parallelism = properties.getParallelism() > 0
+                ? properties.getParallelism() : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(parallelism);
+        this.threshold = Math.max(1, properties.getParallelThreshold());
+        this.linesPerTask = Math.max(1, properties.getLinesPerTask());
+    }
+
+    @Override
+    public boolean supports(int[][] board) {
+        return board.length >= threshold;
+    }
+
+    @Override
+    public void move(int[][] board, MoveDirection direction, Random random, MoveResult result) {
+        apply(board, direction, random, result);
+    }
+
+    @Override
+    public void slide(int[][] board, MoveDirection direction, MoveResult result) {
+        apply(board, direction, null, result);
+    }
+
+    @Override
+    public boolean spawnTile(int[][] board, Random random) {
+        // Only used for the first two tiles of a game.
+        return sequential.spawnTile(board, random);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Slides the board and, unless random is null, spawns a tile on one of the emptied cells.
+     */
+    private void apply(int[][] board, MoveDirection direction, Random random, MoveResult result) {
+        Lines lines = scratch.take();
+        try {
+            apply(board, direction, random, result, lines);
+        } finally {
+            scratch.give(lines);
+        }
+    }
+
+    private void apply(int[][] board, MoveDirection direction, Random random, MoveResult result, Lines lines) {
+        result.reset();
+        int size = board.length;
+        boolean horizontal = direction == MoveDirection.LEFT || direction == MoveDirection.RIGHT;
+        boolean reversed = direction == MoveDirection.RIGHT || direction == MoveDirection.DOWN;
+        lines.ensureCapacity(size);
+        pool.invoke(new SlideTask(board, horizontal, reversed, lines, 0, size));
+
+        boolean changed = false;
+        int score = 0;
+        int maxTile = 0;
+        int emptyCount = 0;
+        for (int line = 0; line < size; line++) {
+            changed |= lines.changed[line];
+            score += lines.score[line];
+            maxTile = Math.max(maxTile, lines.maxTile[line]);
+            emptyCount += lines.empties[line];
+        }
+        if (!changed) {
+            return;
+        }
+
+        if (random != null && emptyCount > 0) {
+            // The generic engine lists the empty cells line by line, in the direction of the move.
+            int pick = random.nextInt(emptyCount);
+            int line = 0;
+            while (pick >= lines.empties[line]) {
+                pick -= lines.empties[line++];
+            }
+            int along = size - lines.empties[line] + pick;
+            int index = reversed ? size - 1 - along : along;
+            int r = horizontal ? line : index;
+            int c = horizontal ? index : line;
+            // 90% chance of 2, 10% chance of 4
+            int tile = random.nextInt(10) == 0 ? 4 : 2;
+            board[r][c] = tile;
+            result.spawned(r * size + c, tile);
+            maxTile = Math.max(maxTile, tile);
+            emptyCount--;
+        }
+
+        boolean movePossible = emptyCount > 0 || pool.invoke(new MergeableTask(board, 0, size));
+        result.set(true, score, maxTile, movePossible);
+    }
+
+    /**
+     * Slides the rows, or the columns, from {@code from} to {@code to}.
+     */
+    private final class SlideTask extends RecursiveAction {
+        private final int[][] board;
+        private final boolean horizontal;
+        private final boolean reversed;
+        private final Lines lines;
+        private final int from;
+        private final int to;
+
+        SlideTask(int[][] board, boolean horizontal, boolean reversed, Lines lines, int from, int to) {
+            this.board = board;
+            this.horizontal = horizontal;
+            this.reversed = reversed;
+            this.lines = lines;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from >= 2 * linesPerTask) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SlideTask(board, horizontal, reversed, lines, from, middle),
+                        new SlideTask(board, horizontal, reversed, lines, middle, to));
+            } else if (horizontal) {
+                for (int r = from; r < to; r++) {
+                    slideRow(r);
+                }
+            } else {
+                slideColumns();
+            }
+        }
+
+        private void slideRow(int r) {
+            int[] row = board[r];
+            int size = row.length;
+            int step = reversed ? -1 : 1;
+            int start = reversed ? size - 1 : 0;
+            int write = start;
+            int pending = 0;
+            int pendingAt = -1;
+            boolean changed = false;
+            int score = 0;
+            int max = 0;
+            for (int i = 0, at = start; i < size; i++, at += step) {
+                int tile = row[at];
+                if (tile == 0) {
+                    continue;
+                }
+                if (pending == tile) {
+                    int merged = tile * 2;
+                    row[write] = merged;
+                    write += step;
+                    score += merged;
+                    max = Math.max(max, merged);
+                    changed = true;
+                    pending = 0;
+                } else {
+                    if (pending != 0) {
+                        row[write] = pending;
+                        changed |= write != pendingAt;
+                        max = Math.max(max, pending);
+                        write += step;
+                    }
+                    pending = tile;
+                    pendingAt = at;
+                }
+            }
+            if (pending != 0) {
+                row[write] = pending;
+                changed |= write != pendingAt;
+                max = Math.max(max, pending);
+                write += step;
+            }
+            int filled = reversed ? start - write : write;
+            for (int i = filled; i < size; i++, write += step) {
+                row[write] = 0;
+            }
+            lines.changed[r] = changed;
+            lines.score[r] = score;
+            lines.maxTile[r] = max;
+            lines.empties[r] = size - filled;
+        }
+
+        private void slideColumns() {
+            int size = board.length;
+            int step = reversed ? -1 : 1;
+            int start = reversed ? size - 1 : 0;
+            int[] write = lines.write;
+            int[] pending = lines.pending;
+            int[] pendingAt = lines.pendingAt;
+            for (int c = from; c < to; c++) {
+                write[c] = start;
+                pending[c] = 0;
+                pendingAt[c] = -1;
+                lines.changed[c] = false;
+                lines.score[c] = 0;
+                lines.maxTile[c] = 0;
+            }
+            for (int i = 0, r = start; i < size; i++, r += step) {
+                int[] row = board[r];
+                for (int c = from; c < to; c++) {
+                    int tile = row[c];
+                    if (tile == 0) {
+                        continue;
+                    }
+                    if (pending[c] == tile) {
+                        int merged = tile * 2;
+                        board[write[c]][c] = merged;
+                        write[c] += step;
+                        lines.score[c] += merged;
+                        lines.maxTile[c] = Math.max(lines.maxTile[c], merged);
+                        lines.changed[c] = true;
+                        pending[c] = 0;
+                    } else {
+                        if (pending[c] != 0) {
+                            board[write[c]][c] = pending[c];
+                            lines.changed[c] |= write[c] != pendingAt[c];
+                            lines.maxTile[c] = Math.max(lines.maxTile[c], pending[c]);
+                            write[c] += step;
+                        }
+                        pending[c] = tile;
+                        pendingAt[c] = r;
+                    }
+                }
+            }
+            for (int c = from; c < to; c++) {
+                if (pending[c] != 0) {
+                    board[write[c]][c] = pending[c];
+                    lines.changed[c] |= write[c] != pendingAt[c];
+                    lines.maxTile[c] = Math.max(lines.maxTile[c], pending[c]);
+                    write[c] += step;
+                }
+                int filled = reversed ? start - write[c] : write[c];
+                lines.empties[c] = size - filled;
+            }
+            // Clear the cells behind each column's last tile, again row by row.
+            for (int i = 0, r = start; i < size; i++, r += step) {
+                int[] row = board[r];
+                for (int c = from; c < to; c++) {
+                    if (i >= size - lines.empties[c]) {
+                        row[c] = 0;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells whether any two neighbours in the rows from {@code from} to {@code to} are equal,
+     * each row being compared with the one below it as well.
+     */
+    private final class MergeableTask extends RecursiveTask<Boolean> {
+        private final int[][] board;
+        private final int from;
+        private final int to;
+
+        MergeableTask(int[][] board, int from, int to) {
+            this.board = board;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Boolean compute() {
+            if (to - from >= 2 * linesPerTask) {
+                int middle = (from + to) >>> 1;
+                MergeableTask lower = new MergeableTask(board, middle, to);
+                lower.fork();
+                return new MergeableTask(board, from, middle).compute() || lower.join();
+            }
+            int size = board.length;
+            for (int r = from; r < to; r++) {
+                int[] row = board[r];
+                int[] below = r + 1 < size ? board[r + 1] : null;
+                for (int c = 0; c < size; c++) {
+                    if ((c + 1 < size && row[c] == row[c + 1]) || (below != null && row[c] == below[c])) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Per-line results of one move, plus the state of each column while a vertical move
+     * walks down the rows. Taken from a pool for each move; its tasks write disjoint lines.
+     */
+    private static final class Lines {
+        private boolean[] changed = new boolean[0];
+        private int[] score = new int[0];
+        private int[] maxTile = new int[0];
+        private int[] empties = new int[0];
+        private int[] write = new int[0];
+        private int[] pending = new int[0];
+        private int[] pendingAt = new int[0];
+
+        void ensureCapacity(int size) {
+            if (changed.length < size) {
+                changed = new boolean[size];
+                score = new int[size];
+                maxTile = new int[size];
+                empties = new int[size];
+                write = new int[size];
+                pending = new int[size];
+                pendingAt = new int[size];
+            }
+        }
+    }
+}
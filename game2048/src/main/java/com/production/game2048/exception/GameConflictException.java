@@ -0,0 +1,15 @@
+package com.production.game2048.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a game could not be saved because its row was changed by someone else since it
+ * was loaded. The cached copy is discarded, so retrying the request works on the saved state.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class GameConflictException extends RuntimeException {
+    public GameConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,6 +1,12 @@
 package com.production.game2048.exception;
 
+import com.production.game2048.metrics.GameMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -8,10 +14,21 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 /**
  * Global exception handler for the application's REST controllers.
  * Catches specified exceptions and formats them into a consistent ApiErrorResponse.
+ * Every handled exception is counted by type and status code in the game.exceptions metric.
+ * Errors are always answered in JSON, even to clients that only accept the binary game format.
  */
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
+    private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+
+    private final GameMetrics metrics;
+
+    @Autowired
+    public GlobalExceptionHandler(GameMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     /**
      * Handles IllegalArgumentException, typically thrown for invalid input parameters.
      *
@@ -25,11 +42,136 @@ public class GlobalExceptionHandler {
                 "Bad Request",
                 ex.getMessage()
         );
-        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+        record(ex, HttpStatus.BAD_REQUEST);
+        return respond(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Handles GameNotFoundException. Its @ResponseStatus alone is not enough, since the
+     * catch-all handler below would otherwise take precedence.
+     *
+     * @param ex The caught exception.
+     * @return A ResponseEntity with a 404 Not Found status and a structured error body.
+     */
+    @ExceptionHandler(GameNotFoundException.class)
+    public ResponseEntity<ApiErrorResponse> handleGameNotFoundException(GameNotFoundException ex) {
+        ApiErrorResponse errorResponse = new ApiErrorResponse(
+                HttpStatus.NOT_FOUND.value(),
+                "Not Found",
+                ex.getMessage()
+        );
+        record(ex, HttpStatus.NOT_FOUND);
+        return respond(errorResponse, HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * Handles GameConflictException, thrown when a game's row was changed by someone else.
+     *
+     * @param ex The caught exception.
+     * @return A ResponseEntity with a 409 Conflict status and a structured error body.
+     */
+    @ExceptionHandler(GameConflictException.class)
+    public ResponseEntity<ApiErrorResponse> handleGameConflictException(GameConflictException ex) {
+        ApiErrorResponse errorResponse = new ApiErrorResponse(
+                HttpStatus.CONFLICT.value(),
+                "Conflict",
+                ex.getMessage()
+        );
+        record(ex, HttpStatus.CONFLICT);
+        return respond(errorResponse, HttpStatus.CONFLICT);
+    }
+
+    /**
+     * Handles UndoUnavailableException, thrown when a game has no move left to undo.
+     *
+     * @param ex The caught exception.
+     * @return A ResponseEntity with a 409 Conflict status and a structured error body.
+     */
+    @ExceptionHandler(UndoUnavailableException.class)
+    public ResponseEntity<ApiErrorResponse> handleUndoUnavailableException(UndoUnavailableException ex) {
+        ApiErrorResponse errorResponse = new ApiErrorResponse(
+                HttpStatus.CONFLICT.value(),
+                "Conflict",
+                ex.getMessage()
+        );
+        record(ex, HttpStatus.CONFLICT);
+        return respond(errorResponse, HttpStatus.CONFLICT);
+    }
+
+    /**
+     * Handles SimulationBusyException, thrown when too many simulations are running.
+     *
+     * @param ex The caught exception.
+     * @return A ResponseEntity with a 503 Service Unavailable status and a structured error body.
+     */
+    @ExceptionHandler(SimulationBusyException.class)
+    public ResponseEntity<ApiErrorResponse> handleSimulationBusyException(SimulationBusyException ex) {
+        ApiErrorResponse errorResponse = new ApiErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "Service Unavailable",
+                ex.getMessage()
+        );
+        record(ex, HttpStatus.SERVICE_UNAVAILABLE);
+        return respond(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * Handles NotAPeerException, thrown when a cluster-internal request comes from outside the cluster.
+     *
+     * @param ex The caught exception.
+     * @return A ResponseEntity with a 403 Forbidden status and a structured error body.
+     */
+    @ExceptionHandler(NotAPeerException.class)
+    public ResponseEntity<ApiErrorResponse> handleNotAPeerException(NotAPeerException ex) {
+        ApiErrorResponse errorResponse = new ApiErrorResponse(
+                HttpStatus.FORBIDDEN.value(),
+                "Forbidden",
+                ex.getMessage()
+        );
+        record(ex, HttpStatus.FORBIDDEN);
+        return respond(errorResponse, HttpStatus.FORBIDDEN);
+    }
+
+    /**
+     * Handles UnauthorizedException, thrown when an admin request does not carry the admin token.
+     *
+     * @param ex The caught exception.
+     * @return A ResponseEntity with a 401 Unauthorized status, a WWW-Authenticate header and a structured error body.
+     */
+    @ExceptionHandler(UnauthorizedException.class)
+    public ResponseEntity<ApiErrorResponse> handleUnauthorizedException(UnauthorizedException ex) {
+        ApiErrorResponse errorResponse = new ApiErrorResponse(
+                HttpStatus.UNAUTHORIZED.value(),
+                "Unauthorized",
+                ex.getMessage()
+        );
+        record(ex, HttpStatus.UNAUTHORIZED);
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .header(HttpHeaders.WWW_AUTHENTICATE, "Bearer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(errorResponse);
+    }
+
+    /**
+     * Handles TooManyRequestsException, thrown when a request is shed by rate limiting or
+     * admission control.
+     *
+     * @param ex The caught exception.
+     * @return A ResponseEntity with a 429 Too Many Requests status, a Retry-After header and a structured error body.
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ApiErrorResponse> handleTooManyRequestsException(TooManyRequestsException ex) {
+        ApiErrorResponse errorResponse = new ApiErrorResponse(
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                "Too Many Requests",
+                ex.getMessage()
+        );
+        record(ex, HttpStatus.TOO_MANY_REQUESTS);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(errorResponse);
     }
-    
-    // Note: GameNotFoundException is already handled by its @ResponseStatus annotation,
-    // so we don't need a specific handler here unless we want to customize the body.
 
     /**
      * A fallback handler for any other unhandled exceptions.
@@ -45,8 +187,30 @@ public class GlobalExceptionHandler {
                 "Internal Server Error",
                 "An unexpected error occurred. Please try again later."
         );
-        // It's good practice to log the actual exception for debugging purposes.
-        // log.error("Unhandled exception caught: ", ex);
-        return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        record(ex, HttpStatus.INTERNAL_SERVER_ERROR);
+        return respond(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    /**
+     * Sends the error as JSON whatever the request accepts, rather than failing negotiation
+     * and losing the error.
+     */
+    private static ResponseEntity<ApiErrorResponse> respond(ApiErrorResponse errorResponse, HttpStatus status) {
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(errorResponse);
+    }
+
+    /**
+     * Counts the exception and logs it: unexpected failures with their stack trace, refusals
+     * under load as warnings, and client errors at debug level, since they are normal traffic.
+     */
+    private void record(Exception ex, HttpStatus status) {
+        metrics.exceptionHandled(ex, status.value());
+        if (status == HttpStatus.INTERNAL_SERVER_ERROR) {
+            log.error("Unhandled exception caught.", ex);
+        } else if (status.is5xxServerError()) {
+            log.warn("Request refused with {}: {}", status.value(), ex.getMessage());
+        } else if (log.isDebugEnabled()) {
+            log.debug("Request rejected with {}: {}", status.value(), ex.getMessage());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.production.game2048.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a request only the nodes of the cluster may make comes from another address.
+ */
+@ResponseStatus(HttpStatus.FORBIDDEN)
+public class NotAPeerException extends RuntimeException {
+    public NotAPeerException(String message) {
+        super(message);
+    }
+}
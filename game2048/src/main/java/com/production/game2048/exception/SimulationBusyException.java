@@ -0,0 +1,14 @@
+package com.production.game2048.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a simulation is requested while the maximum number of runs is already executing.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class SimulationBusyException extends RuntimeException {
+    public SimulationBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,26 @@
+package com.production.game2048.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a request is shed before reaching the game service: its client or game used up its
+ * rate limit, or too many requests are already running.
+ */
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class TooManyRequestsException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return The whole number of seconds after which a retry may be admitted, at least 1.
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,15 @@
+package com.production.game2048.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a move is to be undone but the game has none left to take back: it has not been
+ * played yet, every saved state was used up, or its board is too large to keep an undo history.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class UndoUnavailableException extends RuntimeException {
+    public UndoUnavailableException(String message) {
+        super(message);
+    }
+}
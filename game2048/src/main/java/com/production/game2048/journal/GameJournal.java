@@ -0,0 +1,283 @@
+package com.production.game2048.journal;
+
+import com.production.game2048.model.MoveDirection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of moves and undos, written to memory-mapped segment files.
+ *
+ * Every record is {@value #RECORD_SIZE} bytes:
+ * <pre>
+ *  0  type (1 = move, 2 = undo)  1  direction ordinal    2  spawned tile exponent (0 = none)
+ *  3  flags (1 = won, 2 = game over)                 4  spawned cell index (int, -1 = none)
+ *  8  game id (long)        16  move count after the move (long)
+ * 24  score after the move (int)                    28  CRC32 of bytes 0..27 (int)
+ * </pre>
+ * An undo record has no direction or spawned tile; its move count and score are those after
+ * the undo. Segments are pre-sized and zero-filled, so reading stops at the first zero type
+ * byte or at a record whose checksum does not match, i.e. a write torn by a crash. When a
+ * segment is full the journal rolls over to the next one; older segments are deleted by
+ * {@link #deleteSegmentsBefore(long)} once everything they contain has been written to the
+ * database.
+ */
+@Component
+@EnableConfigurationProperties(JournalProperties.class)
+public class GameJournal {
+
+    /**
+     * Size of one record in bytes.
+     */
+    public static final int RECORD_SIZE = 32;
+
+    private static final Logger log = LoggerFactory.getLogger(GameJournal.class);
+
+    private static final byte MOVE_RECORD = 1;
+    private static final byte UNDO_RECORD = 2;
+    private static final int FLAG_WON = 1;
+    private static final int FLAG_GAME_OVER = 2;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final MoveDirection[] DIRECTIONS = MoveDirection.values();
+
+    private final JournalProperties properties;
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+
+    // The fields below are guarded by this.
+    private Path directory;
+    private long segmentId;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+
+    @Autowired
+    public GameJournal(JournalProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Opens the journal and starts a fresh segment after any existing ones.
+     * Existing segments are left in place to be replayed.
+     */
+    public synchronized void open() {
+        try {
+            directory = Paths.get(properties.getDirectory());
+            Files.createDirectories(directory);
+            List<Long> existing = segmentIds();
+            startSegment(existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the move journal in " + properties.getDirectory(), e);
+        }
+    }
+
+    /**
+     * Appends one move.
+     *
+     * @return true if the journal rolled over to a new segment to make room for the record.
+     */
+    public synchronized boolean append(long gameId, long moveCount, MoveDirection direction, int spawnCell,
+                                       int spawnTile, int score, boolean won, boolean gameOver) {
+        return write(MOVE_RECORD, gameId, moveCount, direction.ordinal(), spawnCell, spawnTile, score, won, gameOver);
+    }
+
+    /**
+     * Appends the undo of a game's last move.
+     *
+     * @return true if the journal rolled over to a new segment to make room for the record.
+     */
+    public synchronized boolean appendUndo(long gameId, long moveCount, int score, boolean won, boolean gameOver) {
+        return write(UNDO_RECORD, gameId, moveCount, 0, -1, 0, score, won, gameOver);
+    }
+
+    private boolean write(byte type, long gameId, long moveCount, int direction, int spawnCell, int spawnTile,
+                          int score, boolean won, boolean gameOver) {
+        if (segment == null) {
+            throw new IllegalStateException("The move journal is not open.");
+        }
+        record.clear();
+        record.put(type)
+                .put((byte) direction)
+                .put((byte) (spawnTile == 0 ? 0 : Integer.numberOfTrailingZeros(spawnTile)))
+                .put((byte) ((won ? FLAG_WON : 0) | (gameOver ? FLAG_GAME_OVER : 0)))
+                .putInt(spawnCell)
+                .putLong(gameId)
+                .putLong(moveCount)
+                .putInt(score);
+        crc.reset();
+        crc.update(record.array(), 0, RECORD_SIZE - 4);
+        record.putInt((int) crc.getValue());
+
+        boolean rolled = false;
+        if (segment.remaining() < RECORD_SIZE) {
+            try {
+                closeSegment();
+                startSegment(segmentId + 1);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to roll the move journal over.", e);
+            }
+            rolled = true;
+        }
+        segment.put(record.array());
+        if (properties.isFsync()) {
+            segment.force();
+        }
+        return rolled;
+    }
+
+    /**
+     * @return The id of the segment currently being written.
+     */
+    public synchronized long currentSegment() {
+        return segmentId;
+    }
+
+    /**
+     * Forces everything written so far to disk.
+     */
+    public synchronized void force() {
+        if (segment != null) {
+            segment.force();
+        }
+    }
+
+    /**
+     * Reads every valid record of every segment, oldest first.
+     */
+    public void readAll(Consumer<JournalRecord> consumer) {
+        Path dir;
+        List<Long> ids;
+        synchronized (this) {
+            dir = directory;
+            try {
+                ids = segmentIds();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to list the move journal segments.", e);
+            }
+        }
+        for (long id : ids) {
+            Path file = dir.resolve(segmentName(id));
+            try (FileChannel readChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+                readSegment(buffer, consumer);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read journal segment " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Deletes every segment older than the given one.
+     */
+    public synchronized void deleteSegmentsBefore(long id) {
+        try {
+            for (long existing : segmentIds()) {
+                if (existing < id) {
+                    Files.deleteIfExists(directory.resolve(segmentName(existing)));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete old journal segments.", e);
+        }
+    }
+
+    /**
+     * Forces and closes the current segment.
+     */
+    @PreDestroy
+    public synchronized void close() {
+        try {
+            closeSegment();
+        } catch (IOException e) {
+            log.error("Failed to close the move journal.", e);
+        }
+    }
+
+    private void readSegment(ByteBuffer buffer, Consumer<JournalRecord> consumer) {
+        CRC32 check = new CRC32();
+        byte[] bytes = new byte[RECORD_SIZE];
+        while (buffer.remaining() >= RECORD_SIZE) {
+            buffer.get(bytes);
+            ByteBuffer in = ByteBuffer.wrap(bytes);
+            byte type = in.get(0);
+            if (type != MOVE_RECORD && type != UNDO_RECORD) {
+                return;
+            }
+            check.reset();
+            check.update(bytes, 0, RECORD_SIZE - 4);
+            if (in.getInt(RECORD_SIZE - 4) != (int) check.getValue()) {
+                log.warn("Ignoring a torn record at the end of the move journal.");
+                return;
+            }
+            int spawnExponent = in.get(2);
+            int flags = in.get(3);
+            consumer.accept(new JournalRecord(
+                    in.getLong(8),
+                    in.getLong(16),
+                    type == UNDO_RECORD ? null : DIRECTIONS[in.get(1)],
+                    in.getInt(4),
+                    spawnExponent == 0 ? 0 : 1 << spawnExponent,
+                    in.getInt(24),
+                    (flags & FLAG_WON) != 0,
+                    (flags & FLAG_GAME_OVER) != 0));
+        }
+    }
+
+    private void startSegment(long id) throws IOException {
+        // Round down to whole records so a record never straddles two segments.
+        long size = Math.max(RECORD_SIZE, properties.getSegmentSize().toBytes() / RECORD_SIZE * RECORD_SIZE);
+        channel = FileChannel.open(directory.resolve(segmentName(id)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        segmentId = id;
+    }
+
+    private void closeSegment() throws IOException {
+        if (segment != null) {
+            segment.force();
+            segment = null;
+        }
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private List<Long> segmentIds() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        if (directory == null || !Files.isDirectory(directory)) {
+            return ids;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                ids.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private static String segmentName(long id) {
+        return String.format("%s%016d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX);
+    }
+}
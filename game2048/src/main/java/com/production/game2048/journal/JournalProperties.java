@@ -0,0 +1,65 @@
+package com.production.game2048.journal;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Configuration for the move journal, bound from {@code game.journal.*}.
+ * Only used when {@code game.session.durability=JOURNAL}.
+ */
+@ConfigurationProperties(prefix = "game.journal")
+public class JournalProperties {
+
+    /**
+     * Directory holding the journal segment files.
+     */
+    private String directory = "./data/journal";
+
+    /**
+     * Size of one segment file. A new segment is started when the current one is full.
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(16);
+
+    /**
+     * A game is written to the database after this many journaled moves.
+     */
+    private int snapshotInterval = 100;
+
+    /**
+     * Whether every record is forced to disk before the move returns. Without it, records
+     * survive a process crash but only reach the disk on the periodic flush.
+     */
+    private boolean fsync = false;
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public DataSize getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(DataSize segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public int getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    public void setSnapshotInterval(int snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    public boolean isFsync() {
+        return fsync;
+    }
+
+    public void setFsync(boolean fsync) {
+        this.fsync = fsync;
+    }
+}
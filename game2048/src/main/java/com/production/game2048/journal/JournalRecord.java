@@ -0,0 +1,72 @@
+package com.production.game2048.journal;
+
+import com.production.game2048.model.MoveDirection;
+
+/**
+ * One move read back from the journal: the direction, the tile it spawned and the
+ * resulting score and flags, enough to replay the move on the previous state.
+ * An undo is read back as a record without a direction.
+ */
+public class JournalRecord {
+
+    private final long gameId;
+    private final long moveCount;
+    private final MoveDirection direction;
+    private final int spawnCell;
+    private final int spawnTile;
+    private final int score;
+    private final boolean won;
+    private final boolean gameOver;
+
+    public JournalRecord(long gameId, long moveCount, MoveDirection direction, int spawnCell, int spawnTile,
+                         int score, boolean won, boolean gameOver) {
+        this.gameId = gameId;
+        this.moveCount = moveCount;
+        this.direction = direction;
+        this.spawnCell = spawnCell;
+        this.spawnTile = spawnTile;
+        this.score = score;
+        this.won = won;
+        this.gameOver = gameOver;
+    }
+
+    // Getters
+    public long getGameId() {
+        return gameId;
+    }
+
+    public long getMoveCount() {
+        return moveCount;
+    }
+
+    public MoveDirection getDirection() {
+        return direction;
+    }
+
+    public int getSpawnCell() {
+        return spawnCell;
+    }
+
+    public int getSpawnTile() {
+        return spawnTile;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public boolean isWon() {
+        return won;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * @return True if the record is an undo, which has no direction.
+     */
+    public boolean isUndo() {
+        return direction == null;
+    }
+}
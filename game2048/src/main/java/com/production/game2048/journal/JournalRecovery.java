@@ -0,0 +1,150 @@
+package com.production.game2048.journal;
+
+import com.production.game2048.engine.GameRandom;
+import com.production.game2048.engine.MoveEngineSelector;
+import com.production.game2048.engine.MoveResult;
+import com.production.game2048.model.GameState;
+import com.production.game2048.model.UndoHistory;
+import com.production.game2048.repository.GameStateRepository;
+import com.production.game2048.session.SessionProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rebuilds games from the move journal after a restart.
+ *
+ * For every game in the journal, the last state written to the database is loaded and the
+ * records after its move count are replayed on top of it with the regular move engine and the
+ * game's own random number generator, which spawns the same tiles again; each spawn is checked
+ * against the record. Replayed moves are saved to the game's undo history like live ones, so
+ * journaled undos take back the same states. The rebuilt games are then written back, after
+ * which the replayed segments can be deleted.
+ */
+@Component
+public class JournalRecovery {
+
+    private static final Logger log = LoggerFactory.getLogger(JournalRecovery.class);
+
+    private final GameJournal journal;
+    private final GameStateRepository gameStateRepository;
+    private final MoveEngineSelector moveEngineSelector;
+    private final SessionProperties sessionProperties;
+
+    @Autowired
+    public JournalRecovery(GameJournal journal, GameStateRepository gameStateRepository,
+                           MoveEngineSelector moveEngineSelector, SessionProperties sessionProperties) {
+        this.journal = journal;
+        this.gameStateRepository = gameStateRepository;
+        this.moveEngineSelector = moveEngineSelector;
+        this.sessionProperties = sessionProperties;
+    }
+
+    /**
+     * Replays every journaled move that is not yet reflected in the database.
+     *
+     * @param batchSize Number of rebuilt games written per transaction.
+     * @return The number of records replayed.
+     */
+    public int recover(int batchSize) {
+        Map<Long, List<JournalRecord>> recordsByGame = new HashMap<>();
+        journal.readAll(record -> recordsByGame
+                .computeIfAbsent(record.getGameId(), id -> new ArrayList<>())
+                .add(record));
+
+        int replayed = 0;
+        List<GameState> batch = new ArrayList<>(batchSize);
+        MoveResult result = new MoveResult();
+        for (Map.Entry<Long, List<JournalRecord>> entry : recordsByGame.entrySet()) {
+            GameState game = gameStateRepository.findById(entry.getKey()).orElse(null);
+            if (game == null) {
+                log.warn("Skipping journal records for game {}, which no longer exists.", entry.getKey());
+                continue;
+            }
+            int applied = replay(game, entry.getValue(), result);
+            if (applied > 0 || game.isLegacyBoardMigrated()) {
+                replayed += applied;
+                batch.add(game);
+            }
+            if (batch.size() >= batchSize) {
+                gameStateRepository.updateAll(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            gameStateRepository.updateAll(batch);
+        }
+        if (replayed > 0) {
+            log.info("Replayed {} journaled moves across {} games.", replayed, recordsByGame.size());
+        }
+        return replayed;
+    }
+
+    /**
+     * Applies the records that follow the game's move count, stopping at the first gap
+     * or at a record that does not reproduce the recorded score and spawn, or score for an undo.
+     */
+    private int replay(GameState game, List<JournalRecord> records, MoveResult result) {
+        int[][] board = game.getBoard();
+        int[][] before = new int[board.length][board.length];
+        int applied = 0;
+        for (JournalRecord record : records) {
+            if (record.getMoveCount() <= game.getMoveCount()) {
+                continue; // Already part of the saved state.
+            }
+            if (record.getMoveCount() != game.getMoveCount() + 1) {
+                log.warn("Journal for game {} has a gap after move {}; stopping replay there.",
+                        game.getId(), game.getMoveCount());
+                break;
+            }
+
+            UndoHistory history = UndoHistory.of(game, sessionProperties.getUndoDepth());
+            if (record.isUndo()) {
+                if (history == null || history.getCount() == 0 || history.peekScore() != record.getScore()) {
+                    log.warn("Journal for game {} undoes a state it does not have at move {}; stopping replay there.",
+                            game.getId(), record.getMoveCount());
+                    break;
+                }
+                history.undo(game);
+                game.setMoveCount(record.getMoveCount());
+                applied++;
+                continue;
+            }
+            if (history != null) {
+                history.stage(game);
+            }
+
+            for (int r = 0; r < board.length; r++) {
+                System.arraycopy(board[r], 0, before[r], 0, board.length);
+            }
+            GameRandom random = game.random();
+            long randomState = random.getState();
+            moveEngineSelector.engineFor(board).move(board, record.getDirection(), random, result);
+            if (!result.isChanged() || game.getScore() + result.getScore() != record.getScore()
+                    || result.getSpawnCell() != record.getSpawnCell() || result.getSpawnTile() != record.getSpawnTile()) {
+                for (int r = 0; r < board.length; r++) {
+                    System.arraycopy(before[r], 0, board[r], 0, board.length);
+                }
+                random.setSeed(randomState);
+                log.warn("Journal for game {} does not match its saved state at move {}; stopping replay there.",
+                        game.getId(), record.getMoveCount());
+                break;
+            }
+            if (history != null) {
+                history.commit();
+            }
+            game.setScore(record.getScore());
+            game.setMoveCount(record.getMoveCount());
+            game.setWon(record.isWon());
+            game.setGameOver(record.isGameOver());
+            applied++;
+        }
+        return applied;
+    }
+}
@@ -0,0 +1,172 @@
+package com.production.game2048.leaderboard;
+
+import com.production.game2048.archive.GameArchive;
+import com.production.game2048.metrics.GameMetrics;
+import com.production.game2048.model.RankedGame;
+import com.production.game2048.repository.GameScore;
+import com.production.game2048.repository.GameStateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The best {@code capacity} games of every board size, kept in memory in a {@link RankedSkipList}
+ * so that the top of the leaderboard and the rank of any game in it are O(log n) lookups.
+ *
+ * The lists are loaded from the (board_size, score) index at startup, after schema migrations
+ * and journal recovery have brought the table up to date, plus the games in the archive, and
+ * are updated by the game service whenever a game's score changes. Once a list has been trimmed to its capacity, a game that
+ * falls below its last entry is dropped from memory and ranked by the database instead.
+ */
+@Component
+@DependsOn({"schemaMigrations", "gameSessionStore"})
+@EnableConfigurationProperties(LeaderboardProperties.class)
+public class Leaderboard {
+
+    private static final Logger log = LoggerFactory.getLogger(Leaderboard.class);
+
+    private final LeaderboardProperties properties;
+    private final Map<Integer, Ranking> rankings = new ConcurrentHashMap<>();
+    /** The ranking each game in memory is held by. */
+    private final Map<Long, Ranking> byGame = new ConcurrentHashMap<>();
+
+    @Autowired
+    public Leaderboard(GameStateRepository gameStateRepository, GameArchive archive,
+                       LeaderboardProperties properties, GameMetrics metrics) {
+        this.properties = properties;
+        load(gameStateRepository, archive);
+        metrics.gauge("game.leaderboard.entries", "Games held by the in-memory leaderboard", byGame, Map::size);
+    }
+
+    /**
+     * Records a game's new score. Must be called while holding the game's lock, so the updates
+     * of one game arrive in order.
+     */
+    public void update(long id, int boardSize, int score) {
+        Ranking ranking = rankings.computeIfAbsent(boardSize, Ranking::new);
+        synchronized (ranking) {
+            Integer previous = ranking.scores.get(id);
+            if (previous != null) {
+                if (previous == score) {
+                    return;
+                }
+                ranking.list.remove(id, previous);
+                ranking.scores.remove(id);
+                byGame.remove(id);
+            }
+            if (ranking.trimmed && ranking.list.afterLast(id, score)) {
+                return; // Ranked below every game in memory; the database knows its place.
+            }
+            ranking.list.insert(id, score);
+            ranking.scores.put(id, score);
+            byGame.put(id, ranking);
+            if (ranking.list.size() > properties.getCapacity()) {
+                long dropped = ranking.list.removeLast();
+                ranking.scores.remove(dropped);
+                byGame.remove(dropped);
+                ranking.trimmed = true;
+            }
+        }
+    }
+
+    /**
+     * Drops a game that left this node, such as one moved to another node of the cluster.
+     * Must be called while holding the game's lock.
+     */
+    public void remove(long id) {
+        Ranking ranking = byGame.get(id);
+        if (ranking == null) {
+            return;
+        }
+        synchronized (ranking) {
+            Integer score = ranking.scores.remove(id);
+            if (score != null) {
+                ranking.list.remove(id, score);
+                byGame.remove(id);
+            }
+        }
+    }
+
+    /**
+     * @return The best games of one board size, at most {@code limit}, highest ranked first.
+     */
+    public List<RankedGame> top(int boardSize, int limit) {
+        Ranking ranking = rankings.get(boardSize);
+        if (ranking == null) {
+            return Collections.emptyList();
+        }
+        synchronized (ranking) {
+            List<RankedGame> top = new ArrayList<>(Math.min(limit, ranking.list.size()));
+            ranking.list.forEach(limit, (id, score) -> top.add(new RankedGame(top.size() + 1, id, boardSize, score)));
+            return top;
+        }
+    }
+
+    /**
+     * @return The game's rank, or null if the game is not among the ones held in memory.
+     */
+    public RankedGame rank(long id) {
+        Ranking ranking = byGame.get(id);
+        if (ranking == null) {
+            return null;
+        }
+        synchronized (ranking) {
+            Integer score = ranking.scores.get(id);
+            if (score == null) {
+                return null; // Dropped since the lookup above.
+            }
+            return new RankedGame(ranking.list.rank(id, score), id, ranking.boardSize, score);
+        }
+    }
+
+    private void load(GameStateRepository gameStateRepository, GameArchive archive) {
+        int capacity = properties.getCapacity();
+        long start = System.nanoTime();
+        for (Integer boardSize : gameStateRepository.findBoardSizes()) {
+            List<GameScore> best = gameStateRepository.findRanking(boardSize, PageRequest.of(0, capacity + 1));
+            Ranking ranking = rankings.computeIfAbsent(boardSize, Ranking::new);
+            synchronized (ranking) {
+                for (GameScore game : best.subList(0, Math.min(capacity, best.size()))) {
+                    ranking.list.insert(game.getId(), game.getScore());
+                    ranking.scores.put(game.getId(), game.getScore());
+                    byGame.put(game.getId(), ranking);
+                }
+                ranking.trimmed = best.size() > capacity;
+            }
+        }
+        archive.forEach(game -> {
+            // A game in both places was restored; its row is the newer copy.
+            if (!byGame.containsKey(game.getId())) {
+                update(game.getId(), game.getBoardSize(), game.getScore());
+            }
+        });
+        log.info("Loaded the leaderboard with {} games in {} ms.", byGame.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * The games of one board size. All fields are guarded by the instance.
+     */
+    private static final class Ranking {
+        private final int boardSize;
+        private final RankedSkipList list = new RankedSkipList();
+        private final Map<Long, Integer> scores = new HashMap<>();
+        /** Whether games were dropped to stay within capacity, i.e. whether the list is only the top of the table. */
+        private boolean trimmed;
+
+        Ranking(int boardSize) {
+            this.boardSize = boardSize;
+        }
+    }
+}
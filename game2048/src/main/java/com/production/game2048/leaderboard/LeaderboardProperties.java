@@ -0,0 +1,36 @@
+package com.production.game2048.leaderboard;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration for the in-memory leaderboard, bound from {@code game.leaderboard.*}.
+ */
+@ConfigurationProperties(prefix = "game.leaderboard")
+public class LeaderboardProperties {
+
+    /**
+     * Number of best games kept in memory per board size. Games below them are ranked by a database query.
+     */
+    private int capacity = 100_000;
+
+    /**
+     * Largest number of entries a single leaderboard request may ask for.
+     */
+    private int maxLimit = 100;
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+}
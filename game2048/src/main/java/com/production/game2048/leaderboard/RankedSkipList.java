@@ -0,0 +1,183 @@
+package com.production.game2048.leaderboard;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An indexable skip list of games, ordered by score (highest first) and then by id (oldest first).
+ *
+ * Every forward link also records how many entries it skips, so the rank of an entry is the sum
+ * of the spans walked to reach it: inserts, removals and rank lookups all take O(log n) expected
+ * time. Not thread-safe; the {@link Leaderboard} guards each list with its own lock.
+ */
+final class RankedSkipList {
+
+    private static final int MAX_LEVEL = 32;
+
+    private final Node head = new Node(0, Integer.MAX_VALUE, MAX_LEVEL);
+    private int level = 1;
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    void insert(long id, int score) {
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && x.next[i].before(id, score)) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        int newLevel = randomLevel();
+        if (newLevel > level) {
+            for (int i = level; i < newLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = size;
+            }
+            level = newLevel;
+        }
+        Node node = new Node(id, score, newLevel);
+        for (int i = 0; i < newLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = rank[0] - rank[i] + 1;
+        }
+        for (int i = newLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+        size++;
+    }
+
+    /**
+     * @return true if the entry was in the list.
+     */
+    boolean remove(long id, int score) {
+        Node[] update = new Node[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && x.next[i].before(id, score)) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        Node node = x.next[0];
+        if (node == null || node.id != id || node.score != score) {
+            return false;
+        }
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == node) {
+                update[i].span[i] += node.span[i] - 1;
+                update[i].next[i] = node.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * @return The 1-based rank of the entry, or 0 if it is not in the list.
+     */
+    int rank(long id, int score) {
+        int rank = 0;
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && (x.next[i].before(id, score) || x.next[i].id == id)) {
+                rank += x.span[i];
+                x = x.next[i];
+            }
+            if (x != head && x.id == id) {
+                return rank;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return true if an entry with this id and score would come after the last entry.
+     */
+    boolean afterLast(long id, int score) {
+        Node last = last();
+        return last != null && !before(id, score, last.id, last.score);
+    }
+
+    /**
+     * Removes the lowest-ranked entry.
+     *
+     * @return Its id.
+     */
+    long removeLast() {
+        Node last = last();
+        remove(last.id, last.score);
+        return last.id;
+    }
+
+    /**
+     * Passes the first {@code limit} entries to the consumer, highest ranked first.
+     */
+    void forEach(int limit, EntryConsumer consumer) {
+        Node x = head.next[0];
+        for (int i = 0; i < limit && x != null; i++, x = x.next[0]) {
+            consumer.accept(x.id, x.score);
+        }
+    }
+
+    /**
+     * @return true if the first entry ranks above the second.
+     */
+    static boolean before(long id, int score, long otherId, int otherScore) {
+        return score > otherScore || (score == otherScore && id < otherId);
+    }
+
+    interface EntryConsumer {
+        void accept(long id, int score);
+    }
+
+    private Node last() {
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null) {
+                x = x.next[i];
+            }
+        }
+        return x == head ? null : x;
+    }
+
+    private static int randomLevel() {
+        // Each level holds a quarter of the entries of the one below.
+        int level = 1;
+        while (level < MAX_LEVEL && (ThreadLocalRandom.current().nextInt() & 3) == 0) {
+            level++;
+        }
+        return level;
+    }
+
+    private static final class Node {
+        private final long id;
+        private final int score;
+        private final Node[] next;
+        private final int[] span;
+
+        Node(long id, int score, int level) {
+            this.id = id;
+            this.score = score;
+            this.next = new Node[level];
+            this.span = new int[level];
+        }
+
+        boolean before(long otherId, int otherScore) {
+            return RankedSkipList.before(id, score, otherId, otherScore);
+        }
+    }
+}
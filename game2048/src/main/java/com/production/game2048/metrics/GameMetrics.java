@@ -0,0 +1,151 @@
+package com.production.game2048.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The application's own meters, next to the {@code http.server.requests} timers Spring Boot
+ * records for every controller.
+ *
+ * Every meter on the move path is created once, up front, so recording is an increment or a
+ * timer update with no lookup. Timers are given the nanoseconds measured by the caller with
+ * {@link System#nanoTime()} rather than wrapping the timed code in a lambda.
+ */
+@Component
+public class GameMetrics {
+
+    private static final PersistenceOperation[] OPERATIONS = PersistenceOperation.values();
+
+    private final MeterRegistry registry;
+    private final Timer moveComputation;
+    private final Counter moves;
+    private final Counter undos;
+    private final Counter gamesStarted;
+    private final Counter gamesWon;
+    private final Counter gamesFinished;
+    private final Timer[] persistence = new Timer[OPERATIONS.length];
+    private final Timer admissionQueue;
+
+    @Autowired
+    public GameMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.moveComputation = Timer.builder("game.move.computation")
+                .description("Time spent sliding, merging and spawning, without locks or storage")
+                .register(registry);
+        this.moves = Counter.builder("game.moves")
+                .description("Moves that changed a board")
+                .register(registry);
+        this.undos = Counter.builder("game.moves.undone")
+                .description("Moves taken back")
+                .register(registry);
+        this.gamesStarted = Counter.builder("game.games.started").register(registry);
+        this.gamesWon = Counter.builder("game.games.won")
+                .description("Games that reached the winning tile")
+                .register(registry);
+        this.gamesFinished = Counter.builder("game.games.finished")
+                .description("Games that ended with no move left")
+                .register(registry);
+        for (PersistenceOperation operation : OPERATIONS) {
+            persistence[operation.ordinal()] = Timer.builder("game.persistence")
+                    .description("Time spent reading and writing games")
+                    .tag("operation", operation.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+        this.admissionQueue = Timer.builder("game.ratelimit.queue")
+                .description("Time rate-limited requests waited for a free slot under the concurrency limit")
+                .register(registry);
+    }
+
+    /**
+     * Records the time the move engine took for one move, whether or not the board changed.
+     */
+    public void moveComputed(long nanos) {
+        moveComputation.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void moveApplied() {
+        moves.increment();
+    }
+
+    public void moveUndone() {
+        undos.increment();
+    }
+
+    public void gameStarted() {
+        gamesStarted.increment();
+    }
+
+    public void gameWon() {
+        gamesWon.increment();
+    }
+
+    public void gameFinished() {
+        gamesFinished.increment();
+    }
+
+    /**
+     * Records a storage access that started at the given {@link System#nanoTime()}.
+     */
+    public void recordPersistence(PersistenceOperation operation, long startNanos) {
+        persistence[operation.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts an exception turned into an error response, by exception type and status code.
+     */
+    public void exceptionHandled(Exception exception, int status) {
+        registry.counter("game.exceptions",
+                "exception", exception.getClass().getSimpleName(),
+                "status", Integer.toString(status)).increment();
+    }
+
+    /**
+     * Counts a request for a game owned by another node of the cluster, by what was done with it:
+     * forwarded, redirected, or failed when the owner could not be reached.
+     */
+    public void requestRouted(String outcome) {
+        registry.counter("game.cluster.routed", "outcome", outcome).increment();
+    }
+
+    /**
+     * Records how long an admitted request waited for a slot under the concurrency limit.
+     */
+    public void requestQueued(long nanos) {
+        admissionQueue.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts a request refused with 429, by endpoint group and by the limit it hit:
+     * client, game, or concurrency.
+     */
+    public void requestRejected(String endpoint, String limit) {
+        registry.counter("game.ratelimit.rejected", "endpoint", endpoint, "limit", limit).increment();
+    }
+
+    /**
+     * Registers a gauge that reads its value from the target when scraped.
+     * The target is only weakly referenced, as with every Micrometer gauge.
+     */
+    public <T> void gauge(String name, String description, T target, ToDoubleFunction<T> value) {
+        Gauge.builder(name, target, value).description(description).register(registry);
+    }
+
+    /**
+     * Registers a counter whose monotonically increasing value is kept by the target itself.
+     *
+     * @param tags Tag keys and values, alternating.
+     */
+    public <T> void functionCounter(String name, String description, T target, ToDoubleFunction<T> value,
+                                    String... tags) {
+        FunctionCounter.builder(name, target, value).description(description).tags(tags).register(registry);
+    }
+}
@@ -0,0 +1,22 @@
+package com.production.game2048.metrics;
+
+/**
+ * The kinds of storage access timed by {@link GameMetrics#recordPersistence}.
+ * Each one is reported as the {@code operation} tag of the {@code game.persistence} timer.
+ */
+public enum PersistenceOperation {
+    /** Loading a game from the database on a session store miss. */
+    LOAD,
+    /** Inserting a new game. */
+    INSERT,
+    /** Writing one game, or one batch of games, back to the database. */
+    UPDATE,
+    /** Appending a move to the move journal. */
+    JOURNAL,
+    /** Inserting a game back into the database, read from the archive or sent by another node. */
+    RESTORE,
+    /** Writing one batch of games to the archive and deleting them from the database. */
+    ARCHIVE,
+    /** Sending one batch of games to the node that owns them and deleting them here. */
+    TRANSFER
+}
@@ -0,0 +1,15 @@
+package com.production.game2048.model;
+
+/**
+ * The representations of games exported and imported in bulk.
+ */
+public enum ExportFormat {
+    /**
+     * One {@link GameRecord} in JSON per line ({@code application/x-ndjson}).
+     */
+    NDJSON,
+    /**
+     * gzip members in the archive's format, each holding a batch of games ({@code application/octet-stream}).
+     */
+    BINARY
+}
@@ -0,0 +1,88 @@
+package com.production.game2048.model;
+
+import java.util.List;
+
+/**
+ * The outcome of one or more moves as a list of {@link MoveDelta}s instead of the whole board.
+ * A client whose copy of the game is at {@link #getBaseSequence()} reaches {@link #getSequence()}
+ * by applying the moves in order; any other client should fetch the full state instead.
+ */
+public class GameDelta {
+
+    private final Long id;
+    private final int boardSize;
+    private final long baseSequence;
+    private final long sequence;
+    private final int score;
+    private final boolean won;
+    private final boolean gameOver;
+    private final List<MoveDelta> moves;
+
+    public GameDelta(Long id, int boardSize, long baseSequence, GameState game, List<MoveDelta> moves) {
+        this.id = id;
+        this.boardSize = boardSize;
+        this.baseSequence = baseSequence;
+        this.sequence = game.getMoveCount();
+        this.score = game.getScore();
+        this.won = game.isWon();
+        this.gameOver = game.isGameOver();
+        this.moves = moves;
+    }
+
+    /**
+     * @return The id of the game the moves were made in.
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return The board dimension, to turn the deltas' cell indexes into rows and columns.
+     */
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    /**
+     * @return The game's move count before the first of the moves.
+     */
+    public long getBaseSequence() {
+        return baseSequence;
+    }
+
+    /**
+     * @return The game's move count after the last of the moves.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return The game's score after the last of the moves.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return True if the game has reached the winning tile.
+     */
+    public boolean isWon() {
+        return won;
+    }
+
+    /**
+     * @return True if no move is left after the last of the moves.
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * @return One entry per move that changed the board, in order. Moves that changed nothing
+     *         are left out.
+     */
+    public List<MoveDelta> getMoves() {
+        return moves;
+    }
+}
@@ -0,0 +1,128 @@
+package com.production.game2048.model;
+
+/**
+ * The complete state of a game as exported and imported in bulk: what the game API shows, plus
+ * the seed, generator state and undo history needed to go on playing it exactly where it left off.
+ * The undo history is in the format of {@link com.production.game2048.util.UndoHistoryConverter},
+ * base64-encoded in JSON.
+ */
+public class GameRecord {
+
+    private long id;
+    private int[][] board;
+    private int score;
+    private long moveCount;
+    private boolean gameOver;
+    private boolean won;
+    private long seed;
+    private long rngState;
+    private byte[] undoHistory;
+    private long updatedAt;
+
+    public static GameRecord of(GameState game, byte[] undoHistory) {
+        GameRecord record = new GameRecord();
+        record.id = game.getId();
+        record.board = game.getBoard();
+        record.score = game.getScore();
+        record.moveCount = game.getMoveCount();
+        record.gameOver = game.isGameOver();
+        record.won = game.isWon();
+        record.seed = game.getSeed();
+        record.rngState = game.getRngState();
+        record.undoHistory = undoHistory;
+        record.updatedAt = game.getUpdatedAt();
+        return record;
+    }
+
+    /**
+     * @return The id the game had where it was exported. Imported games get a new one.
+     */
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public int[][] getBoard() {
+        return board;
+    }
+
+    public void setBoard(int[][] board) {
+        this.board = board;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public void setScore(int score) {
+        this.score = score;
+    }
+
+    public long getMoveCount() {
+        return moveCount;
+    }
+
+    public void setMoveCount(long moveCount) {
+        this.moveCount = moveCount;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public void setGameOver(boolean gameOver) {
+        this.gameOver = gameOver;
+    }
+
+    public boolean isWon() {
+        return won;
+    }
+
+    public void setWon(boolean won) {
+        this.won = won;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return The position of the game's generator, so imported games spawn the same tiles.
+     */
+    public long getRngState() {
+        return rngState;
+    }
+
+    public void setRngState(long rngState) {
+        this.rngState = rngState;
+    }
+
+    /**
+     * @return The game's undo history, or null if it has none.
+     */
+    public byte[] getUndoHistory() {
+        return undoHistory;
+    }
+
+    public void setUndoHistory(byte[] undoHistory) {
+        this.undoHistory = undoHistory;
+    }
+
+    /**
+     * @return When the game was last written, in milliseconds since the epoch.
+     */
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
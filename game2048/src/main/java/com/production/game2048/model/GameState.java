@@ -6,8 +6,22 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PostLoad;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
+import javax.persistence.Transient;
+import javax.persistence.Version;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.production.game2048.cluster.ShardedIdGenerator;
+import com.production.game2048.engine.GameRandom;
+import com.production.game2048.util.BinaryBoardConverter;
 import com.production.game2048.util.IntArrayConverter;
+import com.production.game2048.util.UndoHistoryConverter;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 /**
  * Represents the state of a single 2048 game session.
@@ -15,31 +29,116 @@ import com.production.game2048.util.IntArrayConverter;
  * to be saved and loaded across application restarts.
  */
 @Entity
-@Table(name = "game_state")
+@Table(name = "game_state", indexes = @Index(name = "idx_game_state_ranking", columnList = "board_size, score"))
 public class GameState {
 
+    /**
+     * How many ids one call to the id sequence reserves. Matches the JDBC batch size, so a batch
+     * of new games costs one sequence call and one batch of inserts.
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     /**
      * The unique identifier for the game session.
+     * Drawn from a pooled sequence rather than an identity column, so that Hibernate knows the id
+     * before the insert and can batch inserts. In a cluster, the {@link ShardedIdGenerator} adds
+     * the creating node and the game's shard to the sequence number.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "game_state_seq")
+    @GenericGenerator(name = "game_state_seq", strategy = "com.production.game2048.cluster.ShardedIdGenerator",
+            parameters = {
+                    @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "game_state_seq"),
+                    @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "" + ID_ALLOCATION_SIZE)
+            })
     private Long id;
 
+    /**
+     * Optimistic lock version, incremented by every write. A write based on an outdated copy of the
+     * row fails instead of silently overwriting the newer state.
+     */
+    @Version
+    @Column(name = "version", columnDefinition = "BIGINT DEFAULT 0 NOT NULL")
+    private long version;
+
     /**
      * The game board, stored as a 2D integer array.
-     * The state of this board is converted to a database-friendly format (a String)
-     * using the {@link IntArrayConverter}.
+     * The state of this board is converted to a compact binary format (one byte per cell)
+     * using the {@link BinaryBoardConverter}.
      */
-    @Column(nullable = false, length = 1024)
-    @Convert(converter = IntArrayConverter.class)
+    @Column(name = "board_data", columnDefinition = "VARBINARY(" + BinaryBoardConverter.MAX_LENGTH + ")")
+    @Convert(converter = BinaryBoardConverter.class)
     private int[][] board;
 
+    /**
+     * The dimension of {@link #board}, kept in its own column so games can be ranked per board
+     * size with an index instead of decoding every board.
+     */
+    @Column(name = "board_size", columnDefinition = "INT DEFAULT 0 NOT NULL")
+    private int boardSize;
+
+    /**
+     * The board in the legacy text format of {@link IntArrayConverter}.
+     * Only rows written before the binary format have it; it is cleared once the row is rewritten.
+     */
+    @Column(name = "board", length = 1024)
+    private String legacyBoard;
+
+    /**
+     * Set when the board was just converted from the legacy format and still needs to be written back.
+     */
+    @Transient
+    private boolean legacyBoardMigrated;
+
     /**
      * The current score of the game.
      */
     @Column(nullable = false)
     private int score;
 
+    /**
+     * The number of moves that changed the board so far.
+     * Identifies how far a saved row is ahead of the move journal, and serves as the sequence
+     * number of move deltas and the ETag of the game's state.
+     */
+    @Column(name = "move_count", columnDefinition = "BIGINT DEFAULT 0 NOT NULL")
+    private long moveCount;
+
+    /**
+     * The seed the game's random number generator started from.
+     * Replaying the same moves on a game with the same seed spawns the same tiles.
+     */
+    @Column(name = "seed", columnDefinition = "BIGINT DEFAULT 0 NOT NULL")
+    private long seed;
+
+    /**
+     * The state of the game's random number generator after the last spawned tile.
+     * Kept in sync with {@link #random} whenever the game is copied or written.
+     */
+    @Column(name = "rng_state", columnDefinition = "BIGINT DEFAULT 0 NOT NULL")
+    private long rngState;
+
+    /**
+     * The live generator, created from {@link #rngState} on first use.
+     */
+    @Transient
+    private GameRandom random;
+
+    /**
+     * The states before the last few moves, for undo, packed into one small binary column by
+     * the {@link UndoHistoryConverter}. Null until the first move, and for boards too large to keep one.
+     */
+    @Column(name = "undo_history", columnDefinition = "VARBINARY(" + UndoHistoryConverter.MAX_LENGTH + ")")
+    @Convert(converter = UndoHistoryConverter.class)
+    private UndoHistory undoHistory;
+
+    /**
+     * When the row was last written, in milliseconds since the epoch. Games untouched for long
+     * enough are moved to the archive.
+     */
+    @Column(name = "updated_at", columnDefinition = "BIGINT DEFAULT 0 NOT NULL")
+    private long updatedAt;
+
     /**
      * A flag indicating whether the game is over.
      * The game is over when the player reaches 2048 or no more moves are possible.
@@ -54,6 +153,96 @@ public class GameState {
     @Column(nullable = false)
     private boolean won;
 
+    /**
+     * Converts a row saved in the legacy text format when it is loaded.
+     * The row itself is rewritten lazily, the next time the game is saved.
+     */
+    @PostLoad
+    void migrateLegacyBoard() {
+        if (board == null && legacyBoard != null) {
+            board = new IntArrayConverter().convertToEntityAttribute(legacyBoard);
+            boardSize = board.length;
+            legacyBoard = null;
+            legacyBoardMigrated = true;
+        }
+    }
+
+    /**
+     * Copies the generator's position back into the persisted column and stamps the time before
+     * the row is written.
+     */
+    @PrePersist
+    @PreUpdate
+    void beforeWrite() {
+        if (random != null) {
+            rngState = random.getState();
+        }
+        updatedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Starts the game's random number generator from the given seed.
+     */
+    public void seedRandom(long seed) {
+        this.seed = seed;
+        this.rngState = seed;
+        this.random = null;
+    }
+
+    /**
+     * Puts back a generator saved outside the database, such as in the archive.
+     */
+    public void restoreRandom(long seed, long rngState) {
+        this.seed = seed;
+        this.rngState = rngState;
+        this.random = null;
+    }
+
+    /**
+     * Returns the game's own random number generator, positioned after the last spawned tile.
+     * Like the board, it must only be used while holding the game's lock.
+     */
+    public GameRandom random() {
+        if (random == null) {
+            random = new GameRandom(rngState);
+        }
+        return random;
+    }
+
+    /**
+     * @return true if this game was loaded from a legacy row that has not been rewritten yet.
+     */
+    @JsonIgnore
+    public boolean isLegacyBoardMigrated() {
+        return legacyBoardMigrated;
+    }
+
+    /**
+     * Creates a detached copy of this game, including a deep copy of the board.
+     * Used to hand out or persist a consistent view of a game that may still be changing.
+     */
+    public GameState copy() {
+        GameState copy = new GameState();
+        copy.id = id;
+        copy.version = version;
+        if (board != null) {
+            copy.board = new int[board.length][];
+            for (int r = 0; r < board.length; r++) {
+                copy.board[r] = board[r].clone();
+            }
+        }
+        copy.boardSize = boardSize;
+        copy.score = score;
+        copy.moveCount = moveCount;
+        copy.seed = seed;
+        copy.rngState = random != null ? random.getState() : rngState;
+        copy.undoHistory = undoHistory != null ? undoHistory.copy() : null;
+        copy.updatedAt = updatedAt;
+        copy.gameOver = gameOver;
+        copy.won = won;
+        return copy;
+    }
+
     // Getters and Setters
 
     public Long getId() {
@@ -64,12 +253,27 @@ public class GameState {
         this.id = id;
     }
 
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public int[][] getBoard() {
         return board;
     }
 
     public void setBoard(int[][] board) {
         this.board = board;
+        this.boardSize = board != null ? board.length : 0;
+    }
+
+    @JsonIgnore
+    public int getBoardSize() {
+        return boardSize;
     }
 
     public int getScore() {
@@ -80,6 +284,42 @@ public class GameState {
         this.score = score;
     }
 
+    public long getMoveCount() {
+        return moveCount;
+    }
+
+    public void setMoveCount(long moveCount) {
+        this.moveCount = moveCount;
+    }
+
+    @JsonIgnore
+    public long getSeed() {
+        return seed;
+    }
+
+    @JsonIgnore
+    public long getRngState() {
+        return random != null ? random.getState() : rngState;
+    }
+
+    @JsonIgnore
+    public UndoHistory getUndoHistory() {
+        return undoHistory;
+    }
+
+    public void setUndoHistory(UndoHistory undoHistory) {
+        this.undoHistory = undoHistory;
+    }
+
+    @JsonIgnore
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
     public boolean isGameOver() {
         return gameOver;
     }
@@ -0,0 +1,19 @@
+package com.production.game2048.model;
+
+/**
+ * A game's status, for selecting games in bulk.
+ */
+public enum GameStatus {
+    /**
+     * Games that still have a move left, won or not.
+     */
+    PLAYING,
+    /**
+     * Games that reached the winning tile, finished or not.
+     */
+    WON,
+    /**
+     * Games with no move left.
+     */
+    OVER
+}
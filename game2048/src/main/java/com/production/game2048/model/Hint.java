@@ -0,0 +1,56 @@
+package com.production.game2048.model;
+
+import java.util.Map;
+
+/**
+ * A suggested move for a game, with the expected value of every legal direction.
+ */
+public class Hint {
+
+    private final MoveDirection direction;
+    private final Map<MoveDirection, Float> expectedValues;
+    private final int depth;
+    private final boolean timedOut;
+    private final long elapsedMillis;
+
+    public Hint(MoveDirection direction, Map<MoveDirection, Float> expectedValues, int depth,
+                boolean timedOut, long elapsedMillis) {
+        this.direction = direction;
+        this.expectedValues = expectedValues;
+        this.depth = depth;
+        this.timedOut = timedOut;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @return The suggested move, or null if no move changes the board.
+     */
+    public MoveDirection getDirection() {
+        return direction;
+    }
+
+    /**
+     * @return The heuristic value expected after each legal move; higher is better.
+     */
+    public Map<MoveDirection, Float> getExpectedValues() {
+        return expectedValues;
+    }
+
+    /**
+     * @return How many moves ahead the search looked.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return true if the time budget ran out before the requested depth was reached.
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
@@ -0,0 +1,36 @@
+package com.production.game2048.model;
+
+/**
+ * The outcome of applying a sequence of moves to a game in one request.
+ */
+public class MoveBatchResult {
+
+    private final GameState game;
+    private final int[] moveScores;
+
+    public MoveBatchResult(GameState game, int[] moveScores) {
+        this.game = game;
+        this.moveScores = moveScores;
+    }
+
+    /**
+     * @return The state of the game after the last applied move.
+     */
+    public GameState getGame() {
+        return game;
+    }
+
+    /**
+     * @return The score earned by each applied move, in order. A move that changed nothing scores 0.
+     */
+    public int[] getMoveScores() {
+        return moveScores;
+    }
+
+    /**
+     * @return How many of the requested moves were applied. Fewer than requested if the game ended early.
+     */
+    public int getMovesApplied() {
+        return moveScores.length;
+    }
+}
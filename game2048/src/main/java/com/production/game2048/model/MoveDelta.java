@@ -0,0 +1,141 @@
+package com.production.game2048.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What a single move did to a board, for clients that keep their own copy of it.
+ * Cells are row-major indexes (row * size + column), as in the move journal.
+ *
+ * Applying a delta means: move every tile in {@link #getSlides()} from its old to its new cell,
+ * then put the doubled tiles of {@link #getMerges()} in place of the two that met there, then
+ * place the {@link #getSpawn() spawned} tile. Tiles that are not mentioned did not move.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MoveDelta {
+
+    private final MoveDirection direction;
+    private final List<Slide> slides = new ArrayList<>();
+    private final List<Tile> merges = new ArrayList<>();
+    private long sequence;
+    private int scoreDelta;
+    private Tile spawn;
+
+    public MoveDelta(MoveDirection direction) {
+        this.direction = direction;
+    }
+
+    public void addSlide(int from, int to, int value) {
+        slides.add(new Slide(from, to, value));
+    }
+
+    public void addMerge(int cell, int value) {
+        merges.add(new Tile(cell, value));
+    }
+
+    public void setSpawn(int cell, int value) {
+        this.spawn = new Tile(cell, value);
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public void setScoreDelta(int scoreDelta) {
+        this.scoreDelta = scoreDelta;
+    }
+
+    /**
+     * @return The direction the move was made in.
+     */
+    public MoveDirection getDirection() {
+        return direction;
+    }
+
+    /**
+     * @return The game's move count after this move.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return The score earned by this move's merges.
+     */
+    public int getScoreDelta() {
+        return scoreDelta;
+    }
+
+    /**
+     * @return Every tile that changed cell, with its value before any merge.
+     */
+    public List<Slide> getSlides() {
+        return slides;
+    }
+
+    /**
+     * @return The cells where two tiles merged, with the merged value.
+     */
+    public List<Tile> getMerges() {
+        return merges;
+    }
+
+    /**
+     * @return The tile spawned after the move, or null if the board was full.
+     */
+    public Tile getSpawn() {
+        return spawn;
+    }
+
+    /**
+     * A tile moving from one cell to another.
+     */
+    public static final class Slide {
+
+        private final int from;
+        private final int to;
+        private final int value;
+
+        public Slide(int from, int to, int value) {
+            this.from = from;
+            this.to = to;
+            this.value = value;
+        }
+
+        public int getFrom() {
+            return from;
+        }
+
+        public int getTo() {
+            return to;
+        }
+
+        public int getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * A tile in a cell.
+     */
+    public static final class Tile {
+
+        private final int cell;
+        private final int value;
+
+        public Tile(int cell, int value) {
+            this.cell = cell;
+            this.value = value;
+        }
+
+        public int getCell() {
+            return cell;
+        }
+
+        public int getValue() {
+            return value;
+        }
+    }
+}
@@ -1,12 +1,58 @@
 package com.production.game2048.model;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Represents the four possible move directions in the 2048 game.
  * Using an enum prevents "magic string" bugs and ensures type safety.
+ * Each direction also has a one-letter code, used for compact move sequences like "ULLDR".
  */
 public enum MoveDirection {
-    UP,
-    DOWN,
-    LEFT,
-    RIGHT
+    UP('U'),
+    DOWN('D'),
+    LEFT('L'),
+    RIGHT('R');
+
+    private final char code;
+
+    MoveDirection(char code) {
+        this.code = code;
+    }
+
+    public char getCode() {
+        return code;
+    }
+
+    /**
+     * Looks up a direction by its one-letter code, ignoring case.
+     *
+     * @throws IllegalArgumentException for an unknown code.
+     */
+    public static MoveDirection fromCode(char code) {
+        switch (Character.toUpperCase(code)) {
+            case 'U': return UP;
+            case 'D': return DOWN;
+            case 'L': return LEFT;
+            case 'R': return RIGHT;
+            default:
+                throw new IllegalArgumentException("Unknown move code '" + code + "'. Use U, D, L or R.");
+        }
+    }
+
+    /**
+     * Parses a compact move sequence such as "ULLDR". Whitespace is ignored.
+     *
+     * @throws IllegalArgumentException if the sequence contains an unknown code.
+     */
+    public static List<MoveDirection> parseSequence(CharSequence sequence) {
+        List<MoveDirection> directions = new ArrayList<>(sequence.length());
+        for (int i = 0; i < sequence.length(); i++) {
+            char code = sequence.charAt(i);
+            if (!Character.isWhitespace(code)) {
+                directions.add(fromCode(code));
+            }
+        }
+        return directions;
+    }
 }
\ No newline at end of file
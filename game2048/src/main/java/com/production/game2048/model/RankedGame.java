@@ -0,0 +1,38 @@
+package com.production.game2048.model;
+
+/**
+ * A game's position on the leaderboard of its board size.
+ */
+public class RankedGame {
+
+    private final long rank;
+    private final Long id;
+    private final int boardSize;
+    private final int score;
+
+    public RankedGame(long rank, Long id, int boardSize, int score) {
+        this.rank = rank;
+        this.id = id;
+        this.boardSize = boardSize;
+        this.score = score;
+    }
+
+    /**
+     * @return The 1-based rank among games of the same board size. Ties go to the older game.
+     */
+    public long getRank() {
+        return rank;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    public int getScore() {
+        return score;
+    }
+}
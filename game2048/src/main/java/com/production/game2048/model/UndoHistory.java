@@ -0,0 +1,360 @@
+package com.production.game2048.model;
+
+/**
+ * The last few states of a game, newest first, kept to undo moves.
+ *
+ * The states live in one preallocated {@code long[]}, used as a ring of {@code depth + 1}
+ * fixed-size slots. A slot holds the generator state, the score and the won flag, then the
+ * board's tile exponents packed {@code bitsPerCell} bits each, never straddling two longs.
+ * Exponents take 4 bits until a tile above 2^15 appears, so the board of a 4x4 game normally
+ * fits in a single long and a slot in three. The spare slot is where the state before a move
+ * is staged: it only becomes part of the history once the move turns out to change the board,
+ * and then replaces the oldest state if the history is full. Saving and undoing a state cost
+ * O(board cells) with no allocation, and a game's history never grows beyond its slots.
+ *
+ * Like the board, a history must only be used while holding the game's lock.
+ */
+public final class UndoHistory {
+
+    /**
+     * The most states a history can hold.
+     */
+    public static final int MAX_DEPTH = 64;
+
+    /**
+     * The largest board dimension that gets an undo history.
+     */
+    public static final int MAX_BOARD_SIZE = 16;
+
+    private static final int HEADER_WORDS = 2;
+    private static final long WON = 1L << 32;
+
+    /**
+     * The most longs one state can take: a board of {@link #MAX_BOARD_SIZE} at 5 bits per tile.
+     */
+    public static final int MAX_SLOT_WORDS = HEADER_WORDS + (MAX_BOARD_SIZE * MAX_BOARD_SIZE + 11) / 12;
+
+    private final int size;
+    private final int depth;
+    private int bitsPerCell;
+    private int cellsPerWord;
+    private int slotWords;
+    private long[] slots;
+    /** The slot of the newest state. */
+    private int top;
+    /** The number of states held, at most {@link #depth}. */
+    private int count;
+
+    /**
+     * Creates an empty history for a board of the given dimension.
+     */
+    public UndoHistory(int size, int depth) {
+        this(size, depth, 4);
+    }
+
+    private UndoHistory(int size, int depth, int bitsPerCell) {
+        if (size < 1 || size > MAX_BOARD_SIZE) {
+            throw new IllegalArgumentException("Undo is only kept for boards up to " + MAX_BOARD_SIZE + ".");
+        }
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Undo depth must be between 1 and " + MAX_DEPTH + ".");
+        }
+        this.size = size;
+        this.depth = depth;
+        layOut(bitsPerCell);
+        this.top = depth;
+    }
+
+    /**
+     * Returns the game's history, created or resized to hold {@code depth} states.
+     *
+     * @return The history, or null if the game keeps none: {@code depth} is 0 or its board is too large.
+     */
+    public static UndoHistory of(GameState game, int depth) {
+        UndoHistory history = game.getUndoHistory();
+        int size = game.getBoard().length;
+        if (depth <= 0 || size > MAX_BOARD_SIZE) {
+            if (history != null) {
+                game.setUndoHistory(null);
+            }
+            return null;
+        }
+        depth = Math.min(depth, MAX_DEPTH);
+        if (history == null || history.size != size) {
+            history = new UndoHistory(size, depth);
+            game.setUndoHistory(history);
+        } else if (history.depth != depth) {
+            history = history.resized(depth);
+            game.setUndoHistory(history);
+        }
+        return history;
+    }
+
+    /**
+     * Saves the game's current state in the spare slot. It becomes part of the history only
+     * when {@link #commit()} is called, which is done once a move has changed the board.
+     */
+    public void stage(GameState game) {
+        int base = slot(top + 1) * slotWords;
+        slots[base] = game.getRngState();
+        slots[base + 1] = (game.getScore() & 0xFFFFFFFFL) | (game.isWon() ? WON : 0);
+        int limit = 1 << bitsPerCell;
+        int word = base + HEADER_WORDS;
+        long packed = 0;
+        int shift = 0;
+        for (int[] row : game.getBoard()) {
+            for (int tile : row) {
+                int exponent = tile == 0 ? 0 : Integer.numberOfTrailingZeros(tile);
+                if (exponent >= limit) {
+                    widen();
+                    stage(game);
+                    return;
+                }
+                packed |= (long) exponent << shift;
+                shift += bitsPerCell;
+                if (shift + bitsPerCell > 64) {
+                    slots[word++] = packed;
+                    packed = 0;
+                    shift = 0;
+                }
+            }
+        }
+        if (shift > 0) {
+            slots[word] = packed;
+        }
+    }
+
+    /**
+     * Makes the state last staged the newest one, dropping the oldest if the history is full.
+     */
+    public void commit() {
+        top = slot(top + 1);
+        count = Math.min(count + 1, depth);
+    }
+
+    /**
+     * Puts the newest state back into the game, board, score, won flag and generator, and drops
+     * it from the history. The game is playable again, since the state was saved before a move.
+     * The move count is left alone; it only ever grows.
+     *
+     * @return false if the history is empty.
+     */
+    public boolean undo(GameState game) {
+        if (count == 0) {
+            return false;
+        }
+        int base = top * slotWords;
+        unpack(base, game.getBoard());
+        game.setScore((int) slots[base + 1]);
+        game.setWon((slots[base + 1] & WON) != 0);
+        game.setGameOver(false);
+        game.restoreRandom(game.getSeed(), slots[base]);
+        top = slot(top - 1);
+        count--;
+        return true;
+    }
+
+    /**
+     * @return The score of the newest state, the one {@link #undo(GameState)} would restore.
+     * @throws IllegalStateException if the history is empty.
+     */
+    public int peekScore() {
+        if (count == 0) {
+            throw new IllegalStateException("The undo history is empty.");
+        }
+        return (int) slots[top * slotWords + 1];
+    }
+
+    /**
+     * @return A deep copy, so a snapshot of the game can be written while the game moves on.
+     */
+    public UndoHistory copy() {
+        UndoHistory copy = new UndoHistory(size, depth, bitsPerCell);
+        System.arraycopy(slots, 0, copy.slots, 0, slots.length);
+        copy.top = top;
+        copy.count = count;
+        return copy;
+    }
+
+    /**
+     * Two histories are equal when they hold the same states for the same board, depth and tile
+     * width, wherever those states sit in the ring. Hibernate compares the game entity's converted
+     * history with this when it dirty checks a managed game; without it, it warns that the type has
+     * no equals (HHH000481) and compares by identity. Updates of cached games through
+     * {@code updateAll} write every column either way.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof UndoHistory)) {
+            return false;
+        }
+        UndoHistory that = (UndoHistory) other;
+        if (size != that.size || depth != that.depth || bitsPerCell != that.bitsPerCell || count != that.count) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            int base = slot(top - count + 1 + i) * slotWords;
+            int thatBase = that.slot(that.top - count + 1 + i) * slotWords;
+            for (int w = 0; w < slotWords; w++) {
+                if (slots[base + w] != that.slots[thatBase + w]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = ((size * 31 + depth) * 31 + bitsPerCell) * 31 + count;
+        for (int i = 0; i < count; i++) {
+            int base = slot(top - count + 1 + i) * slotWords;
+            for (int w = 0; w < slotWords; w++) {
+                hash = hash * 31 + Long.hashCode(slots[base + w]);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @return The board dimension the history is for.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return The most states the history holds.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return The number of moves that can be undone.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return The number of bits each tile exponent is packed into, 4 or 5.
+     */
+    public int getBitsPerCell() {
+        return bitsPerCell;
+    }
+
+    /**
+     * @return The number of longs one state takes.
+     */
+    public int getSlotWords() {
+        return slotWords;
+    }
+
+    /**
+     * Copies the words of a state into {@code target}, the oldest state being index 0.
+     */
+    public void readState(int index, long[] target) {
+        checkIndex(index);
+        System.arraycopy(slots, slot(top - count + 1 + index) * slotWords, target, 0, slotWords);
+    }
+
+    /**
+     * Rebuilds a history from states written by {@link #readState(int, long[])}, oldest first.
+     *
+     * @param states The words of each state, {@code count * slotWords} longs in all.
+     */
+    public static UndoHistory fromStates(int size, int depth, int bitsPerCell, int count, long[] states) {
+        if (bitsPerCell != 4 && bitsPerCell != 5) {
+            throw new IllegalArgumentException("Unsupported undo cell width " + bitsPerCell + ".");
+        }
+        UndoHistory history = new UndoHistory(size, depth, bitsPerCell);
+        if (count < 0 || count > depth || states.length != count * history.slotWords) {
+            throw new IllegalArgumentException("Undo history of " + count + " states does not match its data.");
+        }
+        System.arraycopy(states, 0, history.slots, 0, states.length);
+        history.count = count;
+        history.top = count == 0 ? depth : count - 1;
+        return history;
+    }
+
+    /**
+     * @return The number of longs one state of a board of the given dimension takes.
+     */
+    public static int slotWords(int size, int bitsPerCell) {
+        int cellsPerWord = 64 / bitsPerCell;
+        return HEADER_WORDS + (size * size + cellsPerWord - 1) / cellsPerWord;
+    }
+
+    private void layOut(int bitsPerCell) {
+        this.bitsPerCell = bitsPerCell;
+        this.cellsPerWord = 64 / bitsPerCell;
+        this.slotWords = slotWords(size, bitsPerCell);
+        this.slots = new long[(depth + 1) * slotWords];
+    }
+
+    /**
+     * Re-packs every state at 5 bits per cell, once a tile no longer fits into 4.
+     */
+    private void widen() {
+        UndoHistory wide = new UndoHistory(size, depth, 5);
+        int[][] board = new int[size][size];
+        GameState state = new GameState();
+        state.setBoard(board);
+        for (int i = 0; i < count; i++) {
+            int base = slot(top - count + 1 + i) * slotWords;
+            unpack(base, board);
+            state.setScore((int) slots[base + 1]);
+            state.setWon((slots[base + 1] & WON) != 0);
+            state.restoreRandom(0, slots[base]);
+            wide.stage(state);
+            wide.commit();
+        }
+        this.bitsPerCell = wide.bitsPerCell;
+        this.cellsPerWord = wide.cellsPerWord;
+        this.slotWords = wide.slotWords;
+        this.slots = wide.slots;
+        this.top = wide.top;
+    }
+
+    private void unpack(int base, int[][] board) {
+        long mask = (1L << bitsPerCell) - 1;
+        int cell = 0;
+        for (int[] row : board) {
+            for (int c = 0; c < size; c++, cell++) {
+                long packed = slots[base + HEADER_WORDS + cell / cellsPerWord];
+                int exponent = (int) ((packed >>> (cell % cellsPerWord * bitsPerCell)) & mask);
+                row[c] = exponent == 0 ? 0 : 1 << exponent;
+            }
+        }
+    }
+
+    /**
+     * @return A history of the given depth with the newest states of this one.
+     */
+    private UndoHistory resized(int newDepth) {
+        UndoHistory resized = new UndoHistory(size, newDepth, bitsPerCell);
+        int kept = Math.min(count, newDepth);
+        for (int i = 0; i < kept; i++) {
+            int from = slot(top - kept + 1 + i) * slotWords;
+            System.arraycopy(slots, from, resized.slots, i * slotWords, slotWords);
+        }
+        resized.count = kept;
+        resized.top = kept == 0 ? newDepth : kept - 1;
+        return resized;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("State " + index + " of " + count);
+        }
+    }
+
+    private int slot(int index) {
+        int ring = depth + 1;
+        return ((index % ring) + ring) % ring;
+    }
+}
@@ -0,0 +1,81 @@
+package com.production.game2048.ratelimit;
+
+import com.production.game2048.cluster.PeerClient;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+
+/**
+ * Applies the {@link RateLimiter} to controller methods marked {@link RateLimited}, before their
+ * arguments are read. A refused request ends in a {@link com.production.game2048.exception.TooManyRequestsException},
+ * which the exception handler answers with 429 and a Retry-After header.
+ *
+ * An admitted request holds its concurrency slot until it completes, for streamed responses
+ * until the stream is written, since Spring calls the interceptor again for that second dispatch.
+ * Event streams, which stay open, are only rate limited and take no slot.
+ */
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private static final String ADMITTED = RateLimitInterceptor.class.getName() + ".ADMITTED";
+
+    private final RateLimiter limiter;
+
+    public RateLimitInterceptor(RateLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod) || request.getAttribute(ADMITTED) != null) {
+            return true;
+        }
+        RateLimited rateLimited = ((HandlerMethod) handler).getMethodAnnotation(RateLimited.class);
+        if (rateLimited == null) {
+            return true;
+        }
+        String client = limiter.clientOf(request.getRemoteAddr(), request.getHeader(PeerClient.FORWARDED_FOR_HEADER));
+        limiter.checkRate(rateLimited.value(), client, gameIdOf(request));
+        if (!rateLimited.concurrent()) {
+            // Marked all the same, so the stream's final dispatch is not counted a second time.
+            request.setAttribute(ADMITTED, Boolean.FALSE);
+            return true;
+        }
+        limiter.acquire(rateLimited.value());
+        request.setAttribute(ADMITTED, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object admitted = request.getAttribute(ADMITTED);
+        if (admitted != null) {
+            request.removeAttribute(ADMITTED);
+            if (Boolean.TRUE.equals(admitted)) {
+                limiter.release();
+            }
+        }
+    }
+
+    /**
+     * @return The {@code id} path variable, or null if there is none or it is not a number,
+     *         which the controller then rejects itself.
+     */
+    private static Long gameIdOf(HttpServletRequest request) {
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String id = variables == null ? null : variables.get("id");
+        if (id == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
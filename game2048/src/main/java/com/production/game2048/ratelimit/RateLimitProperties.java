@@ -0,0 +1,155 @@
+package com.production.game2048.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Configuration for shedding load before it reaches the game service, bound from {@code game.rate-limit.*}.
+ */
+@ConfigurationProperties(prefix = "game.rate-limit")
+public class RateLimitProperties {
+
+    /**
+     * Whether requests are rate limited and admitted by the concurrency limit at all.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Rate-limited requests that may run at once, over all endpoint groups; 0 means no limit.
+     * Bounded well below Tomcat's threads and near the database connection pool, so a flood
+     * is refused early instead of queueing on threads and connections.
+     */
+    private int maxConcurrentRequests = 64;
+
+    /**
+     * How long a request waits for one of the {@code maxConcurrentRequests} before it is refused.
+     */
+    private Duration maxQueueTime = Duration.ofMillis(50);
+
+    /**
+     * Whether clients are told apart by the first address in X-Forwarded-For rather than by the
+     * connection's address. Only to be turned on behind a proxy that sets the header, the cluster's
+     * other nodes included, since clients can send any value themselves.
+     */
+    private boolean trustForwardedFor = false;
+
+    /**
+     * How often the buckets of clients and games that are full again are dropped.
+     */
+    private Duration sweepInterval = Duration.ofMinutes(1);
+
+    /**
+     * The limits of each endpoint group, e.g. {@code game.rate-limit.endpoints.move.client-rate=50}.
+     * Groups not listed are only subject to the concurrency limit.
+     */
+    private Map<RateLimitedEndpoint, Limit> endpoints = new EnumMap<>(RateLimitedEndpoint.class);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    public Duration getMaxQueueTime() {
+        return maxQueueTime;
+    }
+
+    public void setMaxQueueTime(Duration maxQueueTime) {
+        this.maxQueueTime = maxQueueTime;
+    }
+
+    public boolean isTrustForwardedFor() {
+        return trustForwardedFor;
+    }
+
+    public void setTrustForwardedFor(boolean trustForwardedFor) {
+        this.trustForwardedFor = trustForwardedFor;
+    }
+
+    public Duration getSweepInterval() {
+        return sweepInterval;
+    }
+
+    public void setSweepInterval(Duration sweepInterval) {
+        this.sweepInterval = sweepInterval;
+    }
+
+    public Map<RateLimitedEndpoint, Limit> getEndpoints() {
+        return endpoints;
+    }
+
+    public void setEndpoints(Map<RateLimitedEndpoint, Limit> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    /**
+     * The token buckets of one endpoint group. A rate of 0 turns its bucket off.
+     */
+    public static class Limit {
+
+        /**
+         * Requests per second one client may make, on average.
+         */
+        private double clientRate = 0;
+
+        /**
+         * Requests one client may make at once after being idle.
+         */
+        private int clientBurst = 1;
+
+        /**
+         * Requests per second for one game, from all clients together.
+         */
+        private double gameRate = 0;
+
+        /**
+         * Requests for one game that may be made at once after it was idle.
+         */
+        private int gameBurst = 1;
+
+        public double getClientRate() {
+            return clientRate;
+        }
+
+        public void setClientRate(double clientRate) {
+            this.clientRate = clientRate;
+        }
+
+        public int getClientBurst() {
+            return clientBurst;
+        }
+
+        public void setClientBurst(int clientBurst) {
+            this.clientBurst = clientBurst;
+        }
+
+        public double getGameRate() {
+            return gameRate;
+        }
+
+        public void setGameRate(double gameRate) {
+            this.gameRate = gameRate;
+        }
+
+        public int getGameBurst() {
+            return gameBurst;
+        }
+
+        public void setGameBurst(int gameBurst) {
+            this.gameBurst = gameBurst;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.production.game2048.ratelimit;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Puts a controller method under the rate limits of an endpoint group and under the global
+ * concurrency limit; see {@link RateLimitInterceptor}. A path variable named {@code id} is taken
+ * as the game id for the per-game limit.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimited {
+
+    RateLimitedEndpoint value();
+
+    /**
+     * Whether the request also takes a slot of the concurrency limit. Off for streams, which
+     * would hold it for as long as they are open.
+     */
+    boolean concurrent() default true;
+}
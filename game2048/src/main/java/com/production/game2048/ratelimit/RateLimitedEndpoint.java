@@ -0,0 +1,28 @@
+package com.production.game2048.ratelimit;
+
+/**
+ * The groups of endpoints that share a rate limit, named in {@code game.rate-limit.endpoints.*}.
+ */
+public enum RateLimitedEndpoint {
+    /**
+     * Starting games, one at a time or in bulk.
+     */
+    CREATE,
+    /**
+     * Moving and undoing, singly or in batches.
+     */
+    MOVE,
+    /**
+     * Hints and autoplay, which run the expectimax search.
+     */
+    SEARCH,
+    /**
+     * Reading a game.
+     */
+    READ,
+    /**
+     * Opening a game's event stream or WebSocket. Both stay open, so they are not counted against
+     * the concurrency limit; the hub caps the connections per game instead.
+     */
+    SUBSCRIBE
+}
@@ -0,0 +1,210 @@
+package com.production.game2048.ratelimit;
+
+import com.production.game2048.exception.TooManyRequestsException;
+import com.production.game2048.metrics.GameMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether a request may run: a token bucket per client and one per game for each
+ * endpoint group, then a global limit on the requests running at once.
+ *
+ * Buckets are created on a client's or game's first request and dropped by a periodic sweep once
+ * they are full again, so only recently active clients and games take memory. A request that
+ * finds no free slot waits up to {@code maxQueueTime} for one; after that, and whenever a bucket
+ * is empty, it is refused with a {@link TooManyRequestsException} saying when to retry.
+ */
+@Component
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimiter.class);
+    private static final RateLimitedEndpoint[] ENDPOINTS = RateLimitedEndpoint.values();
+
+    private final RateLimitProperties properties;
+    private final GameMetrics metrics;
+    private final Group[] groups = new Group[ENDPOINTS.length];
+    private final Semaphore slots;
+    private final long maxQueueNanos;
+    private final ScheduledExecutorService sweeper;
+
+    @Autowired
+    public RateLimiter(RateLimitProperties properties, GameMetrics metrics) {
+        this.properties = properties;
+        this.metrics = metrics;
+        for (RateLimitedEndpoint endpoint : ENDPOINTS) {
+            groups[endpoint.ordinal()] = new Group(endpoint, properties.getEndpoints().get(endpoint));
+        }
+        int maxConcurrent = properties.getMaxConcurrentRequests();
+        this.slots = maxConcurrent > 0 ? new Semaphore(maxConcurrent) : null;
+        this.maxQueueNanos = Math.max(0, properties.getMaxQueueTime().toNanos());
+        if (slots != null) {
+            metrics.gauge("game.ratelimit.active", "Rate-limited requests running now",
+                    slots, semaphore -> maxConcurrent - semaphore.availablePermits());
+        }
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long sweepMillis = Math.max(1, properties.getSweepInterval().toMillis());
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public boolean isForwardedForTrusted() {
+        return properties.isTrustForwardedFor();
+    }
+
+    /**
+     * Tells clients apart by the first address in X-Forwarded-For if that is trusted, and by the
+     * connection's address otherwise.
+     *
+     * @param forwardedFor The X-Forwarded-For header, or null if there is none.
+     */
+    public String clientOf(String remoteAddress, String forwardedFor) {
+        if (isForwardedForTrusted() && forwardedFor != null) {
+            int comma = forwardedFor.indexOf(',');
+            String client = (comma < 0 ? forwardedFor : forwardedFor.substring(0, comma)).trim();
+            if (!client.isEmpty()) {
+                return client;
+            }
+        }
+        return remoteAddress;
+    }
+
+    /**
+     * Takes a token from the client's and the game's bucket of the endpoint group.
+     *
+     * @param gameId The game the request is for, or null if none.
+     * @throws TooManyRequestsException if either bucket is empty.
+     */
+    public void checkRate(RateLimitedEndpoint endpoint, String client, Long gameId) {
+        Group group = groups[endpoint.ordinal()];
+        long now = System.nanoTime();
+        if (group.clientRate != null) {
+            long wait = take(group.clients, client, group.clientRate, now);
+            if (wait > 0) {
+                throw reject(group, "client", wait, "Too many " + group.name + " requests from this client.");
+            }
+        }
+        if (group.gameRate != null && gameId != null) {
+            long wait = take(group.games, gameId, group.gameRate, now);
+            if (wait > 0) {
+                throw reject(group, "game", wait, "Too many " + group.name + " requests for game " + gameId + ".");
+            }
+        }
+    }
+
+    /**
+     * Takes one of the slots of the concurrency limit, waiting up to {@code maxQueueTime} for
+     * one. Every call that returns must be followed by {@link #release()}.
+     *
+     * @throws TooManyRequestsException if no slot became free in time.
+     */
+    public void acquire(RateLimitedEndpoint endpoint) {
+        if (slots == null) {
+            return;
+        }
+        if (slots.tryAcquire()) {
+            metrics.requestQueued(0);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean acquired = false;
+        try {
+            acquired = maxQueueNanos > 0 && slots.tryAcquire(maxQueueNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!acquired) {
+            Group group = groups[endpoint.ordinal()];
+            throw reject(group, "concurrency", maxQueueNanos, "The server is busy; too many requests are running.");
+        }
+        metrics.requestQueued(System.nanoTime() - start);
+    }
+
+    public void release() {
+        if (slots != null) {
+            slots.release();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    private static <K> long take(Map<K, TokenBucket> buckets, K key, TokenBucket.Rate rate, long now) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, ignored -> new TokenBucket(rate, now));
+        }
+        return bucket.tryTake(now);
+    }
+
+    private TooManyRequestsException reject(Group group, String limit, long waitNanos, String message) {
+        metrics.requestRejected(group.name, limit);
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        return new TooManyRequestsException(message, retryAfterSeconds);
+    }
+
+    /**
+     * Drops the buckets that have refilled. A request racing with the sweep may take its token
+     * from a bucket just dropped, and so get one token more than its limit, which is harmless.
+     */
+    private void sweep() {
+        try {
+            long now = System.nanoTime();
+            int dropped = 0;
+            for (Group group : groups) {
+                dropped += sweep(group.clients, now) + sweep(group.games, now);
+            }
+            if (dropped > 0) {
+                log.debug("Dropped {} refilled rate limit buckets.", dropped);
+            }
+        } catch (RuntimeException e) {
+            log.error("Rate limit bucket sweep failed.", e);
+        }
+    }
+
+    private static int sweep(Map<?, TokenBucket> buckets, long now) {
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+        return before - buckets.size();
+    }
+
+    /**
+     * The rates and buckets of one endpoint group; a null rate means its bucket is off.
+     */
+    private static final class Group {
+        private final String name;
+        private final TokenBucket.Rate clientRate;
+        private final TokenBucket.Rate gameRate;
+        private final Map<String, TokenBucket> clients = new ConcurrentHashMap<>();
+        private final Map<Long, TokenBucket> games = new ConcurrentHashMap<>();
+
+        Group(RateLimitedEndpoint endpoint, RateLimitProperties.Limit limit) {
+            this.name = endpoint.name().toLowerCase(Locale.ROOT);
+            this.clientRate = limit != null && limit.getClientRate() > 0
+                    ? new TokenBucket.Rate(limit.getClientRate(), limit.getClientBurst()) : null;
+            this.gameRate = limit != null && limit.getGameRate() > 0
+                    ? new TokenBucket.Rate(limit.getGameRate(), limit.getGameBurst()) : null;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.production.game2048.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * A token bucket kept as a single timestamp, so taking a token is one compare-and-set and no
+ * thread ever blocks on another.
+ *
+ * Instead of counting tokens, the bucket remembers when it would be empty if every token taken
+ * so far had been spaced out at the refill rate (the generic cell rate algorithm). A request is
+ * admitted while that moment lies less than a full bucket ahead of now, and pushes it one refill
+ * interval further. That admits the same requests as counting tokens refilled continuously.
+ */
+final class TokenBucket {
+
+    private static final AtomicLongFieldUpdater<TokenBucket> EMPTY_AT =
+            AtomicLongFieldUpdater.newUpdater(TokenBucket.class, "emptyAt");
+
+    private final Rate rate;
+    private volatile long emptyAt;
+
+    TokenBucket(Rate rate, long nowNanos) {
+        this.rate = rate;
+        this.emptyAt = nowNanos;
+    }
+
+    /**
+     * Takes a token if there is one.
+     *
+     * @return 0 if a token was taken, otherwise the nanoseconds until the next one is available.
+     */
+    long tryTake(long nowNanos) {
+        while (true) {
+            long current = emptyAt;
+            long start = Math.max(current, nowNanos);
+            long wait = start - rate.tolerance - nowNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (EMPTY_AT.compareAndSet(this, current, start + rate.interval)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @return true if the bucket has refilled completely, so dropping it changes nothing.
+     */
+    boolean isFull(long nowNanos) {
+        return emptyAt <= nowNanos;
+    }
+
+    /**
+     * A refill rate and bucket size, shared by every bucket of an endpoint group.
+     */
+    static final class Rate {
+        private final long interval;
+        private final long tolerance;
+
+        /**
+         * @param perSecond Tokens added per second.
+         * @param burst Tokens the bucket holds when full, at least 1.
+         */
+        Rate(double perSecond, int burst) {
+            if (!(perSecond > 0)) {
+                throw new IllegalArgumentException("A rate limit must allow more than 0 requests per second.");
+            }
+            this.interval = Math.max(1, Math.round(1e9 / perSecond));
+            this.tolerance = (Math.max(1, burst) - 1) * interval;
+        }
+    }
+}
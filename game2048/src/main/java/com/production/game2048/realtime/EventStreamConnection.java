@@ -0,0 +1,50 @@
+package com.production.game2048.realtime;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+/**
+ * A server-sent event stream as seen by the {@link GameUpdateHub}, the fallback for clients
+ * that cannot open a WebSocket. Those clients send their moves with the regular POST endpoints.
+ */
+public class EventStreamConnection implements GameConnection {
+
+    private final SseEmitter emitter;
+
+    /**
+     * Opens a stream without a servlet timeout; idle streams are closed by the hub instead.
+     */
+    public EventStreamConnection() {
+        this.emitter = new SseEmitter(0L);
+    }
+
+    public SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    /**
+     * Cancels the subscription when the client goes away or the stream fails.
+     */
+    public void bind(GameUpdateHub.Subscription subscription) {
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+    }
+
+    @Override
+    public void send(String message) throws IOException {
+        emitter.send(SseEmitter.event().name("game").data(message, MediaType.APPLICATION_JSON));
+    }
+
+    @Override
+    public void heartbeat() throws IOException {
+        emitter.send(SseEmitter.event().comment("heartbeat"));
+    }
+
+    @Override
+    public void close() {
+        emitter.complete();
+    }
+}
@@ -0,0 +1,25 @@
+package com.production.game2048.realtime;
+
+import java.io.IOException;
+
+/**
+ * One open channel to a client, a WebSocket session or a server-sent event stream.
+ * Calls are made by the {@link GameUpdateHub}'s sender threads, one at a time per connection.
+ */
+public interface GameConnection {
+
+    /**
+     * Sends one text message, a JSON {@link GameMessage}.
+     */
+    void send(String message) throws IOException;
+
+    /**
+     * Sends whatever keeps the connection alive and reveals a dead peer, e.g. a WebSocket ping.
+     */
+    void heartbeat() throws IOException;
+
+    /**
+     * Closes the connection. Must not throw, and may be called more than once.
+     */
+    void close();
+}
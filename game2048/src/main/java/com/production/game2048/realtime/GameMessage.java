@@ -0,0 +1,56 @@
+package com.production.game2048.realtime;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.production.game2048.exception.ApiErrorResponse;
+import com.production.game2048.model.GameDelta;
+import com.production.game2048.model.GameState;
+
+/**
+ * A message pushed to a game channel: either the game's current state or an error caused by
+ * the last frame the client sent. A state may come with the delta that led to it, which a client
+ * that has seen the previous state can animate instead of redrawing the board.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GameMessage {
+
+    private final String type;
+    private final GameState game;
+    private final GameDelta delta;
+    private final ApiErrorResponse error;
+
+    private GameMessage(String type, GameState game, GameDelta delta, ApiErrorResponse error) {
+        this.type = type;
+        this.game = game;
+        this.delta = delta;
+        this.error = error;
+    }
+
+    public static GameMessage state(GameState game) {
+        return state(game, null);
+    }
+
+    public static GameMessage state(GameState game, GameDelta delta) {
+        return new GameMessage("state", game, delta, null);
+    }
+
+    public static GameMessage error(ApiErrorResponse error) {
+        return new GameMessage("error", null, null, error);
+    }
+
+    // Getters
+    public String getType() {
+        return type;
+    }
+
+    public GameState getGame() {
+        return game;
+    }
+
+    public GameDelta getDelta() {
+        return delta;
+    }
+
+    public ApiErrorResponse getError() {
+        return error;
+    }
+}
@@ -0,0 +1,297 @@
+package com.production.game2048.realtime;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.production.game2048.metrics.GameMetrics;
+import com.production.game2048.model.GameState;
+import com.production.game2048.service.GameUpdatedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes game updates to every connection watching a game: the player's own tabs and any spectators.
+ *
+ * Each {@link GameUpdatedEvent} is serialised once and handed to the game's subscriptions, which
+ * write it on a small pool of sender threads, so a move never waits for a client. A subscription
+ * holds at most one pending state: a newer state replaces one that has not been sent yet, and an
+ * older one, published late by a concurrent move, is dropped. A slow client therefore skips
+ * intermediate states instead of building up a queue. A housekeeping thread closes connections
+ * that have been idle for {@code idleTimeout} and sends heartbeats to the others.
+ */
+@Component
+@EnableConfigurationProperties(RealtimeProperties.class)
+public class GameUpdateHub {
+
+    private static final Logger log = LoggerFactory.getLogger(GameUpdateHub.class);
+    private static final int MAX_PENDING_REPLIES = 16;
+
+    private final ObjectMapper objectMapper;
+    private final RealtimeProperties properties;
+    private final Map<Long, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final ExecutorService senders;
+    private final ScheduledExecutorService housekeeping;
+
+    @Autowired
+    public GameUpdateHub(ObjectMapper objectMapper, RealtimeProperties properties, GameMetrics metrics) {
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(Math.max(1, properties.getSenderThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "game-update-sender-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.housekeeping = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-update-housekeeping");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = properties.getHeartbeatInterval().toMillis();
+        housekeeping.scheduleWithFixedDelay(this::reapAndHeartbeat, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        metrics.gauge("game.realtime.connections", "Open WebSocket and event stream connections",
+                connections, AtomicInteger::get);
+    }
+
+    /**
+     * Starts pushing a game's updates to a connection, beginning with the given current state.
+     *
+     * @throws IllegalArgumentException if the game already has {@code maxConnectionsPerGame} connections.
+     */
+    public Subscription subscribe(GameState current, GameConnection connection) {
+        Subscription subscription = new Subscription(current.getId(), connection);
+        // Sets are only added and removed inside compute, so a subscription never lands in a dropped set.
+        subscriptions.compute(current.getId(), (id, watchers) -> {
+            if (watchers == null) {
+                watchers = ConcurrentHashMap.newKeySet();
+            } else if (watchers.size() >= properties.getMaxConnectionsPerGame()) {
+                throw new IllegalArgumentException("Game with ID " + id + " has too many open connections.");
+            }
+            watchers.add(subscription);
+            return watchers;
+        });
+        connections.incrementAndGet();
+        subscription.offerState(current.getMoveCount(), serialize(GameMessage.state(current)));
+        return subscription;
+    }
+
+    /**
+     * Forwards a changed game to everyone watching it.
+     */
+    @EventListener
+    public void onGameUpdated(GameUpdatedEvent event) {
+        GameState game = event.getGame();
+        Set<Subscription> watchers = subscriptions.get(game.getId());
+        if (watchers == null || watchers.isEmpty()) {
+            return;
+        }
+        String message = serialize(GameMessage.state(game, event.getDelta()));
+        for (Subscription subscription : watchers) {
+            subscription.offerState(game.getMoveCount(), message);
+        }
+    }
+
+    /**
+     * @return The number of open connections to one game.
+     */
+    public int connectionCount(long gameId) {
+        Set<Subscription> watchers = subscriptions.get(gameId);
+        return watchers == null ? 0 : watchers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        housekeeping.shutdownNow();
+        for (Set<Subscription> watchers : subscriptions.values()) {
+            for (Subscription subscription : watchers) {
+                subscription.cancel();
+            }
+        }
+        senders.shutdown();
+    }
+
+    String serialize(GameMessage message) {
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void reapAndHeartbeat() {
+        long cutoff = System.nanoTime() - properties.getIdleTimeout().toNanos();
+        for (Set<Subscription> watchers : subscriptions.values()) {
+            for (Subscription subscription : watchers) {
+                if (subscription.lastActivity - cutoff < 0) {
+                    log.debug("Closing idle connection to game {}.", subscription.gameId);
+                    subscription.cancel();
+                } else {
+                    subscription.heartbeat();
+                }
+            }
+        }
+    }
+
+    private void remove(Subscription subscription) {
+        subscriptions.computeIfPresent(subscription.gameId, (id, watchers) -> {
+            if (watchers.remove(subscription)) {
+                connections.decrementAndGet();
+            }
+            return watchers.isEmpty() ? null : watchers;
+        });
+    }
+
+    /**
+     * One connection's interest in one game. Writes to the connection happen on the sender
+     * threads, never two at a time.
+     */
+    public final class Subscription {
+
+        private final long gameId;
+        private final GameConnection connection;
+        private volatile long lastActivity = System.nanoTime();
+
+        // The fields below are guarded by this.
+        private final Queue<String> replies = new ArrayDeque<>();
+        private String pendingState;
+        private long latestMoveCount = -1;
+        private boolean heartbeatDue;
+        private boolean draining;
+        private boolean cancelled;
+
+        private Subscription(long gameId, GameConnection connection) {
+            this.gameId = gameId;
+            this.connection = connection;
+        }
+
+        public long getGameId() {
+            return gameId;
+        }
+
+        /**
+         * Records activity from the client, which keeps the connection from being reaped.
+         */
+        public void touch() {
+            lastActivity = System.nanoTime();
+        }
+
+        /**
+         * Sends a message to this connection only, e.g. the error caused by a frame it sent.
+         * Unlike states, such replies are never skipped.
+         */
+        public void reply(GameMessage message) {
+            String text = serialize(message);
+            synchronized (this) {
+                if (cancelled || replies.size() >= MAX_PENDING_REPLIES) {
+                    return; // A client that floods us with bad frames does not get every error back.
+                }
+                replies.add(text);
+            }
+            scheduleDrain();
+        }
+
+        /**
+         * Stops the updates and closes the connection.
+         */
+        public void cancel() {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+                replies.clear();
+                pendingState = null;
+            }
+            remove(this);
+            connection.close();
+        }
+
+        private void offerState(long moveCount, String message) {
+            synchronized (this) {
+                if (cancelled || moveCount <= latestMoveCount) {
+                    return; // Already sent or superseded by a newer state.
+                }
+                latestMoveCount = moveCount;
+                pendingState = message;
+            }
+            touch();
+            scheduleDrain();
+        }
+
+        private void heartbeat() {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                heartbeatDue = true;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            synchronized (this) {
+                if (draining || cancelled) {
+                    return;
+                }
+                draining = true;
+            }
+            try {
+                senders.execute(this::drain);
+            } catch (RuntimeException e) {
+                cancel(); // The hub is shutting down.
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                String message;
+                boolean sendHeartbeat;
+                synchronized (this) {
+                    message = replies.poll();
+                    if (message == null) {
+                        message = pendingState;
+                        pendingState = null;
+                    }
+                    sendHeartbeat = message == null && heartbeatDue;
+                    heartbeatDue = false;
+                    if (cancelled || (message == null && !sendHeartbeat)) {
+                        draining = false;
+                        return;
+                    }
+                }
+                try {
+                    if (message != null) {
+                        connection.send(message);
+                    } else {
+                        connection.heartbeat();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.debug("Dropping connection to game {}: {}", gameId, e.toString());
+                    synchronized (this) {
+                        draining = false;
+                    }
+                    cancel();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.production.game2048.realtime;
+
+import com.production.game2048.cluster.PeerClient;
+import com.production.game2048.exception.ApiErrorResponse;
+import com.production.game2048.exception.GameConflictException;
+import com.production.game2048.exception.GameNotFoundException;
+import com.production.game2048.exception.TooManyRequestsException;
+import com.production.game2048.model.GameState;
+import com.production.game2048.model.MoveDirection;
+import com.production.game2048.ratelimit.RateLimitedEndpoint;
+import com.production.game2048.ratelimit.RateLimiter;
+import com.production.game2048.service.GameService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * WebSocket endpoint for one game, at {@code /ws/games/{id}}.
+ *
+ * Every text frame the client sends is a sequence of move codes, e.g. "L" or "ULLDR", applied
+ * through {@link GameService#moveWithDeltas(Long, java.util.List)}. The resulting state is not
+ * answered directly but pushed by the {@link GameUpdateHub} to every connection watching the game,
+ * this one included, as a {@link GameMessage} carrying both the state and the moves' deltas. A frame that cannot be applied is answered with an
+ * error message to the sender only.
+ *
+ * Opening a connection counts against the {@link RateLimitedEndpoint#SUBSCRIBE} limits, and every
+ * frame against the {@link RateLimitedEndpoint#MOVE} limits of its client and game, as a POST would.
+ */
+@Component
+public class GameWebSocketHandler extends TextWebSocketHandler {
+
+    private static final String SUBSCRIPTION = GameWebSocketHandler.class.getName() + ".subscription";
+    private static final String CLIENT = GameWebSocketHandler.class.getName() + ".client";
+
+    private final GameService gameService;
+    private final GameUpdateHub hub;
+    private final RealtimeProperties properties;
+    private final RateLimiter rateLimiter;
+
+    @Autowired
+    public GameWebSocketHandler(GameService gameService, GameUpdateHub hub, RealtimeProperties properties,
+                                RateLimiter rateLimiter) {
+        this.gameService = gameService;
+        this.hub = hub;
+        this.properties = properties;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        long gameId;
+        GameState game;
+        try {
+            gameId = gameIdOf(session);
+            game = gameService.getGameState(gameId);
+        } catch (IllegalArgumentException | GameNotFoundException e) {
+            session.close(CloseStatus.POLICY_VIOLATION.withReason(e.getMessage()));
+            return;
+        }
+        String client = rateLimiter.clientOf(remoteAddressOf(session),
+                session.getHandshakeHeaders().getFirst(PeerClient.FORWARDED_FOR_HEADER));
+        session.getAttributes().put(CLIENT, client);
+        if (rateLimiter.isEnabled()) {
+            try {
+                rateLimiter.checkRate(RateLimitedEndpoint.SUBSCRIBE, client, gameId);
+            } catch (TooManyRequestsException e) {
+                session.close(CloseStatus.SERVICE_OVERLOAD.withReason(e.getMessage()));
+                return;
+            }
+        }
+        WebSocketSession concurrentSession = new ConcurrentWebSocketSessionDecorator(session,
+                (int) properties.getSendTimeLimit().toMillis(), properties.getSendBufferSize());
+        try {
+            session.getAttributes().put(SUBSCRIPTION, hub.subscribe(game, new Connection(concurrentSession)));
+        } catch (IllegalArgumentException e) {
+            session.close(CloseStatus.SERVICE_OVERLOAD.withReason(e.getMessage()));
+        }
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        GameUpdateHub.Subscription subscription = subscription(session);
+        if (subscription == null) {
+            return;
+        }
+        subscription.touch();
+        try {
+            move(session, subscription.getGameId(), message.getPayload());
+        } catch (TooManyRequestsException e) {
+            subscription.reply(GameMessage.error(error(HttpStatus.TOO_MANY_REQUESTS, e.getMessage())));
+        } catch (IllegalArgumentException e) {
+            subscription.reply(GameMessage.error(error(HttpStatus.BAD_REQUEST, e.getMessage())));
+        } catch (GameNotFoundException e) {
+            subscription.reply(GameMessage.error(error(HttpStatus.NOT_FOUND, e.getMessage())));
+        } catch (GameConflictException e) {
+            subscription.reply(GameMessage.error(error(HttpStatus.CONFLICT, e.getMessage())));
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        GameUpdateHub.Subscription subscription = subscription(session);
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    /**
+     * Applies a frame's moves under the same rate and concurrency limits as a POST of them.
+     */
+    private void move(WebSocketSession session, long gameId, String payload) {
+        if (!rateLimiter.isEnabled()) {
+            gameService.moveWithDeltas(gameId, MoveDirection.parseSequence(payload));
+            return;
+        }
+        rateLimiter.checkRate(RateLimitedEndpoint.MOVE, (String) session.getAttributes().get(CLIENT), gameId);
+        rateLimiter.acquire(RateLimitedEndpoint.MOVE);
+        try {
+            gameService.moveWithDeltas(gameId, MoveDirection.parseSequence(payload));
+        } finally {
+            rateLimiter.release();
+        }
+    }
+
+    private static GameUpdateHub.Subscription subscription(WebSocketSession session) {
+        return (GameUpdateHub.Subscription) session.getAttributes().get(SUBSCRIPTION);
+    }
+
+    private static long gameIdOf(WebSocketSession session) {
+        String path = session.getUri() == null ? "" : session.getUri().getPath();
+        try {
+            return Long.parseLong(path.substring(path.lastIndexOf('/') + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid game ID in " + path);
+        }
+    }
+
+    private static String remoteAddressOf(WebSocketSession session) {
+        InetSocketAddress address = session.getRemoteAddress();
+        if (address == null) {
+            return "unknown";
+        }
+        return address.getAddress() == null ? address.getHostString() : address.getAddress().getHostAddress();
+    }
+
+    private static ApiErrorResponse error(HttpStatus status, String message) {
+        return new ApiErrorResponse(status.value(), status.getReasonPhrase(), message);
+    }
+
+    /**
+     * A WebSocket session as seen by the hub. Heartbeats are WebSocket pings, which browsers
+     * answer automatically; they reveal dead connections but do not count as activity.
+     */
+    private static final class Connection implements GameConnection {
+
+        private final WebSocketSession session;
+
+        Connection(WebSocketSession session) {
+            this.session = session;
+        }
+
+        @Override
+        public void send(String message) throws IOException {
+            session.sendMessage(new TextMessage(message));
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+            session.sendMessage(new PingMessage(ByteBuffer.allocate(0)));
+        }
+
+        @Override
+        public void close() {
+            try {
+                session.close(CloseStatus.NORMAL);
+            } catch (IOException e) {
+                // The connection is gone either way.
+            }
+        }
+    }
+}
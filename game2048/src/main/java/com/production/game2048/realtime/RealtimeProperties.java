@@ -0,0 +1,90 @@
+package com.production.game2048.realtime;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration for the WebSocket and server-sent event game channels, bound from {@code game.realtime.*}.
+ */
+@ConfigurationProperties(prefix = "game.realtime")
+public class RealtimeProperties {
+
+    /**
+     * Connections with no message in either direction for this long are closed.
+     */
+    private Duration idleTimeout = Duration.ofMinutes(5);
+
+    /**
+     * How often idle connections are checked for and heartbeats are sent, so dead ones are noticed.
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(25);
+
+    /**
+     * A WebSocket send that takes longer than this closes the connection.
+     */
+    private Duration sendTimeLimit = Duration.ofSeconds(10);
+
+    /**
+     * Bytes that may be buffered for a slow WebSocket client before the connection is closed.
+     */
+    private int sendBufferSize = 64 * 1024;
+
+    /**
+     * Maximum number of connections, players and spectators together, watching one game.
+     */
+    private int maxConnectionsPerGame = 32;
+
+    /**
+     * Threads that write updates to the connections, so a slow client never delays a move.
+     */
+    private int senderThreads = 2;
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public Duration getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(Duration heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public Duration getSendTimeLimit() {
+        return sendTimeLimit;
+    }
+
+    public void setSendTimeLimit(Duration sendTimeLimit) {
+        this.sendTimeLimit = sendTimeLimit;
+    }
+
+    public int getSendBufferSize() {
+        return sendBufferSize;
+    }
+
+    public void setSendBufferSize(int sendBufferSize) {
+        this.sendBufferSize = sendBufferSize;
+    }
+
+    public int getMaxConnectionsPerGame() {
+        return maxConnectionsPerGame;
+    }
+
+    public void setMaxConnectionsPerGame(int maxConnectionsPerGame) {
+        this.maxConnectionsPerGame = maxConnectionsPerGame;
+    }
+
+    public int getSenderThreads() {
+        return senderThreads;
+    }
+
+    public void setSenderThreads(int senderThreads) {
+        this.senderThreads = senderThreads;
+    }
+}
@@ -0,0 +1,13 @@
+package com.production.game2048.repository;
+
+/**
+ * The columns of a game the leaderboard needs, read without loading the board.
+ */
+public interface GameScore {
+
+    Long getId();
+
+    int getBoardSize();
+
+    int getScore();
+}
@@ -0,0 +1,57 @@
+package com.production.game2048.repository;
+
+import com.production.game2048.model.GameState;
+import com.production.game2048.model.GameStatus;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Custom bulk operations for {@link GameState}, mixed into {@link GameStateRepository}.
+ */
+public interface GameStateBatchOperations {
+
+    /**
+     * Writes already persisted games back to the database in a single transaction.
+     * Unlike {@code saveAll}, no game is re-read before being updated, so the statements
+     * can be sent as one JDBC batch.
+     *
+     * @param games Detached games that must already exist in the database.
+     */
+    void updateAll(Collection<GameState> games);
+
+    /**
+     * Inserts new games in a single transaction. Their ids come from the pooled sequence without
+     * a round trip per game, so the INSERTs are sent as JDBC batches.
+     *
+     * @param games New games without ids; the ids are set on them.
+     */
+    void insertAll(List<GameState> games);
+
+    /**
+     * Deletes games in a single JDBC batch, each only if its row still has the game's version.
+     *
+     * @param games Games as they were read from the database.
+     * @return For each game, in order, whether its row was deleted.
+     */
+    boolean[] deleteAll(List<GameState> games);
+
+    /**
+     * Inserts a game under its own id and version, such as one brought back from the archive.
+     * {@code save} would give it a new id.
+     */
+    void restore(GameState game);
+
+    /**
+     * Passes every game matching the filters to the consumer in id order, reading them through a
+     * forward-only cursor {@code fetchSize} rows at a time, in one read-only transaction. Each game
+     * is detached from the persistence context once the consumer returns, so memory stays
+     * constant however many games there are.
+     *
+     * @param status Only games of this status, or null for all.
+     * @param boardSize Only games of this board size, or null for all.
+     * @return The number of games passed to the consumer.
+     */
+    long scan(GameStatus status, Integer boardSize, int fetchSize, Consumer<GameState> consumer);
+}
@@ -0,0 +1,133 @@
+package com.production.game2048.repository;
+
+import com.production.game2048.model.GameState;
+import com.production.game2048.model.GameStatus;
+import com.production.game2048.util.BinaryBoardConverter;
+import com.production.game2048.util.UndoHistoryConverter;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.jpa.TypedParameterValue;
+import org.hibernate.query.Query;
+import org.hibernate.type.BinaryType;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hibernate-backed implementation of {@link GameStateBatchOperations}.
+ * Spring Data picks this class up by its name and wires it into the repository proxy.
+ */
+public class GameStateBatchOperationsImpl implements GameStateBatchOperations {
+
+    private static final int INSERT_FLUSH_SIZE = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public void updateAll(Collection<GameState> games) {
+        // Session.update reattaches a detached entity without the SELECT that merge() issues.
+        Session session = entityManager.unwrap(Session.class);
+        for (GameState game : games) {
+            session.update(game);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void insertAll(List<GameState> games) {
+        for (int i = 0; i < games.size(); i++) {
+            entityManager.persist(games.get(i));
+            if ((i + 1) % INSERT_FLUSH_SIZE == 0) {
+                // Keeps the persistence context small; the inserts so far go out as batches.
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+    }
+
+    @Override
+    @Transactional
+    public boolean[] deleteAll(List<GameState> games) {
+        boolean[] deleted = new boolean[games.size()];
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "DELETE FROM game_state WHERE id = ? AND version = ?")) {
+                for (GameState game : games) {
+                    statement.setLong(1, game.getId());
+                    statement.setLong(2, game.getVersion());
+                    statement.addBatch();
+                }
+                int[] counts = statement.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    deleted[i] = counts[i] > 0;
+                }
+            }
+        });
+        return deleted;
+    }
+
+    @Override
+    @Transactional
+    public void restore(GameState game) {
+        entityManager.createNativeQuery("INSERT INTO game_state (id, version, board_data, board_size, score,"
+                        + " move_count, seed, rng_state, undo_history, updated_at, game_over, won)"
+                        + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")
+                .setParameter(1, game.getId())
+                .setParameter(2, game.getVersion())
+                .setParameter(3, new BinaryBoardConverter().convertToDatabaseColumn(game.getBoard()))
+                .setParameter(4, game.getBoardSize())
+                .setParameter(5, game.getScore())
+                .setParameter(6, game.getMoveCount())
+                .setParameter(7, game.getSeed())
+                .setParameter(8, game.getRngState())
+                .setParameter(9, new TypedParameterValue(BinaryType.INSTANCE,
+                        new UndoHistoryConverter().convertToDatabaseColumn(game.getUndoHistory())))
+                .setParameter(10, game.getUpdatedAt())
+                .setParameter(11, game.isGameOver())
+                .setParameter(12, game.isWon())
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long scan(GameStatus status, Integer boardSize, int fetchSize, Consumer<GameState> consumer) {
+        StringBuilder jpql = new StringBuilder("select g from GameState g where 1 = 1");
+        if (status == GameStatus.PLAYING) {
+            jpql.append(" and g.gameOver = false");
+        } else if (status == GameStatus.WON) {
+            jpql.append(" and g.won = true");
+        } else if (status == GameStatus.OVER) {
+            jpql.append(" and g.gameOver = true");
+        }
+        if (boardSize != null) {
+            jpql.append(" and g.boardSize = :boardSize");
+        }
+        jpql.append(" order by g.id asc");
+        Query<GameState> query = entityManager.unwrap(Session.class).createQuery(jpql.toString(), GameState.class)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE);
+        if (boardSize != null) {
+            query.setParameter("boardSize", boardSize);
+        }
+        long count = 0;
+        try (ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                GameState game = (GameState) results.get(0);
+                consumer.accept(game);
+                entityManager.detach(game);
+                count++;
+            }
+        }
+        return count;
+    }
+}
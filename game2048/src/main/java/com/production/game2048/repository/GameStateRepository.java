@@ -1,18 +1,70 @@
 package com.production.game2048.repository;
 
 import com.production.game2048.model.GameState;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Spring Data JPA repository for the {@link GameState} entity.
  *
  * This interface provides all standard CRUD (Create, Read, Update, Delete) operations
  * for GameState entities out-of-the-box. Spring Data JPA automatically implements
- * these methods at runtime.
+ * these methods at runtime. Batched writes come from {@link GameStateBatchOperations}.
  */
 @Repository
-public interface GameStateRepository extends JpaRepository<GameState, Long> {
+public interface GameStateRepository extends JpaRepository<GameState, Long>, GameStateBatchOperations {
     // No method declarations are needed for standard CRUD operations.
-    // We can add custom query methods here later if required.
+
+    /**
+     * Reads a game's move count without loading the rest of the row.
+     */
+    @Query("select g.moveCount from GameState g where g.id = :id")
+    Optional<Long> findMoveCountById(@Param("id") Long id);
+
+    /**
+     * Reads a game's board size and score without loading the rest of the row.
+     */
+    @Query("select g.id as id, g.boardSize as boardSize, g.score as score from GameState g where g.id = :id")
+    Optional<GameScore> findScoreById(@Param("id") Long id);
+
+    /**
+     * Lists the best games of one board size, highest score first and the older game first on a tie.
+     * Served by the (board_size, score) index.
+     */
+    @Query("select g.id as id, g.boardSize as boardSize, g.score as score from GameState g"
+            + " where g.boardSize = :boardSize order by g.score desc, g.id asc")
+    List<GameScore> findRanking(@Param("boardSize") int boardSize, Pageable pageable);
+
+    /**
+     * Counts the games of one board size that rank above the given score and id.
+     */
+    @Query("select count(g) from GameState g where g.boardSize = :boardSize"
+            + " and (g.score > :score or (g.score = :score and g.id < :id))")
+    long countRankedAbove(@Param("boardSize") int boardSize, @Param("score") int score, @Param("id") Long id);
+
+    /**
+     * Lists games that are ready for the archive, in id order starting after {@code afterId}:
+     * finished games last written before {@code finishedBefore}, and any game last written
+     * before {@code idleBefore}.
+     */
+    @Query("select g from GameState g where g.id > :afterId"
+            + " and ((g.gameOver = true and g.updatedAt < :finishedBefore) or g.updatedAt < :idleBefore)"
+            + " order by g.id asc")
+    List<GameState> findArchivable(@Param("afterId") long afterId, @Param("finishedBefore") long finishedBefore,
+                                   @Param("idleBefore") long idleBefore, Pageable pageable);
+
+    /**
+     * Lists the ids of the games after {@code afterId}, in ascending order.
+     */
+    @Query("select g.id from GameState g where g.id > :afterId order by g.id asc")
+    List<Long> findIdsAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("select distinct g.boardSize from GameState g")
+    List<Integer> findBoardSizes();
 }
\ No newline at end of file
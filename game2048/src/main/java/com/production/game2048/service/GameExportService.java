@@ -0,0 +1,40 @@
+package com.production.game2048.service;
+
+import com.production.game2048.model.ExportFormat;
+import com.production.game2048.model.GameStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Service interface for moving every game in or out at once, e.g. for analytics or to migrate
+ * games between environments. Both directions stream, so memory use does not grow with the
+ * number of games.
+ */
+public interface GameExportService {
+
+    /**
+     * Writes the complete state of every game matching the filters, in the database and in the
+     * archive. Games in the database come in id order, followed by the archived ones. Games that
+     * change while the export runs may be written as they were before or after the change.
+     *
+     * @param status Only games of this status, or null for all.
+     * @param boardSize Only games of this board size, or null for all.
+     * @return The number of games written.
+     * @throws IOException if the stream could not be written to.
+     */
+    long exportGames(GameStatus status, Integer boardSize, ExportFormat format, OutputStream out) throws IOException;
+
+    /**
+     * Stores games written by {@link #exportGames} as new games, with new ids, in batches.
+     * They keep their boards, scores, generators and undo histories, so they play on exactly as
+     * they would have where they were exported.
+     *
+     * @return The number of games imported.
+     * @throws IllegalArgumentException if the stream is malformed or holds an invalid game. The
+     *         batches stored before it are kept; the message says which game it was.
+     * @throws IOException if the stream could not be read.
+     */
+    long importGames(ExportFormat format, InputStream in) throws IOException;
+}
@@ -0,0 +1,293 @@
+package com.production.game2048.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.production.game2048.archive.GameArchive;
+import com.production.game2048.engine.BoardProperties;
+import com.production.game2048.leaderboard.Leaderboard;
+import com.production.game2048.metrics.GameMetrics;
+import com.production.game2048.metrics.PersistenceOperation;
+import com.production.game2048.model.ExportFormat;
+import com.production.game2048.model.GameRecord;
+import com.production.game2048.model.GameState;
+import com.production.game2048.model.GameStatus;
+import com.production.game2048.repository.GameStateRepository;
+import com.production.game2048.session.GameSessionStore;
+import com.production.game2048.util.BinaryBoardConverter;
+import com.production.game2048.util.UndoHistoryConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Implementation of the {@link GameExportService} interface.
+ *
+ * Exports read the database through a cursor {@value #FETCH_SIZE} rows at a time and the archive
+ * a member at a time, and write each game as it is read. Imports collect at most
+ * {@value #BATCH_SIZE} games, and at most {@value #BATCH_CELLS} board cells, before inserting
+ * them as one batch.
+ */
+@Service
+public class GameExportServiceImpl implements GameExportService {
+
+    static final int FETCH_SIZE = 500;
+    private static final int BATCH_SIZE = 500;
+    private static final int BATCH_CELLS = 1 << 20;
+
+    private final GameStateRepository gameStateRepository;
+    private final GameSessionStore sessionStore;
+    private final GameArchive archive;
+    private final Leaderboard leaderboard;
+    private final BoardProperties boardProperties;
+    private final GameMetrics metrics;
+    private final ObjectWriter recordWriter;
+    private final ObjectReader recordReader;
+
+    @Autowired
+    public GameExportServiceImpl(GameStateRepository gameStateRepository, GameSessionStore sessionStore,
+                                 GameArchive archive, Leaderboard leaderboard, BoardProperties boardProperties,
+                                 GameMetrics metrics, ObjectMapper objectMapper) {
+        this.gameStateRepository = gameStateRepository;
+        this.sessionStore = sessionStore;
+        this.archive = archive;
+        this.leaderboard = leaderboard;
+        this.boardProperties = boardProperties;
+        this.metrics = metrics;
+        this.recordWriter = objectMapper.writerFor(GameRecord.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(SerializationFeature.INDENT_OUTPUT);
+        this.recordReader = objectMapper.readerFor(GameRecord.class);
+    }
+
+    @Override
+    public long exportGames(GameStatus status, Integer boardSize, ExportFormat format, OutputStream out)
+            throws IOException {
+        // Cached games may be ahead of their rows.
+        sessionStore.flush();
+        GameSink sink = format == ExportFormat.NDJSON ? new NdjsonSink(out) : new BinarySink(out);
+        try {
+            long count = gameStateRepository.scan(status, boardSize, FETCH_SIZE, sink);
+            long[] archived = new long[1];
+            archive.forEachGame(game -> {
+                if ((boardSize == null || game.getBoardSize() == boardSize) && matches(game, status)) {
+                    sink.accept(game);
+                    archived[0]++;
+                }
+            });
+            sink.finish();
+            return count + archived[0];
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public long importGames(ExportFormat format, InputStream in) throws IOException {
+        ImportBatch batch = new ImportBatch();
+        if (format == ExportFormat.NDJSON) {
+            try (MappingIterator<GameRecord> records = recordReader.readValues(in)) {
+                while (records.hasNextValue()) {
+                    batch.add(records.nextValue());
+                }
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Game " + batch.position()
+                        + " of the import is not valid JSON: " + e.getOriginalMessage(), e);
+            }
+        } else {
+            try {
+                GameArchive.readMembers(in, games -> games.forEach(game -> batch.add(game)));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("The games could not be read: " + e.getMessage(), e);
+            }
+        }
+        batch.insert();
+        return batch.imported;
+    }
+
+    private static boolean matches(GameState game, GameStatus status) {
+        if (status == null) {
+            return true;
+        }
+        switch (status) {
+            case PLAYING:
+                return !game.isGameOver();
+            case WON:
+                return game.isWon();
+            case OVER:
+                return game.isGameOver();
+            default:
+                throw new IllegalArgumentException("Unknown status " + status);
+        }
+    }
+
+    /**
+     * Writes exported games to the response as they are read.
+     */
+    private interface GameSink extends Consumer<GameState> {
+        void finish() throws IOException;
+    }
+
+    private final class NdjsonSink implements GameSink {
+        private final JsonGenerator generator;
+        private final UndoHistoryConverter historyConverter = new UndoHistoryConverter();
+
+        NdjsonSink(OutputStream out) throws IOException {
+            this.generator = recordWriter.getFactory().createGenerator(out);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Each record ends its own line instead.
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void accept(GameState game) {
+            try {
+                recordWriter.writeValue(generator, GameRecord.of(game,
+                        historyConverter.convertToDatabaseColumn(game.getUndoHistory())));
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.close();
+        }
+    }
+
+    /**
+     * Groups the games into archive members of at most {@value #FETCH_SIZE} games and
+     * {@value #BATCH_CELLS} board cells.
+     */
+    private static final class BinarySink implements GameSink {
+        private final OutputStream out;
+        private final List<GameState> games = new ArrayList<>();
+        private long cells;
+
+        BinarySink(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void accept(GameState game) {
+            games.add(game);
+            cells += (long) game.getBoardSize() * game.getBoardSize();
+            if (games.size() >= FETCH_SIZE || cells >= BATCH_CELLS) {
+                try {
+                    writeMember();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (!games.isEmpty()) {
+                writeMember();
+            }
+            out.flush();
+        }
+
+        private void writeMember() throws IOException {
+            GameArchive.writeMember(out, games);
+            games.clear();
+            cells = 0;
+        }
+    }
+
+    /**
+     * Collects imported games, checking each, and inserts them a batch at a time.
+     */
+    private final class ImportBatch {
+        private final BinaryBoardConverter boardConverter = new BinaryBoardConverter();
+        private final UndoHistoryConverter historyConverter = new UndoHistoryConverter();
+        private final List<GameState> games = new ArrayList<>();
+        private long cells;
+        private long imported;
+
+        long position() {
+            return imported + games.size() + 1;
+        }
+
+        void add(GameRecord record) {
+            GameState game = new GameState();
+            game.setBoard(record.getBoard());
+            game.setScore(record.getScore());
+            game.setMoveCount(record.getMoveCount());
+            game.setGameOver(record.isGameOver());
+            game.setWon(record.isWon());
+            game.restoreRandom(record.getSeed(), record.getRngState());
+            try {
+                game.setUndoHistory(historyConverter.convertToEntityAttribute(record.getUndoHistory()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Game " + position() + " of the import is invalid. " + e.getMessage(), e);
+            }
+            add(game);
+        }
+
+        void add(GameState game) {
+            check(game, position());
+            games.add(game);
+            cells += (long) game.getBoardSize() * game.getBoardSize();
+            if (games.size() >= BATCH_SIZE || cells >= BATCH_CELLS) {
+                insert();
+            }
+        }
+
+        void insert() {
+            if (games.isEmpty()) {
+                return;
+            }
+            long start = System.nanoTime();
+            gameStateRepository.insertAll(games);
+            metrics.recordPersistence(PersistenceOperation.INSERT, start);
+            for (GameState game : games) {
+                leaderboard.update(game.getId(), game.getBoardSize(), game.getScore());
+            }
+            imported += games.size();
+            games.clear();
+            cells = 0;
+        }
+
+        private void check(GameState game, long position) {
+            // Whatever id and version the game had, it is inserted as a new game.
+            game.setId(null);
+            game.setVersion(0);
+            int[][] board = game.getBoard();
+            int maxSize = Math.min(boardProperties.getMaxSize(), BinaryBoardConverter.MAX_SIZE);
+            try {
+                if (board == null || board.length == 0 || board.length > maxSize) {
+                    throw new IllegalArgumentException("Its board must have between 1 and " + maxSize + " rows.");
+                }
+                for (int[] row : board) {
+                    if (row == null) {
+                        throw new IllegalArgumentException("Its board has a missing row.");
+                    }
+                }
+                // Rejects boards that are not square or hold tiles that are not powers of two.
+                boardConverter.convertToDatabaseColumn(board);
+                if (game.getScore() < 0 || game.getMoveCount() < 0) {
+                    throw new IllegalArgumentException("Its score and move count must not be negative.");
+                }
+                if (game.getUndoHistory() != null && game.getUndoHistory().getSize() != board.length) {
+                    throw new IllegalArgumentException("Its undo history is for another board size.");
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Game " + position + " of the import is invalid. " + e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.production.game2048.service;
 
+import com.production.game2048.model.GameDelta;
 import com.production.game2048.model.GameState;
+import com.production.game2048.model.MoveBatchResult;
 import com.production.game2048.model.MoveDirection;
 
+import java.util.List;
+
 /**
  * Service interface defining the core business logic for the 2048 game.
  * This contract separates the API definition from its implementation.
@@ -15,7 +19,29 @@ public interface GameService {
      * @param boardSize The dimension (YxY) of the new game board. Must be > 0.
      * @return The initial state of the newly created game.
      */
-    GameState startNewGame(int boardSize);
+    default GameState startNewGame(int boardSize) {
+        return startNewGame(boardSize, null);
+    }
+
+    /**
+     * Starts a new game whose tile spawns are drawn from a generator with the given seed.
+     * Two games with the same seed and the same moves end up with the same board.
+     *
+     * @param boardSize The dimension (YxY) of the new game board. Must be > 0.
+     * @param seed The seed of the game's random number generator, or null for a random one.
+     * @return The initial state of the newly created game.
+     */
+    GameState startNewGame(int boardSize, Long seed);
+
+    /**
+     * Starts many games with random seeds at once, inserting them in batches. The games are not
+     * cached, as they are typically created ahead of being played.
+     *
+     * @param count The number of games, between 1 and the batch limit.
+     * @param boardSize The dimension (YxY) of the new game boards. Must be > 0.
+     * @return The ids of the new games, in ascending order.
+     */
+    long[] startNewGames(int count, int boardSize);
 
     /**
      * Retrieves the current state of a game by its unique ID.
@@ -26,6 +52,16 @@ public interface GameService {
      */
     GameState getGameState(Long id);
 
+    /**
+     * Returns how many moves a game has seen, without loading or copying its board.
+     * The count changes with every move that changes the game, so it identifies a version of its state.
+     *
+     * @param id The ID of the game.
+     * @return The game's current move count.
+     * @throws com.production.game2048.exception.GameNotFoundException if no game with the given ID is found.
+     */
+    long getSequence(Long id);
+
     /**
      * Processes a player's move for a given game.
      * This is the core game mechanic, handling tile sliding, merging, and spawning new tiles.
@@ -36,4 +72,38 @@ public interface GameService {
      * @throws com.production.game2048.exception.GameNotFoundException if no game with the given ID is found.
      */
     GameState move(Long id, MoveDirection direction);
+
+    /**
+     * Applies a sequence of moves to a game in order, loading and saving it only once.
+     * Processing stops early if the game ends.
+     *
+     * @param id The ID of the game to apply the moves to.
+     * @param directions The moves to apply, in order. Must not be empty.
+     * @return The final GameState and the score earned by each applied move.
+     * @throws com.production.game2048.exception.GameNotFoundException if no game with the given ID is found.
+     */
+    MoveBatchResult move(Long id, List<MoveDirection> directions);
+
+    /**
+     * Applies a sequence of moves like {@link #move(Long, List)}, but describes the outcome as the
+     * tiles each move slid, merged and spawned instead of the final board.
+     *
+     * @param id The ID of the game to apply the moves to.
+     * @param directions The moves to apply, in order. Must not be empty.
+     * @return The changes made by each applied move, and the game's score and status after them.
+     * @throws com.production.game2048.exception.GameNotFoundException if no game with the given ID is found.
+     */
+    GameDelta moveWithDeltas(Long id, List<MoveDirection> directions);
+
+    /**
+     * Takes back the last move that changed a game, restoring its board, score and random number
+     * generator as they were before it. Up to the configured undo depth of moves can be taken
+     * back in a row. The move count still goes up, so every state keeps a distinct sequence number.
+     *
+     * @param id The ID of the game.
+     * @return The GameState as it was before the move.
+     * @throws com.production.game2048.exception.GameNotFoundException if no game with the given ID is found.
+     * @throws com.production.game2048.exception.UndoUnavailableException if there is no move left to take back.
+     */
+    GameState undo(Long id);
 }
\ No newline at end of file
@@ -1,235 +1,368 @@
 package com.production.game2048.service;
 
+import com.production.game2048.engine.BoardProperties;
+import com.production.game2048.engine.MoveEngine;
+import com.production.game2048.engine.MoveEngineSelector;
+import com.production.game2048.engine.MoveResult;
+import com.production.game2048.engine.MoveTracer;
 import com.production.game2048.exception.GameNotFoundException;
+import com.production.game2048.exception.UndoUnavailableException;
+import com.production.game2048.leaderboard.Leaderboard;
+import com.production.game2048.metrics.GameMetrics;
+import com.production.game2048.metrics.PersistenceOperation;
+import com.production.game2048.model.GameDelta;
 import com.production.game2048.model.GameState;
+import com.production.game2048.model.MoveBatchResult;
+import com.production.game2048.model.MoveDelta;
 import com.production.game2048.model.MoveDirection;
+import com.production.game2048.model.UndoHistory;
 import com.production.game2048.repository.GameStateRepository;
+import com.production.game2048.session.GameLocks;
+import com.production.game2048.session.GameSessionStore;
+import com.production.game2048.util.BinaryBoardConverter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
-import java.util.stream.Collectors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Implementation of the GameService interface.
- * Contains all core game logic for 2048.
+ * Games are read and changed through the {@link GameSessionStore}, which decides when they
+ * are written to the database. The tile rules are delegated to a {@link MoveEngine}:
+ * the bitboard engine for 4x4 games, the parallel engine for large boards and the generic
+ * engine for every other size. Batches of games and moves are limited by the number of board
+ * cells they touch, so the larger the board, the fewer fit into one request.
+ * Every change is announced with a {@link GameUpdatedEvent}, published after the game's lock
+ * is released, and every new score is passed on to the {@link Leaderboard} while it is held.
+ * The state before every move that changes the board is saved to the game's {@link UndoHistory}.
  */
 @Service
 public class GameServiceImpl implements GameService {
 
     private static final int WINNING_TILE = 2048;
+    private static final int MAX_BATCH_MOVES = 1000;
+    private static final int MAX_BATCH_GAMES = 10_000;
 
     private final GameStateRepository gameStateRepository;
-    private final Random random = new Random();
+    private final GameSessionStore sessionStore;
+    private final MoveEngineSelector moveEngineSelector;
+    private final GameLocks gameLocks;
+    private final GameMetrics metrics;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Leaderboard leaderboard;
+    private final BoardProperties boardProperties;
 
     @Autowired
-    public GameServiceImpl(GameStateRepository gameStateRepository) {
+    public GameServiceImpl(GameStateRepository gameStateRepository, GameSessionStore sessionStore,
+                           MoveEngineSelector moveEngineSelector, GameLocks gameLocks, GameMetrics metrics,
+                           ApplicationEventPublisher eventPublisher, Leaderboard leaderboard,
+                           BoardProperties boardProperties) {
         this.gameStateRepository = gameStateRepository;
+        this.sessionStore = sessionStore;
+        this.moveEngineSelector = moveEngineSelector;
+        this.gameLocks = gameLocks;
+        this.metrics = metrics;
+        this.eventPublisher = eventPublisher;
+        this.leaderboard = leaderboard;
+        this.boardProperties = boardProperties;
     }
 
     @Override
     @Transactional
-    public GameState startNewGame(int boardSize) {
+    public GameState startNewGame(int boardSize, Long seed) {
+        checkBoardSize(boardSize);
+        GameState newGame = newGame(boardSize, seed != null ? seed : ThreadLocalRandom.current().nextLong());
+
+        long start = System.nanoTime();
+        GameState saved = gameStateRepository.save(newGame);
+        metrics.recordPersistence(PersistenceOperation.INSERT, start);
+        metrics.gameStarted();
+        leaderboard.update(saved.getId(), boardSize, 0);
+        sessionStore.add(saved);
+        return saved.copy();
+    }
+
+    @Override
+    public long[] startNewGames(int count, int boardSize) {
+        if (count < 1 || count > MAX_BATCH_GAMES) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_BATCH_GAMES + " games can be started at once.");
+        }
+        checkBoardSize(boardSize);
+        if ((long) count * boardSize * boardSize > boardProperties.getMaxBatchCells()) {
+            throw new IllegalArgumentException("At most " + boardProperties.getMaxBatchCells() / (boardSize * boardSize)
+                    + " games of size " + boardSize + " can be started at once.");
+        }
+        List<GameState> games = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            games.add(newGame(boardSize, ThreadLocalRandom.current().nextLong()));
+        }
+
+        long start = System.nanoTime();
+        gameStateRepository.insertAll(games);
+        metrics.recordPersistence(PersistenceOperation.INSERT, start);
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = games.get(i).getId();
+            metrics.gameStarted();
+            leaderboard.update(ids[i], boardSize, 0);
+        }
+        return ids;
+    }
+
+    private void checkBoardSize(int boardSize) {
         if (boardSize <= 0) {
             throw new IllegalArgumentException("Board size must be positive.");
         }
+        int maxSize = Math.min(boardProperties.getMaxSize(), BinaryBoardConverter.MAX_SIZE);
+        if (boardSize > maxSize) {
+            throw new IllegalArgumentException("Board size must not exceed " + maxSize + ".");
+        }
+    }
+
+    /**
+     * Creates an unsaved game with its first two tiles.
+     */
+    private GameState newGame(int boardSize, long seed) {
         GameState newGame = new GameState();
         newGame.setBoard(new int[boardSize][boardSize]);
         newGame.setScore(0);
         newGame.setGameOver(false);
         newGame.setWon(false);
+        // Every game draws its tiles from its own generator, so no state is shared between requests.
+        newGame.seedRandom(seed);
 
         // Start with two random tiles
-        addRandomTile(newGame.getBoard());
-        addRandomTile(newGame.getBoard());
-
-        return gameStateRepository.save(newGame);
+        MoveEngine engine = moveEngineSelector.engineFor(newGame.getBoard());
+        engine.spawnTile(newGame.getBoard(), newGame.random());
+        engine.spawnTile(newGame.getBoard(), newGame.random());
+        return newGame;
     }
 
     @Override
-    @Transactional(readOnly = true)
     public GameState getGameState(Long id) {
-        return gameStateRepository.findById(id)
-                .orElseThrow(() -> new GameNotFoundException("Game with ID " + id + " not found."));
+        Lock lock = gameLocks.forGame(id);
+        lock.lock();
+        try {
+            return findGame(id).copy();
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
-    @Transactional
-    public GameState move(Long id, MoveDirection direction) {
-        GameState gameState = getGameState(id);
-
-        if (gameState.isGameOver()) {
-            return gameState; // No moves allowed if the game is over.
+    public long getSequence(Long id) {
+        Lock lock = gameLocks.forGame(id);
+        lock.lock();
+        try {
+            // A cached game may be ahead of its row; any other game's row is up to date.
+            // Without a row, the game may be archived and is restored like on any other read.
+            return sessionStore.findCached(id)
+                    .map(GameState::getMoveCount)
+                    .orElseGet(() -> gameStateRepository.findMoveCountById(id)
+                            .orElseGet(() -> findGame(id).getMoveCount()));
+        } finally {
+            lock.unlock();
         }
+    }
 
-        int[][] board = gameState.getBoard();
-        int boardSize = board.length;
-        // Create a deep copy to check if any tile has moved.
-        int[][] boardBeforeMove = Arrays.stream(board).map(int[]::clone).toArray(int[][]::new);
-        
-        int scoreFromMove = 0;
-
-        // Rationale: To keep the code DRY, all moves are transformed to a "LEFT" move.
-        // For example, a "RIGHT" move is a reversed board, moved "LEFT", then reversed back.
-        // An "UP" move is a transposed board, moved "LEFT", then transposed back.
-        switch (direction) {
-            case LEFT:
-                scoreFromMove = moveLeft(board);
-                break;
-            case RIGHT:
-                reverseRows(board);
-                scoreFromMove = moveLeft(board);
-                reverseRows(board);
-                break;
-            case UP:
-                transpose(board);
-                scoreFromMove = moveLeft(board);
-                transpose(board);
-                break;
-            case DOWN:
-                transpose(board);
-                reverseRows(board);
-                scoreFromMove = moveLeft(board);
-                reverseRows(board);
-                transpose(board);
-                break;
-        }
-
-        // Only add a new tile and update score if the board has changed.
-        if (!Arrays.deepEquals(board, boardBeforeMove)) {
-            gameState.setScore(gameState.getScore() + scoreFromMove);
-            addRandomTile(board);
-
-            // Check for win/loss conditions
-            if (!gameState.isWon() && hasTile(board, WINNING_TILE)) {
-                gameState.setWon(true);
-                // In classic 2048, you can continue playing after winning.
+    @Override
+    public GameState move(Long id, MoveDirection direction) {
+        // Moves to the same game are applied one at a time: the whole find-modify-write,
+        // including loading the game on a cache miss, happens under the game's lock.
+        GameState updated;
+        boolean changed = false;
+        Lock lock = gameLocks.forGame(id);
+        lock.lock();
+        try {
+            GameState gameState = findGame(id);
+            if (gameState.isGameOver()) {
+                return gameState.copy(); // No moves allowed if the game is over.
             }
-
-            if (!isMovePossible(board)) {
-                gameState.setGameOver(true);
+            if (applyMove(gameState, direction, new MoveResult())) {
+                sessionStore.markDirty(gameState);
+                changed = true;
             }
+            updated = gameState.copy();
+        } finally {
+            lock.unlock();
         }
-        
-        gameState.setBoard(board);
-        return gameStateRepository.save(gameState);
+        if (changed) {
+            eventPublisher.publishEvent(new GameUpdatedEvent(updated));
+        }
+        return updated;
     }
 
-    /**
-     * Adds a new tile (either 2 or 4) to a random empty cell on the board.
-     */
-    private void addRandomTile(int[][] board) {
-        List<int[]> emptyCells = new ArrayList<>();
-        for (int r = 0; r < board.length; r++) {
-            for (int c = 0; c < board[r].length; c++) {
-                if (board[r][c] == 0) {
-                    emptyCells.add(new int[]{r, c});
+    @Override
+    public MoveBatchResult move(Long id, List<MoveDirection> directions) {
+        checkBatch(directions);
+        MoveBatchResult batchResult;
+        boolean changed = false;
+        Lock lock = gameLocks.forGame(id);
+        lock.lock();
+        try {
+            GameState gameState = findGame(id);
+            checkBatchCells(directions, gameState);
+            int[] scores = new int[directions.size()];
+            int applied = 0;
+            MoveResult result = new MoveResult();
+            for (MoveDirection direction : directions) {
+                if (gameState.isGameOver()) {
+                    break;
                 }
+                changed |= applyMove(gameState, direction, result);
+                scores[applied++] = result.getScore();
             }
+            if (changed) {
+                sessionStore.markDirty(gameState);
+            }
+            batchResult = new MoveBatchResult(gameState.copy(), Arrays.copyOf(scores, applied));
+        } finally {
+            lock.unlock();
         }
-
-        if (!emptyCells.isEmpty()) {
-            int[] cell = emptyCells.get(random.nextInt(emptyCells.size()));
-            // 90% chance of 2, 10% chance of 4
-            board[cell[0]][cell[1]] = random.nextInt(10) == 0 ? 4 : 2;
+        if (changed) {
+            eventPublisher.publishEvent(new GameUpdatedEvent(batchResult.getGame()));
         }
+        return batchResult;
     }
 
-    /**
-     * Handles the core logic for sliding and merging tiles to the left for all rows.
-     * @return The score obtained from this move.
-     */
-    private int moveLeft(int[][] board) {
-        int score = 0;
-        for (int r = 0; r < board.length; r++) {
-            int[] row = board[r];
-            // 1. Filter out zeros
-            List<Integer> nonZeroTiles = Arrays.stream(row).filter(tile -> tile != 0).boxed().collect(Collectors.toList());
-
-            // 2. Merge adjacent tiles
-            List<Integer> mergedTiles = new ArrayList<>();
-            for (int i = 0; i < nonZeroTiles.size(); i++) {
-                if (i + 1 < nonZeroTiles.size() && nonZeroTiles.get(i).equals(nonZeroTiles.get(i + 1))) {
-                    int mergedValue = nonZeroTiles.get(i) * 2;
-                    mergedTiles.add(mergedValue);
-                    score += mergedValue;
-                    i++; // Skip the next tile as it has been merged
-                } else {
-                    mergedTiles.add(nonZeroTiles.get(i));
+    @Override
+    public GameDelta moveWithDeltas(Long id, List<MoveDirection> directions) {
+        checkBatch(directions);
+        GameDelta delta;
+        GameState updated = null;
+        Lock lock = gameLocks.forGame(id);
+        lock.lock();
+        try {
+            GameState gameState = findGame(id);
+            checkBatchCells(directions, gameState);
+            long baseSequence = gameState.getMoveCount();
+            List<MoveDelta> moves = new ArrayList<>();
+            MoveResult result = new MoveResult();
+            for (MoveDirection direction : directions) {
+                if (gameState.isGameOver()) {
+                    break;
+                }
+                // Traced on the board before the move; wasted work only for moves that change nothing.
+                MoveDelta move = new MoveDelta(direction);
+                MoveTracer.trace(gameState.getBoard(), direction, move);
+                if (applyMove(gameState, direction, result)) {
+                    move.setSequence(gameState.getMoveCount());
+                    move.setScoreDelta(result.getScore());
+                    if (result.getSpawnCell() >= 0) {
+                        move.setSpawn(result.getSpawnCell(), result.getSpawnTile());
+                    }
+                    moves.add(move);
                 }
             }
-
-            // 3. Create the new row and copy it back to the board
-            int[] newRow = new int[board.length];
-            for (int i = 0; i < mergedTiles.size(); i++) {
-                newRow[i] = mergedTiles.get(i);
+            if (!moves.isEmpty()) {
+                sessionStore.markDirty(gameState);
+                updated = gameState.copy();
             }
-            board[r] = newRow;
+            delta = new GameDelta(id, gameState.getBoard().length, baseSequence, gameState, moves);
+        } finally {
+            lock.unlock();
+        }
+        if (updated != null) {
+            eventPublisher.publishEvent(new GameUpdatedEvent(updated, delta));
         }
-        return score;
+        return delta;
     }
 
-    /**
-     * Transposes the board (rows become columns and vice-versa).
-     * This is an in-place operation.
-     */
-    private void transpose(int[][] board) {
-        for (int r = 0; r < board.length; r++) {
-            for (int c = r + 1; c < board.length; c++) {
-                int temp = board[r][c];
-                board[r][c] = board[c][r];
-                board[c][r] = temp;
+    @Override
+    public GameState undo(Long id) {
+        GameState updated;
+        Lock lock = gameLocks.forGame(id);
+        lock.lock();
+        try {
+            GameState gameState = findGame(id);
+            UndoHistory history = gameState.getUndoHistory();
+            if (history == null || !history.undo(gameState)) {
+                throw new UndoUnavailableException("Game with ID " + id + " has no move to undo.");
             }
+            gameState.setMoveCount(gameState.getMoveCount() + 1);
+            metrics.moveUndone();
+            leaderboard.update(gameState.getId(), gameState.getBoardSize(), gameState.getScore());
+            sessionStore.recordUndo(gameState);
+            sessionStore.markDirty(gameState);
+            updated = gameState.copy();
+        } finally {
+            lock.unlock();
         }
+        eventPublisher.publishEvent(new GameUpdatedEvent(updated));
+        return updated;
     }
 
-    /**
-     * Reverses each row of the board.
-     * This is an in-place operation.
-     */
-    private void reverseRows(int[][] board) {
-        for (int r = 0; r < board.length; r++) {
-            int left = 0;
-            int right = board[r].length - 1;
-            while (left < right) {
-                int temp = board[r][left];
-                board[r][left] = board[r][right];
-                board[r][right] = temp;
-                left++;
-                right--;
-            }
+    private static void checkBatch(List<MoveDirection> directions) {
+        if (directions.isEmpty()) {
+            throw new IllegalArgumentException("At least one move is required.");
+        }
+        if (directions.size() > MAX_BATCH_MOVES) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_MOVES + " moves can be sent at once.");
+        }
+    }
+
+    private void checkBatchCells(List<MoveDirection> directions, GameState gameState) {
+        int cells = gameState.getBoardSize() * gameState.getBoardSize();
+        if ((long) directions.size() * cells > boardProperties.getMaxBatchCells()) {
+            throw new IllegalArgumentException("At most " + boardProperties.getMaxBatchCells() / cells
+                    + " moves can be sent at once for a board of size " + gameState.getBoardSize() + ".");
         }
     }
 
     /**
-     * Checks if any valid moves are possible on the board.
-     * A move is possible if there is an empty cell or if there are adjacent tiles with the same value.
+     * Applies one move to a game. The caller must hold the game's lock.
+     *
+     * @return true if the board changed.
      */
-    private boolean isMovePossible(int[][] board) {
-        int size = board.length;
-        for (int r = 0; r < size; r++) {
-            for (int c = 0; c < size; c++) {
-                if (board[r][c] == 0) {
-                    return true; // An empty cell exists
-                }
-                // Check for horizontal merge
-                if (c < size - 1 && board[r][c] == board[r][c + 1]) {
-                    return true;
-                }
-                // Check for vertical merge
-                if (r < size - 1 && board[r][c] == board[r + 1][c]) {
-                    return true;
-                }
-            }
+    private boolean applyMove(GameState gameState, MoveDirection direction, MoveResult result) {
+        int[][] board = gameState.getBoard();
+        UndoHistory history = UndoHistory.of(gameState, sessionStore.getUndoDepth());
+        if (history != null) {
+            history.stage(gameState);
+        }
+        long start = System.nanoTime();
+        moveEngineSelector.engineFor(board).move(board, direction, gameState.random(), result);
+        metrics.moveComputed(System.nanoTime() - start);
+
+        // Only update the score and check for win/loss if the board has changed.
+        if (!result.isChanged()) {
+            return false;
+        }
+        if (history != null) {
+            history.commit();
         }
-        return false;
+        gameState.setMoveCount(gameState.getMoveCount() + 1);
+        metrics.moveApplied();
+        if (result.getScore() > 0) {
+            gameState.setScore(gameState.getScore() + result.getScore());
+            leaderboard.update(gameState.getId(), gameState.getBoardSize(), gameState.getScore());
+        }
+
+        if (!gameState.isWon() && result.getMaxTile() >= WINNING_TILE) {
+            gameState.setWon(true);
+            metrics.gameWon();
+            // In classic 2048, you can continue playing after winning.
+        }
+
+        if (!result.isMovePossible()) {
+            gameState.setGameOver(true);
+            metrics.gameFinished();
+        }
+        sessionStore.recordMove(gameState, direction, result);
+        return true;
     }
 
-    private boolean hasTile(int[][] board, int tileValue) {
-        return Arrays.stream(board).flatMapToInt(Arrays::stream).anyMatch(tile -> tile == tileValue);
+    /**
+     * Returns the live, cached instance of a game. The caller must hold the game's lock.
+     */
+    private GameState findGame(Long id) {
+        return sessionStore.find(id)
+                .orElseThrow(() -> new GameNotFoundException("Game with ID " + id + " not found."));
     }
 }
\ No newline at end of file
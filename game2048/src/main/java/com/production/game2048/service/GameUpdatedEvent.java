@@ -0,0 +1,38 @@
+package com.production.game2048.service;
+
+import com.production.game2048.model.GameDelta;
+import com.production.game2048.model.GameState;
+
+/**
+ * Published by {@link GameService} after one or more moves changed a game.
+ * Listeners run on the thread that made the move, after the game's lock was released,
+ * so they must not block.
+ */
+public class GameUpdatedEvent {
+
+    private final GameState game;
+    private final GameDelta delta;
+
+    public GameUpdatedEvent(GameState game) {
+        this(game, null);
+    }
+
+    public GameUpdatedEvent(GameState game, GameDelta delta) {
+        this.game = game;
+        this.delta = delta;
+    }
+
+    /**
+     * @return A copy of the game as it was right after the moves, safe to read from any thread.
+     */
+    public GameState getGame() {
+        return game;
+    }
+
+    /**
+     * @return The tiles the moves slid, merged and spawned, or null if the mover did not ask for them.
+     */
+    public GameDelta getDelta() {
+        return delta;
+    }
+}
@@ -0,0 +1,34 @@
+package com.production.game2048.service;
+
+import com.production.game2048.model.Hint;
+import com.production.game2048.model.MoveBatchResult;
+
+/**
+ * Service interface for move suggestions and computer play, backed by an expectimax search.
+ * Only standard 4x4 games are supported.
+ */
+public interface HintService {
+
+    /**
+     * Suggests the next move for a game.
+     *
+     * @param id The ID of the game.
+     * @param depth How many moves to look ahead, or null for the configured default.
+     * @return The suggested move and the expected value of every legal move.
+     * @throws com.production.game2048.exception.GameNotFoundException if no game with the given ID is found.
+     * @throws IllegalArgumentException if the depth is out of range or the game is not 4x4.
+     */
+    Hint hint(Long id, Integer depth);
+
+    /**
+     * Plays a number of moves for a game, each chosen by a search with the default depth.
+     * Stops early if the game ends or no move changes the board.
+     *
+     * @param id The ID of the game.
+     * @param moves The number of moves to play.
+     * @return The final GameState and the score earned by each move played.
+     * @throws com.production.game2048.exception.GameNotFoundException if no game with the given ID is found.
+     * @throws IllegalArgumentException if the number of moves is out of range or the game is not 4x4.
+     */
+    MoveBatchResult autoplay(Long id, int moves);
+}
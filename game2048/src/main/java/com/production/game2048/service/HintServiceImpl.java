@@ -0,0 +1,84 @@
+package com.production.game2048.service;
+
+import com.production.game2048.ai.AiProperties;
+import com.production.game2048.ai.ExpectimaxSearch;
+import com.production.game2048.ai.SearchResult;
+import com.production.game2048.engine.BitBoard;
+import com.production.game2048.model.GameState;
+import com.production.game2048.model.Hint;
+import com.production.game2048.model.MoveBatchResult;
+import com.production.game2048.model.MoveDirection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Implementation of the HintService interface.
+ * Searches run on a copy of the game, without holding the game's lock, so players keep moving
+ * while a hint is computed. Autoplay applies each chosen move through the {@link GameService},
+ * like any other move; if someone else moves in between, the next search simply starts from there.
+ */
+@Service
+public class HintServiceImpl implements HintService {
+
+    private final GameService gameService;
+    private final ExpectimaxSearch search;
+    private final AiProperties properties;
+
+    @Autowired
+    public HintServiceImpl(GameService gameService, ExpectimaxSearch search, AiProperties properties) {
+        this.gameService = gameService;
+        this.search = search;
+        this.properties = properties;
+    }
+
+    @Override
+    public Hint hint(Long id, Integer depth) {
+        int searchDepth = depth != null ? depth : properties.getDefaultDepth();
+        if (searchDepth < 1 || searchDepth > properties.getMaxDepth()) {
+            throw new IllegalArgumentException("Depth must be between 1 and " + properties.getMaxDepth() + ".");
+        }
+        SearchResult result = search(gameService.getGameState(id), searchDepth);
+
+        Map<MoveDirection, Float> values = new EnumMap<>(MoveDirection.class);
+        for (MoveDirection direction : MoveDirection.values()) {
+            float value = result.getValue(direction);
+            if (!Float.isNaN(value)) {
+                values.put(direction, value);
+            }
+        }
+        return new Hint(result.getDirection(), values, result.getDepth(), result.isTimedOut(),
+                result.getElapsed().toMillis());
+    }
+
+    @Override
+    public MoveBatchResult autoplay(Long id, int moves) {
+        if (moves < 1 || moves > properties.getMaxAutoplayMoves()) {
+            throw new IllegalArgumentException("Moves must be between 1 and " + properties.getMaxAutoplayMoves() + ".");
+        }
+        GameState game = gameService.getGameState(id);
+        int[] scores = new int[moves];
+        int played = 0;
+        while (played < moves && !game.isGameOver()) {
+            MoveDirection direction = search(game, properties.getDefaultDepth()).getDirection();
+            if (direction == null) {
+                break;
+            }
+            MoveBatchResult result = gameService.move(id, Collections.singletonList(direction));
+            game = result.getGame();
+            scores[played++] = result.getMoveScores().length > 0 ? result.getMoveScores()[0] : 0;
+        }
+        return new MoveBatchResult(game, Arrays.copyOf(scores, played));
+    }
+
+    private SearchResult search(GameState game, int depth) {
+        if (!BitBoard.canEncode(game.getBoard())) {
+            throw new IllegalArgumentException("Hints are only available for 4x4 games.");
+        }
+        return search.search(BitBoard.encode(game.getBoard()), depth, properties.getTimeBudget());
+    }
+}
@@ -0,0 +1,30 @@
+package com.production.game2048.service;
+
+import com.production.game2048.model.RankedGame;
+
+import java.util.List;
+
+/**
+ * Service interface for ranking games by score. Games are only compared with games of the same board size.
+ */
+public interface LeaderboardService {
+
+    /**
+     * Lists the best games of one board size.
+     *
+     * @param boardSize The board size to rank.
+     * @param limit The number of games to return.
+     * @return Up to {@code limit} games, highest score first. Ties go to the older game.
+     * @throws IllegalArgumentException if the limit is out of range.
+     */
+    List<RankedGame> top(int boardSize, int limit);
+
+    /**
+     * Finds a game's rank among the games of its board size.
+     *
+     * @param id The ID of the game.
+     * @return The game's rank and score.
+     * @throws com.production.game2048.exception.GameNotFoundException if no game with the given ID is found.
+     */
+    RankedGame rank(Long id);
+}
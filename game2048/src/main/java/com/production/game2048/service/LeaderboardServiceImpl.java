@@ -0,0 +1,60 @@
+package com.production.game2048.service;
+
+import com.production.game2048.archive.GameArchive;
+import com.production.game2048.exception.GameNotFoundException;
+import com.production.game2048.leaderboard.Leaderboard;
+import com.production.game2048.leaderboard.LeaderboardProperties;
+import com.production.game2048.model.RankedGame;
+import com.production.game2048.repository.GameScore;
+import com.production.game2048.repository.GameStateRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Implementation of the LeaderboardService interface.
+ * Everything is answered from the in-memory {@link Leaderboard}, except the rank of a game that
+ * scored too little to be held there, which is counted over the (board_size, score) index and
+ * the archived games. Such a rank reflects the database, which trails the live games in
+ * write-behind mode.
+ */
+@Service
+public class LeaderboardServiceImpl implements LeaderboardService {
+
+    private final Leaderboard leaderboard;
+    private final LeaderboardProperties properties;
+    private final GameStateRepository gameStateRepository;
+    private final GameArchive archive;
+
+    @Autowired
+    public LeaderboardServiceImpl(Leaderboard leaderboard, LeaderboardProperties properties,
+                                  GameStateRepository gameStateRepository, GameArchive archive) {
+        this.leaderboard = leaderboard;
+        this.properties = properties;
+        this.gameStateRepository = gameStateRepository;
+        this.archive = archive;
+    }
+
+    @Override
+    public List<RankedGame> top(int boardSize, int limit) {
+        if (limit < 1 || limit > properties.getMaxLimit()) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + properties.getMaxLimit() + ".");
+        }
+        return leaderboard.top(boardSize, limit);
+    }
+
+    @Override
+    public RankedGame rank(Long id) {
+        RankedGame ranked = leaderboard.rank(id);
+        if (ranked != null) {
+            return ranked;
+        }
+        GameScore game = gameStateRepository.findScoreById(id)
+                .orElseGet(() -> archive.findScore(id)
+                        .orElseThrow(() -> new GameNotFoundException("Game with ID " + id + " not found.")));
+        long above = gameStateRepository.countRankedAbove(game.getBoardSize(), game.getScore(), id)
+                + archive.countRankedAbove(game.getBoardSize(), game.getScore(), id);
+        return new RankedGame(above + 1, id, game.getBoardSize(), game.getScore());
+    }
+}
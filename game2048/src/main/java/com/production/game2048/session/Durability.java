@@ -0,0 +1,25 @@
+package com.production.game2048.session;
+
+/**
+ * How eagerly changes to cached games are written to the database.
+ */
+public enum Durability {
+
+    /**
+     * Every move is written before the response is returned. Nothing is lost on a crash.
+     */
+    SYNC,
+
+    /**
+     * Moves are written in batches by a background flusher. A crash loses at most one
+     * flush interval of moves.
+     */
+    WRITE_BEHIND,
+
+    /**
+     * Every move is appended to a memory-mapped move journal, and the full game is only
+     * written every {@code game.journal.snapshot-interval} moves. After a crash, the journal
+     * is replayed on top of the last written state.
+     */
+    JOURNAL
+}
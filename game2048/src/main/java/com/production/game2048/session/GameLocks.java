@@ -0,0 +1,95 @@
+package com.production.game2048.session;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed array of locks that games are mapped onto by id.
+ *
+ * Every read-modify-write of a game, and every snapshot taken for writing it, happens under the
+ * lock of its stripe, so moves to one game are applied one at a time even if the cached instance
+ * is evicted and reloaded in between. Games on different stripes never wait for each other, and
+ * the number of locks stays bounded however many games are active. Code that needs the locks of
+ * several games at once takes them through {@link #lockAll}, which always locks stripes in
+ * ascending order, so two such callers can never deadlock.
+ */
+@Component
+public class GameLocks {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    @Autowired
+    public GameLocks(SessionProperties properties) {
+        this(properties.getLockStripes());
+    }
+
+    GameLocks(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("The number of lock stripes must be positive.");
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return The lock guarding the game with the given id.
+     */
+    public Lock forGame(long id) {
+        return stripes[stripeOf(id)];
+    }
+
+    /**
+     * @return The locks guarding the given games, each once, in ascending stripe order.
+     */
+    public List<Lock> forGames(Collection<Long> ids) {
+        BitSet used = new BitSet(stripes.length);
+        for (long id : ids) {
+            used.set(stripeOf(id));
+        }
+        List<Lock> locks = new ArrayList<>(used.cardinality());
+        for (int stripe = used.nextSetBit(0); stripe >= 0; stripe = used.nextSetBit(stripe + 1)) {
+            locks.add(stripes[stripe]);
+        }
+        return locks;
+    }
+
+    /**
+     * Takes the locks of all the given games, in the order of {@link #forGames}.
+     *
+     * @return The locks taken, to be released with {@link #unlockAll}.
+     */
+    public List<Lock> lockAll(Collection<Long> ids) {
+        List<Lock> locks = forGames(ids);
+        for (Lock lock : locks) {
+            lock.lock();
+        }
+        return locks;
+    }
+
+    public static void unlockAll(List<Lock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+
+    private int stripeOf(long id) {
+        // Spread the bits, so consecutive ids land on different stripes and high bits count too.
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,654 @@
+package com.production.game2048.session;
+
+import com.production.game2048.archive.GameArchive;
+import com.production.game2048.engine.MoveResult;
+import com.production.game2048.exception.GameConflictException;
+import com.production.game2048.journal.GameJournal;
+import com.production.game2048.journal.JournalProperties;
+import com.production.game2048.journal.JournalRecovery;
+import com.production.game2048.metrics.GameMetrics;
+import com.production.game2048.metrics.PersistenceOperation;
+import com.production.game2048.model.GameState;
+import com.production.game2048.model.MoveDirection;
+import com.production.game2048.repository.GameStateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * A bounded in-memory store of active games, sitting in front of {@link GameStateRepository}.
+ *
+ * Games are loaded once and then read and mutated in memory. Callers must hold the game's lock
+ * from {@link GameLocks} while finding and changing it, and call {@link #markDirty(GameState)}
+ * afterwards. Depending on {@link Durability}, dirty games are written immediately, by a
+ * background flusher in batches, or every few moves with each move appended to the
+ * {@link GameJournal} in between. Writes are checked against the row's version; a game whose
+ * row was changed behind the store's back is discarded rather than overwriting that change.
+ * Least recently used games are evicted beyond {@code maxSize} games or {@code maxCells} board
+ * cells, idle games after {@code idleTimeout}; evicted games that are still dirty are kept aside
+ * until flushed.
+ * A game missing from the database is looked up in the {@link GameArchive} and, if found there,
+ * put back into the database before it is cached.
+ */
+@Component
+@EnableConfigurationProperties(SessionProperties.class)
+public class GameSessionStore {
+
+    private static final Logger log = LoggerFactory.getLogger(GameSessionStore.class);
+
+    private final GameStateRepository gameStateRepository;
+    private final SessionProperties properties;
+    private final GameLocks locks;
+    private final GameJournal journal;
+    private final JournalProperties journalProperties;
+    private final GameArchive archive;
+    private final GameMetrics metrics;
+
+    /** Access-ordered, so iteration starts at the least recently used game. Guarded by itself. */
+    private final LinkedHashMap<Long, Session> sessions;
+    /** The board cells of the games in {@link #sessions}. Guarded by sessions. */
+    private long cachedCells;
+    /** Games evicted while dirty, waiting for the next flush. */
+    private final Map<Long, Session> pendingFlush = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    /** Held while writing, so two writes of the same game never race on its version. */
+    private final Object flushLock = new Object();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedGames = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+
+    @Autowired
+    public GameSessionStore(GameStateRepository gameStateRepository, SessionProperties properties,
+                            GameLocks locks, GameJournal journal, JournalProperties journalProperties,
+                            JournalRecovery journalRecovery, GameArchive archive, GameMetrics metrics) {
+        this.gameStateRepository = gameStateRepository;
+        this.properties = properties;
+        this.locks = locks;
+        this.journal = journal;
+        this.journalProperties = journalProperties;
+        this.archive = archive;
+        this.metrics = metrics;
+        this.sessions = new LinkedHashMap<Long, Session>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Session> eldest) {
+                if (size() <= properties.getMaxSize()) {
+                    return false;
+                }
+                evicted(eldest.getValue());
+                return true;
+            }
+        };
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-session-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        registerMetrics();
+
+        long idleSweepMillis = Math.max(1000, properties.getIdleTimeout().toMillis() / 2);
+        flusher.scheduleWithFixedDelay(this::evictIdle, idleSweepMillis, idleSweepMillis, TimeUnit.MILLISECONDS);
+        long flushMillis = properties.getFlushInterval().toMillis();
+        if (properties.getDurability() == Durability.WRITE_BEHIND) {
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        } else if (properties.getDurability() == Durability.JOURNAL) {
+            journal.open();
+            journalRecovery.recover(Math.max(1, properties.getFlushBatchSize()));
+            journal.deleteSegmentsBefore(journal.currentSegment());
+            // Active games are written once they are snapshotInterval moves ahead of the database,
+            // evicted ones should not linger, and journal pages should reach the disk regularly.
+            flusher.scheduleWithFixedDelay(this::flushJournaledQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Returns the live, cached instance of a game, loading it from the database, or restoring it
+     * from the archive, on a miss.
+     */
+    public Optional<GameState> find(Long id) {
+        Session session;
+        synchronized (sessions) {
+            session = sessions.get(id);
+        }
+        if (session != null) {
+            hits.increment();
+            session.touch();
+            return Optional.of(session.state);
+        }
+
+        misses.increment();
+        Session pending = pendingFlush.get(id);
+        if (pending != null) {
+            return Optional.of(adopt(pending).state);
+        }
+        long start = System.nanoTime();
+        Optional<GameState> loaded = gameStateRepository.findById(id);
+        metrics.recordPersistence(PersistenceOperation.LOAD, start);
+        if (!loaded.isPresent()) {
+            loaded = restore(id);
+        }
+        return loaded.map(this::adoptLoaded);
+    }
+
+    /**
+     * Returns the live instance of a game if it is in memory, without loading it or counting a lookup.
+     */
+    public Optional<GameState> findCached(Long id) {
+        Session session;
+        synchronized (sessions) {
+            session = sessions.get(id);
+        }
+        if (session == null) {
+            session = pendingFlush.get(id);
+        }
+        return session == null ? Optional.empty() : Optional.of(session.state);
+    }
+
+    /**
+     * Registers a freshly persisted game, so its first moves don't hit the database.
+     */
+    public void add(GameState state) {
+        adopt(new Session(state));
+    }
+
+    /**
+     * Drops a game from memory without writing it, once it has been deleted from the database,
+     * such as after moving it to another node. Must be called while holding the game's lock.
+     */
+    public void forget(Long id) {
+        synchronized (sessions) {
+            Session session = sessions.remove(id);
+            if (session != null) {
+                cachedCells -= session.cells();
+            }
+        }
+        pendingFlush.remove(id);
+    }
+
+    /**
+     * Records that a cached game has changed. In {@link Durability#SYNC} mode it is written
+     * before this method returns. Must be called while holding the game's lock.
+     *
+     * @throws GameConflictException if the game's row was changed since it was loaded.
+     */
+    public void markDirty(GameState state) {
+        if (properties.getDurability() == Durability.SYNC) {
+            GameState snapshot = state.copy();
+            long start = System.nanoTime();
+            try {
+                gameStateRepository.updateAll(Collections.singletonList(snapshot));
+                metrics.recordPersistence(PersistenceOperation.UPDATE, start);
+            } catch (OptimisticLockingFailureException e) {
+                discard(state);
+                throw new GameConflictException("Game with ID " + state.getId() + " was changed concurrently.", e);
+            }
+            state.setVersion(snapshot.getVersion());
+            flushedGames.increment();
+            return;
+        }
+        synchronized (sessions) {
+            Session session = sessions.get(state.getId());
+            if (session != null && session.state == state) {
+                // Set under the sessions lock, so an eviction either sees the flag and hands the game
+                // over to pendingFlush, or has already happened and the game is kept below.
+                session.dirty = true;
+                return;
+            }
+        }
+        Session session = pendingFlush.get(state.getId());
+        if (session == null || session.state != state) {
+            // The game was dropped from the store while it was being changed; keep it until flushed.
+            session = new Session(state);
+        }
+        session.dirty = true;
+        pendingFlush.put(state.getId(), session);
+    }
+
+    /**
+     * Appends a move to the journal when running in {@link Durability#JOURNAL} mode, and does
+     * nothing otherwise. Must be called after the move was applied, while holding the game's lock.
+     */
+    public void recordMove(GameState state, MoveDirection direction, MoveResult result) {
+        if (properties.getDurability() != Durability.JOURNAL) {
+            return;
+        }
+        long start = System.nanoTime();
+        boolean rolled = journal.append(state.getId(), state.getMoveCount(), direction,
+                result.getSpawnCell(), result.getSpawnTile(), state.getScore(), state.isWon(), state.isGameOver());
+        metrics.recordPersistence(PersistenceOperation.JOURNAL, start);
+        if (rolled) {
+            flusher.execute(this::compactJournal);
+        }
+    }
+
+    /**
+     * Appends an undo to the journal when running in {@link Durability#JOURNAL} mode, and does
+     * nothing otherwise. Must be called after the undo, while holding the game's lock.
+     */
+    public void recordUndo(GameState state) {
+        if (properties.getDurability() != Durability.JOURNAL) {
+            return;
+        }
+        long start = System.nanoTime();
+        boolean rolled = journal.appendUndo(state.getId(), state.getMoveCount(), state.getScore(), state.isWon(),
+                state.isGameOver());
+        metrics.recordPersistence(PersistenceOperation.JOURNAL, start);
+        if (rolled) {
+            flusher.execute(this::compactJournal);
+        }
+    }
+
+    /**
+     * @return The number of moves of a game that can be undone, 0 if undo is turned off.
+     */
+    public int getUndoDepth() {
+        return properties.getUndoDepth();
+    }
+
+    /**
+     * Writes every dirty game to the database, in batches of {@code flushBatchSize}.
+     */
+    public void flush() {
+        List<Session> candidates = new ArrayList<>();
+        synchronized (sessions) {
+            for (Session session : sessions.values()) {
+                if (session.dirty) {
+                    candidates.add(session);
+                }
+            }
+        }
+        candidates.addAll(pendingFlush.values());
+        flush(candidates);
+    }
+
+    /**
+     * Writes those of the given games that are dirty.
+     *
+     * @return true if every write succeeded.
+     */
+    private boolean flush(List<Session> candidates) {
+        int batchSize = Math.max(1, properties.getFlushBatchSize());
+        List<Session> batch = new ArrayList<>(batchSize);
+        List<GameState> snapshots = new ArrayList<>(batchSize);
+        boolean success = true;
+        synchronized (flushLock) {
+            for (Session session : candidates) {
+                GameState snapshot = snapshot(session);
+                if (snapshot == null) {
+                    continue;
+                }
+                batch.add(session);
+                snapshots.add(snapshot);
+                if (batch.size() == batchSize) {
+                    success &= writeBatch(batch, snapshots);
+                }
+            }
+            if (!batch.isEmpty()) {
+                success &= writeBatch(batch, snapshots);
+            }
+        }
+        return success;
+    }
+
+    /**
+     * @return The current hit, miss, eviction and flush counters.
+     */
+    public SessionStats stats() {
+        int active;
+        int dirty = 0;
+        synchronized (sessions) {
+            active = sessions.size();
+            for (Session session : sessions.values()) {
+                if (session.dirty) {
+                    dirty++;
+                }
+            }
+        }
+        dirty += pendingFlush.size();
+        return new SessionStats(active, dirty, hits.sum(), misses.sum(), evictions.sum(),
+                flushes.sum(), flushedGames.sum(), flushFailures.sum());
+    }
+
+    /**
+     * Flushes everything that is still dirty before the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (properties.getDurability() == Durability.JOURNAL) {
+            compactJournal();
+        } else {
+            flush();
+        }
+    }
+
+    /**
+     * Publishes the store's size and counters; they are read when the metrics are scraped.
+     */
+    private void registerMetrics() {
+        metrics.gauge("game.sessions.active", "Games cached in memory", sessions, map -> {
+            synchronized (map) {
+                return map.size();
+            }
+        });
+        metrics.gauge("game.sessions.pending", "Evicted games waiting to be flushed", pendingFlush, Map::size);
+        metrics.functionCounter("game.sessions.lookups", "Session store lookups", hits, LongAdder::sum,
+                "result", "hit");
+        metrics.functionCounter("game.sessions.lookups", "Session store lookups", misses, LongAdder::sum,
+                "result", "miss");
+        metrics.functionCounter("game.sessions.evictions", "Games dropped from the cache", evictions, LongAdder::sum);
+        metrics.functionCounter("game.sessions.written", "Games written back to the database",
+                flushedGames, LongAdder::sum);
+        metrics.functionCounter("game.sessions.flush.failures", "Failed batch or single-game writes",
+                flushFailures, LongAdder::sum);
+    }
+
+    /**
+     * Moves an archived game back into the database. The caller holds the game's lock, which the
+     * archiver also takes, so the game cannot be archived again in between.
+     */
+    private Optional<GameState> restore(Long id) {
+        long start = System.nanoTime();
+        Optional<GameState> archived = archive.read(id);
+        if (!archived.isPresent()) {
+            return archived;
+        }
+        GameState game = archived.get();
+        // A fresh timestamp, so the game gets a full retention period before it is archived again.
+        game.setUpdatedAt(System.currentTimeMillis());
+        gameStateRepository.restore(game);
+        archive.remove(id);
+        metrics.recordPersistence(PersistenceOperation.RESTORE, start);
+        log.debug("Restored game {} from the archive.", id);
+        return archived;
+    }
+
+    private Session adopt(Session session) {
+        synchronized (sessions) {
+            Session existing = sessions.get(session.state.getId());
+            if (existing != null) {
+                // Another thread loaded the same game first; everyone must share one instance.
+                return existing;
+            }
+            session.touch();
+            cachedCells += session.cells();
+            sessions.put(session.state.getId(), session);
+            Iterator<Session> eldest = sessions.values().iterator();
+            while (cachedCells > properties.getMaxCells() && sessions.size() > 1) {
+                Session evicted = eldest.next();
+                eldest.remove();
+                evicted(evicted);
+            }
+        }
+        pendingFlush.remove(session.state.getId(), session);
+        return session;
+    }
+
+    private GameState adoptLoaded(GameState loaded) {
+        Session session = adopt(new Session(loaded));
+        if (session.state == loaded && loaded.isLegacyBoardMigrated()) {
+            // Rewrite rows still in the old text format the first time they are read.
+            Lock lock = locks.forGame(loaded.getId());
+            lock.lock();
+            try {
+                markDirty(loaded);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return session.state;
+    }
+
+    /**
+     * Takes a copy of a dirty game to write, under the game's lock, and clears its dirty flag.
+     *
+     * @return The copy, or null if the game is not dirty.
+     */
+    private GameState snapshot(Session session) {
+        Lock lock = locks.forGame(session.state.getId());
+        lock.lock();
+        try {
+            if (!session.dirty) {
+                return null;
+            }
+            session.dirty = false;
+            return session.state.copy();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Carries the version assigned by a successful write back to the cached game.
+     */
+    private void written(Session session, GameState snapshot) {
+        Lock lock = locks.forGame(session.state.getId());
+        lock.lock();
+        try {
+            session.state.setVersion(snapshot.getVersion());
+            session.savedMoveCount = snapshot.getMoveCount();
+            // Still under the game's lock, so a move marked dirty in between cannot be dropped here.
+            if (!session.dirty) {
+                pendingFlush.remove(session.state.getId(), session);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops a game whose row was changed behind the store's back, so the next request reloads it.
+     */
+    private void discard(GameState state) {
+        log.error("Game {} was changed in the database since it was loaded; discarding the cached copy.",
+                state.getId());
+        synchronized (sessions) {
+            Session session = sessions.get(state.getId());
+            if (session != null && session.state == state) {
+                sessions.remove(state.getId());
+                cachedCells -= session.cells();
+            }
+        }
+        Session pending = pendingFlush.get(state.getId());
+        if (pending != null && pending.state == state) {
+            pendingFlush.remove(state.getId(), pending);
+        }
+    }
+
+    private boolean writeBatch(List<Session> batch, List<GameState> snapshots) {
+        long start = System.nanoTime();
+        try {
+            gameStateRepository.updateAll(snapshots);
+            metrics.recordPersistence(PersistenceOperation.UPDATE, start);
+            flushes.increment();
+            flushedGames.add(snapshots.size());
+            for (int i = 0; i < batch.size(); i++) {
+                written(batch.get(i), snapshots.get(i));
+            }
+            return true;
+        } catch (OptimisticLockingFailureException e) {
+            // A batch does not say which row was stale, so write the games one by one.
+            flushFailures.increment();
+            for (Session session : batch) {
+                session.dirty = true;
+            }
+            boolean success = true;
+            for (Session session : batch) {
+                success &= writeOne(session);
+            }
+            return success;
+        } catch (RuntimeException e) {
+            flushFailures.increment();
+            log.error("Failed to flush {} games; they will be retried on the next flush.", snapshots.size(), e);
+            for (Session session : batch) {
+                session.dirty = true;
+            }
+            return false;
+        } finally {
+            batch.clear();
+            snapshots.clear();
+        }
+    }
+
+    private boolean writeOne(Session session) {
+        GameState snapshot = snapshot(session);
+        if (snapshot == null) {
+            return true;
+        }
+        long start = System.nanoTime();
+        try {
+            gameStateRepository.updateAll(Collections.singletonList(snapshot));
+            metrics.recordPersistence(PersistenceOperation.UPDATE, start);
+            flushedGames.increment();
+            written(session, snapshot);
+            return true;
+        } catch (OptimisticLockingFailureException e) {
+            discard(session.state);
+            return false;
+        } catch (RuntimeException e) {
+            log.error("Failed to flush game {}; it will be retried on the next flush.", session.state.getId(), e);
+            session.dirty = true;
+            return false;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Scheduled session flush failed.", e);
+        }
+    }
+
+    private void flushJournaledQuietly() {
+        try {
+            List<Session> candidates = new ArrayList<>();
+            int interval = journalProperties.getSnapshotInterval();
+            synchronized (sessions) {
+                for (Session session : sessions.values()) {
+                    // Read without the game's lock; a stale count only delays the snapshot to the next run.
+                    if (session.dirty && session.state.getMoveCount() - session.savedMoveCount >= interval) {
+                        candidates.add(session);
+                    }
+                }
+            }
+            candidates.addAll(pendingFlush.values());
+            flush(candidates);
+            if (!journalProperties.isFsync()) {
+                journal.force();
+            }
+        } catch (RuntimeException e) {
+            log.error("Scheduled flush of evicted games failed.", e);
+        }
+    }
+
+    /**
+     * Writes every game with journaled moves to the database and deletes the segments before the
+     * current one. Every active game is checked under its lock rather than trusting the dirty
+     * flag, since a move may have been journaled but not yet marked dirty.
+     */
+    private void compactJournal() {
+        try {
+            long segment = journal.currentSegment();
+            List<Session> candidates;
+            synchronized (sessions) {
+                candidates = new ArrayList<>(sessions.values());
+            }
+            candidates.addAll(pendingFlush.values());
+            for (Session session : candidates) {
+                Lock lock = locks.forGame(session.state.getId());
+                lock.lock();
+                try {
+                    if (session.state.getMoveCount() != session.savedMoveCount) {
+                        session.dirty = true;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            if (flush(candidates)) {
+                journal.deleteSegmentsBefore(segment);
+            }
+        } catch (RuntimeException e) {
+            log.error("Journal compaction failed; old segments are kept until the next one.", e);
+        }
+    }
+
+    private void evictIdle() {
+        long cutoff = System.nanoTime() - properties.getIdleTimeout().toNanos();
+        synchronized (sessions) {
+            Iterator<Session> iterator = sessions.values().iterator();
+            while (iterator.hasNext()) {
+                Session session = iterator.next();
+                // Access order means everything after the first recent game is recent too.
+                if (session.lastAccess - cutoff > 0) {
+                    break;
+                }
+                iterator.remove();
+                evicted(session);
+            }
+        }
+    }
+
+    /**
+     * Accounts for a game dropped from the cache. Called while holding the sessions lock.
+     */
+    private void evicted(Session session) {
+        cachedCells -= session.cells();
+        evictions.increment();
+        if (session.dirty) {
+            pendingFlush.put(session.state.getId(), session);
+        }
+    }
+
+    /**
+     * A cached game plus its bookkeeping.
+     */
+    private static final class Session {
+        private final GameState state;
+        private volatile boolean dirty;
+        private volatile long lastAccess;
+        /** The move count of the last state written to the database. Changed under the game's lock. */
+        private volatile long savedMoveCount;
+
+        Session(GameState state) {
+            this.state = state;
+            this.savedMoveCount = state.getMoveCount();
+        }
+
+        void touch() {
+            lastAccess = System.nanoTime();
+        }
+
+        long cells() {
+            return (long) state.getBoardSize() * state.getBoardSize();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.production.game2048.session;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration for the in-memory game session store, bound from {@code game.session.*}.
+ */
+@ConfigurationProperties(prefix = "game.session")
+public class SessionProperties {
+
+    /**
+     * Maximum number of games kept in memory. The least recently used game is evicted beyond this.
+     */
+    private int maxSize = 10_000;
+
+    /**
+     * Maximum number of board cells, summed over the games kept in memory. The least recently
+     * used games are evicted beyond this too, so a few large boards cannot exhaust the heap.
+     */
+    private long maxCells = 64L * 1024 * 1024;
+
+    /**
+     * Games not accessed for this long are evicted.
+     */
+    private Duration idleTimeout = Duration.ofMinutes(30);
+
+    /**
+     * Whether moves are written synchronously or batched by the background flusher.
+     */
+    private Durability durability = Durability.SYNC;
+
+    /**
+     * How often dirty games are flushed in write-behind mode, i.e. the most time that can be lost.
+     */
+    private Duration flushInterval = Duration.ofSeconds(1);
+
+    /**
+     * Number of games written per database transaction when flushing.
+     */
+    private int flushBatchSize = 100;
+
+    /**
+     * Number of locks that games are striped over. Moves to games on different stripes run in parallel.
+     */
+    private int lockStripes = 1024;
+
+    /**
+     * Number of moves of a game that can be undone, at most 64; 0 turns undo off. The states
+     * are kept with the cached game and written with it, for boards up to 16x16.
+     */
+    private int undoDepth = 8;
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public long getMaxCells() {
+        return maxCells;
+    }
+
+    public void setMaxCells(long maxCells) {
+        this.maxCells = maxCells;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    public void setDurability(Durability durability) {
+        this.durability = durability;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public int getFlushBatchSize() {
+        return flushBatchSize;
+    }
+
+    public void setFlushBatchSize(int flushBatchSize) {
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    public int getLockStripes() {
+        return lockStripes;
+    }
+
+    public void setLockStripes(int lockStripes) {
+        this.lockStripes = lockStripes;
+    }
+
+    public int getUndoDepth() {
+        return undoDepth;
+    }
+
+    public void setUndoDepth(int undoDepth) {
+        this.undoDepth = undoDepth;
+    }
+}
@@ -0,0 +1,61 @@
+package com.production.game2048.session;
+
+/**
+ * A point-in-time snapshot of the session store counters.
+ */
+public class SessionStats {
+
+    private final int activeGames;
+    private final int dirtyGames;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long flushes;
+    private final long flushedGames;
+    private final long flushFailures;
+
+    public SessionStats(int activeGames, int dirtyGames, long hits, long misses, long evictions,
+                        long flushes, long flushedGames, long flushFailures) {
+        this.activeGames = activeGames;
+        this.dirtyGames = dirtyGames;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.flushes = flushes;
+        this.flushedGames = flushedGames;
+        this.flushFailures = flushFailures;
+    }
+
+    // Getters
+    public int getActiveGames() {
+        return activeGames;
+    }
+
+    public int getDirtyGames() {
+        return dirtyGames;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getFlushes() {
+        return flushes;
+    }
+
+    public long getFlushedGames() {
+        return flushedGames;
+    }
+
+    public long getFlushFailures() {
+        return flushFailures;
+    }
+}
@@ -0,0 +1,154 @@
+package com.production.game2048.simulation;
+
+import com.production.game2048.ai.ExpectimaxSearch;
+import com.production.game2048.engine.BitBoard;
+import com.production.game2048.engine.MoveEngineSelector;
+import com.production.game2048.engine.MoveResult;
+import com.production.game2048.model.MoveDirection;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Factory and implementations of the built-in {@link MovePolicy} types.
+ */
+final class MovePolicies {
+
+    private static final MoveDirection[] DIRECTIONS = MoveDirection.values();
+    private static final MoveDirection[] CORNER_ORDER = {
+            MoveDirection.DOWN, MoveDirection.LEFT, MoveDirection.RIGHT, MoveDirection.UP
+    };
+    /** Expectimax moves are not time-boxed in a simulation; depth alone bounds them. */
+    private static final Duration UNBOUNDED = Duration.ofMinutes(1);
+
+    private MovePolicies() {
+    }
+
+    static MovePolicy create(PolicyType type, int depth, MoveEngineSelector engines, ExpectimaxSearch search) {
+        switch (type) {
+            case RANDOM:
+                return new RandomPolicy(engines);
+            case GREEDY:
+                return new GreedyPolicy(engines);
+            case CORNER:
+                return new CornerPolicy(engines);
+            case EXPECTIMAX:
+                return new ExpectimaxPolicy(engines, search, depth);
+            default:
+                throw new IllegalArgumentException("Unknown policy: " + type);
+        }
+    }
+
+    /**
+     * Base for policies that look one move ahead, sliding a scratch copy of the board.
+     */
+    private abstract static class LookAheadPolicy implements MovePolicy {
+        private final MoveEngineSelector engines;
+        private final MoveResult result = new MoveResult();
+        private int[][] scratch = new int[0][0];
+
+        LookAheadPolicy(MoveEngineSelector engines) {
+            this.engines = engines;
+        }
+
+        /**
+         * @return The score the move would earn, or -1 if it does not change the board.
+         */
+        int score(int[][] board, MoveDirection direction) {
+            int size = board.length;
+            if (scratch.length != size) {
+                scratch = new int[size][size];
+            }
+            for (int r = 0; r < size; r++) {
+                System.arraycopy(board[r], 0, scratch[r], 0, size);
+            }
+            engines.engineFor(scratch).slide(scratch, direction, result);
+            return result.isChanged() ? result.getScore() : -1;
+        }
+    }
+
+    private static final class RandomPolicy extends LookAheadPolicy {
+        private final MoveDirection[] order = DIRECTIONS.clone();
+
+        RandomPolicy(MoveEngineSelector engines) {
+            super(engines);
+        }
+
+        @Override
+        public MoveDirection choose(int[][] board, Random random) {
+            for (int i = order.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                MoveDirection swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+            for (MoveDirection direction : order) {
+                if (score(board, direction) >= 0) {
+                    return direction;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class GreedyPolicy extends LookAheadPolicy {
+        GreedyPolicy(MoveEngineSelector engines) {
+            super(engines);
+        }
+
+        @Override
+        public MoveDirection choose(int[][] board, Random random) {
+            MoveDirection best = null;
+            int bestScore = -1;
+            int ties = 0;
+            for (MoveDirection direction : DIRECTIONS) {
+                int score = score(board, direction);
+                if (score > bestScore) {
+                    best = direction;
+                    bestScore = score;
+                    ties = 1;
+                } else if (score == bestScore && score >= 0 && random.nextInt(++ties) == 0) {
+                    best = direction; // Reservoir sampling over equally good moves.
+                }
+            }
+            return best;
+        }
+    }
+
+    private static final class CornerPolicy extends LookAheadPolicy {
+        CornerPolicy(MoveEngineSelector engines) {
+            super(engines);
+        }
+
+        @Override
+        public MoveDirection choose(int[][] board, Random random) {
+            for (MoveDirection direction : CORNER_ORDER) {
+                if (score(board, direction) >= 0) {
+                    return direction;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class ExpectimaxPolicy implements MovePolicy {
+        private final CornerPolicy fallback;
+        private final ExpectimaxSearch search;
+        private final int depth;
+
+        ExpectimaxPolicy(MoveEngineSelector engines, ExpectimaxSearch search, int depth) {
+            this.fallback = new CornerPolicy(engines);
+            this.search = search;
+            this.depth = depth;
+        }
+
+        @Override
+        public MoveDirection choose(int[][] board, Random random) {
+            if (!BitBoard.canEncode(board)) {
+                // Past 16384 the packed board cannot represent the game any more.
+                return fallback.choose(board, random);
+            }
+            return search.search(BitBoard.encode(board), depth, UNBOUNDED).getDirection();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.production.game2048.simulation;
+
+import com.production.game2048.model.MoveDirection;
+
+import java.util.Random;
+
+/**
+ * Chooses the moves of a simulated game.
+ * A policy instance belongs to a single simulation worker and may keep scratch state.
+ */
+public interface MovePolicy {
+
+    /**
+     * @param board The current board; must not be modified.
+     * @param random The worker's random number generator, also used for spawning tiles.
+     * @return A move that changes the board, or null if there is none.
+     */
+    MoveDirection choose(int[][] board, Random random);
+}
@@ -0,0 +1,28 @@
+package com.production.game2048.simulation;
+
+/**
+ * The built-in move policies a simulation can play with.
+ */
+public enum PolicyType {
+
+    /**
+     * A uniformly random move among those that change the board.
+     */
+    RANDOM,
+
+    /**
+     * The move that scores the most right now, ties broken at random.
+     */
+    GREEDY,
+
+    /**
+     * The first move that changes the board in the order down, left, right, up,
+     * which keeps the largest tiles in the bottom-left corner.
+     */
+    CORNER,
+
+    /**
+     * The move chosen by an expectimax search. Only supported on 4x4 boards.
+     */
+    EXPECTIMAX
+}
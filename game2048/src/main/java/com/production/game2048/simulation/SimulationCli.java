@@ -0,0 +1,89 @@
+package com.production.game2048.simulation;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.production.game2048.ai.AiProperties;
+import com.production.game2048.ai.ExpectimaxSearch;
+import com.production.game2048.engine.BitBoardMoveEngine;
+import com.production.game2048.engine.GenericMoveEngine;
+import com.production.game2048.engine.MoveEngineSelector;
+
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Command-line entry point for simulations, without starting the web application or a database.
+ * Prints one JSON report per second and the final report to standard output.
+ *
+ * <pre>
+ * java -cp target/game2048-0.0.1-SNAPSHOT.jar \
+ *      -Dloader.main=com.production.game2048.simulation.SimulationCli \
+ *      org.springframework.boot.loader.PropertiesLauncher \
+ *      --games=1000000 --policy=corner --size=4 [--depth=2] [--seed=42] [--workers=8]
+ * </pre>
+ */
+public final class SimulationCli {
+
+    private SimulationCli() {
+    }
+
+    public static void main(String[] args) {
+        SimulationRequest request = new SimulationRequest();
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            if (option.length != 2) {
+                usage("Expected --name=value, got " + arg);
+            }
+            switch (option[0]) {
+                case "games":
+                    request.setGames(Long.parseLong(option[1]));
+                    break;
+                case "size":
+                    request.setBoardSize(Integer.parseInt(option[1]));
+                    break;
+                case "policy":
+                    request.setPolicy(PolicyType.valueOf(option[1].toUpperCase(Locale.ROOT)));
+                    break;
+                case "depth":
+                    request.setDepth(Integer.parseInt(option[1]));
+                    break;
+                case "seed":
+                    request.setSeed(Long.parseLong(option[1]));
+                    break;
+                case "workers":
+                    request.setWorkers(Integer.parseInt(option[1]));
+                    break;
+                default:
+                    usage("Unknown option " + arg);
+            }
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        ExpectimaxSearch search = new ExpectimaxSearch(new AiProperties());
+        SimulationRunner runner = new SimulationRunner(
+                new MoveEngineSelector(Arrays.asList(new BitBoardMoveEngine(), new GenericMoveEngine())),
+                search, new SimulationProperties());
+        try {
+            runner.run(request, report -> {
+                try {
+                    System.out.println(mapper.writeValueAsString(report));
+                } catch (JsonProcessingException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IllegalArgumentException e) {
+            usage(e.getMessage());
+        } finally {
+            runner.shutdown();
+            search.shutdown();
+        }
+    }
+
+    private static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println("Options: --games=N --size=N --policy=random|greedy|corner|expectimax"
+                + " --depth=N --seed=N --workers=N");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,90 @@
+package com.production.game2048.simulation;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Limits of the simulation endpoint, bound from {@code game.simulation.*}.
+ */
+@ConfigurationProperties(prefix = "game.simulation")
+public class SimulationProperties {
+
+    /**
+     * Most games a single run may play.
+     */
+    private long maxGames = 10_000_000;
+
+    /**
+     * Largest board a simulation may use.
+     */
+    private int maxBoardSize = 16;
+
+    /**
+     * Most worker threads a single run may ask for. Runs use one per processor by default.
+     */
+    private int maxWorkers = 64;
+
+    /**
+     * Number of runs that may execute at once; further requests are rejected.
+     */
+    private int maxConcurrentRuns = 1;
+
+    /**
+     * How often a progress report is streamed.
+     */
+    private Duration reportInterval = Duration.ofSeconds(1);
+
+    /**
+     * Longest a run may stream before the response is closed.
+     */
+    private Duration timeout = Duration.ofHours(1);
+
+    public long getMaxGames() {
+        return maxGames;
+    }
+
+    public void setMaxGames(long maxGames) {
+        this.maxGames = maxGames;
+    }
+
+    public int getMaxBoardSize() {
+        return maxBoardSize;
+    }
+
+    public void setMaxBoardSize(int maxBoardSize) {
+        this.maxBoardSize = maxBoardSize;
+    }
+
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    public void setMaxWorkers(int maxWorkers) {
+        this.maxWorkers = maxWorkers;
+    }
+
+    public int getMaxConcurrentRuns() {
+        return maxConcurrentRuns;
+    }
+
+    public void setMaxConcurrentRuns(int maxConcurrentRuns) {
+        this.maxConcurrentRuns = maxConcurrentRuns;
+    }
+
+    public Duration getReportInterval() {
+        return reportInterval;
+    }
+
+    public void setReportInterval(Duration reportInterval) {
+        this.reportInterval = reportInterval;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+}
@@ -0,0 +1,127 @@
+package com.production.game2048.simulation;
+
+import java.util.Map;
+
+/**
+ * Aggregate results of a simulation run so far. Reports are streamed while the run progresses;
+ * the last one has {@code finished} set.
+ */
+public class SimulationReport {
+
+    private final PolicyType policy;
+    private final int boardSize;
+    private final long seed;
+    private final long gamesRequested;
+    private final long gamesPlayed;
+    private final boolean finished;
+    private final long elapsedMillis;
+    private final double gamesPerSecond;
+    private final double movesPerSecond;
+    private final double meanScore;
+    private final long minScore;
+    private final long maxScore;
+    private final double meanMoves;
+    private final long minMoves;
+    private final long maxMoves;
+    private final Map<Long, Long> scoreHistogram;
+    private final Map<Long, Long> maxTileHistogram;
+
+    SimulationReport(SimulationRequest request, long seed, SimulationStats stats, boolean finished, long elapsedNanos) {
+        this.policy = request.getPolicy();
+        this.boardSize = request.getBoardSize();
+        this.seed = seed;
+        this.gamesRequested = request.getGames();
+        this.gamesPlayed = stats.games;
+        this.finished = finished;
+        this.elapsedMillis = elapsedNanos / 1_000_000;
+        double seconds = Math.max(elapsedNanos, 1) / 1e9;
+        this.gamesPerSecond = stats.games / seconds;
+        this.movesPerSecond = stats.totalMoves / seconds;
+        boolean any = stats.games > 0;
+        this.meanScore = any ? (double) stats.totalScore / stats.games : 0;
+        this.minScore = any ? stats.minScore : 0;
+        this.maxScore = stats.maxScore;
+        this.meanMoves = any ? (double) stats.totalMoves / stats.games : 0;
+        this.minMoves = any ? stats.minMoves : 0;
+        this.maxMoves = stats.maxMoves;
+        this.scoreHistogram = stats.scoreHistogram();
+        this.maxTileHistogram = stats.maxTileHistogram();
+    }
+
+    public PolicyType getPolicy() {
+        return policy;
+    }
+
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    /**
+     * @return The seed the run used; pass it again to replay the same games.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getGamesRequested() {
+        return gamesRequested;
+    }
+
+    public long getGamesPlayed() {
+        return gamesPlayed;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getGamesPerSecond() {
+        return gamesPerSecond;
+    }
+
+    public double getMovesPerSecond() {
+        return movesPerSecond;
+    }
+
+    public double getMeanScore() {
+        return meanScore;
+    }
+
+    public long getMinScore() {
+        return minScore;
+    }
+
+    public long getMaxScore() {
+        return maxScore;
+    }
+
+    public double getMeanMoves() {
+        return meanMoves;
+    }
+
+    public long getMinMoves() {
+        return minMoves;
+    }
+
+    public long getMaxMoves() {
+        return maxMoves;
+    }
+
+    /**
+     * @return Number of games per score range, keyed by the lowest score of each power-of-two range.
+     */
+    public Map<Long, Long> getScoreHistogram() {
+        return scoreHistogram;
+    }
+
+    /**
+     * @return Number of games by the largest tile reached.
+     */
+    public Map<Long, Long> getMaxTileHistogram() {
+        return maxTileHistogram;
+    }
+}
@@ -0,0 +1,75 @@
+package com.production.game2048.simulation;
+
+/**
+ * Parameters of a simulation run. Unset values fall back to the defaults below.
+ */
+public class SimulationRequest {
+
+    private long games = 10_000;
+    private int boardSize = 4;
+    private PolicyType policy = PolicyType.CORNER;
+
+    /**
+     * Search depth of the {@link PolicyType#EXPECTIMAX} policy.
+     */
+    private int depth = 2;
+
+    /**
+     * Seed of the run. Game n is always played with the same spawns, whatever the number of workers.
+     * Null for a random seed.
+     */
+    private Long seed;
+
+    /**
+     * Number of worker threads. Null for one per available processor.
+     */
+    private Integer workers;
+
+    public long getGames() {
+        return games;
+    }
+
+    public void setGames(long games) {
+        this.games = games;
+    }
+
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    public void setBoardSize(int boardSize) {
+        this.boardSize = boardSize;
+    }
+
+    public PolicyType getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(PolicyType policy) {
+        this.policy = policy;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    public Long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    public Integer getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(Integer workers) {
+        this.workers = workers;
+    }
+}
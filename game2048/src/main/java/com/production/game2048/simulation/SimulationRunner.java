@@ -0,0 +1,272 @@
+package com.production.game2048.simulation;
+
+import com.production.game2048.ai.ExpectimaxSearch;
+import com.production.game2048.engine.BitBoard;
+import com.production.game2048.engine.GameRandom;
+import com.production.game2048.engine.MoveEngine;
+import com.production.game2048.engine.MoveEngineSelector;
+import com.production.game2048.engine.MoveResult;
+import com.production.game2048.exception.SimulationBusyException;
+import com.production.game2048.model.MoveDirection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Plays games headlessly, in parallel, with the same move engines and spawn odds as real games.
+ *
+ * Nothing is persisted: each worker thread owns one board, one {@link GameRandom} and one
+ * {@link MovePolicy}, claims game numbers from a shared counter and keeps its own statistics,
+ * which it merges into the run's totals every {@value #MERGE_EVERY} games, or sooner when games are
+ * slow. Game n is seeded from the run's seed and n, so a run can be repeated exactly with any
+ * number of workers.
+ */
+@Component
+@EnableConfigurationProperties(SimulationProperties.class)
+public class SimulationRunner {
+
+    private static final int MERGE_EVERY = 64;
+
+    private final MoveEngineSelector moveEngineSelector;
+    private final ExpectimaxSearch search;
+    private final SimulationProperties properties;
+    private final Semaphore runs;
+    private final ExecutorService coordinators;
+
+    @Autowired
+    public SimulationRunner(MoveEngineSelector moveEngineSelector, ExpectimaxSearch search,
+                            SimulationProperties properties) {
+        this.moveEngineSelector = moveEngineSelector;
+        this.search = search;
+        this.properties = properties;
+        this.runs = new Semaphore(properties.getMaxConcurrentRuns());
+        this.coordinators = Executors.newCachedThreadPool(daemonThreads("simulation-coordinator"));
+    }
+
+    /**
+     * Runs a simulation on the calling thread.
+     *
+     * @param progress Receives a report every {@code reportInterval} and the final report.
+     *                 If it throws, the run is cancelled.
+     * @return The final report.
+     * @throws IllegalArgumentException if the request is out of range.
+     * @throws SimulationBusyException if too many runs are already executing.
+     */
+    public SimulationReport run(SimulationRequest request, Consumer<SimulationReport> progress) {
+        validate(request);
+        acquire();
+        try {
+            return execute(request, progress);
+        } finally {
+            runs.release();
+        }
+    }
+
+    /**
+     * Starts a simulation in the background. The request is validated, and a slot reserved,
+     * before this method returns.
+     *
+     * @see #run(SimulationRequest, Consumer)
+     */
+    public CompletableFuture<SimulationReport> submit(SimulationRequest request, Consumer<SimulationReport> progress) {
+        validate(request);
+        acquire();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return execute(request, progress);
+                } finally {
+                    runs.release();
+                }
+            }, coordinators);
+        } catch (RuntimeException e) {
+            runs.release();
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinators.shutdownNow();
+    }
+
+    private void validate(SimulationRequest request) {
+        if (request.getGames() < 1 || request.getGames() > properties.getMaxGames()) {
+            throw new IllegalArgumentException("Games must be between 1 and " + properties.getMaxGames() + ".");
+        }
+        if (request.getBoardSize() < 2 || request.getBoardSize() > properties.getMaxBoardSize()) {
+            throw new IllegalArgumentException("Board size must be between 2 and " + properties.getMaxBoardSize() + ".");
+        }
+        if (request.getPolicy() == null) {
+            throw new IllegalArgumentException("A policy is required.");
+        }
+        if (request.getPolicy() == PolicyType.EXPECTIMAX) {
+            if (request.getBoardSize() != BitBoard.SIZE) {
+                throw new IllegalArgumentException("The expectimax policy only plays 4x4 boards.");
+            }
+            if (request.getDepth() < 1) {
+                throw new IllegalArgumentException("Depth must be at least 1.");
+            }
+        }
+        if (request.getWorkers() != null
+                && (request.getWorkers() < 1 || request.getWorkers() > properties.getMaxWorkers())) {
+            throw new IllegalArgumentException("Workers must be between 1 and " + properties.getMaxWorkers() + ".");
+        }
+    }
+
+    private void acquire() {
+        if (!runs.tryAcquire()) {
+            throw new SimulationBusyException("Too many simulations are running; try again later.");
+        }
+    }
+
+    private SimulationReport execute(SimulationRequest request, Consumer<SimulationReport> progress) {
+        int workers = request.getWorkers() != null
+                ? request.getWorkers() : Runtime.getRuntime().availableProcessors();
+        long seed = request.getSeed() != null ? request.getSeed() : ThreadLocalRandom.current().nextLong();
+        SimulationStats totals = new SimulationStats();
+        AtomicLong nextGame = new AtomicLong();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(workers);
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers, daemonThreads("simulation-worker"));
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                futures.add(pool.submit(() -> {
+                    try {
+                        work(request, seed, nextGame, cancelled, totals);
+                    } finally {
+                        done.countDown();
+                    }
+                }));
+            }
+
+            long intervalNanos = properties.getReportInterval().toNanos();
+            while (!done.await(intervalNanos, TimeUnit.NANOSECONDS)) {
+                progress.accept(report(request, seed, totals, false, start));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            SimulationReport report = report(request, seed, totals, true, start);
+            progress.accept(report);
+            return report;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Simulation was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulation worker failed.", e.getCause());
+        } finally {
+            cancelled.set(true);
+            pool.shutdownNow();
+        }
+    }
+
+    private void work(SimulationRequest request, long seed, AtomicLong nextGame, AtomicBoolean cancelled,
+                      SimulationStats totals) {
+        int size = request.getBoardSize();
+        int[][] board = new int[size][size];
+        GameRandom random = new GameRandom(0);
+        MovePolicy policy = MovePolicies.create(request.getPolicy(), request.getDepth(), moveEngineSelector, search);
+        MoveResult result = new MoveResult();
+        SimulationStats local = new SimulationStats();
+        // Slow policies may take longer than a report interval to finish MERGE_EVERY games.
+        long mergeInterval = properties.getReportInterval().toNanos() / 2;
+        long lastMerge = System.nanoTime();
+
+        long game;
+        while (!cancelled.get() && (game = nextGame.getAndIncrement()) < request.getGames()) {
+            random.setSeed(gameSeed(seed, game));
+            for (int[] row : board) {
+                Arrays.fill(row, 0);
+            }
+            MoveEngine engine = moveEngineSelector.engineFor(board);
+            engine.spawnTile(board, random);
+            engine.spawnTile(board, random);
+
+            long score = 0;
+            long moves = 0;
+            int maxTile = 0;
+            for (int[] row : board) {
+                for (int tile : row) {
+                    maxTile = Math.max(maxTile, tile);
+                }
+            }
+            MoveDirection direction;
+            while ((direction = policy.choose(board, random)) != null) {
+                moveEngineSelector.engineFor(board).move(board, direction, random, result);
+                if (!result.isChanged()) {
+                    break; // The policy broke its contract; end the game rather than loop forever.
+                }
+                moves++;
+                score += result.getScore();
+                maxTile = Math.max(maxTile, result.getMaxTile());
+                if (!result.isMovePossible()) {
+                    break;
+                }
+            }
+
+            local.record(score, moves, maxTile);
+            if (local.games == MERGE_EVERY || System.nanoTime() - lastMerge >= mergeInterval) {
+                merge(totals, local);
+                lastMerge = System.nanoTime();
+            }
+        }
+        merge(totals, local);
+    }
+
+    private static void merge(SimulationStats totals, SimulationStats local) {
+        synchronized (totals) {
+            totals.merge(local);
+        }
+        local.reset();
+    }
+
+    private static SimulationReport report(SimulationRequest request, long seed, SimulationStats totals,
+                                           boolean finished, long start) {
+        synchronized (totals) {
+            return new SimulationReport(request, seed, totals, finished, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Derives an independent generator state for each game, so neighbouring games do not share
+     * shifted copies of one sequence.
+     */
+    private static long gameSeed(long seed, long game) {
+        long z = seed + (game + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,90 @@
+package com.production.game2048.simulation;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Running totals of finished games. Each worker fills its own instance and periodically
+ * merges it into the run's shared one, so workers never contend per game.
+ */
+final class SimulationStats {
+
+    private static final int BUCKETS = 64;
+
+    long games;
+    long totalScore;
+    long minScore = Long.MAX_VALUE;
+    long maxScore;
+    long totalMoves;
+    long minMoves = Long.MAX_VALUE;
+    long maxMoves;
+    /** Bucket 0 counts a score of 0, bucket i the scores in [2^(i-1), 2^i). */
+    final long[] scoreBuckets = new long[BUCKETS];
+    /** Indexed by the log2 exponent of the game's largest tile. */
+    final long[] maxTiles = new long[BUCKETS];
+
+    void record(long score, long moves, int maxTile) {
+        games++;
+        totalScore += score;
+        minScore = Math.min(minScore, score);
+        maxScore = Math.max(maxScore, score);
+        totalMoves += moves;
+        minMoves = Math.min(minMoves, moves);
+        maxMoves = Math.max(maxMoves, moves);
+        scoreBuckets[64 - Long.numberOfLeadingZeros(score)]++;
+        maxTiles[Integer.numberOfTrailingZeros(maxTile)]++;
+    }
+
+    void merge(SimulationStats other) {
+        games += other.games;
+        totalScore += other.totalScore;
+        minScore = Math.min(minScore, other.minScore);
+        maxScore = Math.max(maxScore, other.maxScore);
+        totalMoves += other.totalMoves;
+        minMoves = Math.min(minMoves, other.minMoves);
+        maxMoves = Math.max(maxMoves, other.maxMoves);
+        for (int i = 0; i < BUCKETS; i++) {
+            scoreBuckets[i] += other.scoreBuckets[i];
+            maxTiles[i] += other.maxTiles[i];
+        }
+    }
+
+    void reset() {
+        games = 0;
+        totalScore = 0;
+        minScore = Long.MAX_VALUE;
+        maxScore = 0;
+        totalMoves = 0;
+        minMoves = Long.MAX_VALUE;
+        maxMoves = 0;
+        Arrays.fill(scoreBuckets, 0);
+        Arrays.fill(maxTiles, 0);
+    }
+
+    /**
+     * @return The score histogram keyed by the lowest score of each non-empty bucket.
+     */
+    Map<Long, Long> scoreHistogram() {
+        Map<Long, Long> histogram = new TreeMap<>();
+        for (int i = 0; i < BUCKETS; i++) {
+            if (scoreBuckets[i] > 0) {
+                histogram.put(i == 0 ? 0 : 1L << (i - 1), scoreBuckets[i]);
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * @return The number of games by their largest tile.
+     */
+    Map<Long, Long> maxTileHistogram() {
+        Map<Long, Long> histogram = new TreeMap<>();
+        for (int i = 0; i < BUCKETS; i++) {
+            if (maxTiles[i] > 0) {
+                histogram.put(1L << i, maxTiles[i]);
+            }
+        }
+        return histogram;
+    }
+}
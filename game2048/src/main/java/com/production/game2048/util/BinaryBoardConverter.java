@@ -0,0 +1,120 @@
+package com.production.game2048.util;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * A JPA AttributeConverter to convert a 2D integer array (int[][])
+ * into a compact, versioned byte array for database persistence, and back.
+ *
+ * The format is a one byte format version, the board dimension as an unsigned
+ * big-endian short, then one byte per cell in row-major order holding the log2
+ * exponent of the tile (0 for an empty cell).
+ * Example: a 4x4 board is stored in 3 + 16 = 19 bytes.
+ */
+@Converter
+public class BinaryBoardConverter implements AttributeConverter<int[][], byte[]> {
+
+    /**
+     * The current format version, written as the first byte.
+     */
+    public static final byte FORMAT_VERSION = 1;
+
+    /**
+     * The largest board dimension the column can hold.
+     */
+    public static final int MAX_SIZE = 1024;
+
+    /**
+     * Number of bytes before the first cell.
+     */
+    public static final int HEADER_LENGTH = 3;
+
+    /**
+     * The maximum encoded length, used to size the database column.
+     */
+    public static final int MAX_LENGTH = HEADER_LENGTH + MAX_SIZE * MAX_SIZE;
+
+    /**
+     * Converts the 2D integer array into bytes for database storage.
+     *
+     * @param attribute The 2D array representing the game board.
+     * @return The encoded board, or null for a null board.
+     */
+    @Override
+    public byte[] convertToDatabaseColumn(int[][] attribute) {
+        if (attribute == null) {
+            return null;
+        }
+        int size = attribute.length;
+        if (size > MAX_SIZE) {
+            throw new IllegalArgumentException("Board size " + size + " exceeds the maximum of " + MAX_SIZE + ".");
+        }
+
+        byte[] data = new byte[HEADER_LENGTH + size * size];
+        data[0] = FORMAT_VERSION;
+        data[1] = (byte) (size >>> 8);
+        data[2] = (byte) size;
+        int offset = HEADER_LENGTH;
+        for (int[] row : attribute) {
+            if (row.length != size) {
+                throw new IllegalArgumentException("Board must be square.");
+            }
+            for (int tile : row) {
+                data[offset++] = (byte) exponentOf(tile);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Converts the bytes from the database back into a 2D integer array.
+     *
+     * @param dbData The encoded board from the database.
+     * @return A 2D integer array, or null if the input is null or empty.
+     */
+    @Override
+    public int[][] convertToEntityAttribute(byte[] dbData) {
+        if (dbData == null || dbData.length == 0) {
+            return null;
+        }
+        if (dbData[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported board format version " + dbData[0] + ".");
+        }
+        if (dbData.length < HEADER_LENGTH) {
+            throw new IllegalArgumentException("Failed to convert database data to board. Header is truncated.");
+        }
+        int size = ((dbData[1] & 0xFF) << 8) | (dbData[2] & 0xFF);
+        if (dbData.length != HEADER_LENGTH + size * size) {
+            throw new IllegalArgumentException("Failed to convert database data to board. Expected "
+                    + (HEADER_LENGTH + size * size) + " bytes but found " + dbData.length + ".");
+        }
+
+        int[][] board = new int[size][size];
+        int offset = HEADER_LENGTH;
+        for (int[] row : board) {
+            for (int c = 0; c < size; c++) {
+                int exponent = dbData[offset++];
+                if (exponent < 0 || exponent > 30) {
+                    throw new IllegalArgumentException("Failed to convert database data to board. Invalid tile exponent " + exponent + ".");
+                }
+                row[c] = exponent == 0 ? 0 : 1 << exponent;
+            }
+        }
+        return board;
+    }
+
+    /**
+     * @return The log2 exponent of a tile, or 0 for an empty cell.
+     * @throws IllegalArgumentException if the tile is not a power of two.
+     */
+    private static int exponentOf(int tile) {
+        if (tile == 0) {
+            return 0;
+        }
+        if (tile < 2 || (tile & (tile - 1)) != 0) {
+            throw new IllegalArgumentException("Tile value " + tile + " is not a power of two.");
+        }
+        return Integer.numberOfTrailingZeros(tile);
+    }
+}
@@ -0,0 +1,238 @@
+package com.production.game2048.util;
+
+import com.production.game2048.model.GameState;
+import com.production.game2048.model.MoveBatchResult;
+import com.production.game2048.model.MoveDirection;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes games in the compact {@code application/x-2048} format and reads move sequences in it,
+ * for bots and mobile clients that ask for it in their Accept or Content-Type header.
+ * JSON stays the default for every other client.
+ *
+ * All numbers are big-endian. A game is a 26-byte header followed by its tiles:
+ * <pre>
+ *  0  format version (1)
+ *  1  message type: 1 game state, 2 game state followed by move scores
+ *  2  flags: bit 0 game over, bit 1 won
+ *  3  bits per tile: 4 or 8
+ *  4  id (8 bytes)
+ * 12  move count (8 bytes)
+ * 20  score (4 bytes)
+ * 24  board dimension (2 bytes, unsigned)
+ * 26  the log2 exponent of every tile in row-major order, 0 for an empty cell
+ * </pre>
+ * Tiles take 4 bits each, two per byte with the first in the high half, as long as no tile is
+ * above 2^15, and a whole byte each otherwise. A 4x4 game thus takes 34 bytes. A move batch
+ * appends the number of moves applied (4 bytes) and the score of each (4 bytes each).
+ *
+ * A move sequence is the format version, the number of moves as an unsigned short, then two bits
+ * per move, four per byte with the first move in the highest bits: 0 UP, 1 DOWN, 2 LEFT, 3 RIGHT.
+ *
+ * Messages are encoded through a small pooled buffer straight into the response, so writing one
+ * allocates nothing once the pool is warm, on platform and virtual threads alike.
+ */
+public class BinaryGameMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    public static final String MEDIA_TYPE_VALUE = "application/x-2048";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    public static final byte FORMAT_VERSION = 1;
+    public static final byte TYPE_STATE = 1;
+    public static final byte TYPE_MOVE_BATCH = 2;
+    public static final int HEADER_LENGTH = 26;
+
+    private static final int MOVES_HEADER_LENGTH = 3;
+    private static final int BUFFER_SIZE = 8192;
+    /** Writes block on the client, so more of them than processors may be under way at once. */
+    private static final int POOLED_BUFFERS = 64;
+    private static final MoveDirection[] DIRECTIONS = MoveDirection.values();
+
+    private final ScratchPool<byte[]> buffers = new ScratchPool<>(POOLED_BUFFERS, () -> new byte[BUFFER_SIZE]);
+
+    public BinaryGameMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == GameState.class || clazz == MoveBatchResult.class || clazz == MoveDirection[].class;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return mediaType != null && super.canRead(mediaType);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return clazz == MoveDirection[].class && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return clazz != MoveDirection[].class && supports(clazz) && canWrite(mediaType);
+    }
+
+    @Override
+    protected Long getContentLength(Object message, MediaType contentType) {
+        if (message instanceof MoveBatchResult) {
+            MoveBatchResult batch = (MoveBatchResult) message;
+            return (long) stateLength(batch.getGame()) + 4 + 4L * batch.getMovesApplied();
+        }
+        return (long) stateLength((GameState) message);
+    }
+
+    /**
+     * Reads a move sequence.
+     *
+     * @throws IllegalArgumentException if the body is not a move sequence, answered with a 400.
+     */
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        byte[] data = StreamUtils.copyToByteArray(inputMessage.getBody());
+        if (data.length < MOVES_HEADER_LENGTH) {
+            throw new IllegalArgumentException("Move sequence is truncated.");
+        }
+        if (data[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported move sequence format version " + data[0] + ".");
+        }
+        int count = ((data[1] & 0xFF) << 8) | (data[2] & 0xFF);
+        if (data.length != MOVES_HEADER_LENGTH + (count + 3) / 4) {
+            throw new IllegalArgumentException("Move sequence of " + count + " moves does not match its "
+                    + data.length + " bytes.");
+        }
+        MoveDirection[] moves = new MoveDirection[count];
+        for (int i = 0; i < count; i++) {
+            int code = data[MOVES_HEADER_LENGTH + i / 4] >>> (6 - 2 * (i % 4));
+            moves[i] = DIRECTIONS[code & 3];
+        }
+        return moves;
+    }
+
+    @Override
+    protected void writeInternal(Object message, HttpOutputMessage outputMessage) throws IOException {
+        byte[] buffer = buffers.take();
+        try {
+            Encoder encoder = new Encoder(buffer, outputMessage.getBody());
+            if (message instanceof MoveBatchResult) {
+                MoveBatchResult batch = (MoveBatchResult) message;
+                writeState(encoder, TYPE_MOVE_BATCH, batch.getGame());
+                int[] scores = batch.getMoveScores();
+                encoder.putInt(scores.length);
+                for (int score : scores) {
+                    encoder.putInt(score);
+                }
+            } else {
+                writeState(encoder, TYPE_STATE, (GameState) message);
+            }
+            encoder.flush();
+        } finally {
+            buffers.give(buffer);
+        }
+    }
+
+    private static void writeState(Encoder encoder, byte type, GameState game) throws IOException {
+        int[][] board = game.getBoard();
+        int bits = bitsPerTile(board);
+        encoder.put(FORMAT_VERSION);
+        encoder.put(type);
+        encoder.put((game.isGameOver() ? 1 : 0) | (game.isWon() ? 2 : 0));
+        encoder.put(bits);
+        encoder.putLong(game.getId() != null ? game.getId() : 0);
+        encoder.putLong(game.getMoveCount());
+        encoder.putInt(game.getScore());
+        encoder.put(board.length >>> 8);
+        encoder.put(board.length);
+        if (bits == 8) {
+            for (int[] row : board) {
+                for (int tile : row) {
+                    encoder.put(exponentOf(tile));
+                }
+            }
+            return;
+        }
+        int pending = -1;
+        for (int[] row : board) {
+            for (int tile : row) {
+                if (pending < 0) {
+                    pending = exponentOf(tile) << 4;
+                } else {
+                    encoder.put(pending | exponentOf(tile));
+                    pending = -1;
+                }
+            }
+        }
+        if (pending >= 0) {
+            encoder.put(pending);
+        }
+    }
+
+    private static int stateLength(GameState game) {
+        int[][] board = game.getBoard();
+        int cells = board.length * board.length;
+        return HEADER_LENGTH + (bitsPerTile(board) == 4 ? (cells + 1) / 2 : cells);
+    }
+
+    /**
+     * @return 4 if every tile's exponent fits into four bits, 8 otherwise.
+     */
+    private static int bitsPerTile(int[][] board) {
+        int all = 0;
+        for (int[] row : board) {
+            for (int tile : row) {
+                all |= tile;
+            }
+        }
+        return all < 1 << 16 ? 4 : 8;
+    }
+
+    private static int exponentOf(int tile) {
+        return tile == 0 ? 0 : Integer.numberOfTrailingZeros(tile);
+    }
+
+    /**
+     * Collects bytes in a buffer and writes them to the stream whenever it is full.
+     */
+    private static final class Encoder {
+        private final byte[] buffer;
+        private final OutputStream out;
+        private int position;
+
+        Encoder(byte[] buffer, OutputStream out) {
+            this.buffer = buffer;
+            this.out = out;
+        }
+
+        void put(int value) throws IOException {
+            if (position == buffer.length) {
+                flush();
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void putInt(int value) throws IOException {
+            put(value >>> 24);
+            put(value >>> 16);
+            put(value >>> 8);
+            put(value);
+        }
+
+        void putLong(long value) throws IOException {
+            putInt((int) (value >>> 32));
+            putInt((int) value);
+        }
+
+        void flush() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
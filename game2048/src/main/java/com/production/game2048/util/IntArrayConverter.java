@@ -12,12 +12,15 @@ import java.util.stream.Collectors;
  *
  * The format is: rows separated by semicolons (;), and columns by commas (,).
  * Example: "2,0,0,0;4,0,2,0;0,0,0,0;0,0,4"
+ *
+ * This is the legacy storage format. Boards are now written with {@link BinaryBoardConverter};
+ * this converter is only used to read rows saved before the switch, see GameState#migrateLegacyBoard.
  */
 @Converter
 public class IntArrayConverter implements AttributeConverter<int[][], String> {
 
-    private static final String ROW_SEPARATOR = ";";
-    private static final String COLUMN_SEPARATOR = ",";
+    private static final char ROW_SEPARATOR = ';';
+    private static final char COLUMN_SEPARATOR = ',';
 
     /**
      * Converts the 2D integer array into a String for database storage.
@@ -36,8 +39,8 @@ public class IntArrayConverter implements AttributeConverter<int[][], String> {
         return Arrays.stream(attribute)
                 .map(row -> Arrays.stream(row)
                         .mapToObj(String::valueOf)
-                        .collect(Collectors.joining(COLUMN_SEPARATOR)))
-                .collect(Collectors.joining(ROW_SEPARATOR));
+                        .collect(Collectors.joining(String.valueOf(COLUMN_SEPARATOR))))
+                .collect(Collectors.joining(String.valueOf(ROW_SEPARATOR)));
     }
 
     /**
@@ -53,17 +56,60 @@ public class IntArrayConverter implements AttributeConverter<int[][], String> {
             return null;
         }
 
-        try {
-            return Arrays.stream(dbData.split(ROW_SEPARATOR))
-                    .map(row -> Arrays.stream(row.split(COLUMN_SEPARATOR))
-                            // This will throw NumberFormatException for malformed data, which is handled below.
-                            .mapToInt(Integer::parseInt)
-                            .toArray())
-                    .toArray(int[][]::new);
-        } catch (NumberFormatException e) {
-            // If the data is corrupted (e.g., contains non-integer values),
-            // throw a specific exception. This prevents the application from proceeding with a corrupt state.
-            throw new IllegalArgumentException("Failed to convert database data to board. Invalid number format.", e);
+        // Scan the characters directly, so legacy rows load without split(), streams or boxing.
+        int rows = 1;
+        for (int i = 0; i < dbData.length(); i++) {
+            if (dbData.charAt(i) == ROW_SEPARATOR) {
+                rows++;
+            }
+        }
+        int[][] board = new int[rows][];
+        int position = 0;
+        for (int r = 0; r < rows; r++) {
+            int rowEnd = dbData.indexOf(ROW_SEPARATOR, position);
+            if (rowEnd < 0) {
+                rowEnd = dbData.length();
+            }
+            int columns = 1;
+            for (int i = position; i < rowEnd; i++) {
+                if (dbData.charAt(i) == COLUMN_SEPARATOR) {
+                    columns++;
+                }
+            }
+            int[] row = new int[columns];
+            for (int c = 0; c < columns; c++) {
+                int cellEnd = dbData.indexOf(COLUMN_SEPARATOR, position);
+                if (cellEnd < 0 || cellEnd > rowEnd) {
+                    cellEnd = rowEnd;
+                }
+                row[c] = parseCell(dbData, position, cellEnd);
+                position = cellEnd + 1;
+            }
+            board[r] = row;
+            position = rowEnd + 1;
+        }
+        return board;
+    }
+
+    /**
+     * Parses a non-negative decimal number from a region of the string.
+     */
+    private static int parseCell(String dbData, int start, int end) {
+        while (start < end && dbData.charAt(start) == ' ') {
+            start++;
+        }
+        if (start == end) {
+            // If the data is corrupted, throw a specific exception.
+            // This prevents the application from proceeding with a corrupt state.
+            throw new IllegalArgumentException("Failed to convert database data to board. Invalid number format.");
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = dbData.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || (value = value * 10 + digit) > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Failed to convert database data to board. Invalid number format.");
+            }
         }
+        return (int) value;
     }
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.production.game2048.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * A small pool of reusable working buffers.
+ *
+ * Takes the place of a {@link ThreadLocal} for code that may run on virtual threads, which are
+ * started per request, so a thread-local buffer would be allocated for every request and never
+ * reused. Buffers are taken and given back without locking. When every slot is empty a new buffer
+ * is made, and a buffer given back to a full pool is dropped, so the pool never blocks and never
+ * holds more than its capacity.
+ */
+public final class ScratchPool<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final Supplier<T> factory;
+
+    /**
+     * @param capacity The number of buffers kept. Enough for the threads that use the pool at
+     *        the same time; more only takes memory.
+     */
+    public ScratchPool(int capacity, Supplier<T> factory) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity of a scratch pool must be positive.");
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.factory = factory;
+    }
+
+    /**
+     * A pool sized for the CPU-bound code that uses it, which cannot run on more threads at once
+     * than there are processors, with room for threads descheduled while holding a buffer.
+     */
+    public static <T> ScratchPool<T> perProcessor(Supplier<T> factory) {
+        return new ScratchPool<>(4 * Runtime.getRuntime().availableProcessors(), factory);
+    }
+
+    /**
+     * @return A buffer only the caller uses until it gives it back.
+     */
+    public T take() {
+        int capacity = slots.length();
+        // Start at a random slot, so threads taking buffers at the same time rarely collide.
+        int start = ThreadLocalRandom.current().nextInt(capacity);
+        for (int i = 0; i < capacity; i++) {
+            int slot = start + i < capacity ? start + i : start + i - capacity;
+            T buffer = slots.get(slot);
+            if (buffer != null && slots.compareAndSet(slot, buffer, null)) {
+                return buffer;
+            }
+        }
+        return factory.get();
+    }
+
+    /**
+     * Returns a buffer taken from this pool. The caller must not use it afterwards.
+     */
+    public void give(T buffer) {
+        int capacity = slots.length();
+        int start = ThreadLocalRandom.current().nextInt(capacity);
+        for (int i = 0; i < capacity; i++) {
+            int slot = start + i < capacity ? start + i : start + i - capacity;
+            if (slots.get(slot) == null && slots.compareAndSet(slot, null, buffer)) {
+                return;
+            }
+        }
+    }
+}
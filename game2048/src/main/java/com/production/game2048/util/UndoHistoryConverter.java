@@ -0,0 +1,79 @@
+package com.production.game2048.util;
+
+import com.production.game2048.model.UndoHistory;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.nio.ByteBuffer;
+
+/**
+ * A JPA AttributeConverter to store a game's {@link UndoHistory} in one small binary column.
+ *
+ * The format is a one byte format version, the board dimension as an unsigned big-endian
+ * short, the history's depth, the bits per packed tile and the number of states, one byte
+ * each, then the states oldest first as {@link UndoHistory#getSlotWords()} big-endian longs each.
+ * Example: a 4x4 game with 8 states to undo is stored in 6 + 8 * 24 = 198 bytes.
+ * An empty history is stored as null.
+ */
+@Converter
+public class UndoHistoryConverter implements AttributeConverter<UndoHistory, byte[]> {
+
+    /**
+     * The current format version, written as the first byte.
+     */
+    public static final byte FORMAT_VERSION = 1;
+
+    /**
+     * Number of bytes before the first state.
+     */
+    public static final int HEADER_LENGTH = 6;
+
+    /**
+     * The maximum encoded length, used to size the database column.
+     */
+    public static final int MAX_LENGTH = HEADER_LENGTH + UndoHistory.MAX_DEPTH * UndoHistory.MAX_SLOT_WORDS * Long.BYTES;
+
+    @Override
+    public byte[] convertToDatabaseColumn(UndoHistory attribute) {
+        if (attribute == null || attribute.getCount() == 0) {
+            return null;
+        }
+        int count = attribute.getCount();
+        long[] state = new long[attribute.getSlotWords()];
+        ByteBuffer data = ByteBuffer.allocate(HEADER_LENGTH + count * state.length * Long.BYTES);
+        data.put(FORMAT_VERSION)
+                .putShort((short) attribute.getSize())
+                .put((byte) attribute.getDepth())
+                .put((byte) attribute.getBitsPerCell())
+                .put((byte) count);
+        for (int i = 0; i < count; i++) {
+            attribute.readState(i, state);
+            for (long word : state) {
+                data.putLong(word);
+            }
+        }
+        return data.array();
+    }
+
+    @Override
+    public UndoHistory convertToEntityAttribute(byte[] dbData) {
+        if (dbData == null || dbData.length == 0) {
+            return null;
+        }
+        if (dbData[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported undo history format version " + dbData[0] + ".");
+        }
+        if (dbData.length < HEADER_LENGTH || (dbData.length - HEADER_LENGTH) % Long.BYTES != 0) {
+            throw new IllegalArgumentException("Failed to convert database data to undo history. Length "
+                    + dbData.length + " is invalid.");
+        }
+        ByteBuffer data = ByteBuffer.wrap(dbData, 1, dbData.length - 1);
+        int size = data.getShort() & 0xFFFF;
+        int depth = data.get() & 0xFF;
+        int bitsPerCell = data.get() & 0xFF;
+        int count = data.get() & 0xFF;
+        long[] states = new long[data.remaining() / Long.BYTES];
+        data.asLongBuffer().get(states);
+        return UndoHistory.fromStates(size, depth, bitsPerCell, count, states);
+    }
+}
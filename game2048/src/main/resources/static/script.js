@@ -6,35 +6,212 @@ document.addEventListener('DOMContentLoaded', () => {
     const restartBtn = document.getElementById('restart-btn');
     
     const API_BASE_URL = '/api/games';
+    const WS_BASE_URL = `${window.location.protocol === 'https:' ? 'wss:' : 'ws:'}//${window.location.host}/ws/games`;
     let currentGameId = null;
+    let lastMoveCount = -1;
+    let socket = null;
+    let eventSource = null;
+    let tileLayer = null;
+
+    // Must match the tile size and gap in style.css.
+    const CELL_STEP = 90;
+    const SLIDE_MILLIS = 100;
+    let boardSize = 0;
+    let tiles = new Map(); // Row-major cell index -> tile element.
+
+    const placeTile = (tile, cell) => {
+        tile.style.left = `${(cell % boardSize) * CELL_STEP}px`;
+        tile.style.top = `${Math.floor(cell / boardSize) * CELL_STEP}px`;
+    };
+
+    const createTile = (value, cell, effect) => {
+        const tile = document.createElement('div');
+        tile.classList.add('tile');
+        if (effect) {
+            tile.classList.add(effect);
+        }
+        tile.textContent = value;
+        tile.dataset.value = value;
+        placeTile(tile, cell);
+        tileLayer.appendChild(tile);
+        return tile;
+    };
+
+    const renderStatus = (score, gameOver) => {
+        scoreElement.textContent = score;
+        if (gameOver) {
+            gameOverOverlay.classList.remove('hidden');
+            pendingMoves = '';
+        } else {
+            gameOverOverlay.classList.add('hidden');
+        }
+    };
 
     /**
-     * Renders the game board based on the state received from the API.
+     * Redraws the whole board from a full state. Only needed for a new game, or when a client
+     * missed a move and cannot apply the next delta; moves are animated by animateMove.
      */
     const renderBoard = (gameState) => {
-        boardElement.innerHTML = ''; // Clear previous state
         const board = gameState.board;
-        const boardSize = board.length;
-        boardElement.style.gridTemplateColumns = `repeat(${boardSize}, 1fr)`;
-
-        board.forEach(row => {
-            row.forEach(cellValue => {
-                const tile = document.createElement('div');
-                tile.classList.add('tile');
+        if (board.length !== boardSize) {
+            boardSize = board.length;
+            boardElement.innerHTML = '';
+            boardElement.style.gridTemplateColumns = `repeat(${boardSize}, 1fr)`;
+            for (let i = 0; i < boardSize * boardSize; i++) {
+                const cell = document.createElement('div');
+                cell.classList.add('cell');
+                boardElement.appendChild(cell);
+            }
+            tileLayer = document.createElement('div');
+            tileLayer.classList.add('tile-layer');
+            boardElement.appendChild(tileLayer);
+        }
+        tileLayer.innerHTML = '';
+        tiles = new Map();
+        board.forEach((row, r) => {
+            row.forEach((cellValue, c) => {
                 if (cellValue > 0) {
-                    tile.textContent = cellValue;
-                    tile.dataset.value = cellValue;
+                    tiles.set(r * boardSize + c, createTile(cellValue, r * boardSize + c));
                 }
-                boardElement.appendChild(tile);
             });
         });
+        renderStatus(gameState.score, gameState.gameOver);
+    };
 
-        scoreElement.textContent = gameState.score;
-        
-        if (gameState.gameOver) {
-            gameOverOverlay.classList.remove('hidden');
-        } else {
-            gameOverOverlay.classList.add('hidden');
+    /**
+     * Plays one move of a delta on the tiles already on screen: slid tiles glide to their new
+     * cells, merged pairs are replaced by the doubled tile once they meet, and the spawned tile
+     * appears. The animations themselves are CSS transitions (see style.css).
+     */
+    const animateMove = (move) => {
+        const next = new Map(tiles);
+        const mergeCells = new Set(move.merges.map(merge => merge.cell));
+        const retired = [];
+        move.slides.forEach(slide => {
+            const tile = tiles.get(slide.from);
+            if (next.get(slide.from) === tile) {
+                next.delete(slide.from);
+            }
+            placeTile(tile, slide.to);
+            if (mergeCells.has(slide.to)) {
+                retired.push(tile);
+            } else {
+                next.set(slide.to, tile);
+            }
+        });
+        move.merges.forEach(merge => {
+            // The tile that merged without moving is still in place.
+            const stationary = next.get(merge.cell);
+            if (stationary) {
+                retired.push(stationary);
+            }
+            next.set(merge.cell, createTile(merge.value, merge.cell, 'tile-merged'));
+        });
+        if (move.spawn) {
+            next.set(move.spawn.cell, createTile(move.spawn.value, move.spawn.cell, 'tile-new'));
+        }
+        setTimeout(() => retired.forEach(tile => tile.remove()), SLIDE_MILLIS);
+        tiles = next;
+    };
+
+    /**
+     * Animates a delta if it continues the state on screen.
+     * @returns false if the client missed a move and must render a full state instead.
+     */
+    const applyDelta = (delta) => {
+        if (delta.id !== currentGameId || delta.sequence <= lastMoveCount) {
+            return true; // Another game's, or already shown.
+        }
+        if (delta.baseSequence !== lastMoveCount || delta.boardSize !== boardSize) {
+            return false;
+        }
+        delta.moves.forEach(animateMove);
+        lastMoveCount = delta.sequence;
+        renderStatus(delta.score, delta.gameOver);
+        return true;
+    };
+
+    /**
+     * Renders a pushed or fetched state, unless it belongs to another game or is not newer than
+     * what is already shown (pushes and POST responses can arrive in either order).
+     */
+    const applyState = (gameState) => {
+        if (gameState.id !== currentGameId || gameState.moveCount <= lastMoveCount) {
+            return;
+        }
+        lastMoveCount = gameState.moveCount;
+        renderBoard(gameState);
+    };
+
+    /**
+     * Fetches the full state after a missed move. The ETag is the move count, so the server
+     * answers 304 without loading the game if nothing changed since.
+     */
+    const refresh = async (gameId) => {
+        const response = await fetch(`${API_BASE_URL}/${gameId}`, {
+            headers: { 'If-None-Match': `"${lastMoveCount}"` },
+        });
+        if (response.ok) {
+            applyState(await response.json());
+        }
+    };
+
+    const handleMessage = (data) => {
+        const message = JSON.parse(data);
+        if (message.type === 'state') {
+            if (!message.delta || !applyDelta(message.delta)) {
+                applyState(message.game);
+            }
+        } else if (message.type === 'error') {
+            console.error('Move rejected:', message.error.message);
+        }
+    };
+
+    /**
+     * Opens the game's push channel: a WebSocket, or a server-sent event stream if WebSockets
+     * are unavailable. Moves go over the WebSocket while it is open and over POST otherwise;
+     * either way every open tab receives the new state.
+     */
+    const connect = (gameId) => {
+        disconnect();
+        if (!('WebSocket' in window)) {
+            openEventStream(gameId);
+            return;
+        }
+        const ws = new WebSocket(`${WS_BASE_URL}/${gameId}`);
+        let opened = false;
+        ws.onopen = () => { opened = true; };
+        ws.onmessage = (event) => handleMessage(event.data);
+        ws.onclose = () => {
+            if (socket === ws) {
+                socket = null;
+                // Never opened (e.g. blocked by a proxy): fall back to server-sent events.
+                // Closed later (idle or network): reconnect on the next move.
+                if (!opened && gameId === currentGameId) {
+                    openEventStream(gameId);
+                }
+            }
+        };
+        socket = ws;
+    };
+
+    const openEventStream = (gameId) => {
+        if (!('EventSource' in window)) {
+            return;
+        }
+        eventSource = new EventSource(`${API_BASE_URL}/${gameId}/events`);
+        eventSource.addEventListener('game', (event) => handleMessage(event.data));
+    };
+
+    const disconnect = () => {
+        if (socket) {
+            const ws = socket;
+            socket = null;
+            ws.close();
+        }
+        if (eventSource) {
+            eventSource.close();
+            eventSource = null;
         }
     };
 
@@ -52,7 +229,10 @@ document.addEventListener('DOMContentLoaded', () => {
             }
             const gameState = await response.json();
             currentGameId = gameState.id;
-            renderBoard(gameState);
+            lastMoveCount = -1;
+            pendingMoves = '';
+            applyState(gameState);
+            connect(gameState.id);
         } catch (error) {
             console.error(error);
             alert('Error: Could not start a new game. Is the server running?');
@@ -60,27 +240,60 @@ document.addEventListener('DOMContentLoaded', () => {
     };
 
     /**
-     * Sends a move command to the backend API.
+     * Sends a move as a one-letter WebSocket frame, or, without an open WebSocket, queues it
+     * for the backend API. While a request is in flight, further keypresses are coalesced and
+     * sent together as one batch (e.g. "ULLDR") once the response arrives.
      */
-    const makeMove = async (direction) => {
+    let pendingMoves = '';
+    let moveInFlight = false;
+
+    const makeMove = (direction) => {
         if (!currentGameId || gameOverOverlay.classList.contains('hidden') === false) {
             return; // Don't allow moves if game is over or not started
         }
+        if (socket && socket.readyState === WebSocket.OPEN) {
+            socket.send(direction.charAt(0));
+            return;
+        }
+        if (!socket && !eventSource && 'WebSocket' in window) {
+            connect(currentGameId); // Reconnect after an idle close; this move still goes over POST.
+        }
+        pendingMoves += direction.charAt(0);
+        if (!moveInFlight) {
+            sendPendingMoves();
+        }
+    };
+
+    const sendPendingMoves = async () => {
+        const gameId = currentGameId;
+        const moves = pendingMoves;
+        pendingMoves = '';
+        moveInFlight = true;
 
         try {
-            const response = await fetch(`${API_BASE_URL}/${currentGameId}/move?direction=${direction}`, {
+            const response = await fetch(`${API_BASE_URL}/${gameId}/moves?delta=true`, {
                 method: 'POST',
+                headers: { 'Content-Type': 'text/plain' },
+                body: moves,
             });
             if (!response.ok) {
                 throw new Error(`Move failed with status: ${response.status}`);
             }
-            const updatedGameState = await response.json();
-            renderBoard(updatedGameState);
+            const delta = await response.json();
+            if (!applyDelta(delta)) {
+                await refresh(gameId);
+            }
         } catch (error) {
             console.error('Error making a move:', error);
+        } finally {
+            moveInFlight = false;
+        }
+
+        if (pendingMoves && gameId === currentGameId) {
+            sendPendingMoves();
         }
     };
-    
+
     // Event Listeners
     newGameBtn.addEventListener('click', startNewGame);
     restartBtn.addEventListener('click', startNewGame);
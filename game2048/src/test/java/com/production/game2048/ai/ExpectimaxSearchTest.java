@@ -0,0 +1,105 @@
+package com.production.game2048.ai;
+
+import com.production.game2048.engine.BitBoard;
+import com.production.game2048.engine.BitBoardMoveEngine;
+import com.production.game2048.engine.GameRandom;
+import com.production.game2048.engine.MoveEngine;
+import com.production.game2048.engine.MoveResult;
+import com.production.game2048.model.MoveDirection;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpectimaxSearchTest {
+
+	private static final ExpectimaxSearch search = new ExpectimaxSearch(new AiProperties());
+
+	@AfterAll
+	static void shutdown() {
+		search.shutdown();
+	}
+
+	@Test
+	void transposeTurnsColumnsIntoRows() {
+		int[][] board = {
+				{2, 4, 8, 16},
+				{32, 64, 128, 256},
+				{512, 1024, 2048, 4096},
+				{8192, 16384, 0, 2}
+		};
+		int[][] transposed = new int[4][4];
+		BitBoard.decode(BitBoard.transpose(BitBoard.encode(board)), transposed);
+		for (int r = 0; r < 4; r++) {
+			for (int c = 0; c < 4; c++) {
+				assertEquals(board[c][r], transposed[r][c]);
+			}
+		}
+	}
+
+	@Test
+	void onlySuggestsMovesThatChangeTheBoard() {
+		int[][] board = {
+				{2, 4, 2, 4},
+				{4, 2, 4, 2},
+				{2, 4, 2, 4},
+				{4, 2, 4, 0}
+		};
+		SearchResult result = search.search(BitBoard.encode(board), 2, Duration.ofSeconds(5));
+
+		assertTrue(Float.isNaN(result.getValue(MoveDirection.UP)));
+		assertTrue(Float.isNaN(result.getValue(MoveDirection.LEFT)));
+		assertTrue(result.getDirection() == MoveDirection.DOWN || result.getDirection() == MoveDirection.RIGHT);
+	}
+
+	@Test
+	void returnsNoMoveWhenTheGameIsLost() {
+		int[][] board = {
+				{2, 4, 2, 4},
+				{4, 2, 4, 2},
+				{2, 4, 2, 4},
+				{4, 2, 4, 2}
+		};
+		assertNull(search.search(BitBoard.encode(board), 3, Duration.ofSeconds(5)).getDirection());
+	}
+
+	@Test
+	void stopsDeepeningWhenTheBudgetRunsOut() {
+		int[][] board = {
+				{0, 0, 0, 2},
+				{0, 0, 0, 0},
+				{0, 4, 0, 0},
+				{0, 0, 0, 0}
+		};
+		SearchResult result = search.search(BitBoard.encode(board), 8, Duration.ofMillis(1));
+
+		assertTrue(result.isTimedOut());
+		assertTrue(result.getDepth() >= 1 && result.getDepth() < 8);
+		assertNotNull(result.getDirection());
+	}
+
+	@Test
+	void playsWellEnoughToBuildLargeTiles() {
+		MoveEngine engine = new BitBoardMoveEngine();
+		GameRandom random = new GameRandom(2048);
+		int[][] board = new int[4][4];
+		engine.spawnTile(board, random);
+		engine.spawnTile(board, random);
+		MoveResult result = new MoveResult();
+		int maxTile = 0;
+		for (int move = 0; move < 600; move++) {
+			MoveDirection direction = search.search(BitBoard.encode(board), 2, Duration.ofSeconds(5)).getDirection();
+			if (direction == null) {
+				break;
+			}
+			engine.move(board, direction, random, result);
+			maxTile = Math.max(maxTile, result.getMaxTile());
+		}
+		assertTrue(maxTile >= 512, "Reached only " + maxTile);
+	}
+}
@@ -0,0 +1,150 @@
+package com.production.game2048.archive;
+
+import com.production.game2048.metrics.GameMetrics;
+import com.production.game2048.model.GameState;
+import com.production.game2048.model.MoveDirection;
+import com.production.game2048.model.RankedGame;
+import com.production.game2048.repository.GameStateRepository;
+import com.production.game2048.service.GameService;
+import com.production.game2048.service.LeaderboardService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A database and archive of its own, since every game that is not cached here is fair game for the archiver.
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:archivetest;DB_CLOSE_DELAY=-1",
+		"game.archive.enabled=false",
+		"game.archive.idle-retention=0s",
+		"game.archive.directory=./target/archive-test/${random.uuid}",
+		"game.session.max-size=1"})
+@ActiveProfiles("test")
+class GameArchiveTest {
+
+	@TempDir
+	Path directory;
+
+	@Autowired
+	private GameService gameService;
+
+	@Autowired
+	private LeaderboardService leaderboardService;
+
+	@Autowired
+	private GameStateRepository gameStateRepository;
+
+	@Autowired
+	private GameArchiver archiver;
+
+	@Autowired
+	private GameArchive archive;
+
+	private GameArchive open(long segmentBytes) {
+		ArchiveProperties properties = new ArchiveProperties();
+		properties.setDirectory(directory.toString());
+		properties.setSegmentSize(DataSize.ofBytes(segmentBytes));
+		properties.setCompactionThreshold(0.6);
+		return new GameArchive(properties, new GameMetrics(new SimpleMeterRegistry()));
+	}
+
+	private static GameState game(long id, int score) {
+		GameState game = new GameState();
+		game.setId(id);
+		game.setVersion(3);
+		game.setBoard(new int[][]{{2, 0, 0}, {0, score, 0}, {0, 0, 4}});
+		game.setScore(score);
+		game.setMoveCount(id * 10);
+		game.restoreRandom(id, id * 31);
+		game.setUpdatedAt(1000 + id);
+		game.setGameOver(id % 2 == 0);
+		return game;
+	}
+
+	@Test
+	void gamesSurviveReopeningAndCompaction() {
+		GameArchive archive = open(1);
+		// Every batch lands in a segment of its own, since no segment has room for two.
+		for (long id = 1; id <= 8; id += 2) {
+			archive.append(Arrays.asList(game(id, 16), game(id + 1, 32)));
+		}
+		assertTrue(archive.remove(1));
+		assertTrue(archive.remove(2));
+		assertTrue(archive.remove(3));
+		assertFalse(archive.remove(3));
+		archive.append(Collections.singletonList(game(5, 64)));
+		archive.close();
+
+		archive = open(1);
+		assertEquals(5, archive.size());
+		assertFalse(archive.read(1).isPresent());
+		assertEquals(64, archive.read(5).get().getScore());
+		GameState eight = archive.read(8).get();
+		assertEquals(80, eight.getMoveCount());
+		assertEquals(8 * 31, eight.getRngState());
+		assertEquals(1008, eight.getUpdatedAt());
+		assertTrue(eight.isGameOver());
+		assertArrayEquals(new int[]{0, 32, 0}, eight.getBoard()[1]);
+
+		// The first three segments hold at most one of their two games, the fourth both.
+		assertEquals(3, archive.compact());
+		archive.close();
+		archive = open(1);
+		List<Long> ids = new ArrayList<>();
+		archive.forEach(game -> ids.add(game.getId()));
+		Collections.sort(ids);
+		assertEquals(Arrays.asList(4L, 5L, 6L, 7L, 8L), ids);
+		assertEquals(32, archive.read(4).get().getScore());
+		assertEquals(64, archive.read(5).get().getScore());
+		archive.close();
+	}
+
+	@Test
+	void archivedGamesAreRestoredWhenRead() throws InterruptedException {
+		GameState first = gameService.startNewGame(5, 17L);
+		long created = gameStateRepository.findById(first.getId()).get().getUpdatedAt();
+		Thread.sleep(5);
+		for (MoveDirection direction : MoveDirection.values()) {
+			gameService.move(first.getId(), direction);
+		}
+		GameState played = gameService.getGameState(first.getId());
+		assertTrue(gameStateRepository.findById(first.getId()).get().getUpdatedAt() > created);
+		gameService.startNewGame(5, 18L); // Evicts the first game from the single-entry session store.
+		Thread.sleep(5);
+
+		assertTrue(archiver.archive() >= 1);
+		assertFalse(gameStateRepository.existsById(first.getId()));
+		assertTrue(archive.findScore(first.getId()).isPresent());
+		RankedGame ranked = leaderboardService.rank(first.getId());
+		assertEquals(played.getScore(), ranked.getScore());
+
+		GameState restored = gameService.getGameState(first.getId());
+		assertTrue(gameStateRepository.existsById(first.getId()));
+		assertFalse(archive.findScore(first.getId()).isPresent());
+		assertArrayEquals(played.getBoard(), restored.getBoard());
+		assertEquals(played.getScore(), restored.getScore());
+		assertEquals(played.getMoveCount(), restored.getMoveCount());
+
+		// The restored row carries the archived version, so it can be written again.
+		GameState moved = gameService.move(first.getId(), MoveDirection.UP);
+		if (moved.getMoveCount() == played.getMoveCount()) {
+			moved = gameService.move(first.getId(), MoveDirection.DOWN);
+		}
+		assertEquals(played.getMoveCount() + 1, moved.getMoveCount());
+		assertEquals(moved.getMoveCount(), gameStateRepository.findMoveCountById(first.getId()).get().longValue());
+	}
+}
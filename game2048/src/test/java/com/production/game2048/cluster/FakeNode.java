@@ -0,0 +1,65 @@
+package com.production.game2048.cluster;
+
+import com.production.game2048.archive.GameArchive;
+import com.production.game2048.model.GameState;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Another node of the cluster, on 127.0.0.1, that records what it is sent.
+ */
+class FakeNode implements AutoCloseable {
+
+	final List<HttpExchange> requests = new CopyOnWriteArrayList<>();
+	final List<GameState> received = new CopyOnWriteArrayList<>();
+	volatile int status = 200;
+
+	private final HttpServer server;
+
+	FakeNode() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", this::handle);
+		server.start();
+	}
+
+	String url() {
+		return "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	void clear() {
+		requests.clear();
+		received.clear();
+		status = 200;
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		requests.add(exchange);
+		String body = "{\"node\":\"fake\"}";
+		if (status == 200 && exchange.getRequestURI().getPath().equals("/api/cluster/games")) {
+			List<GameState> games = GameArchive.readMember(exchange.getRequestBody());
+			received.addAll(games);
+			body = "{\"received\":" + games.size() + "}";
+		} else {
+			StreamUtils.drain(exchange.getRequestBody());
+		}
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+}
@@ -0,0 +1,136 @@
+package com.production.game2048.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashRingTest {
+
+	private static final int SHARDS = 1024;
+	private static final int VIRTUAL_NODES = 128;
+
+	@Test
+	void addingANodeOnlyMovesShardsToIt() {
+		HashRing three = new HashRing(nodes(3), SHARDS, VIRTUAL_NODES);
+		HashRing four = new HashRing(nodes(4), SHARDS, VIRTUAL_NODES);
+
+		int moved = 0;
+		for (int shard = 0; shard < SHARDS; shard++) {
+			if (three.ownerOf(shard) != four.ownerOf(shard)) {
+				assertEquals(3, four.ownerOf(shard), "shard " + shard + " moved between two old nodes");
+				moved++;
+			}
+		}
+		// About a quarter of the shards go to the new node.
+		assertTrue(moved > SHARDS / 8 && moved < SHARDS * 3 / 8, "moved " + moved);
+	}
+
+	@Test
+	void shardsAreSpreadEvenly() {
+		HashRing ring = new HashRing(nodes(4), SHARDS, VIRTUAL_NODES);
+
+		int total = 0;
+		for (int node = 0; node < 4; node++) {
+			int owned = ring.shardsOf(node).length;
+			assertTrue(owned > SHARDS / 8 && owned < SHARDS * 3 / 8, "node " + node + " owns " + owned);
+			total += owned;
+		}
+		assertEquals(SHARDS, total);
+		assertEquals(-1, new HashRing(nodes(0), SHARDS, VIRTUAL_NODES).ownerOf(0));
+	}
+
+	@Test
+	void idsCarryAShardTheNodeOwns() {
+		ClusterRouter router = new ClusterRouter(properties(2, 3));
+		Set<Integer> shards = new HashSet<>();
+
+		for (long sequence = 1; sequence <= 1000; sequence++) {
+			long id = router.idFor(sequence);
+			assertTrue(id > 0);
+			assertEquals(sequence, router.sequenceOf(id));
+			assertEquals(2, router.ownerOf(id));
+			assertTrue(router.isLocal(id));
+			shards.add(router.shardOf(id));
+		}
+		assertEquals(router.getRing().shardsOf(2).length, shards.size());
+		// Two nodes drawing the same sequence number still get different ids.
+		assertFalse(router.idFor(7) == new ClusterRouter(properties(0, 3)).idFor(7));
+	}
+
+	@Test
+	void membershipChangesKeepThePreviousOwner() {
+		ClusterRouter router = new ClusterRouter(properties(0, 3));
+		long id = router.idFor(1);
+		Map<Integer, String> grown = nodes(4);
+
+		router.setNodes(grown);
+
+		assertEquals(0, router.previousOwnerOf(id));
+		assertEquals(new HashRing(grown, SHARDS, VIRTUAL_NODES).ownerOf(router.shardOf(id)), router.ownerOf(id));
+		assertEquals("http://node-3", router.urlOf(3));
+		assertThrows(IllegalArgumentException.class, () -> router.setNodes(nodes(65)));
+
+		// The previous ring is kept until every node that lost shards has moved their games.
+		assertEquals(new HashSet<>(Arrays.asList(0, 1, 2)), router.getDrainingNodes());
+		router.rebalanced(0);
+		router.rebalanced(3);
+		router.rebalanced(1);
+		assertEquals(0, router.previousOwnerOf(id));
+		router.rebalanced(2);
+		assertEquals(-1, router.previousOwnerOf(id));
+		assertNull(router.getPreviousRing());
+
+		router.setNodes(grown);
+		assertNull(router.getPreviousRing());
+	}
+
+	@Test
+	void onlyNodeAddressesArePeers() {
+		ClusterProperties properties = properties(0, 2);
+		properties.getNodes().put(1, "http://127.0.0.1:8081");
+		ClusterRouter router = new ClusterRouter(properties);
+
+		assertTrue(router.isPeer("127.0.0.1"));
+		assertFalse(router.isPeer("192.0.2.1"));
+		assertFalse(router.isPeer("not an address"));
+	}
+
+	@Test
+	void idsAreSequenceNumbersOutsideACluster() {
+		ClusterProperties properties = properties(0, 1);
+		properties.setEnabled(false);
+		ClusterRouter router = new ClusterRouter(properties);
+
+		assertEquals(42, router.idFor(42));
+		assertEquals(42, router.sequenceOf(42));
+		assertTrue(router.isLocal(42));
+	}
+
+	private static ClusterProperties properties(int nodeId, int nodes) {
+		ClusterProperties properties = new ClusterProperties();
+		properties.setEnabled(true);
+		properties.setNodeId(nodeId);
+		properties.setNodes(nodes(nodes));
+		properties.setShards(SHARDS);
+		properties.setVirtualNodes(VIRTUAL_NODES);
+		return properties;
+	}
+
+	private static Map<Integer, String> nodes(int count) {
+		Map<Integer, String> nodes = new TreeMap<>();
+		for (int node = 0; node < count; node++) {
+			nodes.put(node, "http://node-" + node);
+		}
+		return nodes;
+	}
+}
@@ -0,0 +1,238 @@
+package com.production.game2048.cluster;
+
+import com.production.game2048.archive.GameArchive;
+import com.production.game2048.leaderboard.Leaderboard;
+import com.production.game2048.model.GameState;
+import com.production.game2048.model.MoveDirection;
+import com.production.game2048.service.GameService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// A database and archive of their own, since a rebalance sends away every game in them it does not own.
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:rebalancetest;DB_CLOSE_DELAY=-1",
+		"game.archive.enabled=false",
+		"game.archive.directory=./target/archive-test/${random.uuid}",
+		"game.rate-limit.enabled=false",
+		"game.cluster.enabled=true",
+		"game.cluster.node-id=0",
+		"game.cluster.nodes[0]=http://127.0.0.1:1",
+		"game.cluster.shards=" + ShardRebalancerTest.SHARDS})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ShardRebalancerTest {
+
+	static final int SHARDS = 64;
+
+	private static FakeNode peer;
+
+	@Autowired
+	private ClusterRouter router;
+
+	@Autowired
+	private ShardRebalancer rebalancer;
+
+	@Autowired
+	private GameService gameService;
+
+	@Autowired
+	private GameArchive archive;
+
+	@Autowired
+	private Leaderboard leaderboard;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@BeforeAll
+	static void startPeer() throws IOException {
+		peer = new FakeNode();
+	}
+
+	@AfterAll
+	static void stopPeer() {
+		peer.close();
+	}
+
+	@BeforeEach
+	void alone() {
+		router.setNodes(self());
+		for (int node : new ArrayList<>(router.getDrainingNodes())) {
+			router.rebalanced(node);
+		}
+		peer.clear();
+	}
+
+	@Test
+	void gamesAreDeletedHereOnceTheirOwnerHasThem() {
+		Map<Long, Long> moveCounts = new HashMap<>();
+		for (int i = 0; i < 12; i++) {
+			GameState game = gameService.startNewGame(4, null);
+			gameService.move(game.getId(), Arrays.asList(MoveDirection.values()));
+			moveCounts.put(game.getId(), gameService.getGameState(game.getId()).getMoveCount());
+		}
+		GameState archived = foreignGame();
+		archive.append(Collections.singletonList(archived));
+		moveCounts.put(archived.getId(), archived.getMoveCount());
+
+		router.setNodes(both());
+		int moved = rebalancer.rebalance();
+
+		Map<Long, Long> received = new HashMap<>();
+		for (GameState game : peer.received) {
+			received.put(game.getId(), game.getMoveCount());
+		}
+		assertEquals(moved, received.size());
+		assertTrue(received.containsKey(archived.getId()));
+		for (Map.Entry<Long, Long> game : moveCounts.entrySet()) {
+			long id = game.getKey();
+			if (router.ownerOf(id) == 1) {
+				assertEquals(game.getValue(), received.get(id), "game " + id);
+				assertFalse(rebalancer.hasLocally(id), "game " + id + " was not deleted");
+				assertNull(leaderboard.rank(id));
+			} else {
+				assertFalse(received.containsKey(id), "game " + id + " was sent away");
+				assertTrue(rebalancer.hasLocally(id));
+			}
+		}
+		// Every game moved, so the other node is told, and the previous ring is dropped here.
+		assertTrue(peer.requests.stream().anyMatch(request ->
+				request.getRequestURI().toString().equals("/api/cluster/rebalanced?node=0")));
+		assertNull(router.getPreviousRing());
+	}
+
+	@Test
+	void gamesStayWhenTheirOwnerRefusesThem() {
+		GameState game = startGameOwnedInBothBy(1);
+		peer.status = 500;
+
+		router.setNodes(both());
+		assertThrows(UncheckedIOException.class, () -> rebalancer.rebalance());
+
+		assertTrue(rebalancer.hasLocally(game.getId()));
+		assertNotNull(router.getPreviousRing());
+		assertTrue(peer.requests.stream().noneMatch(request -> request.getRequestURI().getPath().endsWith("/rebalanced")));
+	}
+
+	@Test
+	void receivedGamesReplaceOnlyOlderCopies() {
+		long id = gameService.startNewGame(4, null).getId();
+		gameService.move(id, Arrays.asList(MoveDirection.values()));
+		GameState game = gameService.getGameState(id);
+
+		GameState older = game.copy();
+		older.setMoveCount(game.getMoveCount() - 1);
+		older.setScore(game.getScore() + 1000);
+		assertEquals(0, rebalancer.receive(Collections.singletonList(older)));
+		assertEquals(game.getScore(), gameService.getGameState(game.getId()).getScore());
+
+		GameState newer = game.copy();
+		newer.setMoveCount(game.getMoveCount() + 1);
+		newer.setScore(game.getScore() + 1000);
+		assertEquals(1, rebalancer.receive(Collections.singletonList(newer)));
+		assertEquals(newer.getScore(), gameService.getGameState(game.getId()).getScore());
+
+		router.setNodes(both());
+		assertThrows(IllegalArgumentException.class, () -> rebalancer.receive(Collections.singletonList(foreignGame())));
+	}
+
+	@Test
+	void onlyAdminsChangeTheMembershipOrRebalance() throws Exception {
+		String nodes = "{\"0\":\"http://127.0.0.1:1\",\"1\":\"" + peer.url() + "\"}";
+
+		mockMvc.perform(put("/api/admin/cluster/nodes").contentType(MediaType.APPLICATION_JSON).content(nodes))
+				.andExpect(status().isUnauthorized());
+		mockMvc.perform(post("/api/admin/cluster/rebalance"))
+				.andExpect(status().isUnauthorized());
+		assertEquals(self(), router.getRing().getNodes());
+
+		mockMvc.perform(put("/api/admin/cluster/nodes").header("Authorization", "Bearer test-admin-token")
+						.contentType(MediaType.APPLICATION_JSON).content(nodes))
+				.andExpect(status().isOk());
+		assertEquals(both(), router.getRing().getNodes());
+	}
+
+	@Test
+	void onlyNodesHandOverGames() throws Exception {
+		router.setNodes(both());
+
+		mockMvc.perform(post("/api/cluster/games").contentType(MediaType.APPLICATION_OCTET_STREAM).content(new byte[0])
+						.with(request -> {
+							request.setRemoteAddr("192.0.2.1");
+							return request;
+						}))
+				.andExpect(status().isForbidden());
+	}
+
+	/**
+	 * Starts games here, alone in the cluster, until one is in a shard {@code node} owns once
+	 * both nodes are members.
+	 */
+	private GameState startGameOwnedInBothBy(int node) {
+		HashRing ring = new HashRing(both(), SHARDS, router.getProperties().getVirtualNodes());
+		while (true) {
+			GameState game = gameService.startNewGame(4, null);
+			if (ring.ownerOf(router.shardOf(game.getId())) == node) {
+				return game;
+			}
+		}
+	}
+
+	/**
+	 * @return A game created by the other node, in a shard it owns once both nodes are members.
+	 */
+	private GameState foreignGame() {
+		HashRing ring = new HashRing(both(), SHARDS, router.getProperties().getVirtualNodes());
+		for (int shard = 0; shard < SHARDS; shard++) {
+			if (ring.ownerOf(shard) == 1) {
+				GameState game = new GameState();
+				game.setId(((System.nanoTime() & 0xFFFFF) << ClusterRouter.NODE_BITS | 1) << Integer.numberOfTrailingZeros(SHARDS) | shard);
+				game.setBoard(new int[][]{{2, 0, 0, 0}, {0, 4, 0, 0}, {0, 0, 0, 0}, {0, 0, 0, 2}});
+				game.setScore(4);
+				game.setMoveCount(3);
+				game.restoreRandom(7, 11);
+				return game;
+			}
+		}
+		throw new AssertionError("Node 1 owns no shard.");
+	}
+
+	private static Map<Integer, String> self() {
+		Map<Integer, String> nodes = new TreeMap<>();
+		nodes.put(0, "http://127.0.0.1:1");
+		return nodes;
+	}
+
+	private static Map<Integer, String> both() {
+		Map<Integer, String> nodes = self();
+		nodes.put(1, peer.url());
+		return nodes;
+	}
+}
@@ -0,0 +1,220 @@
+package com.production.game2048.cluster;
+
+import com.production.game2048.model.GameState;
+import com.production.game2048.service.GameService;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// A database and archive of their own, since the cluster takes every game in them for one of its shards.
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:routingtest;DB_CLOSE_DELAY=-1",
+		"game.archive.enabled=false",
+		"game.archive.directory=./target/archive-test/${random.uuid}",
+		"game.rate-limit.enabled=false",
+		"game.cluster.enabled=true",
+		"game.cluster.node-id=0",
+		"game.cluster.nodes[0]=http://127.0.0.1:1",
+		"game.cluster.shards=" + ShardRoutingFilterTest.SHARDS})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ShardRoutingFilterTest {
+
+	static final int SHARDS = 64;
+
+	private static FakeNode peer;
+
+	@Autowired
+	private ClusterRouter router;
+
+	@Autowired
+	private GameService gameService;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@BeforeAll
+	static void startPeer() throws IOException {
+		peer = new FakeNode();
+	}
+
+	@AfterAll
+	static void stopPeer() {
+		peer.close();
+	}
+
+	@BeforeEach
+	void alone() {
+		layout(self(), null);
+		peer.clear();
+	}
+
+	@Test
+	void requestsForAnotherNodesGameAreForwardedToIt() throws Exception {
+		layout(both(), null);
+		long id = idOwnedBy(1);
+
+		mockMvc.perform(get("/api/games/" + id))
+				.andExpect(status().isOk())
+				.andExpect(content().json("{\"node\":\"fake\"}"));
+
+		assertEquals(1, peer.requests.size());
+		HttpExchange forwarded = peer.requests.get(0);
+		assertEquals("/api/games/" + id, forwarded.getRequestURI().getPath());
+		assertEquals("1", forwarded.getRequestHeaders().getFirst(PeerClient.HOPS_HEADER));
+		assertEquals("127.0.0.1", forwarded.getRequestHeaders().getFirst(PeerClient.FORWARDED_FOR_HEADER));
+	}
+
+	@Test
+	void eventStreamsAreRedirected() throws Exception {
+		layout(both(), null);
+		long id = idOwnedBy(1);
+
+		mockMvc.perform(get("/api/games/" + id + "/events"))
+				.andExpect(status().isTemporaryRedirect())
+				.andExpect(header().string("Location", peer.url() + "/api/games/" + id + "/events"));
+		assertTrue(peer.requests.isEmpty());
+	}
+
+	@Test
+	void ownersAskThePreviousOwnerForGamesNotMovedYet() throws Exception {
+		GameState moved = startGameOwnedInBothBy(0);
+		layout(onlyPeer(), both());
+		long missing = moved.getId() + (1L << 20);
+		assertEquals(0, router.ownerOf(missing));
+		assertEquals(1, router.previousOwnerOf(missing));
+
+		// Not here yet: the previous owner still has it.
+		mockMvc.perform(get("/api/games/" + missing))
+				.andExpect(status().isOk())
+				.andExpect(content().json("{\"node\":\"fake\"}"));
+		assertEquals(1, peer.requests.size());
+
+		// Already here: served without asking.
+		mockMvc.perform(get("/api/games/" + moved.getId()))
+				.andExpect(status().isOk())
+				.andExpect(content().json("{\"id\":" + moved.getId() + "}"));
+		assertEquals(1, peer.requests.size());
+	}
+
+	@Test
+	void previousOwnersServeTheGamesTheyStillHold() throws Exception {
+		GameState kept = startGameOwnedInBothBy(1);
+		layout(self(), both());
+		assertEquals(1, router.ownerOf(kept.getId()));
+		assertEquals(0, router.previousOwnerOf(kept.getId()));
+
+		mockMvc.perform(get("/api/games/" + kept.getId()))
+				.andExpect(status().isOk())
+				.andExpect(content().json("{\"id\":" + kept.getId() + "}"));
+		assertTrue(peer.requests.isEmpty());
+	}
+
+	@Test
+	void requestsArePassedOnAtMostTwice() throws Exception {
+		layout(both(), null);
+		long id = idOwnedBy(1);
+
+		// From a node, after two hops: served here, even though the game is not.
+		mockMvc.perform(get("/api/games/" + id).header(PeerClient.HOPS_HEADER, "2"))
+				.andExpect(status().isNotFound());
+		assertTrue(peer.requests.isEmpty());
+
+		// A client claiming as many hops is routed all the same.
+		mockMvc.perform(get("/api/games/" + id).header(PeerClient.HOPS_HEADER, "2")
+						.with(request -> {
+							request.setRemoteAddr("192.0.2.1");
+							return request;
+						}))
+				.andExpect(status().isOk());
+		assertEquals(1, peer.requests.size());
+		assertEquals("1", peer.requests.get(0).getRequestHeaders().getFirst(PeerClient.HOPS_HEADER));
+	}
+
+	@Test
+	void unreachableNodesAnswerBadGateway() throws Exception {
+		Map<Integer, String> nodes = both();
+		nodes.put(1, "http://127.0.0.1:1");
+		layout(nodes, null);
+
+		mockMvc.perform(get("/api/games/" + idOwnedBy(1)))
+				.andExpect(status().isBadGateway());
+	}
+
+	/**
+	 * Makes {@code current} the membership, with {@code previous} as the one before it, or none.
+	 */
+	private void layout(Map<Integer, String> previous, Map<Integer, String> current) {
+		router.setNodes(previous);
+		for (int node : new ArrayList<>(router.getDrainingNodes())) {
+			router.rebalanced(node);
+		}
+		if (current != null) {
+			router.setNodes(current);
+		}
+	}
+
+	/**
+	 * Starts games here, alone in the cluster, until one is in a shard {@code node} owns once
+	 * both nodes are members.
+	 */
+	private GameState startGameOwnedInBothBy(int node) {
+		HashRing ring = new HashRing(both(), SHARDS, router.getProperties().getVirtualNodes());
+		while (true) {
+			GameState game = gameService.startNewGame(4, null);
+			if (ring.ownerOf(router.shardOf(game.getId())) == node) {
+				return game;
+			}
+		}
+	}
+
+	/**
+	 * @return The id of a game this node never created, in a shard the node owns.
+	 */
+	private long idOwnedBy(int node) {
+		for (int shard = 0; shard < SHARDS; shard++) {
+			long id = ((999_999L << ClusterRouter.NODE_BITS | 1) << Integer.numberOfTrailingZeros(SHARDS)) | shard;
+			if (router.ownerOf(id) == node) {
+				return id;
+			}
+		}
+		throw new AssertionError("Node " + node + " owns no shard.");
+	}
+
+	private static Map<Integer, String> self() {
+		Map<Integer, String> nodes = new TreeMap<>();
+		nodes.put(0, "http://127.0.0.1:1");
+		return nodes;
+	}
+
+	private static Map<Integer, String> onlyPeer() {
+		Map<Integer, String> nodes = new TreeMap<>();
+		nodes.put(1, peer.url());
+		return nodes;
+	}
+
+	private static Map<Integer, String> both() {
+		Map<Integer, String> nodes = self();
+		nodes.put(1, peer.url());
+		return nodes;
+	}
+}
@@ -0,0 +1,340 @@
+package com.production.game2048.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.production.game2048.leaderboard.Leaderboard;
+import com.production.game2048.model.GameState;
+import com.production.game2048.model.MoveDirection;
+import com.production.game2048.service.GameService;
+import com.production.game2048.util.BinaryGameMessageConverter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class GameControllerTest {
+
+	private static final String ADMIN = "Bearer test-admin-token";
+
+	@Autowired
+	private GameService gameService;
+
+	@Autowired
+	private Leaderboard leaderboard;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void unchangedGamesAreNotSentAgain() throws Exception {
+		GameState game = gameService.startNewGame(4, 21L);
+		String url = "/api/games/" + game.getId();
+
+		mockMvc.perform(get(url))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", "\"0\""));
+		mockMvc.perform(get(url).header("If-None-Match", "\"0\""))
+				.andExpect(status().isNotModified());
+
+		mockMvc.perform(post(url + "/moves").contentType(MediaType.TEXT_PLAIN).content("LURD"))
+				.andExpect(status().isOk());
+		long moveCount = gameService.getGameState(game.getId()).getMoveCount();
+		mockMvc.perform(get(url).header("If-None-Match", "\"0\""))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", "\"" + moveCount + "\""));
+		mockMvc.perform(get("/api/games/" + Long.MAX_VALUE).header("If-None-Match", "\"0\""))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void deltasDescribeEachMoveAndTheSpawnedTile() throws Exception {
+		GameState before = gameService.startNewGame(4, 22L);
+		String body = mockMvc.perform(post("/api/games/" + before.getId() + "/moves?delta=true")
+						.contentType(MediaType.TEXT_PLAIN).content("LURDLURD"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		JsonNode delta = objectMapper.readTree(body);
+		GameState after = gameService.getGameState(before.getId());
+
+		assertEquals(0, delta.path("baseSequence").asLong());
+		assertEquals(after.getMoveCount(), delta.path("sequence").asLong());
+		assertEquals(after.getMoveCount(), delta.path("moves").size());
+		assertEquals(after.getScore(), delta.path("score").asInt());
+		assertTrue(delta.path("board").isMissingNode());
+
+		// Replaying the deltas on the initial board gives the current one.
+		int[][] board = before.getBoard();
+		int scores = 0;
+		long sequence = 0;
+		for (JsonNode move : delta.path("moves")) {
+			assertEquals(++sequence, move.path("sequence").asLong());
+			int[][] next = new int[4][];
+			for (int r = 0; r < 4; r++) {
+				next[r] = board[r].clone();
+			}
+			for (JsonNode slide : move.path("slides")) {
+				next[slide.path("from").asInt() / 4][slide.path("from").asInt() % 4] = 0;
+			}
+			for (JsonNode slide : move.path("slides")) {
+				next[slide.path("to").asInt() / 4][slide.path("to").asInt() % 4] = slide.path("value").asInt();
+			}
+			for (JsonNode merge : move.path("merges")) {
+				next[merge.path("cell").asInt() / 4][merge.path("cell").asInt() % 4] = merge.path("value").asInt();
+			}
+			JsonNode spawn = move.path("spawn");
+			next[spawn.path("cell").asInt() / 4][spawn.path("cell").asInt() % 4] = spawn.path("value").asInt();
+			board = next;
+			scores += move.path("scoreDelta").asInt();
+		}
+		assertArrayEquals(after.getBoard(), board);
+		assertEquals(after.getScore(), scores);
+	}
+
+	@Test
+	void onlyAdminsPickTheSeed() throws Exception {
+		GameState reference = gameService.startNewGame(4, 23L);
+
+		mockMvc.perform(post("/api/admin/games?seed=23"))
+				.andExpect(status().isUnauthorized())
+				.andExpect(header().string("WWW-Authenticate", "Bearer"));
+		mockMvc.perform(post("/api/admin/games?seed=23").header("Authorization", "Bearer guessed"))
+				.andExpect(status().isUnauthorized());
+		mockMvc.perform(get("/api/admin/games/" + reference.getId() + "/seed"))
+				.andExpect(status().isUnauthorized());
+
+		String seeded = mockMvc.perform(post("/api/admin/games?seed=23").header("Authorization", ADMIN))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		assertArrayEquals(reference.getBoard(), objectMapper.readValue(seeded, GameState.class).getBoard());
+		mockMvc.perform(get("/api/admin/games/" + reference.getId() + "/seed").header("Authorization", ADMIN))
+				.andExpect(status().isOk());
+
+		// The public API ignores a seed, so players cannot know the spawns in advance.
+		String created = mockMvc.perform(post("/api/games?seed=23"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		long id = objectMapper.readValue(created, GameState.class).getId();
+		assertTrue(gameService.getGameState(id).getSeed() != 23L);
+	}
+
+	@Test
+	void gamesStartedInBulkAreListedAsIdRuns() throws Exception {
+		MvcResult started = mockMvc.perform(post("/api/games/batch?count=120&boardSize=5"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		String body = mockMvc.perform(asyncDispatch(started))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		List<Long> ids = new ArrayList<>();
+		for (String line : body.split("\n")) {
+			String[] run = line.split("-");
+			long first = Long.parseLong(run[0]);
+			long last = run.length == 2 ? Long.parseLong(run[1]) : first;
+			for (long id = first; id <= last; id++) {
+				ids.add(id);
+			}
+		}
+		assertEquals(120, ids.size());
+		assertTrue(body.split("\n").length < 10);
+		for (long id : ids) {
+			GameState game = gameService.getGameState(id);
+			assertEquals(5, game.getBoard().length);
+			assertEquals(0, game.getMoveCount());
+		}
+		assertTrue(gameService.move(ids.get(0), Arrays.asList(MoveDirection.values())).getGame().getMoveCount() > 0);
+
+		mockMvc.perform(post("/api/games/batch?count=0"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void movesAreUndoneUpToTheUndoDepth() throws Exception {
+		GameState game = gameService.startNewGame(4, 47L);
+		String url = "/api/games/" + game.getId();
+		mockMvc.perform(post(url + "/undo"))
+				.andExpect(status().isConflict());
+
+		List<GameState> states = new ArrayList<>();
+		List<MoveDirection> moves = new ArrayList<>();
+		states.add(game);
+		MoveDirection[] directions = {MoveDirection.LEFT, MoveDirection.DOWN, MoveDirection.RIGHT, MoveDirection.UP};
+		for (int i = 0; states.size() <= 10; i++) {
+			GameState moved = gameService.move(game.getId(), directions[i % 4]);
+			if (moved.getMoveCount() == states.size()) {
+				states.add(moved);
+				moves.add(directions[i % 4]);
+			}
+		}
+
+		// An undone move played again spawns the same tile.
+		mockMvc.perform(post(url + "/undo")).andExpect(status().isOk());
+		GameState replayed = gameService.move(game.getId(), moves.get(9));
+		assertArrayEquals(states.get(10).getBoard(), replayed.getBoard());
+		assertEquals(states.get(10).getScore(), replayed.getScore());
+
+		long moveCount = replayed.getMoveCount();
+		for (int back = 1; back <= 8; back++) {
+			String body = mockMvc.perform(post(url + "/undo"))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString();
+			GameState undone = objectMapper.readValue(body, GameState.class);
+			assertArrayEquals(states.get(10 - back).getBoard(), undone.getBoard());
+			assertEquals(states.get(10 - back).getScore(), undone.getScore());
+			assertEquals(moveCount + back, undone.getMoveCount());
+		}
+		mockMvc.perform(post(url + "/undo"))
+				.andExpect(status().isConflict());
+		mockMvc.perform(get(url))
+				.andExpect(header().string("ETag", "\"" + (moveCount + 8) + "\""));
+	}
+
+	@Test
+	void binaryClientsGetPackedGames() throws Exception {
+		GameState game = gameService.startNewGame(4, 48L);
+		String url = "/api/games/" + game.getId();
+		MediaType binary = BinaryGameMessageConverter.MEDIA_TYPE;
+
+		// LURD packed two bits each: 2, 0, 3, 1.
+		byte[] moves = {1, 0, 4, (byte) 0b10_00_11_01};
+		MvcResult result = mockMvc.perform(post(url + "/moves").contentType(binary).accept(binary).content(moves))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Content-Type", BinaryGameMessageConverter.MEDIA_TYPE_VALUE))
+				.andReturn();
+		ByteBuffer body = ByteBuffer.wrap(result.getResponse().getContentAsByteArray());
+		GameState after = gameService.getGameState(game.getId());
+
+		assertEquals(BinaryGameMessageConverter.FORMAT_VERSION, body.get());
+		assertEquals(BinaryGameMessageConverter.TYPE_MOVE_BATCH, body.get());
+		assertEquals((after.isGameOver() ? 1 : 0) | (after.isWon() ? 2 : 0), body.get());
+		assertEquals(4, body.get());
+		assertEquals(game.getId(), body.getLong());
+		assertEquals(after.getMoveCount(), body.getLong());
+		assertEquals(after.getScore(), body.getInt());
+		assertEquals(4, body.getShort());
+		int[][] board = new int[4][4];
+		for (int cell = 0; cell < 16; cell += 2) {
+			int packed = body.get() & 0xFF;
+			board[cell / 4][cell % 4] = packed >>> 4 == 0 ? 0 : 1 << (packed >>> 4);
+			board[cell / 4][cell % 4 + 1] = (packed & 15) == 0 ? 0 : 1 << (packed & 15);
+		}
+		assertArrayEquals(after.getBoard(), board);
+		assertEquals(4, body.getInt());
+		int scores = 0;
+		for (int i = 0; i < 4; i++) {
+			scores += body.getInt();
+		}
+		assertEquals(after.getScore(), scores);
+		assertEquals(0, body.remaining());
+
+		// JSON stays the default, and errors are still reported to binary clients.
+		mockMvc.perform(get(url))
+				.andExpect(header().string("Content-Type", MediaType.APPLICATION_JSON_VALUE));
+		mockMvc.perform(get(url).accept(binary))
+				.andExpect(header().longValue("Content-Length", BinaryGameMessageConverter.HEADER_LENGTH + 8));
+		String error = mockMvc.perform(get("/api/games/" + Long.MAX_VALUE).accept(binary))
+				.andExpect(status().isNotFound())
+				.andExpect(header().string("Content-Type", MediaType.APPLICATION_JSON_VALUE))
+				.andReturn().getResponse().getContentAsString();
+		assertEquals(404, objectMapper.readTree(error).path("status").asInt());
+		mockMvc.perform(post(url + "/moves").contentType(binary).content(new byte[] {1, 0, 5, 0}))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void exportedGamesImportAsNewGamesThatPlayOnTheSame() throws Exception {
+		List<GameState> games = new ArrayList<>();
+		for (long seed = 61; seed <= 63; seed++) {
+			GameState game = gameService.startNewGame(11, seed);
+			gameService.move(game.getId(), Arrays.asList(MoveDirection.values()));
+			games.add(gameService.getGameState(game.getId()));
+		}
+
+		for (MediaType type : Arrays.asList(MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_OCTET_STREAM)) {
+			MvcResult started = mockMvc.perform(get("/api/games/export?boardSize=11&status=PLAYING")
+							.header("Authorization", ADMIN).accept(type))
+					.andExpect(request().asyncStarted())
+					.andReturn();
+			byte[] exported = mockMvc.perform(asyncDispatch(started))
+					.andExpect(status().isOk())
+					.andExpect(header().string("Content-Type", type.toString()))
+					.andReturn().getResponse().getContentAsByteArray();
+			if (type.equals(MediaType.APPLICATION_NDJSON)) {
+				String[] lines = new String(exported, StandardCharsets.UTF_8).split("\n");
+				assertTrue(lines.length >= games.size());
+				assertEquals(games.get(0).getSeed(), objectMapper.readTree(lines[0]).path("seed").asLong());
+			}
+
+			String body = mockMvc.perform(post("/api/games/import").header("Authorization", ADMIN)
+							.contentType(type).content(exported))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString();
+			long imported = objectMapper.readTree(body).path("imported").asLong();
+			assertTrue(imported >= games.size());
+
+			// The imports got the highest ids, in the order they were exported.
+			long firstId = gameService.startNewGame(4, null).getId() - imported;
+			for (int i = 0; i < games.size(); i++) {
+				GameState original = gameService.getGameState(games.get(i).getId());
+				GameState copy = gameService.getGameState(firstId + i);
+				assertArrayEquals(original.getBoard(), copy.getBoard());
+				assertEquals(original.getScore(), copy.getScore());
+				assertEquals(original.getMoveCount(), copy.getMoveCount());
+				assertEquals(original.getSeed(), copy.getSeed());
+				assertArrayEquals(gameService.move(original.getId(), MoveDirection.UP).getBoard(),
+						gameService.move(copy.getId(), MoveDirection.UP).getBoard());
+				assertArrayEquals(gameService.undo(original.getId()).getBoard(), gameService.undo(copy.getId()).getBoard());
+			}
+		}
+
+		String error = mockMvc.perform(post("/api/games/import").header("Authorization", ADMIN)
+						.contentType(MediaType.APPLICATION_NDJSON)
+						.content("{\"board\":[[2,0],[0,2]]}\n{\"board\":[[3,0],[0,2]]}\n"))
+				.andExpect(status().isBadRequest())
+				.andReturn().getResponse().getContentAsString();
+		assertTrue(objectMapper.readTree(error).path("message").asText().startsWith("Game 2 "));
+		mockMvc.perform(post("/api/games/import").header("Authorization", ADMIN)
+						.contentType(MediaType.APPLICATION_OCTET_STREAM).content(new byte[] {1, 2, 3}))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void onlyAdminsExportAndImport() throws Exception {
+		String forged = "{\"board\":[[2,0,0],[0,2,0],[0,0,0]],\"score\":999999999}\n";
+		mockMvc.perform(post("/api/games/import").contentType(MediaType.APPLICATION_NDJSON).content(forged))
+				.andExpect(status().isUnauthorized());
+		mockMvc.perform(post("/api/games/import").header("Authorization", "Bearer guessed")
+						.contentType(MediaType.APPLICATION_NDJSON).content(forged))
+				.andExpect(status().isUnauthorized());
+		mockMvc.perform(get("/api/games/export").accept(MediaType.APPLICATION_NDJSON))
+				.andExpect(status().isUnauthorized());
+
+		assertTrue(leaderboard.top(3, 10).stream().noneMatch(game -> game.getScore() == 999999999));
+	}
+}
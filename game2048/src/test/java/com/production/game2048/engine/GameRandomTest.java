@@ -0,0 +1,62 @@
+package com.production.game2048.engine;
+
+import com.production.game2048.model.MoveDirection;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class GameRandomTest {
+
+	private static final MoveDirection[] DIRECTIONS = MoveDirection.values();
+
+	@Test
+	void sameSeedGivesSameSequence() {
+		GameRandom first = new GameRandom(2048);
+		GameRandom second = new GameRandom(2048);
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(first.nextInt(16), second.nextInt(16));
+		}
+		assertNotEquals(new GameRandom(1).nextLong(), new GameRandom(2).nextLong());
+	}
+
+	@Test
+	void continuesFromSavedState() {
+		GameRandom random = new GameRandom(7);
+		random.nextLong();
+		GameRandom resumed = new GameRandom(random.getState());
+		for (int i = 0; i < 100; i++) {
+			assertEquals(random.nextLong(), resumed.nextLong());
+		}
+	}
+
+	@Test
+	void gameIsReproducibleFromItsSeed() {
+		for (MoveEngine engine : new MoveEngine[]{new BitBoardMoveEngine(), new GenericMoveEngine()}) {
+			int[][] played = play(engine, new GameRandom(99), 0, 300);
+
+			// Stop halfway, as if the game had been saved, and continue from the stored state.
+			GameRandom random = new GameRandom(99);
+			int[][] board = play(engine, random, 0, 150);
+			GameRandom restored = new GameRandom(random.getState());
+			MoveResult result = new MoveResult();
+			for (int i = 150; i < 300; i++) {
+				engine.move(board, DIRECTIONS[i % DIRECTIONS.length], restored, result);
+			}
+
+			assertArrayEquals(played, board);
+		}
+	}
+
+	private static int[][] play(MoveEngine engine, GameRandom random, int from, int to) {
+		int[][] board = new int[4][4];
+		engine.spawnTile(board, random);
+		engine.spawnTile(board, random);
+		MoveResult result = new MoveResult();
+		for (int i = from; i < to; i++) {
+			engine.move(board, DIRECTIONS[i % DIRECTIONS.length], random, result);
+		}
+		return board;
+	}
+}
@@ -0,0 +1,253 @@
+package com.production.game2048.engine;
+
+import com.production.game2048.model.MoveDirection;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoveEngineTest {
+
+	private final MoveEngine bitBoard = new BitBoardMoveEngine();
+	private final MoveEngine generic = new GenericMoveEngine();
+
+	@Test
+	void bitBoardEngineFollowsTheRules() {
+		checkAgainstReference(bitBoard, 4, 20_000);
+	}
+
+	@Test
+	void genericEngineFollowsTheRules() {
+		for (int size = 1; size <= 7; size++) {
+			checkAgainstReference(generic, size, 5_000);
+		}
+	}
+
+	@Test
+	void parallelEngineFollowsTheRules() {
+		ParallelMoveEngine parallel = parallelEngine();
+		for (int size = 1; size <= 40; size += 3) {
+			checkAgainstReference(parallel, size, 300);
+		}
+		parallel.shutdown();
+	}
+
+	@Test
+	void parallelEngineSpawnsWhereTheGenericEngineDoes() {
+		// A game gets the same tiles whichever engine moves it, so its journal replays on either.
+		ParallelMoveEngine parallel = parallelEngine();
+		Random random = new Random(7);
+		MoveResult expected = new MoveResult();
+		MoveResult actual = new MoveResult();
+		for (int i = 0; i < 2000; i++) {
+			int size = 2 + random.nextInt(30);
+			int[][] board = randomBoard(random, size);
+			if (i % 3 == 0) {
+				fillEmptyCells(board, random);
+			}
+			int[][] other = copy(board);
+			MoveDirection direction = MoveDirection.values()[random.nextInt(4)];
+			long seed = random.nextLong();
+
+			generic.move(board, direction, new GameRandom(seed), expected);
+			parallel.move(other, direction, new GameRandom(seed), actual);
+
+			assertArrayEquals(board, other);
+			assertEquals(expected.isChanged(), actual.isChanged());
+			assertEquals(expected.getScore(), actual.getScore());
+			assertEquals(expected.getMaxTile(), actual.getMaxTile());
+			assertEquals(expected.isMovePossible(), actual.isMovePossible());
+			assertEquals(expected.getSpawnCell(), actual.getSpawnCell());
+			assertEquals(expected.getSpawnTile(), actual.getSpawnTile());
+		}
+		parallel.shutdown();
+	}
+
+	@Test
+	void mergesEachTileAtMostOncePerMove() {
+		int[][] board = {
+				{2, 2, 2, 2},
+				{4, 4, 8, 0},
+				{0, 0, 0, 0},
+				{0, 0, 0, 0}
+		};
+		MoveResult result = new MoveResult();
+		bitBoard.move(board, MoveDirection.LEFT, new Random(1), result);
+
+		assertTrue(result.isChanged());
+		assertEquals(4 + 4 + 8, result.getScore());
+		assertEquals(4, board[0][0]);
+		assertEquals(4, board[0][1]);
+		assertEquals(8, board[1][0]);
+		assertEquals(8, board[1][1]);
+	}
+
+	@Test
+	void leavesBoardsWithLargeTilesToTheGenericEngine() {
+		int[][] board = new int[4][4];
+		board[0][0] = 32768;
+		assertFalse(bitBoard.supports(board));
+		assertFalse(bitBoard.supports(new int[5][5]));
+	}
+
+	/**
+	 * Applies random moves to random boards and checks the engine against a plain
+	 * reference implementation: the slid board, the score, exactly one spawned tile,
+	 * the max tile and the game-over flag.
+	 */
+	private static void checkAgainstReference(MoveEngine engine, int size, int rounds) {
+		Random random = new Random(42 + size);
+		MoveResult result = new MoveResult();
+		for (int i = 0; i < rounds; i++) {
+			int[][] board = randomBoard(random, size);
+			MoveDirection direction = MoveDirection.values()[random.nextInt(4)];
+			int[][] expected = copy(board);
+			int expectedScore = referenceMove(expected, direction);
+			boolean expectedChange = !Arrays.deepEquals(expected, board);
+
+			engine.move(board, direction, random, result);
+
+			assertEquals(expectedChange, result.isChanged());
+			if (!expectedChange) {
+				assertArrayEquals(expected, board);
+				continue;
+			}
+			assertEquals(expectedScore, result.getScore());
+			int spawned = 0;
+			int maxTile = 0;
+			for (int r = 0; r < size; r++) {
+				for (int c = 0; c < size; c++) {
+					if (board[r][c] != expected[r][c]) {
+						assertEquals(0, expected[r][c]);
+						assertTrue(board[r][c] == 2 || board[r][c] == 4);
+						spawned++;
+					}
+					maxTile = Math.max(maxTile, board[r][c]);
+				}
+			}
+			assertEquals(hasEmptyCell(expected) ? 1 : 0, spawned);
+			assertEquals(maxTile, result.getMaxTile());
+			assertEquals(referenceMovePossible(board), result.isMovePossible());
+		}
+	}
+
+	private static int referenceMove(int[][] board, MoveDirection direction) {
+		int size = board.length;
+		int score = 0;
+		for (int line = 0; line < size; line++) {
+			int[] tiles = new int[size];
+			int count = 0;
+			for (int i = 0; i < size; i++) {
+				int value = cell(board, direction, line, i);
+				if (value != 0) {
+					tiles[count++] = value;
+				}
+			}
+			int[] merged = new int[size];
+			int out = 0;
+			for (int i = 0; i < count; i++) {
+				if (i + 1 < count && tiles[i] == tiles[i + 1]) {
+					merged[out++] = tiles[i] * 2;
+					score += tiles[i] * 2;
+					i++;
+				} else {
+					merged[out++] = tiles[i];
+				}
+			}
+			for (int i = 0; i < size; i++) {
+				setCell(board, direction, line, i, merged[i]);
+			}
+		}
+		return score;
+	}
+
+	private static int cell(int[][] board, MoveDirection direction, int line, int i) {
+		int last = board.length - 1;
+		switch (direction) {
+			case LEFT: return board[line][i];
+			case RIGHT: return board[line][last - i];
+			case UP: return board[i][line];
+			default: return board[last - i][line];
+		}
+	}
+
+	private static void setCell(int[][] board, MoveDirection direction, int line, int i, int value) {
+		int last = board.length - 1;
+		switch (direction) {
+			case LEFT: board[line][i] = value; break;
+			case RIGHT: board[line][last - i] = value; break;
+			case UP: board[i][line] = value; break;
+			default: board[last - i][line] = value; break;
+		}
+	}
+
+	private static boolean referenceMovePossible(int[][] board) {
+		int size = board.length;
+		for (int r = 0; r < size; r++) {
+			for (int c = 0; c < size; c++) {
+				if (board[r][c] == 0
+						|| (c < size - 1 && board[r][c] == board[r][c + 1])
+						|| (r < size - 1 && board[r][c] == board[r + 1][c])) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean hasEmptyCell(int[][] board) {
+		for (int[] row : board) {
+			for (int tile : row) {
+				if (tile == 0) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static int[][] randomBoard(Random random, int size) {
+		int[][] board = new int[size][size];
+		for (int r = 0; r < size; r++) {
+			for (int c = 0; c < size; c++) {
+				int exponent = random.nextInt(7);
+				board[r][c] = exponent == 0 ? 0 : 1 << exponent;
+			}
+		}
+		return board;
+	}
+
+	/**
+	 * A parallel engine that takes every board and splits it into tasks of two lines.
+	 */
+	private static ParallelMoveEngine parallelEngine() {
+		BoardProperties properties = new BoardProperties();
+		properties.setParallelThreshold(1);
+		properties.setLinesPerTask(2);
+		properties.setParallelism(3);
+		return new ParallelMoveEngine(properties);
+	}
+
+	private static void fillEmptyCells(int[][] board, Random random) {
+		for (int[] row : board) {
+			for (int c = 0; c < row.length; c++) {
+				if (row[c] == 0) {
+					row[c] = 2 << random.nextInt(6);
+				}
+			}
+		}
+	}
+
+	private static int[][] copy(int[][] board) {
+		int[][] copy = new int[board.length][];
+		for (int r = 0; r < board.length; r++) {
+			copy[r] = board[r].clone();
+		}
+		return copy;
+	}
+}
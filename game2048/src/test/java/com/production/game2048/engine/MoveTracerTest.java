@@ -0,0 +1,83 @@
+package com.production.game2048.engine;
+
+import com.production.game2048.model.MoveDelta;
+import com.production.game2048.model.MoveDirection;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MoveTracerTest {
+
+	private final MoveEngine engine = new GenericMoveEngine();
+
+	@Test
+	void replayingTheTraceGivesTheSlidBoard() {
+		Random random = new Random(42);
+		MoveResult result = new MoveResult();
+		for (int size = 1; size <= 6; size++) {
+			for (int round = 0; round < 2_000; round++) {
+				int[][] before = new int[size][size];
+				for (int[] row : before) {
+					for (int c = 0; c < size; c++) {
+						row[c] = random.nextInt(3) == 0 ? 0 : 1 << (1 + random.nextInt(3));
+					}
+				}
+				for (MoveDirection direction : MoveDirection.values()) {
+					MoveDelta delta = new MoveDelta(direction);
+					MoveTracer.trace(before, direction, delta);
+
+					int[][] expected = copy(before);
+					engine.slide(expected, direction, result);
+					assertArrayEquals(expected, replay(before, delta), "Size " + size + ", " + direction);
+					assertEquals(result.getScore(), delta.getMerges().stream().mapToInt(MoveDelta.Tile::getValue).sum());
+				}
+			}
+		}
+	}
+
+	@Test
+	void mergedTilesBothSlideIntoTheMergedCell() {
+		int[][] board = {
+				{2, 2, 0, 4},
+				{0, 0, 0, 0},
+				{0, 0, 0, 0},
+				{0, 0, 0, 0}
+		};
+		MoveDelta delta = new MoveDelta(MoveDirection.RIGHT);
+		MoveTracer.trace(board, MoveDirection.RIGHT, delta);
+
+		// The 4 stays put, the 2s meet in cell 2.
+		assertEquals(2, delta.getSlides().size());
+		assertEquals(0, delta.getSlides().get(1).getFrom());
+		assertEquals(2, delta.getSlides().get(1).getTo());
+		assertEquals(1, delta.getMerges().size());
+		assertEquals(2, delta.getMerges().get(0).getCell());
+		assertEquals(4, delta.getMerges().get(0).getValue());
+	}
+
+	private static int[][] replay(int[][] before, MoveDelta delta) {
+		int size = before.length;
+		int[][] board = copy(before);
+		for (MoveDelta.Slide slide : delta.getSlides()) {
+			board[slide.getFrom() / size][slide.getFrom() % size] = 0;
+		}
+		for (MoveDelta.Slide slide : delta.getSlides()) {
+			board[slide.getTo() / size][slide.getTo() % size] = slide.getValue();
+		}
+		for (MoveDelta.Tile merge : delta.getMerges()) {
+			board[merge.getCell() / size][merge.getCell() % size] = merge.getValue();
+		}
+		return board;
+	}
+
+	private static int[][] copy(int[][] board) {
+		int[][] copy = new int[board.length][];
+		for (int r = 0; r < board.length; r++) {
+			copy[r] = board[r].clone();
+		}
+		return copy;
+	}
+}
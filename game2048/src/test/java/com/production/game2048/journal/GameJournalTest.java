@@ -0,0 +1,129 @@
+package com.production.game2048.journal;
+
+import com.production.game2048.model.MoveDirection;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameJournalTest {
+
+	@TempDir
+	Path directory;
+
+	private GameJournal open(int segmentRecords) {
+		JournalProperties properties = new JournalProperties();
+		properties.setDirectory(directory.toString());
+		properties.setSegmentSize(DataSize.ofBytes((long) segmentRecords * GameJournal.RECORD_SIZE));
+		GameJournal journal = new GameJournal(properties);
+		journal.open();
+		return journal;
+	}
+
+	private List<JournalRecord> readAll(GameJournal journal) {
+		List<JournalRecord> records = new ArrayList<>();
+		journal.readAll(records::add);
+		return records;
+	}
+
+	@Test
+	void recordsRoundTrip() {
+		GameJournal journal = open(16);
+		journal.append(7, 1, MoveDirection.LEFT, 13, 4, 8, false, false);
+		journal.append(7, 2, MoveDirection.DOWN, -1, 0, 2056, true, true);
+		journal.appendUndo(7, 3, 8, false, false);
+		journal.close();
+
+		List<JournalRecord> records = readAll(journal);
+		assertEquals(3, records.size());
+
+		JournalRecord first = records.get(0);
+		assertEquals(7, first.getGameId());
+		assertEquals(1, first.getMoveCount());
+		assertEquals(MoveDirection.LEFT, first.getDirection());
+		assertEquals(13, first.getSpawnCell());
+		assertEquals(4, first.getSpawnTile());
+		assertEquals(8, first.getScore());
+		assertFalse(first.isWon());
+
+		JournalRecord second = records.get(1);
+		assertEquals(-1, second.getSpawnCell());
+		assertEquals(0, second.getSpawnTile());
+		assertTrue(second.isWon());
+		assertTrue(second.isGameOver());
+		assertFalse(second.isUndo());
+
+		JournalRecord undo = records.get(2);
+		assertTrue(undo.isUndo());
+		assertEquals(3, undo.getMoveCount());
+		assertEquals(8, undo.getScore());
+		assertFalse(undo.isGameOver());
+	}
+
+	@Test
+	void rollsOverAndDeletesOldSegments() throws IOException {
+		GameJournal journal = open(2);
+		assertFalse(journal.append(1, 1, MoveDirection.UP, 0, 2, 0, false, false));
+		assertFalse(journal.append(1, 2, MoveDirection.UP, 1, 2, 0, false, false));
+		long first = journal.currentSegment();
+		assertTrue(journal.append(1, 3, MoveDirection.UP, 2, 2, 4, false, false));
+		assertEquals(first + 1, journal.currentSegment());
+		assertEquals(3, readAll(journal).size());
+
+		journal.deleteSegmentsBefore(journal.currentSegment());
+		assertEquals(1, segmentCount());
+		assertEquals(3, readAll(journal).get(0).getMoveCount());
+		journal.close();
+	}
+
+	@Test
+	void stopsAtATornRecord() throws IOException {
+		GameJournal journal = open(16);
+		journal.append(1, 1, MoveDirection.RIGHT, 0, 2, 0, false, false);
+		journal.append(1, 2, MoveDirection.RIGHT, 1, 2, 4, false, false);
+		journal.close();
+
+		Path segment;
+		try (Stream<Path> files = Files.list(directory)) {
+			segment = files.collect(Collectors.toList()).get(0);
+		}
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), GameJournal.RECORD_SIZE + 20);
+		}
+
+		assertEquals(1, readAll(journal).size());
+	}
+
+	@Test
+	void reopeningStartsANewSegment() throws IOException {
+		GameJournal journal = open(16);
+		journal.append(1, 1, MoveDirection.LEFT, 0, 2, 0, false, false);
+		journal.close();
+
+		GameJournal reopened = open(16);
+		reopened.append(1, 2, MoveDirection.LEFT, 1, 2, 0, false, false);
+		assertEquals(2, segmentCount());
+		assertEquals(2, readAll(reopened).size());
+		reopened.close();
+	}
+
+	private long segmentCount() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.count();
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package com.production.game2048.leaderboard;
+
+import com.production.game2048.model.GameState;
+import com.production.game2048.model.MoveDirection;
+import com.production.game2048.model.RankedGame;
+import com.production.game2048.repository.GameStateRepository;
+import com.production.game2048.service.GameService;
+import com.production.game2048.service.LeaderboardService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "game.leaderboard.capacity=3")
+@ActiveProfiles("test")
+class LeaderboardTest {
+
+	private static final int BOARD_SIZE = 7;
+
+	@Autowired
+	private GameService gameService;
+
+	@Autowired
+	private LeaderboardService leaderboardService;
+
+	@Autowired
+	private GameStateRepository gameStateRepository;
+
+	@Test
+	void skipListRanksLikeASortedList() {
+		Random random = new Random(5);
+		RankedSkipList list = new RankedSkipList();
+		Map<Long, Integer> scores = new HashMap<>();
+		for (int round = 0; round < 5_000; round++) {
+			long id = random.nextInt(300);
+			Integer previous = scores.get(id);
+			if (previous != null) {
+				assertTrue(list.remove(id, previous));
+			}
+			if (random.nextInt(5) == 0) {
+				scores.remove(id);
+			} else {
+				int score = random.nextInt(50) * 4;
+				list.insert(id, score);
+				scores.put(id, score);
+			}
+		}
+
+		List<Long> expected = sorted(scores);
+		assertEquals(expected.size(), list.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(i + 1, list.rank(expected.get(i), scores.get(expected.get(i))));
+		}
+		List<Long> listed = new ArrayList<>();
+		list.forEach(Integer.MAX_VALUE, (id, score) -> listed.add(id));
+		assertEquals(expected, listed);
+		assertFalse(list.remove(-1, 0));
+	}
+
+	@Test
+	void ranksGamesInMemoryAndBelowCapacityAlike() {
+		for (int seed = 0; seed < 6; seed++) {
+			GameState game = gameService.startNewGame(BOARD_SIZE, (long) seed);
+			List<MoveDirection> moves = new ArrayList<>();
+			for (int i = 0; i < seed * 10; i++) {
+				moves.add(MoveDirection.values()[i % 4]);
+			}
+			if (!moves.isEmpty()) {
+				gameService.move(game.getId(), moves);
+			}
+		}
+
+		Map<Long, Integer> scores = gameStateRepository.findAll().stream()
+				.filter(game -> game.getBoardSize() == BOARD_SIZE)
+				.collect(Collectors.toMap(GameState::getId, GameState::getScore));
+		List<Long> expected = sorted(scores);
+
+		List<RankedGame> top = leaderboardService.top(BOARD_SIZE, 3);
+		assertEquals(expected.subList(0, 3), top.stream().map(RankedGame::getId).collect(Collectors.toList()));
+		assertEquals(1, top.get(0).getRank());
+		for (int i = 0; i < expected.size(); i++) {
+			RankedGame ranked = leaderboardService.rank(expected.get(i));
+			assertEquals(i + 1, ranked.getRank());
+			assertEquals(scores.get(expected.get(i)).intValue(), ranked.getScore());
+		}
+	}
+
+	private static List<Long> sorted(Map<Long, Integer> scores) {
+		return scores.keySet().stream()
+				.sorted(Comparator.comparing((Long id) -> -scores.get(id)).thenComparing(id -> id))
+				.collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,65 @@
+package com.production.game2048.metrics;
+
+import com.production.game2048.model.GameState;
+import com.production.game2048.model.MoveDirection;
+import com.production.game2048.service.GameService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class GameMetricsTest {
+
+	@Autowired
+	private GameService gameService;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void movesAndStorageAccessAreRecorded() {
+		double started = registry.counter("game.games.started").count();
+		double moves = registry.counter("game.moves").count();
+		long computed = registry.timer("game.move.computation").count();
+		long inserts = registry.timer("game.persistence", "operation", "insert").count();
+		long updates = registry.timer("game.persistence", "operation", "update").count();
+
+		GameState game = gameService.startNewGame(4, 7L);
+		for (int i = 0; i < 20; i++) {
+			game = gameService.move(game.getId(), MoveDirection.values()[i % 4]);
+		}
+
+		assertEquals(started + 1, registry.counter("game.games.started").count());
+		assertEquals(moves + game.getMoveCount(), registry.counter("game.moves").count());
+		assertTrue(registry.timer("game.move.computation").count() - computed >= game.getMoveCount());
+		assertEquals(inserts + 1, registry.timer("game.persistence", "operation", "insert").count());
+		// SYNC durability writes every move that changed the board.
+		assertEquals(updates + game.getMoveCount(), registry.timer("game.persistence", "operation", "update").count());
+		assertTrue(registry.get("game.sessions.active").gauge().value() >= 1);
+	}
+
+	@Test
+	void handledExceptionsAreCountedByType() throws Exception {
+		double before = registry.counter("game.exceptions",
+				"exception", "GameNotFoundException", "status", "404").count();
+
+		mockMvc.perform(get("/api/games/{id}", Long.MAX_VALUE)).andExpect(status().isNotFound());
+
+		assertEquals(before + 1, registry.counter("game.exceptions",
+				"exception", "GameNotFoundException", "status", "404").count());
+	}
+}
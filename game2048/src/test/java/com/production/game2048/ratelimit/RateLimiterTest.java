@@ -0,0 +1,190 @@
+package com.production.game2048.ratelimit;
+
+import com.production.game2048.exception.TooManyRequestsException;
+import com.production.game2048.metrics.GameMetrics;
+import com.production.game2048.model.GameState;
+import com.production.game2048.service.GameService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+		"game.rate-limit.endpoints.move.game-rate=0.5",
+		"game.rate-limit.endpoints.move.game-burst=3",
+		"game.rate-limit.endpoints.subscribe.client-rate=0.01",
+		"game.rate-limit.endpoints.subscribe.client-burst=2"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RateLimiterTest {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	@Autowired
+	private GameService gameService;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@Test
+	void bucketAdmitsItsBurstThenRefillsAtItsRate() {
+		TokenBucket bucket = new TokenBucket(new TokenBucket.Rate(4, 3), 0);
+
+		assertEquals(0, bucket.tryTake(0));
+		assertEquals(0, bucket.tryTake(0));
+		assertEquals(0, bucket.tryTake(0));
+		assertEquals(SECOND / 4, bucket.tryTake(0));
+		assertEquals(SECOND / 8, bucket.tryTake(SECOND / 8));
+
+		assertEquals(0, bucket.tryTake(SECOND / 4));
+		assertTrue(bucket.tryTake(SECOND / 4) > 0);
+		assertFalse(bucket.isFull(SECOND / 4));
+		// Idle for long enough, the bucket is full again, but never holds more than its burst.
+		assertTrue(bucket.isFull(10 * SECOND));
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, bucket.tryTake(10 * SECOND));
+		}
+		assertTrue(bucket.tryTake(10 * SECOND) > 0);
+	}
+
+	@Test
+	void concurrentRequestsShareTheBurstExactly() throws Exception {
+		TokenBucket bucket = new TokenBucket(new TokenBucket.Rate(1e-3, 1000), 0);
+		AtomicInteger admitted = new AtomicInteger();
+		ExecutorService threads = Executors.newFixedThreadPool(8);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			for (int t = 0; t < 8; t++) {
+				threads.execute(() -> {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int i = 0; i < 1000; i++) {
+						if (bucket.tryTake(0) == 0) {
+							admitted.incrementAndGet();
+						}
+					}
+				});
+			}
+			start.countDown();
+		} finally {
+			threads.shutdown();
+			assertTrue(threads.awaitTermination(30, TimeUnit.SECONDS));
+		}
+		assertEquals(1000, admitted.get());
+	}
+
+	@Test
+	void movesBeyondAGamesLimitAreRefusedWithRetryAfter() throws Exception {
+		GameState limited = gameService.startNewGame(4, 5L);
+		GameState other = gameService.startNewGame(4, 6L);
+		String url = "/api/games/" + limited.getId() + "/move";
+
+		for (int i = 0; i < 3; i++) {
+			mockMvc.perform(post(url).param("direction", i % 2 == 0 ? "LEFT" : "RIGHT"))
+					.andExpect(status().isOk());
+		}
+		long moveCount = gameService.getGameState(limited.getId()).getMoveCount();
+		MvcResult refused = mockMvc.perform(post(url).param("direction", "UP"))
+				.andExpect(status().isTooManyRequests())
+				.andExpect(jsonPath("$.status").value(429))
+				.andReturn();
+		// The next token comes 2 seconds after the first was taken.
+		long retryAfter = Long.parseLong(refused.getResponse().getHeader("Retry-After"));
+		assertTrue(retryAfter >= 1 && retryAfter <= 2, "Retry-After " + retryAfter);
+		mockMvc.perform(post("/api/games/" + other.getId() + "/move").param("direction", "UP"))
+				.andExpect(status().isOk());
+
+		assertEquals(moveCount, gameService.getGameState(limited.getId()).getMoveCount());
+		assertEquals(1, registry.get("game.ratelimit.rejected").tag("endpoint", "move").tag("limit", "game")
+				.counter().count());
+	}
+
+	@Test
+	void eventStreamsBeyondAClientsLimitAreRefusedButTakeNoSlot() throws Exception {
+		String url = "/api/games/" + gameService.startNewGame(4, 7L).getId() + "/events";
+
+		for (int i = 0; i < 2; i++) {
+			mockMvc.perform(get(url).with(request -> {
+						request.setRemoteAddr("192.0.2.7");
+						return request;
+					}))
+					.andExpect(status().isOk());
+		}
+		mockMvc.perform(get(url).with(request -> {
+					request.setRemoteAddr("192.0.2.7");
+					return request;
+				}))
+				.andExpect(status().isTooManyRequests());
+
+		// Both streams are still open, without holding on to a concurrency slot.
+		assertEquals(0, registry.get("game.ratelimit.active").gauge().value());
+		assertEquals(1, registry.get("game.ratelimit.rejected").tag("endpoint", "subscribe").tag("limit", "client")
+				.counter().count());
+	}
+
+	@Test
+	void requestsBeyondTheConcurrencyLimitWaitThenAreRefused() throws Exception {
+		RateLimitProperties properties = new RateLimitProperties();
+		properties.setMaxConcurrentRequests(1);
+		properties.setMaxQueueTime(Duration.ofMillis(500));
+		SimpleMeterRegistry meters = new SimpleMeterRegistry();
+		RateLimiter limiter = new RateLimiter(properties, new GameMetrics(meters));
+		ExecutorService releaser = Executors.newSingleThreadExecutor();
+		try {
+			limiter.acquire(RateLimitedEndpoint.MOVE);
+			assertEquals(1, meters.get("game.ratelimit.active").gauge().value());
+			TooManyRequestsException refused = assertThrows(TooManyRequestsException.class,
+					() -> limiter.acquire(RateLimitedEndpoint.MOVE));
+			assertEquals(1, refused.getRetryAfterSeconds());
+
+			// A slot freed while a request waits goes to that request.
+			CountDownLatch waiting = new CountDownLatch(1);
+			releaser.execute(() -> {
+				try {
+					waiting.await();
+					Thread.sleep(20);
+				} catch (InterruptedException ignored) {
+					// Released at once then.
+				}
+				limiter.release();
+			});
+			waiting.countDown();
+			limiter.acquire(RateLimitedEndpoint.MOVE);
+			limiter.release();
+		} finally {
+			releaser.shutdown();
+			limiter.shutdown();
+		}
+		assertEquals(0, meters.get("game.ratelimit.active").gauge().value());
+		assertEquals(1, meters.get("game.ratelimit.rejected").tag("limit", "concurrency").counter().count());
+		assertEquals(2, meters.get("game.ratelimit.queue").timer().count());
+	}
+}
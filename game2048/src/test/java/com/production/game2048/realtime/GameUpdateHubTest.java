@@ -0,0 +1,196 @@
+package com.production.game2048.realtime;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.production.game2048.model.GameState;
+import com.production.game2048.model.MoveDirection;
+import com.production.game2048.service.GameService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"game.rate-limit.endpoints.move.game-rate=0.5",
+		"game.rate-limit.endpoints.move.game-burst=3"
+})
+@ActiveProfiles("test")
+class GameUpdateHubTest {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private GameService gameService;
+
+	@Autowired
+	private GameUpdateHub hub;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void movesOverOneSocketArePushedToEveryWatcher() throws Exception {
+		GameState game = gameService.startNewGame(4, 11L);
+		Client player = new Client();
+		Client spectator = new Client();
+		WebSocketSession playerSession = connect(game.getId(), player);
+		connect(game.getId(), spectator);
+
+		assertEquals(0, player.next().path("game").path("moveCount").asLong());
+		assertEquals(0, spectator.next().path("game").path("moveCount").asLong());
+
+		// Whichever of the two moves changes the board first produces the pushed state.
+		playerSession.sendMessage(new TextMessage("LR"));
+		JsonNode pushed = spectator.next();
+		assertEquals("state", pushed.path("type").asText());
+		assertTrue(pushed.path("game").path("moveCount").asLong() >= 1);
+		assertEquals(gameService.getGameState(game.getId()).getScore(), pushed.path("game").path("score").asInt());
+
+		playerSession.sendMessage(new TextMessage("X"));
+		JsonNode error = player.nextOfType("error");
+		assertEquals(400, error.path("error").path("status").asInt());
+		assertNull(spectator.messages.poll(200, TimeUnit.MILLISECONDS), "Errors go to the sender only");
+	}
+
+	@Test
+	void framesBeyondAGamesMoveLimitAreRefused() throws Exception {
+		GameState game = gameService.startNewGame(4, 13L);
+		Client player = new Client();
+		WebSocketSession playerSession = connect(game.getId(), player);
+
+		for (int i = 0; i < 4; i++) {
+			playerSession.sendMessage(new TextMessage(i % 2 == 0 ? "L" : "R"));
+		}
+		JsonNode error = player.nextOfType("error");
+		assertEquals(429, error.path("error").path("status").asInt());
+		assertTrue(gameService.getGameState(game.getId()).getMoveCount() <= 3);
+	}
+
+	@Test
+	void unknownGamesAreRefused() throws Exception {
+		Client client = new Client();
+		connect(Long.MAX_VALUE, client);
+		assertTrue(client.closed.await(5, TimeUnit.SECONDS));
+		assertEquals(CloseStatus.POLICY_VIOLATION.getCode(), client.closeStatus.getCode());
+	}
+
+	@Test
+	void slowConnectionsSkipToTheLatestState() throws Exception {
+		GameState game = gameService.startNewGame(4, 12L);
+		BlockingConnection slow = new BlockingConnection();
+		GameUpdateHub.Subscription subscription = hub.subscribe(game, slow);
+		try {
+			assertTrue(slow.sending.await(5, TimeUnit.SECONDS));
+			// The initial state is stuck in send(); these moves pile up behind it.
+			GameState last = game;
+			for (int i = 0; i < 40 && !last.isGameOver(); i++) {
+				last = gameService.move(game.getId(), MoveDirection.values()[i % 4]);
+			}
+			slow.release.countDown();
+
+			long expected = last.getMoveCount();
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (slow.lastMoveCount() != expected && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(expected, slow.lastMoveCount());
+			// The initial state, then only the newest one instead of every intermediate state.
+			assertEquals(2, slow.sent.size());
+		} finally {
+			subscription.cancel();
+		}
+		assertEquals(0, hub.connectionCount(game.getId()));
+	}
+
+	private WebSocketSession connect(long gameId, Client client) throws Exception {
+		return new StandardWebSocketClient()
+				.doHandshake(client, "ws://localhost:" + port + "/ws/games/" + gameId)
+				.get(5, TimeUnit.SECONDS);
+	}
+
+	private final class Client extends TextWebSocketHandler {
+
+		private final BlockingQueue<JsonNode> messages = new LinkedBlockingQueue<>();
+		private final CountDownLatch closed = new CountDownLatch(1);
+		private volatile CloseStatus closeStatus;
+
+		@Override
+		protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+			messages.add(objectMapper.readTree(message.getPayload()));
+		}
+
+		@Override
+		public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+			closeStatus = status;
+			closed.countDown();
+		}
+
+		JsonNode next() throws InterruptedException {
+			JsonNode message = messages.poll(5, TimeUnit.SECONDS);
+			assertNotNull(message, "No message within 5 seconds");
+			return message;
+		}
+
+		JsonNode nextOfType(String type) throws InterruptedException {
+			JsonNode message;
+			do {
+				message = next();
+			} while (!type.equals(message.path("type").asText()));
+			return message;
+		}
+	}
+
+	private final class BlockingConnection implements GameConnection {
+
+		private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+		private final CountDownLatch sending = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		public void send(String message) throws IOException {
+			sending.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			sent.add(message);
+		}
+
+		long lastMoveCount() throws IOException {
+			synchronized (sent) {
+				return sent.isEmpty() ? -1
+						: objectMapper.readTree(sent.get(sent.size() - 1)).path("game").path("moveCount").asLong();
+			}
+		}
+
+		@Override
+		public void heartbeat() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package com.production.game2048.service;
+
+import com.production.game2048.exception.GameConflictException;
+import com.production.game2048.model.GameState;
+import com.production.game2048.model.MoveBatchResult;
+import com.production.game2048.model.MoveDirection;
+import com.production.game2048.repository.GameStateRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A tiny cache and few lock stripes, so games are evicted and reloaded while others play on them.
+@SpringBootTest(properties = {"game.session.max-size=4", "game.session.lock-stripes=4"})
+@ActiveProfiles("test")
+class GameServiceConcurrencyTest {
+
+	private static final int GAMES = 16;
+	private static final int THREADS = 8;
+	private static final int REQUESTS_PER_THREAD = 400;
+	private static final MoveDirection[] DIRECTIONS = MoveDirection.values();
+
+	@Autowired
+	private GameService gameService;
+
+	@Autowired
+	private GameStateRepository repository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void concurrentMovesAreNeverLost() throws Exception {
+		long[] ids = new long[GAMES];
+		AtomicLongArray earned = new AtomicLongArray(GAMES);
+		for (int g = 0; g < GAMES; g++) {
+			GameState game = gameService.startNewGame(g % 2 == 0 ? 4 : 6, (long) g);
+			ids[g] = game.getId();
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			Random random = new Random(t);
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+					int g = random.nextInt(GAMES);
+					if (random.nextBoolean()) {
+						GameState before = gameService.getGameState(ids[g]);
+						GameState after = gameService.move(ids[g], DIRECTIONS[random.nextInt(4)]);
+						// Only safe as a lower bound: other threads may have moved in between.
+						assertTrue(after.getMoveCount() >= before.getMoveCount());
+						continue;
+					}
+					List<MoveDirection> moves = new ArrayList<>();
+					for (int m = 1 + random.nextInt(3); m > 0; m--) {
+						moves.add(DIRECTIONS[random.nextInt(4)]);
+					}
+					MoveBatchResult result = gameService.move(ids[g], moves);
+					earned.addAndGet(g, Arrays.stream(result.getMoveScores()).sum());
+				}
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		for (int g = 0; g < GAMES; g++) {
+			GameState cached = gameService.getGameState(ids[g]);
+			GameState saved = repository.findById(ids[g]).orElseThrow(AssertionError::new);
+			assertEquals(cached.getScore(), saved.getScore());
+			assertEquals(cached.getMoveCount(), saved.getMoveCount());
+			assertEquals(cached.getVersion(), saved.getVersion());
+			// Single moves add unknown amounts, so only batches can be summed up exactly.
+			assertTrue(cached.getScore() >= earned.get(g));
+		}
+	}
+
+	@Test
+	void batchScoresAddUpUnderContention() throws Exception {
+		long id = gameService.startNewGame(8, 7L).getId();
+		AtomicLongArray earned = new AtomicLongArray(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			Random random = new Random(100 + t);
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+					MoveBatchResult result = gameService.move(id,
+							Arrays.asList(DIRECTIONS[random.nextInt(4)], DIRECTIONS[random.nextInt(4)]));
+					earned.addAndGet(0, Arrays.stream(result.getMoveScores()).sum());
+				}
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		GameState saved = repository.findById(id).orElseThrow(AssertionError::new);
+		assertEquals(earned.get(0), saved.getScore());
+		assertEquals(saved.getScore(), gameService.getGameState(id).getScore());
+	}
+
+	@Test
+	void rowChangedElsewhereIsNotOverwritten() {
+		long id = gameService.startNewGame(4, 1L).getId();
+		jdbcTemplate.update("UPDATE game_state SET version = version + 1, score = 1000 WHERE id = ?", id);
+
+		assertThrows(GameConflictException.class, () -> {
+			for (MoveDirection direction : DIRECTIONS) {
+				gameService.move(id, direction);
+			}
+		});
+
+		// The stale copy was dropped, so the game continues from the row as it was changed.
+		assertEquals(1000, gameService.getGameState(id).getScore());
+	}
+}
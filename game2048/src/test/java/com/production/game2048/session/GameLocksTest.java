@@ -0,0 +1,61 @@
+package com.production.game2048.session;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class GameLocksTest {
+
+	@Test
+	void severalGamesAreLockedInTheSameOrderWhateverOrderTheyAreGivenIn() throws Exception {
+		GameLocks locks = new GameLocks(64);
+		List<Long> ids = new ArrayList<>();
+		for (long id = 1; id <= 500; id++) {
+			ids.add(id);
+		}
+		List<Long> reversed = new ArrayList<>(ids);
+		Collections.reverse(reversed);
+
+		List<Lock> forward = locks.forGames(ids);
+		assertEquals(64, forward.size());
+		assertEquals(64, new HashSet<>(forward).size());
+		List<Lock> backward = locks.forGames(reversed);
+		for (int i = 0; i < forward.size(); i++) {
+			assertSame(forward.get(i), backward.get(i));
+		}
+
+		// Two batches locking each other's games in opposite id order finish instead of deadlocking.
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			CyclicBarrier barrier = new CyclicBarrier(2);
+			List<Future<?>> runs = new ArrayList<>();
+			for (List<Long> order : Arrays.asList(ids, reversed)) {
+				runs.add(executor.submit(() -> {
+					barrier.await();
+					for (int round = 0; round < 200; round++) {
+						GameLocks.unlockAll(locks.lockAll(order));
+					}
+					return null;
+				}));
+			}
+			for (Future<?> run : runs) {
+				run.get(10, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package com.production.game2048.session;
+
+import com.production.game2048.model.GameState;
+import com.production.game2048.model.MoveDirection;
+import com.production.game2048.repository.GameStateRepository;
+import com.production.game2048.service.GameService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Three games or 100 cells at most, written only when flushed by hand, and dropped after two idle seconds.
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:sessiontest;DB_CLOSE_DELAY=-1",
+		"game.archive.enabled=false",
+		"game.archive.directory=./target/archive-test/${random.uuid}",
+		"game.session.durability=WRITE_BEHIND",
+		"game.session.flush-interval=1h",
+		"game.session.max-size=3",
+		"game.session.max-cells=100",
+		"game.session.idle-timeout=2s"})
+@ActiveProfiles("test")
+class GameSessionStoreTest {
+
+	@Autowired
+	private GameSessionStore store;
+
+	@Autowired
+	private GameService gameService;
+
+	@Autowired
+	private GameStateRepository repository;
+
+	@Autowired
+	private GameLocks locks;
+
+	@Test
+	void leastRecentlyUsedGamesAreEvictedBeyondMaxSize() {
+		long first = gameService.startNewGame(4, 1L).getId();
+		long second = gameService.startNewGame(4, 2L).getId();
+		gameService.startNewGame(4, 3L);
+		// Using the first game again makes the second one the least recently used.
+		assertTrue(store.find(first).isPresent());
+		long evictions = store.stats().getEvictions();
+
+		long fourth = gameService.startNewGame(4, 4L).getId();
+
+		assertTrue(store.stats().getEvictions() > evictions);
+		assertFalse(store.findCached(second).isPresent());
+		assertTrue(store.findCached(first).isPresent());
+		assertTrue(store.findCached(fourth).isPresent());
+		assertTrue(store.stats().getActiveGames() <= 3);
+	}
+
+	@Test
+	void gamesAreEvictedBeyondMaxCells() {
+		long first = gameService.startNewGame(8, 1L).getId();
+		long second = gameService.startNewGame(8, 2L).getId();
+
+		// Two games, but 128 cells: the older one has to go.
+		assertFalse(store.findCached(first).isPresent());
+		assertTrue(store.findCached(second).isPresent());
+		long misses = store.stats().getMisses();
+		assertEquals(first, store.find(first).get().getId());
+		assertEquals(misses + 1, store.stats().getMisses());
+	}
+
+	@Test
+	void idleGamesAreEvicted() throws InterruptedException {
+		long id = gameService.startNewGame(4, 5L).getId();
+		assertTrue(store.findCached(id).isPresent());
+
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (store.findCached(id).isPresent() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(100);
+		}
+		assertFalse(store.findCached(id).isPresent());
+	}
+
+	@Test
+	void changesAreWrittenOnlyWhenFlushed() {
+		long id = gameService.startNewGame(4, 6L).getId();
+		gameService.move(id, Arrays.asList(MoveDirection.values()));
+		GameState game = gameService.getGameState(id);
+		assertTrue(game.getMoveCount() > 0);
+		assertEquals(0, repository.findById(id).get().getMoveCount());
+		assertTrue(store.stats().getDirtyGames() > 0);
+
+		long flushedGames = store.stats().getFlushedGames();
+		store.flush();
+
+		GameState saved = repository.findById(id).get();
+		assertEquals(game.getMoveCount(), saved.getMoveCount());
+		assertEquals(game.getScore(), saved.getScore());
+		// The write is carried back to the cached game, so its next flush does not conflict.
+		assertEquals(gameService.getGameState(id).getVersion(), saved.getVersion());
+		assertTrue(store.stats().getFlushedGames() > flushedGames);
+		assertEquals(0, store.stats().getDirtyGames());
+	}
+
+	@Test
+	void evictedGamesAreTakenBackBeforeTheyAreWritten() {
+		long id = gameService.startNewGame(4, 7L).getId();
+		gameService.move(id, Arrays.asList(MoveDirection.values()));
+		GameState game = store.findCached(id).get();
+		for (long seed = 0; seed < 3; seed++) {
+			gameService.startNewGame(4, seed);
+		}
+
+		// Evicted but not written yet: held aside, and taken back instead of loading the stale row.
+		assertEquals(0, repository.findById(id).get().getMoveCount());
+		assertSame(game, store.findCached(id).get());
+		assertSame(game, store.find(id).get());
+		assertEquals(game.getMoveCount(), gameService.getGameState(id).getMoveCount());
+
+		store.flush();
+		assertEquals(game.getMoveCount(), repository.findById(id).get().getMoveCount());
+	}
+
+	@Test
+	void gamesEvictedWhileBeingChangedAreStillWritten() {
+		long id = gameService.startNewGame(4, 8L).getId();
+		GameState game = store.find(id).get();
+		Lock lock = locks.forGame(id);
+		lock.lock();
+		try {
+			// Evicted while still clean, between being looked up and marked dirty.
+			for (long seed = 0; seed < 3; seed++) {
+				gameService.startNewGame(4, seed);
+			}
+			assertFalse(store.findCached(id).isPresent());
+			game.setScore(4096);
+			store.markDirty(game);
+		} finally {
+			lock.unlock();
+		}
+
+		assertSame(game, store.findCached(id).get());
+		store.flush();
+		assertEquals(4096, repository.findById(id).get().getScore());
+	}
+}
@@ -0,0 +1,81 @@
+package com.production.game2048.simulation;
+
+import com.production.game2048.ai.AiProperties;
+import com.production.game2048.ai.ExpectimaxSearch;
+import com.production.game2048.engine.BitBoardMoveEngine;
+import com.production.game2048.engine.GenericMoveEngine;
+import com.production.game2048.engine.MoveEngineSelector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimulationRunnerTest {
+
+	private static final ExpectimaxSearch search = new ExpectimaxSearch(new AiProperties());
+	private static final SimulationRunner runner = new SimulationRunner(
+			new MoveEngineSelector(Arrays.asList(new BitBoardMoveEngine(), new GenericMoveEngine())),
+			search, new SimulationProperties());
+
+	@AfterAll
+	static void shutdown() {
+		runner.shutdown();
+		search.shutdown();
+	}
+
+	private static SimulationRequest request(PolicyType policy, long games, int size, int workers) {
+		SimulationRequest request = new SimulationRequest();
+		request.setPolicy(policy);
+		request.setGames(games);
+		request.setBoardSize(size);
+		request.setWorkers(workers);
+		request.setSeed(42L);
+		return request;
+	}
+
+	@Test
+	void sameSeedGivesSameResultsWithAnyNumberOfWorkers() {
+		SimulationReport single = runner.run(request(PolicyType.CORNER, 2000, 4, 1), report -> { });
+		SimulationReport parallel = runner.run(request(PolicyType.CORNER, 2000, 4, 4), report -> { });
+
+		assertEquals(2000, single.getGamesPlayed());
+		assertEquals(single.getMeanScore(), parallel.getMeanScore());
+		assertEquals(single.getMaxTileHistogram(), parallel.getMaxTileHistogram());
+		assertEquals(single.getScoreHistogram(), parallel.getScoreHistogram());
+	}
+
+	@Test
+	void everyPolicyFinishesItsGames() {
+		for (PolicyType policy : PolicyType.values()) {
+			int games = policy == PolicyType.EXPECTIMAX ? 2 : 200;
+			List<SimulationReport> reports = new ArrayList<>();
+			SimulationReport report = runner.run(request(policy, games, 4, 2), reports::add);
+
+			assertTrue(report.isFinished());
+			assertEquals(games, report.getGamesPlayed());
+			assertEquals(games, report.getMaxTileHistogram().values().stream().mapToLong(Long::longValue).sum());
+			assertTrue(report.getMinMoves() > 0);
+			assertEquals(report, reports.get(reports.size() - 1));
+		}
+	}
+
+	@Test
+	void smarterPoliciesScoreHigher() {
+		double random = runner.run(request(PolicyType.RANDOM, 500, 4, 2), report -> { }).getMeanScore();
+		double corner = runner.run(request(PolicyType.CORNER, 500, 4, 2), report -> { }).getMeanScore();
+		assertTrue(corner > random, "corner " + corner + " vs random " + random);
+	}
+
+	@Test
+	void rejectsInvalidRequests() {
+		assertThrows(IllegalArgumentException.class, () -> runner.run(request(PolicyType.EXPECTIMAX, 1, 5, 1), r -> { }));
+		assertThrows(IllegalArgumentException.class, () -> runner.run(request(PolicyType.CORNER, 0, 4, 1), r -> { }));
+		assertThrows(IllegalArgumentException.class, () -> runner.run(request(PolicyType.CORNER, 1, 1, 1), r -> { }));
+	}
+}
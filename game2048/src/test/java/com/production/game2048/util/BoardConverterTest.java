@@ -0,0 +1,92 @@
+package com.production.game2048.util;
+
+import com.production.game2048.model.GameState;
+import com.production.game2048.model.UndoHistory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BoardConverterTest {
+
+	private final BinaryBoardConverter binary = new BinaryBoardConverter();
+	private final IntArrayConverter legacy = new IntArrayConverter();
+	private final UndoHistoryConverter undo = new UndoHistoryConverter();
+
+	@Test
+	void binaryFormatRoundTrips() {
+		int[][] board = {
+				{0, 2, 4, 8},
+				{16, 32, 64, 128},
+				{256, 512, 1024, 2048},
+				{4096, 8192, 16384, 131072}
+		};
+		byte[] data = binary.convertToDatabaseColumn(board);
+
+		assertEquals(BinaryBoardConverter.HEADER_LENGTH + 16, data.length);
+		assertArrayEquals(board, binary.convertToEntityAttribute(data));
+	}
+
+	@Test
+	void binaryFormatRejectsCorruptData() {
+		byte[] data = binary.convertToDatabaseColumn(new int[3][3]);
+		byte[] truncated = new byte[data.length - 1];
+		System.arraycopy(data, 0, truncated, 0, truncated.length);
+
+		assertThrows(IllegalArgumentException.class, () -> binary.convertToEntityAttribute(truncated));
+		assertThrows(IllegalArgumentException.class, () -> binary.convertToDatabaseColumn(new int[][]{{3}}));
+	}
+
+	@Test
+	void legacyTextFormatStillParses() {
+		int[][] board = {
+				{2, 0, 0, 0},
+				{4, 0, 2, 0},
+				{0, 0, 0, 0},
+				{0, 1024, 0, 4}
+		};
+		String text = legacy.convertToDatabaseColumn(board);
+
+		assertEquals("2,0,0,0;4,0,2,0;0,0,0,0;0,1024,0,4", text);
+		assertArrayEquals(board, legacy.convertToEntityAttribute(text));
+		assertThrows(IllegalArgumentException.class, () -> legacy.convertToEntityAttribute("2,x;0,0"));
+	}
+
+	@Test
+	void undoHistoryRoundTripsAndWidensForLargeTiles() {
+		GameState game = new GameState();
+		game.setBoard(new int[4][4]);
+		UndoHistory history = new UndoHistory(4, 3);
+		assertNull(undo.convertToDatabaseColumn(history));
+		// Five states into a history of three; the last one needs 5 bits per tile.
+		for (int i = 1; i <= 5; i++) {
+			game.getBoard()[i % 4][i / 4] = i == 5 ? 65536 : 1 << i;
+			game.setScore(i * 100);
+			game.setWon(i >= 4);
+			game.restoreRandom(0, i * 31L);
+			history.stage(game);
+			history.commit();
+		}
+		assertEquals(5, history.getBitsPerCell());
+		byte[] data = undo.convertToDatabaseColumn(history);
+		assertEquals(UndoHistoryConverter.HEADER_LENGTH + 3 * history.getSlotWords() * Long.BYTES, data.length);
+
+		UndoHistory restored = undo.convertToEntityAttribute(data);
+		assertEquals(history, restored);
+		assertEquals(history.hashCode(), restored.hashCode());
+		for (int i = 5; i >= 3; i--) {
+			assertEquals(i * 100, restored.peekScore());
+			restored.undo(game);
+			assertNotEquals(history, restored);
+			assertEquals(i * 100, game.getScore());
+			assertEquals(i >= 4, game.isWon());
+			assertEquals(i * 31L, game.getRngState());
+			assertEquals(i == 5 ? 65536 : 1 << i, game.getBoard()[i % 4][i / 4]);
+		}
+		assertFalse(restored.undo(game));
+	}
+}